@@ -6,6 +6,7 @@ import de.pitbully.pitbullyplugin.commands.DelWarpCommand;
 import de.pitbully.pitbullyplugin.commands.EnderchestCommand;
 import de.pitbully.pitbullyplugin.commands.HomeCommand;
 import de.pitbully.pitbullyplugin.commands.KeepXpCommand;
+import de.pitbully.pitbullyplugin.commands.MetricsCommand;
 import de.pitbully.pitbullyplugin.commands.PluginInfoCommand;
 import de.pitbully.pitbullyplugin.commands.SetHomeCommand;
 import de.pitbully.pitbullyplugin.commands.SetWarpCommand;
@@ -18,14 +19,21 @@ import de.pitbully.pitbullyplugin.commands.TpAcceptCommand;
 import de.pitbully.pitbullyplugin.commands.TpDenyCommand;
 import de.pitbully.pitbullyplugin.commands.TpaCommand;
 import de.pitbully.pitbullyplugin.commands.TpaHereCommand;
+import de.pitbully.pitbullyplugin.listeners.LandingPointListener;
 import de.pitbully.pitbullyplugin.listeners.LocationListener;
 import de.pitbully.pitbullyplugin.listeners.PlayerDeathListener;
 import de.pitbully.pitbullyplugin.listeners.PlayerQuitCleanupListener;
+import de.pitbully.pitbullyplugin.listeners.PlayerSessionListener;
+import de.pitbully.pitbullyplugin.listeners.WorldUnloadListener;
 import de.pitbully.pitbullyplugin.storage.FileLocationStorage;
 import de.pitbully.pitbullyplugin.storage.LocationManager;
 import de.pitbully.pitbullyplugin.storage.LocationStorage;
+import de.pitbully.pitbullyplugin.storage.StorageMetrics;
+import de.pitbully.pitbullyplugin.storage.StorageMetricsExporter;
 import de.pitbully.pitbullyplugin.utils.ConfigManager;
 import de.pitbully.pitbullyplugin.utils.PluginInfo;
+import de.pitbully.pitbullyplugin.utils.SafeLandingPoints;
+import de.pitbully.pitbullyplugin.utils.TeleportQueue;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.TabCompleter;
 import org.bukkit.configuration.file.FileConfiguration;
@@ -77,6 +85,18 @@ public class PitbullyPlugin extends JavaPlugin {
     /** Auto-save task ID for periodic saving */
     private int autoSaveTaskId = -1;
     
+    /** Metrics export task ID, -1 if metrics are not exported */
+    private int metricsExportTaskId = -1;
+    
+    /** Landing point revalidation task ID, -1 if disabled */
+    private int landingPointTaskId = -1;
+    
+    /** The teleport queue, null while the plugin is not enabled */
+    private TeleportQueue teleportQueue;
+    
+    /** Teleport queue task ID, runs every tick */
+    private int teleportQueueTaskId = -1;
+    
     /**
      * Called when the plugin is enabled.
      * Initializes all plugin components and loads configuration.
@@ -98,6 +118,8 @@ public class PitbullyPlugin extends JavaPlugin {
         
         // Step 3: Initialize location storage with automatic migration support
         initLocationStorage();
+        // Players online during a reload joined before the session listener was registered
+        LocationManager.loadOnlinePlayerSettings();
         
         // Step 4: Register commands and events
         registerCommands();
@@ -106,14 +128,18 @@ public class PitbullyPlugin extends JavaPlugin {
         // Step 5: Load final configuration
         loadConfig();
         
-        // Step 6: Start auto-save task (save every 5 minutes)
+        // Step 6: Start auto-save task (save every 5 minutes), the metrics export, landing point checks and teleport queue
         startAutoSaveTask();
+        startMetricsExportTask();
+        startLandingPointTask();
+        startTeleportQueue();
         
         // Step 7: Perform initial save to ensure all configs are written
         saveConfig();
         
         getLogger().info(PluginInfo.getName() + " successfully enabled! " + 
-            (configManager.isDatabaseStorageEnabled() ? "Database" : "File") + " storage active.");
+            (configManager.isDatabaseStorageEnabled() ? "Database"
+                : configManager.isJournalStorageEnabled() ? "Journal" : "File") + " storage active.");
     }
     
     /**
@@ -127,6 +153,23 @@ public class PitbullyPlugin extends JavaPlugin {
             getServer().getScheduler().cancelTask(autoSaveTaskId);
             autoSaveTaskId = -1;
         }
+        if (metricsExportTaskId != -1) {
+            getServer().getScheduler().cancelTask(metricsExportTaskId);
+            metricsExportTaskId = -1;
+        }
+        if (landingPointTaskId != -1) {
+            getServer().getScheduler().cancelTask(landingPointTaskId);
+            landingPointTaskId = -1;
+        }
+        SafeLandingPoints.clear();
+        if (teleportQueueTaskId != -1) {
+            getServer().getScheduler().cancelTask(teleportQueueTaskId);
+            teleportQueueTaskId = -1;
+        }
+        if (teleportQueue != null) {
+            teleportQueue.clear();
+            teleportQueue = null;
+        }
         
         // Save and close storage properly
         if (locationStorage != null) {
@@ -156,6 +199,15 @@ public class PitbullyPlugin extends JavaPlugin {
         return configManager;
     }
     
+    /**
+     * Get the queue that spreads teleports over ticks.
+     * 
+     * @return The teleport queue, or null if the plugin is not enabled
+     */
+    public TeleportQueue getTeleportQueue() {
+        return teleportQueue;
+    }
+    
     /**
      * Initialize the configuration file.
      * Creates the config file handle and loads it if it exists.
@@ -252,6 +304,7 @@ public class PitbullyPlugin extends JavaPlugin {
         registerCommand("tpa", new TpaCommand());
         registerCommand("tpahere", new TpaHereCommand());
         registerCommand("keepxp", new KeepXpCommand());
+        registerCommand("pitbullymetrics", new MetricsCommand());
     }
     
     /**
@@ -261,6 +314,9 @@ public class PitbullyPlugin extends JavaPlugin {
         getServer().getPluginManager().registerEvents(new LocationListener(), this);
         getServer().getPluginManager().registerEvents(new PlayerDeathListener(), this);
     getServer().getPluginManager().registerEvents(new PlayerQuitCleanupListener(), this);
+        getServer().getPluginManager().registerEvents(new PlayerSessionListener(), this);
+        getServer().getPluginManager().registerEvents(new WorldUnloadListener(), this);
+        getServer().getPluginManager().registerEvents(new LandingPointListener(), this);
     }
     
     /**
@@ -400,6 +456,9 @@ public class PitbullyPlugin extends JavaPlugin {
     /**
      * Starts the auto-save task that periodically saves configuration and location data.
      * Saves data every 5 minutes (6000 ticks) to prevent data loss.
+     *
+     * <p>Only the changed location data is copied on the main thread;
+     * the location file itself is written in the background.
      */
     private void startAutoSaveTask() {
         // Cancel existing task if running
@@ -412,18 +471,91 @@ public class PitbullyPlugin extends JavaPlugin {
             @Override
             public void run() {
                 try {
-                    saveConfig();
-                    if (configManager != null && configManager.isDebugModeEnabled()) {
-                        getLogger().info("[DEBUG] Auto-save completed successfully.");
-                    }
+                    autoSave();
                 } catch (Exception e) {
                     getLogger().warning("Error during auto-save: " + e.getMessage());
                 }
             }
         }, 6000L, 6000L); // Initial delay: 5 minutes, Repeat every: 5 minutes
-        
+
         if (configManager != null && configManager.isDebugModeEnabled()) {
             getLogger().info("[DEBUG] Auto-save task started (saves every 5 minutes).");
         }
     }
+
+    /**
+     * Starts the periodic export of the storage metrics configured under database.metrics.
+     * The export runs asynchronously, since it may append to metrics.log.
+     */
+    private void startMetricsExportTask() {
+        String export = configManager.getMetricsExport();
+        StorageMetrics metrics = locationStorage != null ? locationStorage.getMetrics() : null;
+        if (metrics == null || "none".equalsIgnoreCase(export)) {
+            return;
+        }
+        File file;
+        if ("file".equalsIgnoreCase(export)) {
+            file = new File(getDataFolder(), StorageMetricsExporter.FILE_NAME);
+        } else if ("log".equalsIgnoreCase(export)) {
+            file = null;
+        } else {
+            getLogger().warning("Unknown metrics export '" + export + "', expected none, log or file.");
+            return;
+        }
+        
+        long period = Math.max(1L, configManager.getMetricsExportInterval()) * 20L;
+        metricsExportTaskId = getServer().getScheduler().runTaskTimerAsynchronously(this,
+            new StorageMetricsExporter(metrics, getLogger(), file), period, period).getTaskId();
+        
+        if (configManager.isDebugModeEnabled()) {
+            getLogger().info("[DEBUG] Metrics export started (" + export + ", every "
+                + configManager.getMetricsExportInterval() + " seconds).");
+        }
+    }
+
+    /**
+     * Starts the periodic search of the warp and spawn landing points in loaded chunks.
+     * It runs on the main thread, where blocks can be read; one search takes microseconds.
+     */
+    private void startLandingPointTask() {
+        long interval = configManager.getLandingRevalidateInterval();
+        if (interval <= 0) {
+            return;
+        }
+        long period = interval * 20L;
+        landingPointTaskId = getServer().getScheduler().runTaskTimer(this, () -> {
+            int searched = SafeLandingPoints.revalidateLoaded();
+            configManager.debug("Revalidated " + searched + " landing points.");
+        }, period, period).getTaskId();
+    }
+
+    /**
+     * Starts the teleport queue, which runs the waiting teleports within its budget every tick.
+     */
+    private void startTeleportQueue() {
+        teleportQueue = new TeleportQueue(this, configManager);
+        teleportQueueTaskId = getServer().getScheduler().runTaskTimer(this, teleportQueue, 1L, 1L).getTaskId();
+    }
+
+    /**
+     * Runs one auto-save: location data is written asynchronously, config.yml directly.
+     */
+    private void autoSave() {
+        if (locationStorage != null) {
+            locationStorage.saveAllAsync().whenComplete((ignored, error) -> {
+                if (error != null) {
+                    getLogger().warning("Error during auto-save: " + error.getMessage());
+                } else if (configManager != null && configManager.isDebugModeEnabled()) {
+                    getLogger().info("[DEBUG] Auto-save completed successfully.");
+                }
+            });
+        }
+
+        try {
+            this.config.save(this.configFile);
+        } catch (IOException e) {
+            getLogger().severe("Could not save config to " + this.configFile + ": " + e.getMessage());
+            getLogger().log(Level.SEVERE, "Exception while saving configuration", e);
+        }
+    }
 }
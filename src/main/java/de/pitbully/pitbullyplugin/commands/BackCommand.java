@@ -1,6 +1,7 @@
 package de.pitbully.pitbullyplugin.commands;
 
 import de.pitbully.pitbullyplugin.storage.LocationManager;
+import de.pitbully.pitbullyplugin.utils.MainThread;
 import de.pitbully.pitbullyplugin.utils.SafeTeleport;
 import org.bukkit.Location;
 import org.bukkit.command.Command;
@@ -19,6 +20,9 @@ import org.jetbrains.annotations.NotNull;
  * <li>Teleporting - returns to location before teleportation</li>
  * </ul>
  * 
+ * <p>The location is resolved off the main thread; only the teleport itself
+ * runs on the main thread.
+ * 
  * @author Pitbully01
  * @since 1.4.4
  */
@@ -84,19 +88,19 @@ public class BackCommand implements CommandExecutor {
             return true;
         }
         
-        if (!LocationManager.checkLastDeathLocation(player.getUniqueId())) {
-            player.sendMessage("§cDu hast keinen gespeicherten Todesort!");
-            player.sendMessage("§eStirb, um einen Todesort zu haben, zu dem du zurückkehren kannst.");
-            return true;
-        }
-        
-        Location deathLocation = LocationManager.getLastDeathLocation(player.getUniqueId());
-        if (deathLocation == null) {
-            player.sendMessage("§cFehler beim Laden des Todesortes!");
-            return true;
-        }
-        
-        teleport(player, deathLocation, "§aZum Todesort zurück teleportiert! :)");
+        MainThread.whenComplete(player, LocationManager.getLastDeathLocationAsync(player.getUniqueId()), (deathLocation, error) -> {
+            if (error != null) {
+                player.sendMessage("§cFehler beim Laden des Todesortes!");
+                return;
+            }
+            if (deathLocation == null) {
+                player.sendMessage("§cDu hast keinen gespeicherten Todesort!");
+                player.sendMessage("§eStirb, um einen Todesort zu haben, zu dem du zurückkehren kannst.");
+                return;
+            }
+            
+            teleport(player, deathLocation, "§aZum Todesort zurück teleportiert! :)");
+        });
         return true;
     }
     
@@ -112,19 +116,19 @@ public class BackCommand implements CommandExecutor {
             return true;
         }
         
-        if (!LocationManager.checkLastTeleportLocation(player.getUniqueId())) {
-            player.sendMessage("§cDu hast keinen gespeicherten Teleportationsort!");
-            player.sendMessage("§eTeleportiere dich, um einen Ort zu haben, zu dem du zurückkehren kannst.");
-            return true;
-        }
-        
-        Location teleportLocation = LocationManager.getLastTeleportLocation(player.getUniqueId());
-        if (teleportLocation == null) {
-            player.sendMessage("§cFehler beim Laden des Teleportationsortes!");
-            return true;
-        }
-        
-        teleport(player, teleportLocation, "§aZum letzten Teleportationsort zurück teleportiert! :)");
+        MainThread.whenComplete(player, LocationManager.getLastTeleportLocationAsync(player.getUniqueId()), (teleportLocation, error) -> {
+            if (error != null) {
+                player.sendMessage("§cFehler beim Laden des Teleportationsortes!");
+                return;
+            }
+            if (teleportLocation == null) {
+                player.sendMessage("§cDu hast keinen gespeicherten Teleportationsort!");
+                player.sendMessage("§eTeleportiere dich, um einen Ort zu haben, zu dem du zurückkehren kannst.");
+                return;
+            }
+            
+            teleport(player, teleportLocation, "§aZum letzten Teleportationsort zurück teleportiert! :)");
+        });
         return true;
     }
     
@@ -135,19 +139,19 @@ public class BackCommand implements CommandExecutor {
      * @return true if the command was handled successfully
      */
     private boolean handleLastLocationBack(Player player) {
-        if (!LocationManager.checkLastLocation(player.getUniqueId())) {
-            player.sendMessage("§cEs gibt keinen Weg zurück!");
-            player.sendMessage("§eTeleportiere dich oder stirb, um einen Rückweg zu haben.");
-            return true;
-        }
-        
-        Location lastLocation = LocationManager.getLastLocation(player.getUniqueId());
-        if (lastLocation == null) {
-            player.sendMessage("§cFehler beim Laden der letzten Position!");
-            return true;
-        }
-        
-        teleport(player, lastLocation, "§aZurück teleportiert! :)");
+        MainThread.whenComplete(player, LocationManager.getLastLocationAsync(player.getUniqueId()), (lastLocation, error) -> {
+            if (error != null) {
+                player.sendMessage("§cFehler beim Laden der letzten Position!");
+                return;
+            }
+            if (lastLocation == null) {
+                player.sendMessage("§cEs gibt keinen Weg zurück!");
+                player.sendMessage("§eTeleportiere dich oder stirb, um einen Rückweg zu haben.");
+                return;
+            }
+            
+            teleport(player, lastLocation, "§aZurück teleportiert! :)");
+        });
         return true;
     }
     
@@ -159,10 +163,12 @@ public class BackCommand implements CommandExecutor {
      * @param successMessage The message to send on successful teleportation
      */
     private void teleport(Player player, Location location, String successMessage) {
-        if (SafeTeleport.teleport(player, location)) {
-            player.sendMessage(successMessage);
-        } else {
-            player.sendMessage("§cEs gab ein Problem beim Teleportieren. Versuche es erneut!");
-        }
+        MainThread.whenComplete(player, SafeTeleport.teleportAsync(player, location), (teleported, error) -> {
+            if (error == null && teleported) {
+                player.sendMessage(successMessage);
+            } else {
+                player.sendMessage("§cEs gab ein Problem beim Teleportieren. Versuche es erneut!");
+            }
+        });
     }
 }
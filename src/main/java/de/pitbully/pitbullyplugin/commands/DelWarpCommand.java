@@ -2,6 +2,7 @@ package de.pitbully.pitbullyplugin.commands;
 
 import de.pitbully.pitbullyplugin.PitbullyPlugin;
 import de.pitbully.pitbullyplugin.storage.LocationManager;
+import de.pitbully.pitbullyplugin.utils.SafeLandingPoints;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -57,6 +58,7 @@ public class DelWarpCommand implements CommandExecutor {
       }
     
     LocationManager.deleteWarpLocation(warp);
+    SafeLandingPoints.removeWarp(warp);
     player.sendMessage("§aDer Warp '" + warp + "' wurde erfolgreich gelöscht! :)");
     
     this.plugin = (JavaPlugin)PitbullyPlugin.getInstance();
@@ -1,8 +1,8 @@
 package de.pitbully.pitbullyplugin.commands;
 
 import de.pitbully.pitbullyplugin.storage.LocationManager;
+import de.pitbully.pitbullyplugin.utils.MainThread;
 import de.pitbully.pitbullyplugin.utils.SafeTeleport;
-import org.bukkit.Location;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -39,24 +39,26 @@ public class HomeCommand implements CommandExecutor {
             return true;
         }
         
-        if (!LocationManager.checkHomeLocation(player.getUniqueId())) {
-            player.sendMessage("§cKein Home gesetzt!");
-            player.sendMessage("§eVerwende /sethome um dein Home zu setzen.");
-            return true;
-        }
-        
-        Location homeLocation = LocationManager.getHomeLocation(player.getUniqueId());
-        if (homeLocation == null) {
-            player.sendMessage("§cKein Home gesetzt!");
-            player.sendMessage("§eVerwende /sethome um dein Home zu setzen.");
-            return true;
-        }
-        
-        if (SafeTeleport.teleport(player, homeLocation)) {
-            player.sendMessage("§aDu wurdest zurück nach ♥Hause♥ teleportiert! :)");
-        } else {
-            player.sendMessage("§cEs gab ein Problem beim Teleportieren. Versuche es erneut!");
-        }
+        // Resolve the home off the main thread and only come back to teleport
+        MainThread.whenComplete(player, LocationManager.getHomeLocationAsync(player.getUniqueId()), (homeLocation, error) -> {
+            if (error != null) {
+                player.sendMessage("§cFehler beim Laden deines Homes!");
+                return;
+            }
+            if (homeLocation == null) {
+                player.sendMessage("§cKein Home gesetzt!");
+                player.sendMessage("§eVerwende /sethome um dein Home zu setzen.");
+                return;
+            }
+            
+            MainThread.whenComplete(player, SafeTeleport.teleportAsync(player, homeLocation), (teleported, teleportError) -> {
+                if (teleportError == null && teleported) {
+                    player.sendMessage("§aDu wurdest zurück nach ♥Hause♥ teleportiert! :)");
+                } else {
+                    player.sendMessage("§cEs gab ein Problem beim Teleportieren. Versuche es erneut!");
+                }
+            });
+        });
         
         return true;
     }
@@ -11,7 +11,6 @@ import org.jetbrains.annotations.NotNull;
 
 import de.pitbully.pitbullyplugin.storage.LocationManager;
 import de.pitbully.pitbullyplugin.storage.LocationStorage;
-import de.pitbully.pitbullyplugin.utils.PlayerData;
 
 public class KeepXpCommand implements CommandExecutor {
 
@@ -76,17 +75,9 @@ public class KeepXpCommand implements CommandExecutor {
 
     private boolean handleKeepXpChange(Player executor, Player target, boolean enable) {
         UUID targetId = target.getUniqueId();
-        LocationStorage storage = LocationManager.getStorage();
         
-        // Get or create player data
-        PlayerData playerData = storage.getPlayerData(targetId);
-        if (playerData == null) {
-            playerData = new PlayerData();
-        }
-        
-        // Set keepXp status directly
-        playerData.setKeepXp(enable);
-        storage.savePlayerData(targetId, playerData);
+        // Takes effect right away, the storage is written in the background
+        LocationManager.setKeepXp(targetId, enable);
         
         String status = enable ? "aktiviert" : "deaktiviert";
         String color = enable ? "§a" : "§c";
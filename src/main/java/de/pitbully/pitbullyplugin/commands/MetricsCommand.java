@@ -0,0 +1,77 @@
+package de.pitbully.pitbullyplugin.commands;
+
+import de.pitbully.pitbullyplugin.PitbullyPlugin;
+import de.pitbully.pitbullyplugin.storage.LocationManager;
+import de.pitbully.pitbullyplugin.storage.StorageMetrics;
+import de.pitbully.pitbullyplugin.utils.TeleportQueue;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandExecutor;
+import org.bukkit.command.CommandSender;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Command executor for the /pitbullymetrics command.
+ * Shows the latencies of the storage operations, the connection pool usage and the
+ * cache hit rates, e.g. to size {@code max-connections}, and the depth and wait times of
+ * the teleport queue. {@code /pitbullymetrics reset} starts a new measurement.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+public class MetricsCommand implements CommandExecutor {
+
+    /**
+     * Executes the pitbullymetrics command.
+     *
+     * @param sender The command sender
+     * @param command The command that was executed
+     * @param label The alias of the command which was used
+     * @param args The arguments passed to the command
+     * @return true if the command was handled successfully
+     */
+    @Override
+    public boolean onCommand(@NotNull CommandSender sender, @NotNull Command command, @NotNull String label, @NotNull String[] args) {
+
+        if (!sender.hasPermission("pitbullyplugin.metrics")) {
+            sender.sendMessage("§cDu hast keine Berechtigung für diesen Befehl!");
+            return true;
+        }
+
+        if (args.length > 1 || (args.length == 1 && !args[0].equalsIgnoreCase("reset"))) {
+            sender.sendMessage("§eVerwendung: /pitbullymetrics [reset]");
+            return true;
+        }
+
+        StorageMetrics metrics = LocationManager.getStorage().getMetrics();
+        PitbullyPlugin plugin = PitbullyPlugin.getInstance();
+        TeleportQueue teleportQueue = plugin != null ? plugin.getTeleportQueue() : null;
+
+        if (args.length == 1) {
+            if (metrics != null) {
+                metrics.reset();
+            }
+            if (teleportQueue != null) {
+                teleportQueue.reset();
+            }
+            sender.sendMessage("§aDie Metriken wurden zurückgesetzt.");
+            return true;
+        }
+
+        if (metrics == null) {
+            sender.sendMessage("§eDie aktuelle Speicherart erfasst keine Metriken (nur bei Datenbank-Speicherung verfügbar).");
+        } else {
+            sender.sendMessage("§6=== Storage Metrics ===");
+            for (String line : metrics.report()) {
+                sender.sendMessage("§f" + line);
+            }
+        }
+
+        if (teleportQueue != null) {
+            sender.sendMessage("§6=== Teleport Queue ===");
+            for (String line : teleportQueue.report()) {
+                sender.sendMessage("§f" + line);
+            }
+        }
+        return true;
+    }
+}
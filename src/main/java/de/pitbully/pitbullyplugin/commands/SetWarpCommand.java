@@ -2,6 +2,7 @@ package de.pitbully.pitbullyplugin.commands;
 
 import de.pitbully.pitbullyplugin.PitbullyPlugin;
 import de.pitbully.pitbullyplugin.storage.LocationManager;
+import de.pitbully.pitbullyplugin.utils.SafeLandingPoints;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -58,6 +59,7 @@ public class SetWarpCommand implements CommandExecutor {
     }
     
     LocationManager.updateWarpLocation(warp, player.getLocation());
+    SafeLandingPoints.updateWarp(warp, player.getLocation());
     player.sendMessage("§aDer Warp " + warp + " wurde erfolgreich gesetzt! :)");
     
     this.plugin = (JavaPlugin)PitbullyPlugin.getInstance();
@@ -2,6 +2,7 @@ package de.pitbully.pitbullyplugin.commands;
 
 import de.pitbully.pitbullyplugin.PitbullyPlugin;
 import de.pitbully.pitbullyplugin.storage.LocationManager;
+import de.pitbully.pitbullyplugin.utils.SafeLandingPoints;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -52,6 +53,7 @@ public class SetWorldSpawnCommand implements CommandExecutor {
     }
     
     LocationManager.updateWorldSpawnLocation(player.getLocation());
+    SafeLandingPoints.updateSpawn(player.getLocation());
     player.sendMessage("§aWorldSpawn wurde erfolgreich auf deine aktuelle Position gesetzt!");
     
     this.plugin = (JavaPlugin)PitbullyPlugin.getInstance();
@@ -1,7 +1,11 @@
 package de.pitbully.pitbullyplugin.commands;
 
 import de.pitbully.pitbullyplugin.storage.LocationManager;
+import de.pitbully.pitbullyplugin.utils.MainThread;
+import de.pitbully.pitbullyplugin.utils.SafeLandingPoints;
 import de.pitbully.pitbullyplugin.utils.SafeTeleport;
+import java.util.concurrent.CompletableFuture;
+import org.bukkit.Location;
 import org.bukkit.command.Command;
 import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
@@ -49,15 +53,27 @@ public class WarpCommand implements CommandExecutor {
     }
     
     String warp = args[0];
-    if (LocationManager.checkWarpLocation(warp)) {
-      if (SafeTeleport.teleport(player, LocationManager.getWarpLocation(warp))) {
-        player.sendMessage("§aWoosch, du wurdest zu " + warp + " teleportiert! :)");
+    // Resolve the warp off the main thread and only come back to teleport
+    MainThread.whenComplete(player, LocationManager.getWarpLocationAsync(warp), (location, error) -> {
+      if (error != null) {
+        player.sendMessage("§cFehler beim Laden des Warps!");
+      } else if (location == null) {
+        player.sendMessage("§cDieser Warp existiert nicht!");
       } else {
-        player.sendMessage("§cEs gab ein Problem beim Teleportieren. Versuche es erneut!");
-      } 
-    } else {
-      player.sendMessage("§cDieser Warp existiert nicht!");
-    }
+        // The landing point was found safe before, only search when there is none yet
+        Location landingPoint = SafeLandingPoints.getWarp(warp, location);
+        CompletableFuture<Boolean> teleport = landingPoint != null
+          ? SafeTeleport.teleportToLandingPointAsync(player, landingPoint)
+          : SafeTeleport.teleportAsync(player, location);
+        MainThread.whenComplete(player, teleport, (teleported, teleportError) -> {
+          if (teleportError == null && teleported) {
+            player.sendMessage("§aWoosch, du wurdest zu " + warp + " teleportiert! :)");
+          } else {
+            player.sendMessage("§cEs gab ein Problem beim Teleportieren. Versuche es erneut!");
+          }
+        });
+      }
+    });
     
     return true;
   }
@@ -0,0 +1,67 @@
+package de.pitbully.pitbullyplugin.listeners;
+
+import de.pitbully.pitbullyplugin.utils.SafeLandingPoints;
+import java.util.List;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+
+/**
+ * Marks the safe landing points of warps and the world spawn stale when blocks
+ * in their chunk change, so they are searched again before the next teleport.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+public class LandingPointListener implements Listener {
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreak(BlockBreakEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlace(BlockPlaceEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurn(BlockBurnEvent event) {
+        invalidate(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplode(BlockExplodeEvent event) {
+        invalidate(event.blockList());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplode(EntityExplodeEvent event) {
+        invalidate(event.blockList());
+    }
+
+    private static void invalidate(List<Block> blocks) {
+        // An explosion touches few chunks, skip repeated blocks of the same chunk
+        int lastX = Integer.MIN_VALUE;
+        int lastZ = Integer.MIN_VALUE;
+        for (Block block : blocks) {
+            int chunkX = block.getX() >> 4;
+            int chunkZ = block.getZ() >> 4;
+            if (chunkX != lastX || chunkZ != lastZ) {
+                SafeLandingPoints.invalidate(block.getWorld(), chunkX, chunkZ);
+                lastX = chunkX;
+                lastZ = chunkZ;
+            }
+        }
+    }
+
+    private static void invalidate(Block block) {
+        SafeLandingPoints.invalidate(block.getWorld(), block.getX() >> 4, block.getZ() >> 4);
+    }
+}
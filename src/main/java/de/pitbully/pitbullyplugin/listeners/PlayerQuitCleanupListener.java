@@ -1,12 +1,14 @@
 package de.pitbully.pitbullyplugin.listeners;
 
+import de.pitbully.pitbullyplugin.storage.LocationManager;
 import de.pitbully.pitbullyplugin.utils.TpaRequestManager;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerQuitEvent;
 
 /**
- * Cleans up any pending TPA requests when a player quits.
+ * Cleans up any pending TPA requests when a player quits
+ * and releases the player's preloaded storage data.
  */
 public class PlayerQuitCleanupListener implements Listener {
 
@@ -14,5 +16,7 @@ public class PlayerQuitCleanupListener implements Listener {
     public void onQuit(PlayerQuitEvent event) {
         // Remove any outgoing/incoming requests related to this player
         TpaRequestManager.clearFor(event.getPlayer());
+        // Persist pending changes in the background and drop the resident data
+        LocationManager.unloadPlayer(event.getPlayer().getUniqueId());
     }
 }
@@ -0,0 +1,61 @@
+package de.pitbully.pitbullyplugin.listeners;
+
+import de.pitbully.pitbullyplugin.storage.LocationManager;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+
+/**
+ * Loads a player's stored data while they log in.
+ *
+ * <p>The data is fetched on the asynchronous pre-login thread, so the first
+ * {@code /home}, {@code /back} or death after joining does not block the main
+ * thread on the database. Settings of storages that cannot be read off the main
+ * thread are loaded when the player joins instead. The data is released again by
+ * {@link PlayerQuitCleanupListener} when the player quits.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+public class PlayerSessionListener implements Listener {
+
+    /**
+     * Preloads the player's data once the login has been allowed by all other plugins.
+     *
+     * @param event The pre-login event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            return;
+        }
+        LocationManager.preloadPlayer(event.getUniqueId());
+    }
+
+    /**
+     * Releases the preloaded data again if the login is denied after pre-login
+     * (e.g. by the whitelist or a full server); no quit event follows in that case.
+     *
+     * @param event The login event
+     */
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onLogin(PlayerLoginEvent event) {
+        if (event.getResult() != PlayerLoginEvent.Result.ALLOWED) {
+            LocationManager.unloadPlayer(event.getPlayer().getUniqueId());
+        }
+    }
+
+    /**
+     * Loads the player's settings on the main thread if the pre-login did not,
+     * before other join handlers may read them.
+     *
+     * @param event The join event
+     */
+    @EventHandler(priority = EventPriority.LOWEST)
+    public void onJoin(PlayerJoinEvent event) {
+        LocationManager.loadPlayerSettings(event.getPlayer().getUniqueId());
+    }
+}
@@ -0,0 +1,21 @@
+package de.pitbully.pitbullyplugin.listeners;
+
+import de.pitbully.pitbullyplugin.storage.StoredLocation;
+import de.pitbully.pitbullyplugin.utils.SafeLandingPoints;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+/**
+ * Makes stored locations and landing points forget an unloaded world, so they
+ * never materialize a teleport target in a world that is gone.
+ */
+public class WorldUnloadListener implements Listener {
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onWorldUnload(WorldUnloadEvent event) {
+        StoredLocation.forgetWorld(event.getWorld().getName());
+        SafeLandingPoints.forgetWorld(event.getWorld());
+    }
+}
@@ -0,0 +1,70 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.bukkit.Location;
+
+/**
+ * Non-blocking variant of the {@link LocationStorage} lookups and updates.
+ *
+ * <p>Every method returns a {@link CompletableFuture} instead of blocking the caller.
+ * Implementations complete the future immediately when the value is already in memory
+ * and resolve it on a background thread otherwise. Futures are never completed on the
+ * server main thread by a backend, so callers that need to touch the world must hop
+ * back to it themselves (see {@link de.pitbully.pitbullyplugin.utils.MainThread}).
+ *
+ * <p>Getters complete with {@code null} if no location is stored and complete
+ * exceptionally if the backend could not be read.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+public interface AsyncLocationStorage {
+
+    /**
+     * Returns an async view of the given storage. Storages that implement this interface
+     * natively are returned as-is, all others are wrapped and answer synchronously.
+     *
+     * @param storage The storage to adapt
+     * @return An async view of the storage
+     */
+    static AsyncLocationStorage of(LocationStorage storage) {
+        if (storage instanceof AsyncLocationStorage) {
+            return (AsyncLocationStorage) storage;
+        }
+        return new CompletedAsyncLocationStorage(storage);
+    }
+
+    // Player locations
+
+    CompletableFuture<Location> getDeathLocationAsync(UUID playerId);
+
+    CompletableFuture<Location> getTeleportLocationAsync(UUID playerId);
+
+    CompletableFuture<Location> getLastLocationAsync(UUID playerId);
+
+    CompletableFuture<Location> getHomeLocationAsync(UUID playerId);
+
+    CompletableFuture<Void> saveDeathLocationAsync(UUID playerId, Location location);
+
+    CompletableFuture<Void> saveTeleportLocationAsync(UUID playerId, Location location);
+
+    CompletableFuture<Void> saveLastLocationAsync(UUID playerId, Location location);
+
+    CompletableFuture<Void> saveHomeLocationAsync(UUID playerId, Location location);
+
+    CompletableFuture<Void> deleteHomeLocationAsync(UUID playerId);
+
+    // Warp locations
+
+    CompletableFuture<Location> getWarpLocationAsync(String warpName);
+
+    CompletableFuture<Void> saveWarpLocationAsync(String warpName, Location location);
+
+    CompletableFuture<Void> deleteWarpLocationAsync(String warpName);
+
+    // Player settings
+
+    CompletableFuture<Void> savePlayerSettingsAsync(UUID playerId, Map<String, String> settings);
+}
@@ -0,0 +1,173 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+/**
+ * Schema step that converts the player locations table to its compact layout.
+ *
+ * <p>The original table keys rows by a surrogate id and stores the player UUID as
+ * {@code VARCHAR(36)}, the location type as a string and the world name in every row,
+ * with two extra indexes next to the unique key. The compact table stores
+ * <ul>
+ * <li>the player UUID as 16 bytes,</li>
+ * <li>the location type as a {@link PlayerLocationType#getCode() code},</li>
+ * <li>the world as an id into {@code pitbully_worlds},</li>
+ * </ul>
+ * and uses {@code (player_uuid, location_type)} as its only key.
+ *
+ * <p>Rows are copied into a new table in chunks, so the old table is never locked as a
+ * whole, and the tables are swapped by renaming them once the copy is complete. The step
+ * can be re-run after an interruption: the partially copied table is dropped first.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+final class CompactPlayerLocationsUpgrade implements DatabaseSchema.Step {
+
+    static final String TABLE_WORLDS = "pitbully_worlds";
+
+    private static final int CHUNK_SIZE = 1000;
+
+    private final SqlDialect dialect;
+    private final String table;
+    private final Logger logger;
+    private final String insertWorldSql;
+
+    /**
+     * @param dialect The SQL dialect of the database
+     * @param table Name of the player locations table
+     * @param logger Logger for progress messages
+     */
+    CompactPlayerLocationsUpgrade(SqlDialect dialect, String table, Logger logger) {
+        this.dialect = dialect;
+        this.table = table;
+        this.logger = logger;
+        this.insertWorldSql = dialect.insertIgnore(TABLE_WORLDS, "name");
+    }
+
+    /**
+     * Gets the SQL for creating the world lookup table.
+     */
+    static String createWorldsTableSQL(SqlDialect dialect) {
+        return dialect.createTable(TABLE_WORLDS,
+            dialect.intIdColumn(),
+            // World names are case-sensitive
+            "name " + dialect.caseSensitiveVarcharType(255) + " NOT NULL UNIQUE");
+    }
+
+    /**
+     * Gets the SQL for creating a player locations table in the compact layout.
+     */
+    static String createPlayerLocationsTableSQL(SqlDialect dialect, String table) {
+        return dialect.createClusteredTable(table,
+            "player_uuid " + dialect.uuidType() + " NOT NULL",
+            "location_type " + dialect.smallIntType() + " NOT NULL",
+            "world_id INT NOT NULL",
+            "x " + dialect.doubleType() + " NOT NULL",
+            "y " + dialect.doubleType() + " NOT NULL",
+            "z " + dialect.doubleType() + " NOT NULL",
+            "yaw " + dialect.floatType() + " NOT NULL",
+            "pitch " + dialect.floatType() + " NOT NULL",
+            dialect.updatedAtColumn(),
+            "PRIMARY KEY (player_uuid, location_type)");
+    }
+
+    @Override
+    public void apply(Connection conn) throws SQLException {
+        String newTable = table + "_compact";
+        String oldTable = table + "_legacy";
+
+        DatabaseSchema.execute(conn,
+            createWorldsTableSQL(dialect),
+            "DROP TABLE IF EXISTS " + newTable,
+            createPlayerLocationsTableSQL(dialect, newTable));
+        conn.commit();
+
+        Map<String, Integer> worldIds = new HashMap<>();
+
+        int copied = 0;
+        int skipped = 0;
+        long lastId = Long.MIN_VALUE;
+        String select = "SELECT id, player_uuid, location_type, world_name, x, y, z, yaw, pitch FROM " + table +
+                        " WHERE id > ? ORDER BY id LIMIT " + CHUNK_SIZE;
+        String insert = SqlDialect.insert(newTable, "player_uuid", "location_type", "world_id", "x", "y", "z", "yaw", "pitch");
+        try (PreparedStatement read = conn.prepareStatement(select);
+             PreparedStatement write = conn.prepareStatement(insert)) {
+            while (true) {
+                read.setLong(1, lastId);
+                int rows = 0;
+                try (ResultSet rs = read.executeQuery()) {
+                    while (rs.next()) {
+                        rows++;
+                        lastId = rs.getLong("id");
+                        PlayerLocationType locationType = PlayerLocationType.fromKey(rs.getString("location_type"));
+                        String worldName = rs.getString("world_name");
+                        Integer worldId = worldName != null ? worldIds.get(worldName) : null;
+                        if (worldName != null && worldId == null) {
+                            // Registered here rather than with SELECT DISTINCT, which would merge
+                            // names that only differ in case under a case-insensitive collation
+                            worldId = registerWorld(conn, worldName);
+                            worldIds.put(worldName, worldId);
+                        }
+                        UUID playerId;
+                        try {
+                            playerId = UUID.fromString(rs.getString("player_uuid"));
+                        } catch (IllegalArgumentException e) {
+                            playerId = null;
+                        }
+                        if (playerId == null || locationType == null || worldId == null) {
+                            skipped++;
+                            continue;
+                        }
+                        dialect.setUuid(write, 1, playerId);
+                        write.setInt(2, locationType.getCode());
+                        write.setInt(3, worldId);
+                        write.setDouble(4, rs.getDouble("x"));
+                        write.setDouble(5, rs.getDouble("y"));
+                        write.setDouble(6, rs.getDouble("z"));
+                        write.setFloat(7, rs.getFloat("yaw"));
+                        write.setFloat(8, rs.getFloat("pitch"));
+                        write.addBatch();
+                        copied++;
+                    }
+                }
+                if (rows == 0) {
+                    break;
+                }
+                write.executeBatch();
+                // Commit per chunk so no long-running transaction holds the old table
+                conn.commit();
+            }
+        }
+        if (skipped > 0) {
+            logger.warning("Skipped " + skipped + " player location rows with an invalid UUID or location type");
+        }
+
+        DatabaseSchema.execute(conn, dialect.swapTables(table, newTable, oldTable));
+        DatabaseSchema.execute(conn, "DROP TABLE " + oldTable);
+        logger.info("Converted " + copied + " player locations to the compact table layout");
+    }
+
+    private int registerWorld(Connection conn, String worldName) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(insertWorldSql)) {
+            stmt.setString(1, worldName);
+            stmt.executeUpdate();
+        }
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT id FROM " + TABLE_WORLDS + " WHERE name = ?")) {
+            stmt.setString(1, worldName);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Could not register world " + worldName);
+                }
+                return rs.getInt(1);
+            }
+        }
+    }
+}
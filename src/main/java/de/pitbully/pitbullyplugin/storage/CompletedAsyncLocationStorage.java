@@ -0,0 +1,106 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+import org.bukkit.Location;
+
+/**
+ * {@link AsyncLocationStorage} adapter for storages that keep everything in memory
+ * (like {@link FileLocationStorage}). Calls are executed directly and the returned
+ * futures are already completed.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+final class CompletedAsyncLocationStorage implements AsyncLocationStorage {
+
+    private final LocationStorage storage;
+
+    CompletedAsyncLocationStorage(LocationStorage storage) {
+        this.storage = storage;
+    }
+
+    @Override
+    public CompletableFuture<Location> getDeathLocationAsync(UUID playerId) {
+        return supply(() -> storage.getDeathLocation(playerId));
+    }
+
+    @Override
+    public CompletableFuture<Location> getTeleportLocationAsync(UUID playerId) {
+        return supply(() -> storage.getTeleportLocation(playerId));
+    }
+
+    @Override
+    public CompletableFuture<Location> getLastLocationAsync(UUID playerId) {
+        return supply(() -> storage.getLastLocation(playerId));
+    }
+
+    @Override
+    public CompletableFuture<Location> getHomeLocationAsync(UUID playerId) {
+        return supply(() -> storage.getHomeLocation(playerId));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveDeathLocationAsync(UUID playerId, Location location) {
+        return run(() -> storage.saveDeathLocation(playerId, location));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveTeleportLocationAsync(UUID playerId, Location location) {
+        return run(() -> storage.saveTeleportLocation(playerId, location));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveLastLocationAsync(UUID playerId, Location location) {
+        return run(() -> storage.saveLastLocation(playerId, location));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveHomeLocationAsync(UUID playerId, Location location) {
+        return run(() -> storage.saveHomeLocation(playerId, location));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteHomeLocationAsync(UUID playerId) {
+        return run(() -> storage.deleteHomeLocation(playerId));
+    }
+
+    @Override
+    public CompletableFuture<Location> getWarpLocationAsync(String warpName) {
+        return supply(() -> storage.getWarpLocation(warpName));
+    }
+
+    @Override
+    public CompletableFuture<Void> saveWarpLocationAsync(String warpName, Location location) {
+        return run(() -> storage.saveWarpLocation(warpName, location));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteWarpLocationAsync(String warpName) {
+        return run(() -> storage.deleteWarpLocation(warpName));
+    }
+
+    @Override
+    public CompletableFuture<Void> savePlayerSettingsAsync(UUID playerId, Map<String, String> settings) {
+        return run(() -> storage.savePlayerSettings(playerId, settings));
+    }
+
+    private static <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.completedFuture(supplier.get());
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private static CompletableFuture<Void> run(Runnable action) {
+        try {
+            action.run();
+            return CompletableFuture.completedFuture(null);
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+}
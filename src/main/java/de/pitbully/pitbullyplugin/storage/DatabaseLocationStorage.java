@@ -2,16 +2,27 @@ package de.pitbully.pitbullyplugin.storage;
 
 import com.zaxxer.hikari.HikariConfig;
 import com.zaxxer.hikari.HikariDataSource;
-import org.bukkit.Bukkit;
 import org.bukkit.Location;
-import org.bukkit.World;
 
 import de.pitbully.pitbullyplugin.utils.PlayerData;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.logging.Logger;
 
 /**
@@ -20,19 +31,93 @@ import java.util.logging.Logger;
  * <p>This implementation stores all location data in a SQL database using HikariCP
  * connection pooling for optimal performance. Supports MySQL, MariaDB, PostgreSQL, and SQLite.
  * 
+ * <p>Player location writes can optionally be buffered in a {@link WriteBehindQueue}
+ * (see {@link #enableWriteBehind(long, int, int)}), which moves the SQL round-trip
+ * off the calling thread and persists coalesced writes in JDBC batches.
+ * 
+ * <p>Reads of player locations and warps can be served from a {@link LocationCache}
+ * (see {@link #enableCache(int, long)}). Writes go through the cache, so after the
+ * first access {@code /home}, {@code /warp} and {@code /back} no longer hit the database.
+ * 
+ * <p>Data of online players is loaded into a {@link PlayerSession} during login
+ * ({@link #preloadPlayer(UUID)}) and kept until they quit, so commands used by
+ * online players are answered from memory.
+ * 
+ * <p>With SQLite the database runs in WAL mode, so readers use the pool in parallel while
+ * all writes go through a single {@link SqliteWriter} thread that commits them in groups.
+ * 
+ * <p>The {@link AsyncLocationStorage} methods answer from memory when they can and
+ * otherwise run the query on a small reader pool, so the caller never blocks on JDBC.
+ * 
  * @author Pitbully01
  * @since 1.5.2
  */
-public class DatabaseLocationStorage implements LocationStorage {
+public class DatabaseLocationStorage implements LocationStorage, AsyncLocationStorage {
     
     private final DatabaseConfig config;
+    private final SqlDialect dialect;
     private final Logger logger;
     private HikariDataSource dataSource;
     
+    /** Single writer thread of SQLite databases; null for other databases. */
+    private volatile SqliteWriter sqliteWriter;
+    
+    /** Optional write-behind buffer for player locations; null means synchronous writes. */
+    private volatile WriteBehindQueue writeBehindQueue;
+    
+    /** Optional read-through caches; null means every read goes to the database. */
+    private volatile LocationCache<PlayerLocationKey> playerLocationCache;
+    private volatile LocationCache<String> warpCache;
+    
+    /** Resident data of online players, see {@link #preloadPlayer(UUID)}. */
+    private final Map<UUID, PlayerSession> sessions = new ConcurrentHashMap<>();
+    
+    /** Ids of the world lookup table by world name. */
+    private final Map<String, Integer> worldIds = new ConcurrentHashMap<>();
+    
+    /**
+     * Ids of worlds added by the transaction running on the current thread, moved to
+     * {@link #worldIds} once it commits; null outside of such a transaction.
+     */
+    private final ThreadLocal<Map<String, Integer>> uncommittedWorldIds = new ThreadLocal<>();
+    
+    /** Latencies of all database round-trips and statistics of the pool, see {@link #getMetrics()}. */
+    private final StorageMetrics metrics = new StorageMetrics();
+    
+    /** Threads for {@link AsyncLocationStorage} calls, created on first use. */
+    private ExecutorService readExecutor;
+    private ExecutorService writeExecutor;
+    
     // Table names
     private static final String TABLE_PLAYER_LOCATIONS = "pitbully_player_locations";
     private static final String TABLE_WARP_LOCATIONS = "pitbully_warp_locations";
     private static final String TABLE_WORLD_SPAWN = "pitbully_world_spawn";
+    private static final String TABLE_PLAYER_SETTINGS = "pitbully_player_settings";
+    private static final String TABLE_MIGRATION_STATE = "pitbully_migration_state";
+    private static final String TABLE_WORLDS = CompactPlayerLocationsUpgrade.TABLE_WORLDS;
+    
+    /** Player locations joined with their world names, see {@link #readLocation(ResultSet)}. */
+    private static final String PLAYER_LOCATIONS_WITH_WORLD = TABLE_PLAYER_LOCATIONS + " l JOIN " + TABLE_WORLDS + " w ON w.id = l.world_id";
+    private static final String PLAYER_LOCATION_COLUMNS = "l.location_type, w.name AS world_name, l.x, l.y, l.z, l.yaw, l.pitch";
+    
+    /**
+     * All location rows and settings of a player in one round-trip. Location type 0 marks
+     * setting rows, which carry the setting name in the world_name column.
+     */
+    private static final String PLAYER_DATA_QUERY = "SELECT " + PLAYER_LOCATION_COLUMNS + ", NULL AS setting_value FROM " + PLAYER_LOCATIONS_WITH_WORLD +
+                                                    " WHERE l.player_uuid = ? " +
+                                                    "UNION ALL SELECT 0, setting_name, 0, 0, 0, 0, 0, setting_value FROM " + TABLE_PLAYER_SETTINGS +
+                                                    " WHERE player_uuid = ?";
+    
+    /** Checkpoint name of {@link #migrateFromFileStorage(FileLocationStorage, int)}. */
+    private static final String MIGRATION_FILE_STORAGE = "file-storage";
+    
+    /** Rows per transaction when migrating from file storage. */
+    public static final int DEFAULT_MIGRATION_BATCH_SIZE = 1000;
+    
+    // SQLite profile
+    private static final int SQLITE_BUSY_TIMEOUT_MILLIS = 5000;
+    private static final int SQLITE_MAX_GROUP_SIZE = 256;
     
     // Location types
     private static final String TYPE_DEATH = "death";
@@ -40,23 +125,128 @@ public class DatabaseLocationStorage implements LocationStorage {
     private static final String TYPE_LAST = "last";
     private static final String TYPE_HOME = "home";
     
+    // Statements that differ per database, generated once by the dialect
+    private final String upsertPlayerLocationSql;
+    private final String upsertWarpLocationSql;
+    private final String upsertWorldSpawnSql;
+    private final String upsertPlayerSettingSql;
+    private static final String DELETE_PLAYER_SETTING_SQL = "DELETE FROM " + TABLE_PLAYER_SETTINGS +
+                                                            " WHERE player_uuid = ? AND setting_name = ?";
+    private final String insertWorldSql;
+    
     public DatabaseLocationStorage(DatabaseConfig config, Logger logger) {
+        this(config, SqlDialect.of(config.getType()), config.getType().getDriverClass(), config.buildJdbcUrl(), logger);
+    }
+    
+    /**
+     * Creates a storage that connects to the given JDBC URL and writes SQL of the given dialect,
+     * e.g. to run a dialect against an embedded stand-in database in tests.
+     */
+    DatabaseLocationStorage(DatabaseConfig config, SqlDialect dialect, String driverClass, String jdbcUrl, Logger logger) {
         this.config = config;
+        this.dialect = dialect;
         this.logger = logger;
-        initializeDatabase();
+        this.upsertPlayerLocationSql = dialect.upsert(TABLE_PLAYER_LOCATIONS,
+            new String[] { "player_uuid", "location_type" }, "world_id", "x", "y", "z", "yaw", "pitch");
+        this.upsertWarpLocationSql = dialect.upsert(TABLE_WARP_LOCATIONS,
+            new String[] { "warp_name" }, "world_name", "x", "y", "z", "yaw", "pitch");
+        this.upsertWorldSpawnSql = dialect.upsert(TABLE_WORLD_SPAWN,
+            new String[] { "world_name" }, "x", "y", "z", "yaw", "pitch");
+        this.upsertPlayerSettingSql = dialect.upsert(TABLE_PLAYER_SETTINGS,
+            new String[] { "player_uuid", "setting_name" }, "setting_value");
+        this.insertWorldSql = dialect.insertIgnore(TABLE_WORLDS, "name");
+        initializeDatabase(driverClass, jdbcUrl);
+    }
+    
+    /**
+     * Switches player location writes (death, teleport, last, home) to write-behind mode.
+     * 
+     * <p>Writes are buffered in memory, coalesced per player and location type, and
+     * persisted by a dedicated writer thread in JDBC batches. Reads see buffered writes
+     * immediately. Pending writes are flushed by {@link #saveAll()} and {@link #close()}.
+     * 
+     * @param flushIntervalMillis Interval between background flushes in milliseconds
+     * @param maxPending Maximum number of buffered rows; further writes are executed synchronously
+     * @param batchSize Maximum number of rows per JDBC batch
+     */
+    public void enableWriteBehind(long flushIntervalMillis, int maxPending, int batchSize) {
+        if (writeBehindQueue != null) {
+            return;
+        }
+        writeBehindQueue = new WriteBehindQueue(this::flushPendingWrites, logger, flushIntervalMillis, maxPending, batchSize);
+        logger.info("Database write-behind enabled (flush interval " + flushIntervalMillis + "ms, max pending " + maxPending + ")");
+    }
+    
+    /**
+     * Enables the read-through cache for player locations and warps.
+     * 
+     * <p>Both caches hold at most {@code maxEntries} entries each and drop entries
+     * {@code ttlMillis} after they were loaded or written. Absent rows are cached too,
+     * so existence checks are answered from memory as well.
+     * 
+     * @param maxEntries Maximum number of cached rows per cache
+     * @param ttlMillis Time to live of a cached row in milliseconds
+     */
+    public void enableCache(int maxEntries, long ttlMillis) {
+        if (playerLocationCache != null) {
+            return;
+        }
+        playerLocationCache = new LocationCache<>(maxEntries, ttlMillis);
+        warpCache = new LocationCache<>(maxEntries, ttlMillis);
+        metrics.registerCache("players", playerLocationCache);
+        metrics.registerCache("warps", warpCache);
+        logger.info("Database read cache enabled (max " + maxEntries + " entries, ttl " + ttlMillis + "ms)");
+    }
+    
+    /**
+     * Gets the player location cache for statistics.
+     * 
+     * @return The cache, or null if caching is disabled
+     */
+    public LocationCache<?> getPlayerLocationCache() {
+        return playerLocationCache;
+    }
+    
+    /**
+     * Gets the warp cache for statistics.
+     * 
+     * @return The cache, or null if caching is disabled
+     */
+    public LocationCache<?> getWarpCache() {
+        return warpCache;
+    }
+    
+    /**
+     * Gets the latency histograms of all database operations, the connection pool
+     * statistics and the cache hit rates.
+     * 
+     * @return The metrics of this storage
+     */
+    @Override
+    public StorageMetrics getMetrics() {
+        return metrics;
+    }
+    
+    /**
+     * Checks whether player location writes are buffered.
+     * 
+     * @return true if write-behind mode is active
+     */
+    public boolean isWriteBehindEnabled() {
+        return writeBehindQueue != null;
     }
     
     /**
      * Initializes the database connection and creates necessary tables.
      */
-    private void initializeDatabase() {
+    private void initializeDatabase(String driverClass, String jdbcUrl) {
         try {
             // Load the database driver
-            Class.forName(config.getType().getDriverClass());
+            Class.forName(driverClass);
             
             // Configure HikariCP
             HikariConfig hikariConfig = new HikariConfig();
-            hikariConfig.setJdbcUrl(config.buildJdbcUrl());
+            hikariConfig.setJdbcUrl(jdbcUrl);
             
             if (config.getType() != DatabaseConfig.DatabaseType.SQLITE) {
                 hikariConfig.setUsername(config.getUsername());
@@ -64,14 +254,29 @@ public class DatabaseLocationStorage implements LocationStorage {
             }
             
             hikariConfig.setMaximumPoolSize(config.getMaxConnections());
+            if (config.getType() == DatabaseConfig.DatabaseType.SQLITE) {
+                // Applied by the driver to every new connection. WAL lets readers run while the
+                // writer commits, and with WAL synchronous=NORMAL only syncs at checkpoints.
+                hikariConfig.addDataSourceProperty("journal_mode", "WAL");
+                hikariConfig.addDataSourceProperty("synchronous", "NORMAL");
+                hikariConfig.addDataSourceProperty("busy_timeout", String.valueOf(SQLITE_BUSY_TIMEOUT_MILLIS));
+                // At least one reader next to the connection of the writer
+                hikariConfig.setMaximumPoolSize(Math.max(2, config.getMaxConnections()));
+            }
             hikariConfig.setConnectionTimeout(config.getConnectionTimeout());
             hikariConfig.setMaxLifetime(config.getMaxLifetime());
             hikariConfig.setPoolName("PitbullyPlugin-Pool");
+            hikariConfig.setMetricsTrackerFactory(metrics.poolTracker());
             
             // Additional settings
             hikariConfig.addDataSourceProperty("cachePrepStmts", "true");
             hikariConfig.addDataSourceProperty("prepStmtCacheSize", "250");
             hikariConfig.addDataSourceProperty("prepStmtCacheSqlLimit", "2048");
+            if (config.getType() == DatabaseConfig.DatabaseType.MYSQL
+                    || config.getType() == DatabaseConfig.DatabaseType.MARIADB) {
+                // Sends a batch of upserts as one multi-row statement
+                hikariConfig.addDataSourceProperty("rewriteBatchedStatements", "true");
+            }
             
             this.dataSource = new HikariDataSource(hikariConfig);
             
@@ -80,6 +285,11 @@ public class DatabaseLocationStorage implements LocationStorage {
             // Create tables if they don't exist
             createTables();
             
+            if (config.getType() == DatabaseConfig.DatabaseType.SQLITE) {
+                sqliteWriter = new SqliteWriter(dataSource, logger, SQLITE_MAX_GROUP_SIZE);
+                logger.info("SQLite mode: WAL journal, synchronous=NORMAL, single writer with group commit");
+            }
+            
         } catch (ClassNotFoundException e) {
             logger.severe("Database driver not found for " + config.getType().getName() + ": " + e.getMessage());
             throw new RuntimeException("Failed to load database driver", e);
@@ -90,149 +300,96 @@ public class DatabaseLocationStorage implements LocationStorage {
     }
     
     /**
-     * Creates the necessary database tables if they don't exist.
+     * Creates the database tables and applies pending schema upgrades.
+     * Runs once at startup; see {@link DatabaseSchema}.
      */
     private void createTables() throws SQLException {
+        DatabaseSchema schema = new DatabaseSchema(logger)
+            .version(1, "Player locations, warps, world spawn and player settings", conn ->
+                DatabaseSchema.execute(conn,
+                    getCreatePlayerLocationsTableSQL(),
+                    getCreateWarpLocationsTableSQL(),
+                    getCreateWorldSpawnTableSQL(),
+                    getCreatePlayerSettingsTableSQL()))
+            .version(2, "Checkpoints for resuming an interrupted file migration", conn ->
+                DatabaseSchema.execute(conn,
+                    dialect.createTable(TABLE_MIGRATION_STATE,
+                        "migration_name " + dialect.varcharType(64) + " NOT NULL PRIMARY KEY",
+                        "last_player_uuid " + dialect.varcharType(36) + " NOT NULL",
+                        "migrated_players INT NOT NULL")))
+            .version(3, "Compact player locations with binary UUIDs, type codes and a world table",
+                new CompactPlayerLocationsUpgrade(dialect, TABLE_PLAYER_LOCATIONS, logger));
+        
         try (Connection conn = dataSource.getConnection()) {
-            // Create player locations table
-            String createPlayerLocationsTable = getCreatePlayerLocationsTableSQL();
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute(createPlayerLocationsTable);
-            }
-            
-            // Create warp locations table
-            String createWarpLocationsTable = getCreateWarpLocationsTableSQL();
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute(createWarpLocationsTable);
-            }
-            
-            // Create world spawn table
-            String createWorldSpawnTable = getCreateWorldSpawnTableSQL();
-            try (Statement stmt = conn.createStatement()) {
-                stmt.execute(createWorldSpawnTable);
-            }
-            
-            logger.info("Database tables created/verified successfully");
+            int version = schema.upgrade(conn);
+            loadWorldIds(conn);
+            logger.info("Database tables created/verified successfully (schema version " + version + ")");
         }
     }
     
     /**
-     * Gets the SQL for creating the player locations table based on database type.
+     * Gets the SQL for creating the player locations table.
+     * This is the original layout of schema version 1, which version 3 converts with
+     * {@link CompactPlayerLocationsUpgrade}.
      */
     private String getCreatePlayerLocationsTableSQL() {
-        switch (config.getType()) {
-            case SQLITE:
-                return "CREATE TABLE IF NOT EXISTS " + TABLE_PLAYER_LOCATIONS + " (" +
-                       "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                       "player_uuid TEXT NOT NULL, " +
-                       "location_type TEXT NOT NULL, " +
-                       "world_name TEXT NOT NULL, " +
-                       "x REAL NOT NULL, " +
-                       "y REAL NOT NULL, " +
-                       "z REAL NOT NULL, " +
-                       "yaw REAL NOT NULL, " +
-                       "pitch REAL NOT NULL, " +
-                       "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
-                       "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
-                       "UNIQUE(player_uuid, location_type)" +
-                       ")";
-            default:
-                return "CREATE TABLE IF NOT EXISTS " + TABLE_PLAYER_LOCATIONS + " (" +
-                       "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
-                       "player_uuid VARCHAR(36) NOT NULL, " +
-                       "location_type VARCHAR(20) NOT NULL, " +
-                       "world_name VARCHAR(255) NOT NULL, " +
-                       "x DOUBLE NOT NULL, " +
-                       "y DOUBLE NOT NULL, " +
-                       "z DOUBLE NOT NULL, " +
-                       "yaw FLOAT NOT NULL, " +
-                       "pitch FLOAT NOT NULL, " +
-                       "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                       "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
-                       "UNIQUE KEY unique_player_location (player_uuid, location_type), " +
-                       "INDEX idx_player_uuid (player_uuid), " +
-                       "INDEX idx_location_type (location_type)" +
-                       ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci";
-        }
-    }
-    
-    /**
-     * Gets the SQL for creating the warp locations table based on database type.
+        return dialect.createTable(TABLE_PLAYER_LOCATIONS,
+            dialect.bigIdColumn(),
+            "player_uuid " + dialect.varcharType(36) + " NOT NULL",
+            "location_type " + dialect.varcharType(20) + " NOT NULL",
+            "world_name " + dialect.varcharType(255) + " NOT NULL",
+            "x " + dialect.doubleType() + " NOT NULL",
+            "y " + dialect.doubleType() + " NOT NULL",
+            "z " + dialect.doubleType() + " NOT NULL",
+            "yaw " + dialect.floatType() + " NOT NULL",
+            "pitch " + dialect.floatType() + " NOT NULL",
+            dialect.createdAtColumn(),
+            dialect.updatedAtColumn(),
+            "UNIQUE (player_uuid, location_type)");
+    }
+    
+    /**
+     * Gets the SQL for creating the warp locations table.
      */
     private String getCreateWarpLocationsTableSQL() {
-        switch (config.getType()) {
-            case SQLITE:
-                return "CREATE TABLE IF NOT EXISTS " + TABLE_WARP_LOCATIONS + " (" +
-                       "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                       "warp_name TEXT NOT NULL UNIQUE, " +
-                       "world_name TEXT NOT NULL, " +
-                       "x REAL NOT NULL, " +
-                       "y REAL NOT NULL, " +
-                       "z REAL NOT NULL, " +
-                       "yaw REAL NOT NULL, " +
-                       "pitch REAL NOT NULL, " +
-                       "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
-                       "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP" +
-                       ")";
-            default:
-                return "CREATE TABLE IF NOT EXISTS " + TABLE_WARP_LOCATIONS + " (" +
-                       "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
-                       "warp_name VARCHAR(255) NOT NULL UNIQUE, " +
-                       "world_name VARCHAR(255) NOT NULL, " +
-                       "x DOUBLE NOT NULL, " +
-                       "y DOUBLE NOT NULL, " +
-                       "z DOUBLE NOT NULL, " +
-                       "yaw FLOAT NOT NULL, " +
-                       "pitch FLOAT NOT NULL, " +
-                       "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                       "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
-                       "INDEX idx_warp_name (warp_name)" +
-                       ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci";
-        }
-    }
-    
-    /**
-     * Gets the SQL for creating the world spawn table based on database type.
+        return dialect.createTable(TABLE_WARP_LOCATIONS,
+            dialect.bigIdColumn(),
+            "warp_name " + dialect.varcharType(255) + " NOT NULL UNIQUE",
+            "world_name " + dialect.varcharType(255) + " NOT NULL",
+            "x " + dialect.doubleType() + " NOT NULL",
+            "y " + dialect.doubleType() + " NOT NULL",
+            "z " + dialect.doubleType() + " NOT NULL",
+            "yaw " + dialect.floatType() + " NOT NULL",
+            "pitch " + dialect.floatType() + " NOT NULL",
+            dialect.createdAtColumn(),
+            dialect.updatedAtColumn());
+    }
+    
+    /**
+     * Gets the SQL for creating the world spawn table.
      */
     private String getCreateWorldSpawnTableSQL() {
-        switch (config.getType()) {
-            case SQLITE:
-                return "CREATE TABLE IF NOT EXISTS " + TABLE_WORLD_SPAWN + " (" +
-                       "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
-                       "world_name TEXT NOT NULL UNIQUE, " +
-                       "x REAL NOT NULL, " +
-                       "y REAL NOT NULL, " +
-                       "z REAL NOT NULL, " +
-                       "yaw REAL NOT NULL, " +
-                       "pitch REAL NOT NULL, " +
-                       "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
-                       "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP" +
-                       ")";
-            default:
-                return "CREATE TABLE IF NOT EXISTS " + TABLE_WORLD_SPAWN + " (" +
-                       "id BIGINT AUTO_INCREMENT PRIMARY KEY, " +
-                       "world_name VARCHAR(255) NOT NULL UNIQUE, " +
-                       "x DOUBLE NOT NULL, " +
-                       "y DOUBLE NOT NULL, " +
-                       "z DOUBLE NOT NULL, " +
-                       "yaw FLOAT NOT NULL, " +
-                       "pitch FLOAT NOT NULL, " +
-                       "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                       "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP, " +
-                       "INDEX idx_world_name (world_name)" +
-                       ") ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci";
-        }
+        return dialect.createTable(TABLE_WORLD_SPAWN,
+            dialect.bigIdColumn(),
+            "world_name " + dialect.varcharType(255) + " NOT NULL UNIQUE",
+            "x " + dialect.doubleType() + " NOT NULL",
+            "y " + dialect.doubleType() + " NOT NULL",
+            "z " + dialect.doubleType() + " NOT NULL",
+            "yaw " + dialect.floatType() + " NOT NULL",
+            "pitch " + dialect.floatType() + " NOT NULL",
+            dialect.createdAtColumn(),
+            dialect.updatedAtColumn());
     }
     
     // Death locations
     @Override
     public void saveDeathLocation(UUID playerId, Location location) {
-        savePlayerLocation(playerId, location, TYPE_DEATH);
+        savePlayerLocation(playerId, StoredLocation.of(location), TYPE_DEATH);
     }
     
     @Override
     public Location getDeathLocation(UUID playerId) {
-        return getPlayerLocation(playerId, TYPE_DEATH);
+        return materialize(getPlayerLocation(playerId, TYPE_DEATH));
     }
     
     @Override
@@ -243,12 +400,12 @@ public class DatabaseLocationStorage implements LocationStorage {
     // Teleport locations
     @Override
     public void saveTeleportLocation(UUID playerId, Location location) {
-        savePlayerLocation(playerId, location, TYPE_TELEPORT);
+        savePlayerLocation(playerId, StoredLocation.of(location), TYPE_TELEPORT);
     }
     
     @Override
     public Location getTeleportLocation(UUID playerId) {
-        return getPlayerLocation(playerId, TYPE_TELEPORT);
+        return materialize(getPlayerLocation(playerId, TYPE_TELEPORT));
     }
     
     @Override
@@ -259,12 +416,12 @@ public class DatabaseLocationStorage implements LocationStorage {
     // Last locations
     @Override
     public void saveLastLocation(UUID playerId, Location location) {
-        savePlayerLocation(playerId, location, TYPE_LAST);
+        savePlayerLocation(playerId, StoredLocation.of(location), TYPE_LAST);
     }
     
     @Override
     public Location getLastLocation(UUID playerId) {
-        return getPlayerLocation(playerId, TYPE_LAST);
+        return materialize(getPlayerLocation(playerId, TYPE_LAST));
     }
     
     @Override
@@ -275,17 +432,17 @@ public class DatabaseLocationStorage implements LocationStorage {
     // Home locations
     @Override
     public void saveHomeLocation(UUID playerId, Location location) {
-        savePlayerLocation(playerId, location, TYPE_HOME);
+        savePlayerLocation(playerId, StoredLocation.of(location), TYPE_HOME);
     }
     
     @Override
     public Location getHomeLocation(UUID playerId) {
-        return getPlayerLocation(playerId, TYPE_HOME);
+        return materialize(getPlayerLocation(playerId, TYPE_HOME));
     }
     
     @Override
     public boolean hasHomeLocation(UUID playerId) {
-        return getPlayerLocation(playerId, TYPE_HOME) != null;
+        return getHomeLocation(playerId) != null;
     }
     
     @Override
@@ -301,59 +458,41 @@ public class DatabaseLocationStorage implements LocationStorage {
     // Warp locations
     @Override
     public void saveWarpLocation(String warpName, Location location) {
-        String sql = "INSERT INTO " + TABLE_WARP_LOCATIONS + 
-                    " (warp_name, world_name, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, ?, ?, ?) " +
-                    "ON DUPLICATE KEY UPDATE world_name=?, x=?, y=?, z=?, yaw=?, pitch=?, updated_at=CURRENT_TIMESTAMP";
-        
-        if (config.getType() == DatabaseConfig.DatabaseType.SQLITE) {
-            sql = "INSERT OR REPLACE INTO " + TABLE_WARP_LOCATIONS + 
-                  " (warp_name, world_name, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, ?, ?, ?)";
-        }
-        
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, warpName);
-            stmt.setString(2, location.getWorld().getName());
-            stmt.setDouble(3, location.getX());
-            stmt.setDouble(4, location.getY());
-            stmt.setDouble(5, location.getZ());
-            stmt.setFloat(6, location.getYaw());
-            stmt.setFloat(7, location.getPitch());
+        saveWarpLocation(warpName, StoredLocation.of(location));
+    }
+    
+    private void saveWarpLocation(String warpName, StoredLocation location) {
+        try {
+            write("save.warp", conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(upsertWarpLocationSql)) {
+                    bindWarpLocation(stmt, warpName, location);
+                    stmt.executeUpdate();
+                }
+            });
             
-            if (config.getType() != DatabaseConfig.DatabaseType.SQLITE) {
-                // For ON DUPLICATE KEY UPDATE
-                stmt.setString(8, location.getWorld().getName());
-                stmt.setDouble(9, location.getX());
-                stmt.setDouble(10, location.getY());
-                stmt.setDouble(11, location.getZ());
-                stmt.setFloat(12, location.getYaw());
-                stmt.setFloat(13, location.getPitch());
+            LocationCache<String> cache = warpCache;
+            if (cache != null) {
+                cache.put(warpName, location);
             }
             
-            stmt.executeUpdate();
-            
         } catch (SQLException e) {
             logger.severe("Failed to save warp location '" + warpName + "': " + e.getMessage());
+            invalidateWarp(warpName);
         }
     }
     
     @Override
     public Location getWarpLocation(String warpName) {
-        String sql = "SELECT world_name, x, y, z, yaw, pitch FROM " + TABLE_WARP_LOCATIONS + 
-                    " WHERE warp_name = ?";
-        
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, warpName);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return createLocationFromResultSet(rs);
-                }
+        LocationCache<String> cache = warpCache;
+        if (cache != null) {
+            LocationCache.Entry entry = cache.get(warpName);
+            if (entry != null) {
+                return materialize(entry.getLocation());
             }
-            
+        }
+        
+        try {
+            return materialize(loadWarpLocation(warpName));
         } catch (SQLException e) {
             logger.severe("Failed to get warp location '" + warpName + "': " + e.getMessage());
         }
@@ -361,6 +500,28 @@ public class DatabaseLocationStorage implements LocationStorage {
         return null;
     }
     
+    /**
+     * Reads a warp from the database and stores the result in the cache.
+     */
+    private StoredLocation loadWarpLocation(String warpName) throws SQLException {
+        String sql = "SELECT world_name, x, y, z, yaw, pitch FROM " + TABLE_WARP_LOCATIONS + 
+                    " WHERE warp_name = ?";
+        
+        StoredLocation location = read("get.warp", conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                stmt.setString(1, warpName);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? readLocation(rs) : null;
+                }
+            }
+        });
+        LocationCache<String> cache = warpCache;
+        if (cache != null) {
+            cache.putLoaded(warpName, location);
+        }
+        return location;
+    }
+    
     @Override
     public boolean hasWarpLocation(String warpName) {
         return getWarpLocation(warpName) != null;
@@ -370,14 +531,32 @@ public class DatabaseLocationStorage implements LocationStorage {
     public void deleteWarpLocation(String warpName) {
         String sql = "DELETE FROM " + TABLE_WARP_LOCATIONS + " WHERE warp_name = ?";
         
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
+        try {
+            write("delete.warp", conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setString(1, warpName);
+                    stmt.executeUpdate();
+                }
+            });
             
-            stmt.setString(1, warpName);
-            stmt.executeUpdate();
+            LocationCache<String> cache = warpCache;
+            if (cache != null) {
+                cache.put(warpName, null);
+            }
             
         } catch (SQLException e) {
             logger.severe("Failed to delete warp location '" + warpName + "': " + e.getMessage());
+            invalidateWarp(warpName);
+        }
+    }
+    
+    /**
+     * Drops a warp from the cache after a failed write, so the next read goes to the database.
+     */
+    private void invalidateWarp(String warpName) {
+        LocationCache<String> cache = warpCache;
+        if (cache != null) {
+            cache.invalidate(warpName);
         }
     }
     
@@ -386,18 +565,26 @@ public class DatabaseLocationStorage implements LocationStorage {
         Map<String, Location> warps = new HashMap<>();
         String sql = "SELECT warp_name, world_name, x, y, z, yaw, pitch FROM " + TABLE_WARP_LOCATIONS;
         
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            while (rs.next()) {
-                String warpName = rs.getString("warp_name");
-                Location location = createLocationFromResultSet(rs);
-                if (location != null) {
-                    warps.put(warpName, location);
+        try {
+            read("list.warps", conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql);
+                     ResultSet rs = stmt.executeQuery()) {
+                    LocationCache<String> cache = warpCache;
+                    while (rs.next()) {
+                        String warpName = rs.getString("warp_name");
+                        StoredLocation stored = readLocation(rs);
+                        // Warm the cache, the full table is read anyway
+                        if (cache != null) {
+                            cache.putLoaded(warpName, stored);
+                        }
+                        Location location = stored.toLocation();
+                        if (location != null) {
+                            warps.put(warpName, location);
+                        }
+                    }
                 }
-            }
-            
+                return null;
+            });
         } catch (SQLException e) {
             logger.severe("Failed to get all warp locations: " + e.getMessage());
         }
@@ -405,43 +592,167 @@ public class DatabaseLocationStorage implements LocationStorage {
         return warps;
     }
     
-    // World spawn
+    // Async API
     @Override
-    public void saveWorldSpawn(Location location) {
-        String sql = "INSERT INTO " + TABLE_WORLD_SPAWN + 
-                    " (world_name, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, ?, ?) " +
-                    "ON DUPLICATE KEY UPDATE x=?, y=?, z=?, yaw=?, pitch=?, updated_at=CURRENT_TIMESTAMP";
-        
-        if (config.getType() == DatabaseConfig.DatabaseType.SQLITE) {
-            sql = "INSERT OR REPLACE INTO " + TABLE_WORLD_SPAWN + 
-                  " (world_name, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, ?, ?)";
+    public CompletableFuture<Location> getDeathLocationAsync(UUID playerId) {
+        return getPlayerLocationAsync(playerId, TYPE_DEATH);
+    }
+    
+    @Override
+    public CompletableFuture<Location> getTeleportLocationAsync(UUID playerId) {
+        return getPlayerLocationAsync(playerId, TYPE_TELEPORT);
+    }
+    
+    @Override
+    public CompletableFuture<Location> getLastLocationAsync(UUID playerId) {
+        return getPlayerLocationAsync(playerId, TYPE_LAST);
+    }
+    
+    @Override
+    public CompletableFuture<Location> getHomeLocationAsync(UUID playerId) {
+        return getPlayerLocationAsync(playerId, TYPE_HOME);
+    }
+    
+    @Override
+    public CompletableFuture<Void> saveDeathLocationAsync(UUID playerId, Location location) {
+        return writePlayerLocationAsync(() -> saveDeathLocation(playerId, location));
+    }
+    
+    @Override
+    public CompletableFuture<Void> saveTeleportLocationAsync(UUID playerId, Location location) {
+        return writePlayerLocationAsync(() -> saveTeleportLocation(playerId, location));
+    }
+    
+    @Override
+    public CompletableFuture<Void> saveLastLocationAsync(UUID playerId, Location location) {
+        return writePlayerLocationAsync(() -> saveLastLocation(playerId, location));
+    }
+    
+    @Override
+    public CompletableFuture<Void> saveHomeLocationAsync(UUID playerId, Location location) {
+        return writePlayerLocationAsync(() -> saveHomeLocation(playerId, location));
+    }
+    
+    @Override
+    public CompletableFuture<Void> deleteHomeLocationAsync(UUID playerId) {
+        return writePlayerLocationAsync(() -> deleteHomeLocation(playerId));
+    }
+    
+    @Override
+    public CompletableFuture<Location> getWarpLocationAsync(String warpName) {
+        LocationCache<String> cache = warpCache;
+        if (cache != null) {
+            LocationCache.Entry entry = cache.get(warpName);
+            if (entry != null) {
+                return CompletableFuture.completedFuture(materialize(entry.getLocation()));
+            }
         }
         
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            String worldName = location.getWorld().getName();
-            stmt.setString(1, worldName);
-            stmt.setDouble(2, location.getX());
-            stmt.setDouble(3, location.getY());
-            stmt.setDouble(4, location.getZ());
-            stmt.setFloat(5, location.getYaw());
-            stmt.setFloat(6, location.getPitch());
-            
-            if (config.getType() != DatabaseConfig.DatabaseType.SQLITE) {
-                // For ON DUPLICATE KEY UPDATE
-                stmt.setDouble(7, location.getX());
-                stmt.setDouble(8, location.getY());
-                stmt.setDouble(9, location.getZ());
-                stmt.setFloat(10, location.getYaw());
-                stmt.setFloat(11, location.getPitch());
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return materialize(loadWarpLocation(warpName));
+            } catch (SQLException e) {
+                logger.severe("Failed to get warp location '" + warpName + "': " + e.getMessage());
+                throw new CompletionException(e);
             }
-            
-            stmt.executeUpdate();
+        }, getReadExecutor());
+    }
+    
+    @Override
+    public CompletableFuture<Void> saveWarpLocationAsync(String warpName, Location location) {
+        StoredLocation stored = StoredLocation.of(location);
+        return CompletableFuture.runAsync(() -> saveWarpLocation(warpName, stored), getWriteExecutor());
+    }
+    
+    @Override
+    public CompletableFuture<Void> deleteWarpLocationAsync(String warpName) {
+        return CompletableFuture.runAsync(() -> deleteWarpLocation(warpName), getWriteExecutor());
+    }
+    
+    @Override
+    public CompletableFuture<Void> savePlayerSettingsAsync(UUID playerId, Map<String, String> settings) {
+        return CompletableFuture.runAsync(() -> savePlayerSettings(playerId, settings), getWriteExecutor());
+    }
+    
+    /**
+     * Runs a player location write. With write-behind enabled the write only touches
+     * memory and is done right away; otherwise it runs on the single writer thread,
+     * which keeps writes to the same row in order.
+     */
+    private CompletableFuture<Void> writePlayerLocationAsync(Runnable write) {
+        if (writeBehindQueue != null) {
+            write.run();
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(write, getWriteExecutor());
+    }
+    
+    private synchronized ExecutorService getReadExecutor() {
+        if (readExecutor == null) {
+            // Leave connections for the writer and synchronous callers
+            int threads = Math.max(1, Math.min(4, config.getMaxConnections() / 2));
+            readExecutor = Executors.newFixedThreadPool(threads, namedDaemonThreads("PitbullyPlugin-DB-Reader"));
+        }
+        return readExecutor;
+    }
+    
+    private synchronized ExecutorService getWriteExecutor() {
+        if (writeExecutor == null) {
+            writeExecutor = Executors.newSingleThreadExecutor(namedDaemonThreads("PitbullyPlugin-DB-Async-Writer"));
+        }
+        return writeExecutor;
+    }
+    
+    private static ThreadFactory namedDaemonThreads(String prefix) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, prefix + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+    
+    /**
+     * Stops the async executors, letting already submitted work finish first.
+     */
+    private synchronized void shutdownExecutors() {
+        for (ExecutorService executor : new ExecutorService[] { readExecutor, writeExecutor }) {
+            if (executor == null) {
+                continue;
+            }
+            executor.shutdown();
+            try {
+                if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                    executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+        }
+        readExecutor = null;
+        writeExecutor = null;
+    }
+    
+    // World spawn
+    @Override
+    public void saveWorldSpawn(Location location) {
+        saveWorldSpawn(StoredLocation.of(location));
+    }
+    
+    private void saveWorldSpawn(StoredLocation location) {
+        try {
+            write("save.spawn", conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(upsertWorldSpawnSql)) {
+                    bindWorldSpawn(stmt, location);
+                    stmt.executeUpdate();
+                }
+            });
             
             // Set the world spawn
-            if (location.getWorld() != null) {
-                location.getWorld().setSpawnLocation(location);
+            Location spawn = location.toLocation();
+            if (spawn != null && spawn.getWorld() != null) {
+                spawn.getWorld().setSpawnLocation(spawn);
             }
             
         } catch (SQLException e) {
@@ -455,12 +766,15 @@ public class DatabaseLocationStorage implements LocationStorage {
         // In a more complex setup, you might want to handle multiple worlds
         String sql = "SELECT world_name, x, y, z, yaw, pitch FROM " + TABLE_WORLD_SPAWN + " LIMIT 1";
         
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql);
-             ResultSet rs = stmt.executeQuery()) {
-            
-            if (rs.next()) {
-                return createLocationFromResultSet(rs);
+        try {
+            StoredLocation spawn = read("get.spawn", conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql);
+                     ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? readLocation(rs) : null;
+                }
+            });
+            if (spawn != null) {
+                return spawn.toLocation();
             }
             
         } catch (SQLException e) {
@@ -478,12 +792,45 @@ public class DatabaseLocationStorage implements LocationStorage {
     
     @Override
     public void saveAll() {
+        WriteBehindQueue queue = writeBehindQueue;
+        if (queue != null) {
+            // Push buffered location writes out now instead of waiting for the writer thread
+            queue.flush();
+            return;
+        }
         // Database storage saves immediately, so this is a no-op
         logger.info("Database storage - all changes are already persisted");
     }
+
+    @Override
+    public CompletableFuture<Void> saveAllAsync() {
+        WriteBehindQueue queue = writeBehindQueue;
+        if (queue == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return CompletableFuture.runAsync(queue::flush, getWriteExecutor());
+    }
     
     @Override
     public void close() {
+        if (playerLocationCache != null) {
+            logger.info("Database cache statistics: players " + formatCacheStats(playerLocationCache)
+                + ", warps " + formatCacheStats(warpCache));
+        }
+        shutdownExecutors();
+        WriteBehindQueue queue = writeBehindQueue;
+        if (queue != null) {
+            // Hard flush before the pool goes away so nothing buffered is lost
+            queue.close();
+            writeBehindQueue = null;
+        }
+        SqliteWriter writer = sqliteWriter;
+        if (writer != null) {
+            writer.close();
+            sqliteWriter = null;
+            logger.info("SQLite writer committed " + writer.getWriteCount() + " writes in "
+                + writer.getCommitCount() + " transactions");
+        }
         if (dataSource != null && !dataSource.isClosed()) {
             dataSource.close();
             logger.info("Database connection pool closed");
@@ -493,202 +840,729 @@ public class DatabaseLocationStorage implements LocationStorage {
     /**
      * Saves a player location to the database.
      */
-    private void savePlayerLocation(UUID playerId, Location location, String locationType) {
-        String sql = "INSERT INTO " + TABLE_PLAYER_LOCATIONS + 
-                    " (player_uuid, location_type, world_name, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, ?, ?, ?, ?) " +
-                    "ON DUPLICATE KEY UPDATE world_name=?, x=?, y=?, z=?, yaw=?, pitch=?, updated_at=CURRENT_TIMESTAMP";
-        
-        if (config.getType() == DatabaseConfig.DatabaseType.SQLITE) {
-            sql = "INSERT OR REPLACE INTO " + TABLE_PLAYER_LOCATIONS + 
-                  " (player_uuid, location_type, world_name, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, ?, ?, ?, ?)";
-        }
-        
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, playerId.toString());
-            stmt.setString(2, locationType);
-            stmt.setString(3, location.getWorld().getName());
-            stmt.setDouble(4, location.getX());
-            stmt.setDouble(5, location.getY());
-            stmt.setDouble(6, location.getZ());
-            stmt.setFloat(7, location.getYaw());
-            stmt.setFloat(8, location.getPitch());
-            
-            if (config.getType() != DatabaseConfig.DatabaseType.SQLITE) {
-                // For ON DUPLICATE KEY UPDATE
-                stmt.setString(9, location.getWorld().getName());
-                stmt.setDouble(10, location.getX());
-                stmt.setDouble(11, location.getY());
-                stmt.setDouble(12, location.getZ());
-                stmt.setFloat(13, location.getYaw());
-                stmt.setFloat(14, location.getPitch());
-            }
-            
-            stmt.executeUpdate();
-            
-        } catch (SQLException e) {
-            logger.severe("Failed to save " + locationType + " location for player " + playerId + ": " + e.getMessage());
+    private void savePlayerLocation(UUID playerId, StoredLocation location, String locationType) {
+        if (!rememberPlayerLocation(playerId, location, locationType)) {
+            writePlayerLocation(playerId, location, locationType);
         }
     }
     
     /**
-     * Gets a player location from the database.
+     * Upserts a single player location row.
      */
-    private Location getPlayerLocation(UUID playerId, String locationType) {
-        String sql = "SELECT world_name, x, y, z, yaw, pitch FROM " + TABLE_PLAYER_LOCATIONS + 
-                    " WHERE player_uuid = ? AND location_type = ?";
-        
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, playerId.toString());
-            stmt.setString(2, locationType);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    return createLocationFromResultSet(rs);
+    private void writePlayerLocation(UUID playerId, StoredLocation location, String locationType) {
+        try {
+            write("save." + locationType, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(upsertPlayerLocationSql)) {
+                    bindPlayerLocation(conn, stmt, playerId, locationType, location);
+                    stmt.executeUpdate();
                 }
-            }
-            
+            });
         } catch (SQLException e) {
-            logger.severe("Failed to get " + locationType + " location for player " + playerId + ": " + e.getMessage());
+            logger.severe("Failed to save " + locationType + " location for player " + playerId + ": " + e.getMessage());
+            invalidatePlayerLocation(playerId, locationType);
         }
-        
-        return null;
     }
     
     /**
-     * Gets all player locations of a specific type from the database.
+     * Saves one location into several location types of a player. Without write-behind
+     * all rows are upserted as one batch in a single transaction on one connection.
      */
-    private Map<UUID, Location> getAllPlayerLocations(String locationType) {
-        Map<UUID, Location> locations = new HashMap<>();
-        String sql = "SELECT player_uuid, world_name, x, y, z, yaw, pitch FROM " + TABLE_PLAYER_LOCATIONS + 
-                    " WHERE location_type = ?";
+    @Override
+    public void savePlayerLocations(UUID playerId, Location location, PlayerLocationType... types) {
+        StoredLocation stored = StoredLocation.of(location);
+        List<String> unbuffered = new ArrayList<>(types.length);
+        for (PlayerLocationType type : types) {
+            if (!rememberPlayerLocation(playerId, stored, type.getKey())) {
+                unbuffered.add(type.getKey());
+            }
+        }
+        if (unbuffered.isEmpty()) {
+            return;
+        }
+        if (unbuffered.size() == 1) {
+            writePlayerLocation(playerId, stored, unbuffered.get(0));
+            return;
+        }
         
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, locationType);
-            
-            try (ResultSet rs = stmt.executeQuery()) {
-                while (rs.next()) {
-                    try {
-                        UUID playerId = UUID.fromString(rs.getString("player_uuid"));
-                        Location location = createLocationFromResultSet(rs);
-                        if (location != null) {
-                            locations.put(playerId, location);
-                        }
-                    } catch (IllegalArgumentException e) {
-                        // Skip invalid UUIDs
-                        logger.warning("Invalid UUID found in database: " + rs.getString("player_uuid"));
+        try {
+            writeTransaction("save.locations", conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(upsertPlayerLocationSql)) {
+                    for (String locationType : unbuffered) {
+                        bindPlayerLocation(conn, stmt, playerId, locationType, stored);
+                        stmt.addBatch();
                     }
+                    stmt.executeBatch();
                 }
-            }
-            
+            });
         } catch (SQLException e) {
-            logger.severe("Failed to get all " + locationType + " locations: " + e.getMessage());
+            logger.severe("Failed to save " + unbuffered + " locations for player " + playerId + ": " + e.getMessage());
+            for (String locationType : unbuffered) {
+                invalidatePlayerLocation(playerId, locationType);
+            }
         }
-        
-        return locations;
     }
     
     /**
-     * Deletes a player location from the database.
+     * Applies a player location write to the session and the cache and hands it to the
+     * write-behind queue if enabled.
+     * 
+     * @return true if the write was buffered, false if it must be written to the database now
      */
-    private void deletePlayerLocation(UUID playerId, String locationType) {
-        String sql = "DELETE FROM " + TABLE_PLAYER_LOCATIONS + " WHERE player_uuid = ? AND location_type = ?";
+    private boolean rememberPlayerLocation(UUID playerId, StoredLocation location, String locationType) {
+        PlayerSession session = sessions.get(playerId);
+        if (session != null) {
+            session.setLocation(locationType, location);
+        }
+        LocationCache<PlayerLocationKey> cache = playerLocationCache;
+        if (cache != null) {
+            cache.put(new PlayerLocationKey(playerId, locationType), location);
+        }
         
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            
-            stmt.setString(1, playerId.toString());
-            stmt.setString(2, locationType);
-            stmt.executeUpdate();
-            
-        } catch (SQLException e) {
-            logger.severe("Failed to delete " + locationType + " location for player " + playerId + ": " + e.getMessage());
+        WriteBehindQueue queue = writeBehindQueue;
+        return queue != null && queue.enqueue(playerId, locationType, location);
+    }
+    
+    /**
+     * Drops a player location from the cache after a failed write, so the next read goes to the database.
+     */
+    private void invalidatePlayerLocation(UUID playerId, String locationType) {
+        LocationCache<PlayerLocationKey> cache = playerLocationCache;
+        if (cache != null) {
+            cache.invalidate(new PlayerLocationKey(playerId, locationType));
         }
     }
     
     /**
-     * Creates a Location object from a ResultSet.
+     * Loads all location rows and settings of a player with a single query
+     * and keeps them resident until {@link #unloadPlayer(UUID)}.
+     * 
+     * @param playerId The UUID of the player who is logging in
      */
-    private Location createLocationFromResultSet(ResultSet rs) throws SQLException {
-        String worldName = rs.getString("world_name");
-        World world = Bukkit.getWorld(worldName);
-        
-        if (world == null) {
-            logger.warning("World '" + worldName + "' not found, location cannot be loaded");
-            return null;
+    @Override
+    public void preloadPlayer(UUID playerId) {
+        PlayerSession session;
+        try {
+            session = loadPlayerSession(playerId);
+        } catch (SQLException e) {
+            // Without a session, reads simply fall back to the cache and the database
+            logger.severe("Failed to preload data for player " + playerId + ": " + e.getMessage());
+            return;
         }
         
-        double x = rs.getDouble("x");
-        double y = rs.getDouble("y");
-        double z = rs.getDouble("z");
-        float yaw = rs.getFloat("yaw");
-        float pitch = rs.getFloat("pitch");
+        sessions.put(playerId, session);
+    }
+    
+    /**
+     * Reads go to the database or to concurrent maps, so players can be preloaded on the pre-login thread.
+     */
+    @Override
+    public boolean isThreadSafe() {
+        return true;
+    }
+    
+    /**
+     * Reads all location rows and settings of a player with {@link #PLAYER_DATA_QUERY}.
+     * Buffered writes that have not been flushed yet (e.g. after a quick rejoin) are newer
+     * than the rows and replace them.
+     */
+    private PlayerSession loadPlayerSession(UUID playerId) throws SQLException {
+        PlayerSession session = new PlayerSession();
+        read("load.player", conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(PLAYER_DATA_QUERY)) {
+                dialect.setUuid(stmt, 1, playerId);
+                stmt.setString(2, playerId.toString());
+                
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        int typeCode = rs.getInt("location_type");
+                        if (typeCode == 0) {
+                            session.setSetting(rs.getString("world_name"), rs.getString("setting_value"));
+                        } else if (typeKey(typeCode) != null) {
+                            session.setLocation(typeKey(typeCode), readLocation(rs));
+                        }
+                    }
+                }
+            }
+            return null;
+        });
         
-        return new Location(world, x, y, z, yaw, pitch);
+        WriteBehindQueue queue = writeBehindQueue;
+        if (queue != null) {
+            for (String locationType : new String[] { TYPE_DEATH, TYPE_TELEPORT, TYPE_LAST, TYPE_HOME }) {
+                WriteBehindQueue.PendingWrite pending = queue.lookup(playerId, locationType);
+                if (pending != null) {
+                    session.setLocation(locationType, pending.getLocation());
+                }
+            }
+        }
+        return session;
     }
     
     /**
-     * Migrates data from file storage to database storage.
+     * Drops the resident data of a player and pushes their buffered writes out
+     * in the background.
      * 
-     * @param fileStorage The file storage to migrate from
+     * @param playerId The UUID of the player who quit
      */
-    public void migrateFromFileStorage(FileLocationStorage fileStorage) {
-        logger.info("Starting migration from file storage to database...");
-        
-        try {
-            // Migrate PlayerData first (includes keepXp settings)
-            Map<UUID, PlayerData> allPlayerData = fileStorage.getAllPlayerData();
-            logger.info("Migrating " + allPlayerData.size() + " player data entries...");
-            for (Map.Entry<UUID, PlayerData> entry : allPlayerData.entrySet()) {
-                savePlayerData(entry.getKey(), entry.getValue());
+    @Override
+    public void unloadPlayer(UUID playerId) {
+        if (sessions.remove(playerId) == null) {
+            return;
+        }
+        LocationCache<PlayerLocationKey> cache = playerLocationCache;
+        if (cache != null) {
+            cache.invalidateIf(key -> key.getPlayerId().equals(playerId));
+        }
+        WriteBehindQueue queue = writeBehindQueue;
+        if (queue != null) {
+            queue.requestFlush();
+        }
+    }
+    
+    private static String formatCacheStats(LocationCache<?> cache) {
+        return cache.getHitCount() + " hits / " + cache.getMissCount() + " misses ("
+            + Math.round(cache.getHitRate() * 100) + "% hit rate)";
+    }
+    
+    /**
+     * Binds the parameters of {@link #upsertPlayerLocationSql}.
+     */
+    private void bindPlayerLocation(Connection conn, PreparedStatement stmt, UUID playerId, String locationType,
+                                    StoredLocation location) throws SQLException {
+        dialect.setUuid(stmt, 1, playerId);
+        stmt.setInt(2, typeCode(locationType));
+        stmt.setInt(3, worldId(conn, location.getWorldName()));
+        stmt.setDouble(4, location.getX());
+        stmt.setDouble(5, location.getY());
+        stmt.setDouble(6, location.getZ());
+        stmt.setFloat(7, location.getYaw());
+        stmt.setFloat(8, location.getPitch());
+    }
+    
+    /**
+     * Binds player UUID and location type to the first two parameters of a statement.
+     */
+    private void bindPlayerLocationKey(PreparedStatement stmt, UUID playerId, String locationType) throws SQLException {
+        dialect.setUuid(stmt, 1, playerId);
+        stmt.setInt(2, typeCode(locationType));
+    }
+    
+    private static int typeCode(String locationType) {
+        return PlayerLocationType.fromKey(locationType).getCode();
+    }
+    
+    /**
+     * Returns the id of a world in the world lookup table and adds the world if it is new.
+     * Ids are only remembered once they are committed, so a rolled back transaction
+     * never leaves an id behind that does not exist. Inside a transaction of
+     * {@link #writeTransaction} or the migration, see {@link #beginWorldIds()}.
+     */
+    private int worldId(Connection conn, String worldName) throws SQLException {
+        Integer id = worldIds.get(worldName);
+        if (id != null) {
+            return id;
+        }
+        Map<String, Integer> uncommitted = uncommittedWorldIds.get();
+        if (uncommitted != null) {
+            id = uncommitted.get(worldName);
+            if (id != null) {
+                return id;
             }
-            
-            // Migrate legacy individual location data (for players not in PlayerData format)
-            // This ensures backwards compatibility with old file formats
-            
-            // Migrate death locations
-            for (Map.Entry<UUID, Location> entry : fileStorage.getAllDeathLocations().entrySet()) {
-                // Only migrate if not already in PlayerData
-                if (!allPlayerData.containsKey(entry.getKey())) {
-                    saveDeathLocation(entry.getKey(), entry.getValue());
+        }
+        try (PreparedStatement insert = conn.prepareStatement(insertWorldSql)) {
+            insert.setString(1, worldName);
+            insert.executeUpdate();
+        }
+        try (PreparedStatement select = conn.prepareStatement("SELECT id FROM " + TABLE_WORLDS + " WHERE name = ?")) {
+            select.setString(1, worldName);
+            try (ResultSet rs = select.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Could not register world " + worldName);
                 }
+                id = rs.getInt(1);
             }
-            
-            // Migrate teleport locations
-            for (Map.Entry<UUID, Location> entry : fileStorage.getAllTeleportLocations().entrySet()) {
-                if (!allPlayerData.containsKey(entry.getKey())) {
-                    saveTeleportLocation(entry.getKey(), entry.getValue());
+        }
+        if (conn.getAutoCommit()) {
+            worldIds.put(worldName, id);
+        } else if (uncommitted != null) {
+            uncommitted.put(worldName, id);
+        } else {
+            SqliteWriter writer = sqliteWriter;
+            if (writer != null && writer.isWriterThread()) {
+                int committedId = id;
+                writer.afterCommit(() -> worldIds.put(worldName, committedId));
+            }
+        }
+        return id;
+    }
+    
+    /**
+     * A read against a pooled connection.
+     */
+    @FunctionalInterface
+    private interface Query<T> {
+        T run(Connection conn) throws SQLException;
+    }
+    
+    /**
+     * Runs a read on a pooled connection and records its latency, including the wait
+     * for the connection, under the given operation name.
+     */
+    private <T> T read(String operation, Query<T> query) throws SQLException {
+        long start = System.nanoTime();
+        try (Connection conn = dataSource.getConnection()) {
+            T result = query.run(conn);
+            metrics.record(operation, start);
+            return result;
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(operation);
+            throw e;
+        }
+    }
+    
+    /**
+     * Runs a write on the SQLite writer thread if there is one, otherwise on a pooled
+     * connection in autocommit mode. Writes of several statements that must be applied
+     * together use {@link #writeTransaction(String, SqliteWriter.Work)}.
+     * 
+     * @param operation The name the latency is recorded under, including the wait for
+     *                  the writer thread or a connection
+     */
+    private void write(String operation, SqliteWriter.Work work) throws SQLException {
+        long start = System.nanoTime();
+        try {
+            SqliteWriter writer = sqliteWriter;
+            if (writer != null) {
+                writer.execute(work);
+            } else {
+                try (Connection conn = dataSource.getConnection()) {
+                    work.run(conn);
                 }
             }
-            
-            // Migrate last locations
-            for (Map.Entry<UUID, Location> entry : fileStorage.getAllLastLocations().entrySet()) {
-                if (!allPlayerData.containsKey(entry.getKey())) {
-                    saveLastLocation(entry.getKey(), entry.getValue());
+            metrics.record(operation, start);
+        } catch (SQLException | RuntimeException e) {
+            metrics.recordError(operation);
+            throw e;
+        }
+    }
+    
+    /**
+     * Runs a write of several statements atomically. On the SQLite writer thread every
+     * write already runs in its own savepoint; otherwise it gets its own transaction.
+     */
+    private void writeTransaction(String operation, SqliteWriter.Work work) throws SQLException {
+        if (sqliteWriter != null) {
+            write(operation, work);
+            return;
+        }
+        write(operation, conn -> {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            Map<String, Integer> addedWorlds = beginWorldIds();
+            try {
+                work.run(conn);
+                conn.commit();
+                worldIds.putAll(addedWorlds);
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                uncommittedWorldIds.remove();
+                conn.setAutoCommit(autoCommit);
+            }
+        });
+    }
+    
+    /**
+     * Starts collecting the ids of worlds added by a transaction on the current thread.
+     * The caller moves them to {@link #worldIds} after each commit and removes the
+     * collection from {@link #uncommittedWorldIds} when the transaction ends; without this,
+     * a world missing at startup would be inserted and looked up again for every row.
+     * 
+     * @return The ids added since the last commit
+     */
+    private Map<String, Integer> beginWorldIds() {
+        Map<String, Integer> addedWorlds = new HashMap<>();
+        uncommittedWorldIds.set(addedWorlds);
+        return addedWorlds;
+    }
+    
+    /**
+     * Loads the world lookup table into memory.
+     */
+    private void loadWorldIds(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, name FROM " + TABLE_WORLDS)) {
+            while (rs.next()) {
+                worldIds.put(rs.getString("name"), rs.getInt("id"));
+            }
+        }
+    }
+    
+    /**
+     * Binds the parameters of {@link #upsertWarpLocationSql}.
+     */
+    private void bindWarpLocation(PreparedStatement stmt, String warpName, StoredLocation location) throws SQLException {
+        stmt.setString(1, warpName);
+        stmt.setString(2, location.getWorldName());
+        stmt.setDouble(3, location.getX());
+        stmt.setDouble(4, location.getY());
+        stmt.setDouble(5, location.getZ());
+        stmt.setFloat(6, location.getYaw());
+        stmt.setFloat(7, location.getPitch());
+    }
+    
+    /**
+     * Binds the parameters of {@link #upsertWorldSpawnSql}.
+     */
+    private void bindWorldSpawn(PreparedStatement stmt, StoredLocation location) throws SQLException {
+        stmt.setString(1, location.getWorldName());
+        stmt.setDouble(2, location.getX());
+        stmt.setDouble(3, location.getY());
+        stmt.setDouble(4, location.getZ());
+        stmt.setFloat(5, location.getYaw());
+        stmt.setFloat(6, location.getPitch());
+    }
+    
+    /**
+     * Persists a batch of buffered writes in a single transaction.
+     * Called by the {@link WriteBehindQueue} on its writer thread.
+     */
+    private void flushPendingWrites(Collection<WriteBehindQueue.PendingWrite> writes) throws SQLException {
+        String deleteSql = "DELETE FROM " + TABLE_PLAYER_LOCATIONS + " WHERE player_uuid = ? AND location_type = ?";
+        
+        writeTransaction("flush.write-behind", conn -> {
+            try (PreparedStatement upsert = conn.prepareStatement(upsertPlayerLocationSql);
+                 PreparedStatement delete = conn.prepareStatement(deleteSql)) {
+                
+                int upserts = 0;
+                int deletes = 0;
+                for (WriteBehindQueue.PendingWrite write : writes) {
+                    if (write.isDelete()) {
+                        bindPlayerLocationKey(delete, write.getPlayerId(), write.getLocationType());
+                        delete.addBatch();
+                        deletes++;
+                    } else if (write.getLocation().getWorldName() != null) {
+                        bindPlayerLocation(conn, upsert, write.getPlayerId(), write.getLocationType(), write.getLocation());
+                        upsert.addBatch();
+                        upserts++;
+                    }
+                }
+                // Each key occurs at most once per batch, so upserts and deletes never touch the same row
+                if (upserts > 0) {
+                    upsert.executeBatch();
+                }
+                if (deletes > 0) {
+                    delete.executeBatch();
                 }
             }
-            
-            // Migrate home locations
-            for (Map.Entry<UUID, Location> entry : fileStorage.getAllHomeLocations().entrySet()) {
-                if (!allPlayerData.containsKey(entry.getKey())) {
-                    saveHomeLocation(entry.getKey(), entry.getValue());
+        });
+    }
+    
+    /**
+     * Gets a player location, from memory if possible and from the database otherwise.
+     */
+    private StoredLocation getPlayerLocation(UUID playerId, String locationType) {
+        CompletableFuture<StoredLocation> inMemory = lookupPlayerLocationInMemory(playerId, locationType);
+        if (inMemory != null) {
+            return inMemory.join();
+        }
+        
+        try {
+            return loadPlayerLocation(playerId, locationType);
+        } catch (SQLException e) {
+            logger.severe("Failed to get " + locationType + " location for player " + playerId + ": " + e.getMessage());
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Async variant of {@link #getPlayerLocation(UUID, String)}. Completes immediately
+     * when the row is in memory and queries the database on the reader pool otherwise.
+     */
+    private CompletableFuture<Location> getPlayerLocationAsync(UUID playerId, String locationType) {
+        CompletableFuture<StoredLocation> inMemory = lookupPlayerLocationInMemory(playerId, locationType);
+        if (inMemory != null) {
+            return CompletableFuture.completedFuture(materialize(inMemory.join()));
+        }
+        
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return materialize(loadPlayerLocation(playerId, locationType));
+            } catch (SQLException e) {
+                logger.severe("Failed to get " + locationType + " location for player " + playerId + ": " + e.getMessage());
+                throw new CompletionException(e);
+            }
+        }, getReadExecutor());
+    }
+    
+    /**
+     * Answers a player location lookup from the session, the write-behind buffer or the cache.
+     * 
+     * @return A completed future with the location (or null if the row is known to be absent),
+     *         or null if the database has to be asked
+     */
+    private CompletableFuture<StoredLocation> lookupPlayerLocationInMemory(UUID playerId, String locationType) {
+        PlayerSession session = sessions.get(playerId);
+        if (session != null) {
+            return CompletableFuture.completedFuture(session.getLocation(locationType));
+        }
+        
+        WriteBehindQueue.PendingWrite pending = pendingWrite(playerId, locationType);
+        if (pending != null) {
+            return CompletableFuture.completedFuture(pending.getLocation());
+        }
+        
+        LocationCache<PlayerLocationKey> cache = playerLocationCache;
+        if (cache != null) {
+            LocationCache.Entry entry = cache.get(new PlayerLocationKey(playerId, locationType));
+            if (entry != null) {
+                return CompletableFuture.completedFuture(entry.getLocation());
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Reads a player location from the database and stores the result in the cache.
+     */
+    private StoredLocation loadPlayerLocation(UUID playerId, String locationType) throws SQLException {
+        String sql = "SELECT " + PLAYER_LOCATION_COLUMNS + " FROM " + PLAYER_LOCATIONS_WITH_WORLD +
+                    " WHERE l.player_uuid = ? AND l.location_type = ?";
+        
+        StoredLocation location = read("get." + locationType, conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                bindPlayerLocationKey(stmt, playerId, locationType);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    return rs.next() ? readLocation(rs) : null;
                 }
             }
-            
-            // Migrate warp locations
-            for (Map.Entry<String, Location> entry : fileStorage.getAllWarpLocations().entrySet()) {
-                saveWarpLocation(entry.getKey(), entry.getValue());
+        });
+        LocationCache<PlayerLocationKey> cache = playerLocationCache;
+        if (cache != null) {
+            cache.putLoaded(new PlayerLocationKey(playerId, locationType), location);
+        }
+        return location;
+    }
+    
+    /**
+     * Gets all player locations of a specific type from the database.
+     */
+    private Map<UUID, Location> getAllPlayerLocations(String locationType) {
+        Map<UUID, Location> locations = new HashMap<>();
+        String sql = "SELECT l.player_uuid, " + PLAYER_LOCATION_COLUMNS + " FROM " + PLAYER_LOCATIONS_WITH_WORLD +
+                    " WHERE l.location_type = ?";
+        
+        try {
+            read("list." + locationType, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    stmt.setInt(1, typeCode(locationType));
+                    
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            try {
+                                UUID playerId = dialect.getUuid(rs, "player_uuid");
+                                Location location = readLocation(rs).toLocation();
+                                if (location != null) {
+                                    locations.put(playerId, location);
+                                }
+                            } catch (IllegalArgumentException e) {
+                                // Skip invalid UUIDs
+                                logger.warning("Invalid UUID found in database: " + e.getMessage());
+                            }
+                        }
+                    }
+                }
+                return null;
+            });
+        } catch (SQLException e) {
+            logger.severe("Failed to get all " + locationType + " locations: " + e.getMessage());
+        }
+        
+        // Overlay writes that have not reached the database yet
+        WriteBehindQueue queue = writeBehindQueue;
+        if (queue != null) {
+            for (WriteBehindQueue.PendingWrite write : queue.pendingOfType(locationType)) {
+                if (write.isDelete()) {
+                    locations.remove(write.getPlayerId());
+                } else {
+                    Location location = write.getLocation().toLocation();
+                    if (location != null) {
+                        locations.put(write.getPlayerId(), location);
+                    } else {
+                        locations.remove(write.getPlayerId());
+                    }
+                }
             }
-            
-            // Migrate world spawn
-            Location worldSpawn = fileStorage.getWorldSpawn();
-            if (worldSpawn != null) {
-                saveWorldSpawn(worldSpawn);
+        }
+        
+        return locations;
+    }
+    
+    /**
+     * Returns the buffered write for a player location, or null if there is none
+     * (or write-behind is disabled).
+     */
+    private WriteBehindQueue.PendingWrite pendingWrite(UUID playerId, String locationType) {
+        WriteBehindQueue queue = writeBehindQueue;
+        return queue != null ? queue.lookup(playerId, locationType) : null;
+    }
+    
+    /**
+     * Deletes a player location from the database.
+     */
+    private void deletePlayerLocation(UUID playerId, String locationType) {
+        PlayerSession session = sessions.get(playerId);
+        if (session != null) {
+            session.setLocation(locationType, null);
+        }
+        LocationCache<PlayerLocationKey> cache = playerLocationCache;
+        if (cache != null) {
+            cache.put(new PlayerLocationKey(playerId, locationType), null);
+        }
+        
+        // Deletes go through the buffer too, otherwise an older buffered upsert could resurrect the row
+        WriteBehindQueue queue = writeBehindQueue;
+        if (queue != null && queue.enqueue(playerId, locationType, null)) {
+            return;
+        }
+        
+        String sql = "DELETE FROM " + TABLE_PLAYER_LOCATIONS + " WHERE player_uuid = ? AND location_type = ?";
+        
+        try {
+            write("delete." + locationType, conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    bindPlayerLocationKey(stmt, playerId, locationType);
+                    stmt.executeUpdate();
+                }
+            });
+        } catch (SQLException e) {
+            logger.severe("Failed to delete " + locationType + " location for player " + playerId + ": " + e.getMessage());
+            invalidatePlayerLocation(playerId, locationType);
+        }
+    }
+    
+    /**
+     * Reads the location columns of the current row. The world is only looked up
+     * once the location is materialized, so rows in unloaded worlds are kept.
+     */
+    private static StoredLocation readLocation(ResultSet rs) throws SQLException {
+        return StoredLocation.of(rs.getString("world_name"), rs.getDouble("x"), rs.getDouble("y"), rs.getDouble("z"),
+            rs.getFloat("yaw"), rs.getFloat("pitch"));
+    }
+    
+    /**
+     * @return The location type for a type code, or null for unknown codes
+     */
+    private static String typeKey(int typeCode) {
+        PlayerLocationType type = PlayerLocationType.fromCode(typeCode);
+        return type != null ? type.getKey() : null;
+    }
+    
+    private static Location materialize(StoredLocation location) {
+        return location != null ? location.toLocation() : null;
+    }
+    
+    /**
+     * Migrates data from file storage to database storage using the default batch size.
+     * 
+     * @param fileStorage The file storage to migrate from
+     * @see #migrateFromFileStorage(FileLocationStorage, int)
+     */
+    public void migrateFromFileStorage(FileLocationStorage fileStorage) {
+        migrateFromFileStorage(fileStorage, DEFAULT_MIGRATION_BATCH_SIZE);
+    }
+    
+    /**
+     * Migrates data from file storage to database storage.
+     * 
+     * <p>All rows are written on a single connection as JDBC batches. Players are migrated
+     * in UUID order and a transaction is committed every {@code batchSize} rows together
+     * with a checkpoint in {@code pitbully_migration_state}. If the server stops during the
+     * migration, the next start skips all players up to the checkpoint. The checkpoint is
+     * removed once warps and the world spawn have been written as well.
+     * 
+     * <p>With SQLite the migration bypasses the {@link SqliteWriter} to commit its own
+     * batches; concurrent writes wait for each batch through the busy timeout.
+     * 
+     * @param fileStorage The file storage to migrate from
+     * @param batchSize Number of rows per batch and transaction
+     */
+    public void migrateFromFileStorage(FileLocationStorage fileStorage, int batchSize) {
+        logger.info("Starting migration from file storage to database...");
+        int chunkSize = Math.max(1, batchSize);
+        
+        // The player map also backs the per-type location views of the file storage,
+        // so legacy-format players are contained in it as well
+        Map<UUID, PlayerData> allPlayerData = fileStorage.getAllPlayerData();
+        List<UUID> playerIds = new ArrayList<>(allPlayerData.keySet());
+        Collections.sort(playerIds);
+        
+        try (Connection conn = dataSource.getConnection()) {
+            boolean autoCommit = conn.getAutoCommit();
+            conn.setAutoCommit(false);
+            Map<String, Integer> addedWorlds = beginWorldIds();
+            try (PreparedStatement locations = conn.prepareStatement(upsertPlayerLocationSql);
+                 PreparedStatement settings = conn.prepareStatement(upsertPlayerSettingSql);
+                 PreparedStatement clearCheckpoint = conn.prepareStatement(
+                     "DELETE FROM " + TABLE_MIGRATION_STATE + " WHERE migration_name = ?");
+                 PreparedStatement writeCheckpoint = conn.prepareStatement(
+                     "INSERT INTO " + TABLE_MIGRATION_STATE + " (migration_name, last_player_uuid, migrated_players) VALUES (?, ?, ?)")) {
+                
+                UUID resumeAfter = readMigrationCheckpoint(conn);
+                int total = playerIds.size();
+                int done = 0;
+                if (resumeAfter != null) {
+                    while (done < total && playerIds.get(done).compareTo(resumeAfter) <= 0) {
+                        done++;
+                    }
+                    logger.info("Resuming interrupted migration after " + done + " of " + total + " players");
+                } else {
+                    logger.info("Migrating " + total + " player data entries in batches of " + chunkSize + " rows...");
+                }
+                
+                int pendingRows = 0;
+                int loggedPercent = done * 100 / Math.max(1, total);
+                for (int i = done; i < total; i++) {
+                    UUID playerId = playerIds.get(i);
+                    pendingRows += addPlayerDataBatch(conn, locations, settings, playerId, allPlayerData.get(playerId));
+                    done++;
+                    
+                    if (pendingRows >= chunkSize || done == total) {
+                        locations.executeBatch();
+                        settings.executeBatch();
+                        clearCheckpoint.setString(1, MIGRATION_FILE_STORAGE);
+                        clearCheckpoint.executeUpdate();
+                        writeCheckpoint.setString(1, MIGRATION_FILE_STORAGE);
+                        writeCheckpoint.setString(2, playerId.toString());
+                        writeCheckpoint.setInt(3, done);
+                        writeCheckpoint.executeUpdate();
+                        conn.commit();
+                        worldIds.putAll(addedWorlds);
+                        addedWorlds.clear();
+                        pendingRows = 0;
+                        
+                        int percent = done * 100 / total;
+                        if (percent >= loggedPercent + 10 || done == total) {
+                            logger.info("Migrated " + done + "/" + total + " players (" + percent + "%)");
+                            loggedPercent = percent;
+                        }
+                    }
+                }
+                
+                // Warps and the world spawn are few; write them together with the final checkpoint removal
+                migrateWarpsAndSpawn(conn, fileStorage);
+                clearCheckpoint.setString(1, MIGRATION_FILE_STORAGE);
+                clearCheckpoint.executeUpdate();
+                conn.commit();
+                
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                uncommittedWorldIds.remove();
+                conn.setAutoCommit(autoCommit);
             }
             
             logger.info("Migration from file storage to database completed successfully!");
@@ -699,6 +1573,89 @@ public class DatabaseLocationStorage implements LocationStorage {
             throw new RuntimeException("Migration failed", e);
         }
     }
+    
+    /**
+     * Adds the location rows and the settings of one player to the migration batches.
+     * 
+     * @return The number of rows added
+     */
+    private int addPlayerDataBatch(Connection conn, PreparedStatement locations, PreparedStatement settings,
+                                   UUID playerId, PlayerData data) throws SQLException {
+        int rows = 0;
+        rows += addPlayerLocationBatch(conn, locations, playerId, TYPE_DEATH, data.getStoredLastDeath());
+        rows += addPlayerLocationBatch(conn, locations, playerId, TYPE_TELEPORT, data.getStoredLastTeleport());
+        rows += addPlayerLocationBatch(conn, locations, playerId, TYPE_LAST, data.getStoredLastLocation());
+        rows += addPlayerLocationBatch(conn, locations, playerId, TYPE_HOME, data.getStoredHome());
+        
+        rows += addPlayerSettingBatch(settings, playerId, "keepXp", String.valueOf(data.isKeepXp()));
+        for (Map.Entry<String, String> setting : data.getSettings().entrySet()) {
+            rows += addPlayerSettingBatch(settings, playerId, setting.getKey(), setting.getValue());
+        }
+        return rows;
+    }
+    
+    private static int addPlayerSettingBatch(PreparedStatement stmt, UUID playerId, String settingName,
+                                             String value) throws SQLException {
+        stmt.setString(1, playerId.toString());
+        stmt.setString(2, settingName);
+        stmt.setString(3, value);
+        stmt.addBatch();
+        return 1;
+    }
+    
+    private int addPlayerLocationBatch(Connection conn, PreparedStatement stmt, UUID playerId, String locationType,
+                                       StoredLocation location) throws SQLException {
+        // Every row references a world, so locations without a world cannot be stored
+        if (location == null || location.getWorldName() == null) {
+            return 0;
+        }
+        bindPlayerLocation(conn, stmt, playerId, locationType, location);
+        stmt.addBatch();
+        return 1;
+    }
+    
+    /**
+     * Writes the warps and the world spawn of the file storage on the migration connection.
+     */
+    private void migrateWarpsAndSpawn(Connection conn, FileLocationStorage fileStorage) throws SQLException {
+        Map<String, StoredLocation> warps = fileStorage.getAllStoredWarpLocations();
+        if (!warps.isEmpty()) {
+            try (PreparedStatement stmt = conn.prepareStatement(upsertWarpLocationSql)) {
+                for (Map.Entry<String, StoredLocation> entry : warps.entrySet()) {
+                    if (entry.getValue().getWorldName() != null) {
+                        bindWarpLocation(stmt, entry.getKey(), entry.getValue());
+                        stmt.addBatch();
+                    }
+                }
+                stmt.executeBatch();
+            }
+            logger.info("Migrated " + warps.size() + " warps");
+        }
+        
+        StoredLocation worldSpawn = fileStorage.getStoredWorldSpawn();
+        if (worldSpawn != null && worldSpawn.getWorldName() != null) {
+            try (PreparedStatement stmt = conn.prepareStatement(upsertWorldSpawnSql)) {
+                bindWorldSpawn(stmt, worldSpawn);
+                stmt.executeUpdate();
+            }
+        }
+    }
+    
+    /**
+     * Reads the last player migrated by an interrupted file migration.
+     * 
+     * @return The UUID of that player, or null if no migration was interrupted
+     */
+    private UUID readMigrationCheckpoint(Connection conn) throws SQLException {
+        String sql = "SELECT last_player_uuid FROM " + TABLE_MIGRATION_STATE + " WHERE migration_name = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setString(1, MIGRATION_FILE_STORAGE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                String lastPlayer = rs.next() ? rs.getString("last_player_uuid") : null;
+                return lastPlayer != null ? UUID.fromString(lastPlayer) : null;
+            }
+        }
+    }
 
     /**
      * Checks if a player has a last death location stored.
@@ -708,14 +1665,24 @@ public class DatabaseLocationStorage implements LocationStorage {
      */
     @Override
     public boolean hasLastDeathLocation(UUID uniqueId) {
-        String sql = "SELECT COUNT(*) FROM " + TABLE_PLAYER_LOCATIONS + " WHERE player_uuid = ? AND location_type = 'death'";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, uniqueId.toString());
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
-            }
+        if (playerLocationCache != null || sessions.containsKey(uniqueId)) {
+            // Served from memory after the first access, and /back needs the row right after anyway
+            return getDeathLocation(uniqueId) != null;
+        }
+        WriteBehindQueue.PendingWrite pending = pendingWrite(uniqueId, TYPE_DEATH);
+        if (pending != null) {
+            return !pending.isDelete();
+        }
+        String sql = "SELECT COUNT(*) FROM " + TABLE_PLAYER_LOCATIONS + " WHERE player_uuid = ? AND location_type = ?";
+        try {
+            return read("has.death", conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    bindPlayerLocationKey(stmt, uniqueId, TYPE_DEATH);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        return rs.next() && rs.getInt(1) > 0;
+                    }
+                }
+            });
         } catch (SQLException e) {
             logger.severe("Failed to check last death location for player " + uniqueId + ": " + e.getMessage());
         }
@@ -730,14 +1697,24 @@ public class DatabaseLocationStorage implements LocationStorage {
      */
     @Override
     public boolean hasLastTeleportLocation(UUID uniqueId) {
-        String sql = "SELECT COUNT(*) FROM " + TABLE_PLAYER_LOCATIONS + " WHERE player_uuid = ? AND location_type = 'teleport'";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, uniqueId.toString());
-            ResultSet rs = stmt.executeQuery();
-            if (rs.next()) {
-                return rs.getInt(1) > 0;
-            }
+        if (playerLocationCache != null || sessions.containsKey(uniqueId)) {
+            // Served from memory after the first access, and /back needs the row right after anyway
+            return getTeleportLocation(uniqueId) != null;
+        }
+        WriteBehindQueue.PendingWrite pending = pendingWrite(uniqueId, TYPE_TELEPORT);
+        if (pending != null) {
+            return !pending.isDelete();
+        }
+        String sql = "SELECT COUNT(*) FROM " + TABLE_PLAYER_LOCATIONS + " WHERE player_uuid = ? AND location_type = ?";
+        try {
+            return read("has.teleport", conn -> {
+                try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+                    bindPlayerLocationKey(stmt, uniqueId, TYPE_TELEPORT);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        return rs.next() && rs.getInt(1) > 0;
+                    }
+                }
+            });
         } catch (SQLException e) {
             logger.severe("Failed to check last teleport location for player " + uniqueId + ": " + e.getMessage());
         }
@@ -752,7 +1729,7 @@ public class DatabaseLocationStorage implements LocationStorage {
      */
     @Override
     public Location getLastTeleportLocation(UUID uniqueId) {
-        return getPlayerLocation(uniqueId, TYPE_TELEPORT);
+        return getTeleportLocation(uniqueId);
     }
 
     /**
@@ -763,64 +1740,18 @@ public class DatabaseLocationStorage implements LocationStorage {
      */
     @Override
     public PlayerData getPlayerData(UUID playerId) {
-        PlayerData data = new PlayerData();
-        boolean hasData = false;
-        
-        // Get all location types for this player
-        String sql = "SELECT location_type, world, x, y, z, yaw, pitch FROM " + TABLE_PLAYER_LOCATIONS + " WHERE player_uuid = ?";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, playerId.toString());
-            ResultSet rs = stmt.executeQuery();
-            
-            while (rs.next()) {
-                String locationType = rs.getString("location_type");
-                Location location = createLocationFromResultSet(rs);
-                
-                if (location != null) {
-                    hasData = true;
-                    switch (locationType) {
-                        case TYPE_DEATH:
-                            data.setLastDeath(location);
-                            break;
-                        case TYPE_TELEPORT:
-                            data.setLastTeleport(location);
-                            break;
-                        case TYPE_LAST:
-                            data.setLastLocation(location);
-                            break;
-                        case TYPE_HOME:
-                            data.setHome(location);
-                            break;
-                    }
-                }
-            }
-        } catch (SQLException e) {
-            logger.severe("Failed to retrieve player data for " + playerId + ": " + e.getMessage());
+        PlayerSession session = sessions.get(playerId);
+        if (session != null) {
+            return session.toPlayerData();
         }
         
-        // Get keepXp setting - we'll store this as a player setting
-        sql = "SELECT setting_value FROM pitbully_player_settings WHERE player_uuid = ? AND setting_name = 'keepXp'";
-        try (Connection conn = dataSource.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(sql)) {
-            stmt.setString(1, playerId.toString());
-            ResultSet rs = stmt.executeQuery();
-            
-            if (rs.next()) {
-                String value = rs.getString("setting_value");
-                data.setKeepXp("true".equalsIgnoreCase(value));
-                hasData = true;
-            } else {
-                // Default to true for new players
-                data.setKeepXp(true);
-            }
+        // Called for every death through LocationStorage.isKeepingXp, so a single round-trip
+        try {
+            return loadPlayerSession(playerId).toPlayerData();
         } catch (SQLException e) {
-            // Table might not exist yet, that's okay - use default
-            logger.info("Player settings table not found, using default keepXp value: " + e.getMessage());
-            data.setKeepXp(true);
+            logger.severe("Failed to retrieve player data for " + playerId + ": " + e.getMessage());
+            return null;
         }
-        
-        return hasData ? data : null;
     }
 
     /**
@@ -833,67 +1764,82 @@ public class DatabaseLocationStorage implements LocationStorage {
     public void savePlayerData(UUID playerId, PlayerData playerData) {
         if (playerData == null) return;
         
-        // Save locations
-        if (playerData.getLastDeath() != null) {
-            saveDeathLocation(playerId, playerData.getLastDeath());
+        // Save locations, including those in worlds that are not loaded
+        if (playerData.getStoredLastDeath() != null) {
+            savePlayerLocation(playerId, playerData.getStoredLastDeath(), TYPE_DEATH);
         }
-        if (playerData.getLastTeleport() != null) {
-            saveTeleportLocation(playerId, playerData.getLastTeleport());
+        if (playerData.getStoredLastTeleport() != null) {
+            savePlayerLocation(playerId, playerData.getStoredLastTeleport(), TYPE_TELEPORT);
         }
-        if (playerData.getLastLocation() != null) {
-            saveLastLocation(playerId, playerData.getLastLocation());
+        if (playerData.getStoredLastLocation() != null) {
+            savePlayerLocation(playerId, playerData.getStoredLastLocation(), TYPE_LAST);
         }
-        if (playerData.getHome() != null) {
-            saveHomeLocation(playerId, playerData.getHome());
+        if (playerData.getStoredHome() != null) {
+            savePlayerLocation(playerId, playerData.getStoredHome(), TYPE_HOME);
         }
         
-        // Save keepXp setting
-        savePlayerSetting(playerId, "keepXp", String.valueOf(playerData.isKeepXp()));
+        // Save keepXp and all other settings in one batch
+        Map<String, String> settings = new LinkedHashMap<>(playerData.getSettings());
+        settings.put("keepXp", String.valueOf(playerData.isKeepXp()));
+        savePlayerSettings(playerId, settings);
     }
 
     /**
-     * Helper method to save player-specific settings.
-     */
-    private void savePlayerSetting(UUID playerId, String settingName, String value) {
-        // Create table if not exists
-        String createTableSql = "CREATE TABLE IF NOT EXISTS pitbully_player_settings (" +
-                "player_uuid VARCHAR(36) NOT NULL, " +
-                "setting_name VARCHAR(50) NOT NULL, " +
-                "setting_value TEXT, " +
-                "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
-                "PRIMARY KEY (player_uuid, setting_name)" +
-                ")";
-        
-        String upsertSql;
-        if (config.getType() == DatabaseConfig.DatabaseType.MYSQL || config.getType() == DatabaseConfig.DatabaseType.MARIADB) {
-            upsertSql = "INSERT INTO pitbully_player_settings (player_uuid, setting_name, setting_value) " +
-                       "VALUES (?, ?, ?) ON DUPLICATE KEY UPDATE setting_value = VALUES(setting_value), updated_at = CURRENT_TIMESTAMP";
-        } else if (config.getType() == DatabaseConfig.DatabaseType.POSTGRESQL) {
-            upsertSql = "INSERT INTO pitbully_player_settings (player_uuid, setting_name, setting_value) " +
-                       "VALUES (?, ?, ?) ON CONFLICT (player_uuid, setting_name) " +
-                       "DO UPDATE SET setting_value = EXCLUDED.setting_value, updated_at = CURRENT_TIMESTAMP";
-        } else { // SQLite
-            upsertSql = "INSERT OR REPLACE INTO pitbully_player_settings (player_uuid, setting_name, setting_value) " +
-                       "VALUES (?, ?, ?)";
+     * Gets the SQL for creating the player settings table.
+     */
+    private String getCreatePlayerSettingsTableSQL() {
+        return dialect.createTable(TABLE_PLAYER_SETTINGS,
+            "player_uuid " + dialect.varcharType(36) + " NOT NULL",
+            "setting_name " + dialect.varcharType(50) + " NOT NULL",
+            "setting_value TEXT",
+            dialect.updatedAtColumn(),
+            "PRIMARY KEY (player_uuid, setting_name)");
+    }
+    
+    /**
+     * Saves several player settings in one transaction: one JDBC batch of upserts
+     * and one of deletes for reset settings. The locations are left alone.
+     */
+    @Override
+    public void savePlayerSettings(UUID playerId, Map<String, String> settings) {
+        if (settings.isEmpty()) {
+            return;
         }
-        
-        try (Connection conn = dataSource.getConnection()) {
-            // Create table
-            try (PreparedStatement createStmt = conn.prepareStatement(createTableSql)) {
-                createStmt.executeUpdate();
-            }
-            
-            // Upsert setting
-            try (PreparedStatement stmt = conn.prepareStatement(upsertSql)) {
-                stmt.setString(1, playerId.toString());
-                stmt.setString(2, settingName);
-                stmt.setString(3, value);
-                stmt.executeUpdate();
+        PlayerSession session = sessions.get(playerId);
+        if (session != null) {
+            for (Map.Entry<String, String> setting : settings.entrySet()) {
+                session.setSetting(setting.getKey(), setting.getValue());
             }
+        }
+        
+        // The table is created by the schema bootstrap, see createTables()
+        try {
+            writeTransaction("save.settings", conn -> {
+                try (PreparedStatement upsert = conn.prepareStatement(upsertPlayerSettingSql);
+                     PreparedStatement delete = conn.prepareStatement(DELETE_PLAYER_SETTING_SQL)) {
+                    boolean upserts = false;
+                    boolean deletes = false;
+                    for (Map.Entry<String, String> setting : settings.entrySet()) {
+                        if (setting.getValue() != null) {
+                            addPlayerSettingBatch(upsert, playerId, setting.getKey(), setting.getValue());
+                            upserts = true;
+                        } else {
+                            delete.setString(1, playerId.toString());
+                            delete.setString(2, setting.getKey());
+                            delete.addBatch();
+                            deletes = true;
+                        }
+                    }
+                    if (upserts) {
+                        upsert.executeBatch();
+                    }
+                    if (deletes) {
+                        delete.executeBatch();
+                    }
+                }
+            });
         } catch (SQLException e) {
-            logger.severe("Failed to save player setting " + settingName + " for " + playerId + ": " + e.getMessage());
+            logger.severe("Failed to save player settings " + settings.keySet() + " for " + playerId + ": " + e.getMessage());
         }
     }
-
-    
 }
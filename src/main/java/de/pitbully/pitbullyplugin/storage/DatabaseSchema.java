@@ -0,0 +1,149 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Versioned schema of the database storage.
+ *
+ * <p>Every schema change is registered as a numbered step. The versions that have been
+ * applied are recorded in {@code pitbully_schema_version}, and {@link #upgrade(Connection)}
+ * only runs the steps above the recorded version. Tables are therefore created once at
+ * startup and the regular read and write paths never execute DDL.
+ *
+ * <p>Each step is committed together with its version row. Some databases (MySQL, MariaDB)
+ * commit DDL implicitly, so steps should be written to be safe to re-run, e.g. with
+ * {@code CREATE TABLE IF NOT EXISTS}.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+final class DatabaseSchema {
+
+    static final String TABLE_SCHEMA_VERSION = "pitbully_schema_version";
+
+    /**
+     * A single schema change.
+     */
+    @FunctionalInterface
+    interface Step {
+        void apply(Connection conn) throws SQLException;
+    }
+
+    private static final class Version {
+        final int number;
+        final String description;
+        final Step step;
+
+        Version(int number, String description, Step step) {
+            this.number = number;
+            this.description = description;
+            this.step = step;
+        }
+    }
+
+    private final List<Version> versions = new ArrayList<>();
+    private final Logger logger;
+
+    DatabaseSchema(Logger logger) {
+        this.logger = logger;
+    }
+
+    /**
+     * Registers the next schema version.
+     *
+     * @param number Version number, must be greater than all registered versions
+     * @param description Short description stored with the version
+     * @param step The change that brings the schema from the previous version to this one
+     * @return this schema
+     */
+    DatabaseSchema version(int number, String description, Step step) {
+        if (number <= getLatestVersion()) {
+            throw new IllegalArgumentException("Schema version " + number + " must be greater than " + getLatestVersion());
+        }
+        versions.add(new Version(number, description, step));
+        return this;
+    }
+
+    /**
+     * @return The highest registered version, or 0 if none is registered
+     */
+    int getLatestVersion() {
+        return versions.isEmpty() ? 0 : versions.get(versions.size() - 1).number;
+    }
+
+    /**
+     * Applies all versions that are newer than the schema in the database.
+     *
+     * @param conn Connection to upgrade; its auto-commit mode is restored afterwards
+     * @return The schema version of the database after the upgrade
+     * @throws SQLException if a step fails; versions applied before it stay applied
+     */
+    int upgrade(Connection conn) throws SQLException {
+        execute(conn, "CREATE TABLE IF NOT EXISTS " + TABLE_SCHEMA_VERSION + " (" +
+                      "version INT NOT NULL PRIMARY KEY, " +
+                      "description VARCHAR(255) NOT NULL, " +
+                      "applied_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP" +
+                      ")");
+
+        int current = readVersion(conn);
+        if (current > getLatestVersion()) {
+            logger.warning("Database schema version " + current + " is newer than this plugin version supports ("
+                + getLatestVersion() + ")");
+            return current;
+        }
+
+        boolean autoCommit = conn.getAutoCommit();
+        conn.setAutoCommit(false);
+        try (PreparedStatement record = conn.prepareStatement(
+                "INSERT INTO " + TABLE_SCHEMA_VERSION + " (version, description) VALUES (?, ?)")) {
+            for (Version version : versions) {
+                if (version.number <= current) {
+                    continue;
+                }
+                logger.info("Upgrading database schema to version " + version.number + ": " + version.description);
+                version.step.apply(conn);
+                record.setInt(1, version.number);
+                record.setString(2, version.description);
+                record.executeUpdate();
+                conn.commit();
+                current = version.number;
+            }
+        } catch (SQLException e) {
+            conn.rollback();
+            throw e;
+        } finally {
+            conn.setAutoCommit(autoCommit);
+        }
+        return current;
+    }
+
+    /**
+     * Reads the schema version recorded in the database.
+     *
+     * @return The version, or 0 if no version has been applied yet
+     */
+    static int readVersion(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT MAX(version) FROM " + TABLE_SCHEMA_VERSION)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Executes the given statements in order.
+     */
+    static void execute(Connection conn, String... sql) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            for (String statement : sql) {
+                stmt.execute(statement);
+            }
+        }
+    }
+}
@@ -9,9 +9,29 @@ import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 import java.util.logging.Logger;
 
 /**
@@ -24,24 +44,66 @@ import java.util.logging.Logger;
  * <p>This separation allows the main locationsConfig.yml to be used for actual plugin
  * configuration while keeping location data in its own dedicated file.
  * 
+ * <p>Changes are tracked per player, per warp and for the world spawn. {@link #saveAll()}
+ * only rewrites the subtrees of changed entries and skips the file write completely
+ * when nothing changed since the last save.
+ * 
+ * <p>Saving happens in two stages: the changed entries are copied on the calling thread,
+ * the YAML serialization and the file write run on a single background writer thread
+ * (see {@link #saveAllAsync()}).
+ * 
+ * <p>Locations are kept as {@link StoredLocation}s and only turned into {@link Location}s by
+ * the getters. Locations in worlds that are not loaded are not returned, but are kept and
+ * written back unchanged.
+ * 
+ * <p>After every write the writer also stores the data as a binary snapshot
+ * ({@code locations.dat}, see {@link LocationSnapshot}). On startup the snapshot is used
+ * instead of parsing the YAML if it matches the current locations.yml; the YAML is then
+ * only parsed by the writer thread once the first change is saved.
+ * 
  * @author Pitbully01
  * @since 1.5.1
  */
 public class FileLocationStorage implements LocationStorage {
     
-    private final FileConfiguration locationsConfig;
+    /** Parsed locations.yml; null until needed if the data was loaded from the snapshot. */
+    private FileConfiguration locationsConfig;
+    private final Object configLock = new Object();
     private final File locationsFile;
+    private final File snapshotFile;
     private final Logger logger;
     
-    // New player-centric in-memory storage
+    // Player-centric in-memory storage; the only copy of each player's locations
     private final Map<UUID, PlayerData> players = new HashMap<>();
-    // Backwards-compatible caches (filled from players map); operations write-through to players map
-    private final Map<UUID, Location> deathLocations = new HashMap<>();
-    private final Map<UUID, Location> teleportLocations = new HashMap<>();
-    private final Map<UUID, Location> lastLocations = new HashMap<>();
-    private final Map<UUID, Location> homeLocations = new HashMap<>();
-    private final Map<String, Location> warpLocations = new HashMap<>();
-    private Location worldSpawn;
+    // Read-only views over players for the getAll* methods
+    private final Map<UUID, Location> deathLocations = new LocationView<>(players, PlayerData::getStoredLastDeath);
+    private final Map<UUID, Location> teleportLocations = new LocationView<>(players, PlayerData::getStoredLastTeleport);
+    private final Map<UUID, Location> lastLocations = new LocationView<>(players, PlayerData::getStoredLastLocation);
+    private final Map<UUID, Location> homeLocations = new LocationView<>(players, PlayerData::getStoredHome);
+    private final Map<String, StoredLocation> warpLocations = new HashMap<>();
+    private final Map<String, Location> warpLocationsView = new LocationView<>(warpLocations, Function.identity());
+    private StoredLocation worldSpawn;
+    
+    // Dirty tracking: only these entries are written back on the next saveAll()
+    private final Set<UUID> dirtyPlayers = new HashSet<>();
+    private final Set<String> dirtyWarps = new HashSet<>();
+    private boolean worldSpawnDirty;
+    /** Legacy sections or a missing file require a structural rewrite. */
+    private boolean structureDirty;
+    /** The last write failed; the next save writes the file again. */
+    private volatile boolean retryWrite;
+    
+    // Background writing: changes copied by saveAll() wait here for the writer thread
+    private final Map<String, Object> pendingChanges = new LinkedHashMap<>();
+    // Guarded by pendingChanges
+    private boolean yamlWriteRequested;
+    private boolean snapshotWriteRequested;
+    private final Object saveLock = new Object();
+    private ExecutorService writer;
+    /** Write that has been requested but not started yet; later requests share it. */
+    private CompletableFuture<Void> queuedSave;
+    /** Most recently requested write, completed once it finished. */
+    private CompletableFuture<Void> latestSave = CompletableFuture.completedFuture(null);
     
     /**
      * Creates a new FileLocationStorage instance.
@@ -52,24 +114,20 @@ public class FileLocationStorage implements LocationStorage {
     public FileLocationStorage(File dataFolder, Logger logger) {
         this.logger = logger;
         this.locationsFile = new File(dataFolder, "locations.yml");
+        this.snapshotFile = new File(dataFolder, LocationSnapshot.FILE_NAME);
         
         // Ensure the data folder exists
         if (!dataFolder.exists()) {
             dataFolder.mkdirs();
         }
         
-        // Load existing configuration or create empty one
-        if (this.locationsFile.exists() && this.locationsFile.length() > 0) {
-            this.locationsConfig = YamlConfiguration.loadConfiguration(this.locationsFile);
-            if (PitbullyPlugin.getInstance() != null && 
-                PitbullyPlugin.getInstance().getConfigManager() != null && 
-                PitbullyPlugin.getInstance().getConfigManager().isDebugModeEnabled()) {
-                logger.info("[DEBUG] Loaded existing locations.yml with " + this.locationsFile.length() + " bytes of data.");
-            }
-        } else {
+        // Create an empty configuration if there is no data yet
+        if (!(this.locationsFile.exists() && this.locationsFile.length() > 0)) {
             this.locationsConfig = new YamlConfiguration();
             // Initialize with default structure to prevent empty file
             initializeDefaultStructure();
+            // Make sure the first save creates the file
+            structureDirty = true;
             if (PitbullyPlugin.getInstance() != null && 
                 PitbullyPlugin.getInstance().getConfigManager() != null && 
                 PitbullyPlugin.getInstance().getConfigManager().isDebugModeEnabled()) {
@@ -120,7 +178,7 @@ public class FileLocationStorage implements LocationStorage {
      */
     @Override
     public void saveDeathLocation(UUID playerId, Location location) {
-    deathLocations.put(playerId, location);
+    dirtyPlayers.add(playerId);
     PlayerData data = players.computeIfAbsent(playerId, id -> new PlayerData());
     data.setLastDeath(location);
     }
@@ -139,11 +197,11 @@ public class FileLocationStorage implements LocationStorage {
     /**
      * Retrieves all stored death LocationManager.
      * 
-     * @return A map of player UUIDs to their death locations
+     * @return A read-only live view of player UUIDs to their death locations
      */
     @Override
     public Map<UUID, Location> getAllDeathLocations() {
-        return new HashMap<>(deathLocations);
+        return deathLocations;
     }
 
     /**
@@ -154,7 +212,7 @@ public class FileLocationStorage implements LocationStorage {
      */
     @Override
     public void saveTeleportLocation(UUID playerId, Location location) {
-    teleportLocations.put(playerId, location);
+    dirtyPlayers.add(playerId);
     PlayerData data = players.computeIfAbsent(playerId, id -> new PlayerData());
     data.setLastTeleport(location);
     }
@@ -173,11 +231,11 @@ public class FileLocationStorage implements LocationStorage {
     /**
      * Retrieves all stored teleport LocationManager.
      * 
-     * @return A map of player UUIDs to their teleport locations
+     * @return A read-only live view of player UUIDs to their teleport locations
      */
     @Override
     public Map<UUID, Location> getAllTeleportLocations() {
-        return new HashMap<>(teleportLocations);
+        return teleportLocations;
     }
 
     /**
@@ -189,7 +247,7 @@ public class FileLocationStorage implements LocationStorage {
      */
     @Override
     public void saveLastLocation(UUID playerId, Location location) {
-    lastLocations.put(playerId, location);
+    dirtyPlayers.add(playerId);
     PlayerData data = players.computeIfAbsent(playerId, id -> new PlayerData());
     data.setLastLocation(location);
     }
@@ -229,11 +287,11 @@ public class FileLocationStorage implements LocationStorage {
     /**
      * Retrieves all stored last LocationManager.
      * 
-     * @return A map of player UUIDs to their last locations
+     * @return A read-only live view of player UUIDs to their last locations
      */
     @Override
     public Map<UUID, Location> getAllLastLocations() {
-    return new HashMap<>(lastLocations);
+    return lastLocations;
     }
 
     /**
@@ -244,7 +302,7 @@ public class FileLocationStorage implements LocationStorage {
      */
     @Override
     public void saveHomeLocation(UUID playerId, Location location) {
-    homeLocations.put(playerId, location);
+    dirtyPlayers.add(playerId);
     PlayerData data = players.computeIfAbsent(playerId, id -> new PlayerData());
     data.setHome(location);
     }
@@ -278,19 +336,21 @@ public class FileLocationStorage implements LocationStorage {
      */
     @Override
     public void deleteHomeLocation(UUID playerId) {
-    homeLocations.remove(playerId);
-    PlayerData data = players.computeIfAbsent(playerId, id -> new PlayerData());
-    data.setHome(null);
+    dirtyPlayers.add(playerId);
+    PlayerData data = players.get(playerId);
+    if (data != null) {
+        data.setHome(null);
+    }
     }
 
     /**
      * Retrieves all stored home LocationManager.
      * 
-     * @return A map of player UUIDs to their home locations
+     * @return A read-only live view of player UUIDs to their home locations
      */
     @Override
     public Map<UUID, Location> getAllHomeLocations() {
-    return new HashMap<>(homeLocations);
+    return homeLocations;
     }
 
 
@@ -302,7 +362,20 @@ public class FileLocationStorage implements LocationStorage {
      */
     @Override
     public void saveWarpLocation(String warpName, Location location) {
+        warpLocations.put(warpName, StoredLocation.of(location));
+        dirtyWarps.add(warpName);
+    }
+
+    /**
+     * Saves a warp location as stored by another backend, keeping its world
+     * even if that world is not loaded.
+     * 
+     * @param warpName The name of the warp
+     * @param location The stored location for the warp
+     */
+    public void saveStoredWarpLocation(String warpName, StoredLocation location) {
         warpLocations.put(warpName, location);
+        dirtyWarps.add(warpName);
     }
 
     /**
@@ -313,7 +386,7 @@ public class FileLocationStorage implements LocationStorage {
      */
     @Override
     public Location getWarpLocation(String warpName) {
-        return warpLocations.get(warpName);
+        return warpLocationsView.get(warpName);
     }
 
     /**
@@ -324,7 +397,7 @@ public class FileLocationStorage implements LocationStorage {
      */
     @Override
     public boolean hasWarpLocation(String warpName) {
-        return warpLocations.containsKey(warpName);
+        return warpLocationsView.containsKey(warpName);
     }
 
     /**
@@ -335,16 +408,17 @@ public class FileLocationStorage implements LocationStorage {
     @Override
     public void deleteWarpLocation(String warpName) {
         warpLocations.remove(warpName);
+        dirtyWarps.add(warpName);
     }
 
     /**
      * Retrieves all stored warp LocationManager.
      * 
-     * @return A map of warp names to their locations
+     * @return A read-only live view of warp names to their locations
      */
     @Override
     public Map<String, Location> getAllWarpLocations() {
-        return new HashMap<>(warpLocations);
+        return warpLocationsView;
     }
 
 
@@ -355,7 +429,20 @@ public class FileLocationStorage implements LocationStorage {
      */
     @Override
     public void saveWorldSpawn(Location location) {
+        worldSpawn = StoredLocation.of(location);
+        worldSpawnDirty = true;
+        setWorldSpawn();
+    }
+
+    /**
+     * Saves the world spawn as stored by another backend, keeping its world
+     * even if that world is not loaded.
+     * 
+     * @param location The stored world spawn
+     */
+    public void saveStoredWorldSpawn(StoredLocation location) {
         worldSpawn = location;
+        worldSpawnDirty = true;
         setWorldSpawn();
     }
 
@@ -366,6 +453,24 @@ public class FileLocationStorage implements LocationStorage {
      */
     @Override
     public Location getWorldSpawn() {
+        return worldSpawn != null ? worldSpawn.toLocation() : null;
+    }
+
+    /**
+     * Returns all warps including those in worlds that are not loaded, e.g. for migrations.
+     * 
+     * @return Read-only live view of warp names to their stored locations
+     */
+    public Map<String, StoredLocation> getAllStoredWarpLocations() {
+        return Collections.unmodifiableMap(warpLocations);
+    }
+
+    /**
+     * Returns the world spawn even if its world is not loaded, e.g. for migrations.
+     * 
+     * @return The stored world spawn, or null if none is set
+     */
+    public StoredLocation getStoredWorldSpawn() {
         return worldSpawn;
     }
 
@@ -376,35 +481,131 @@ public class FileLocationStorage implements LocationStorage {
      */
     @Override
     public void loadAll() {
+        // The writer thread may be applying changes to the configuration right now
+        synchronized (configLock) {
+        // 0) Binary snapshot, if it matches locations.yml
+        if (loadSnapshot()) {
+            return;
+        }
+        if (locationsConfig == null) {
+            loadConfigFile();
+        }
     // 1) New grouped players section
     loadPlayersSection();
     // 2) Legacy sections (if present) -> migrate to players map
     migrateLegacySections();
-    // 3) Fill compatibility maps from players
-    rebuildCompatibilityCachesFromPlayers();
         loadWarpsFromSection("warpLocations");
         loadWorldSpawnLocation();
+        // Convert to the binary snapshot so the next start can skip the YAML
+        if (!isDirty()) {
+            synchronized (pendingChanges) {
+                snapshotWriteRequested = true;
+            }
+            scheduleWrite();
+        }
+        }
+    }
+
+    /**
+     * Loads locations.yml into the configuration.
+     */
+    private void loadConfigFile() {
+        locationsConfig = YamlConfiguration.loadConfiguration(locationsFile);
+        if (PitbullyPlugin.getInstance() != null && 
+            PitbullyPlugin.getInstance().getConfigManager() != null && 
+            PitbullyPlugin.getInstance().getConfigManager().isDebugModeEnabled()) {
+            logger.info("[DEBUG] Loaded existing locations.yml with " + locationsFile.length() + " bytes of data.");
+        }
+    }
+
+    /**
+     * Loads the data from the binary snapshot.
+     * 
+     * @return false if there is no usable snapshot for the current locations.yml
+     */
+    private boolean loadSnapshot() {
+        if (!locationsFile.exists()) {
+            return false;
+        }
+        LocationSnapshot snapshot;
+        try {
+            snapshot = LocationSnapshot.read(snapshotFile.toPath(), locationsFile.length(), locationsFile.lastModified());
+        } catch (IOException e) {
+            logger.warning("Ignoring " + snapshotFile.getName() + ", loading locations.yml instead: " + e.getMessage());
+            return false;
+        }
+        if (snapshot == null) {
+            return false;
+        }
+        players.putAll(snapshot.players);
+        warpLocations.putAll(snapshot.warps);
+        worldSpawn = snapshot.worldSpawn;
+        setWorldSpawn();
+        
+        PitbullyPlugin plugin = PitbullyPlugin.getInstance();
+        if (plugin != null && plugin.getConfigManager() != null && plugin.getConfigManager().isDebugModeEnabled()) {
+            logger.info("[DEBUG] Loaded " + snapshot.players.size() + " players and " + snapshot.warps.size()
+                + " warps from " + snapshotFile.getName());
+        }
+        return true;
     }
 
     /**
      * Saves all location data to the storage backend.
      * This method should be called periodically and during plugin shutdown
      * to ensure data persistence.
+     * 
+     * <p>Blocks until the changes made so far are written to the file.
      */
     @Override
     public void saveAll() {
-    // Persist new grouped players structure
-    savePlayersSection();
-    // Clear legacy sections to avoid divergence
-    locationsConfig.set("lastDeathLocations", null);
-    locationsConfig.set("lastTeleportLocations", null);
-    locationsConfig.set("lastLocations", null);
-    locationsConfig.set("homeLocations", null);
-        saveWorldSpawnLocation();
-        saveWarpsToSection("warpLocations");
+        saveAllAsync().join();
+    }
+
+    /**
+     * Saves all changed location data without blocking the calling thread.
+     * 
+     * <p>The changed entries are copied on the calling thread; turning them into YAML and
+     * writing the file happens on a background thread. Only one write runs at a time. Saves
+     * requested while a write is running are merged into one follow-up write.
+     * 
+     * @return A future that completes once the changes made so far are on disk
+     */
+    @Override
+    public CompletableFuture<Void> saveAllAsync() {
+        // Fast path: nothing changed since the last save
+        if (!isDirty()) {
+            synchronized (saveLock) {
+                // Still wait for a write that may be running
+                return latestSave;
+            }
+        }
+        
+        Map<String, Object> changes = collectChanges();
+        dirtyPlayers.clear();
+        dirtyWarps.clear();
+        worldSpawnDirty = false;
+        structureDirty = false;
+        retryWrite = false;
         
-    // Save to file
-        saveConfigFile();
+        synchronized (pendingChanges) {
+            yamlWriteRequested = true;
+            for (Map.Entry<String, Object> change : changes.entrySet()) {
+                // Re-insert so the newest write of a path is applied last
+                pendingChanges.remove(change.getKey());
+                pendingChanges.put(change.getKey(), change.getValue());
+            }
+        }
+        return scheduleWrite();
+    }
+    
+    /**
+     * Checks whether there are changes that have not been written to the file yet.
+     * 
+     * @return true if the next {@link #saveAll()} will write the file
+     */
+    public boolean isDirty() {
+        return structureDirty || worldSpawnDirty || retryWrite || !dirtyPlayers.isEmpty() || !dirtyWarps.isEmpty();
     }
 
     /**
@@ -415,69 +616,241 @@ public class FileLocationStorage implements LocationStorage {
     @Override
     public void close() {
         saveAll();
+        synchronized (saveLock) {
+            if (writer != null) {
+                writer.shutdown();
+                writer = null;
+            }
+        }
     }
     
     /**
-     * Saves the locations configuration to the file system.
+     * Copies all changed entries into a map of config path to value.
+     * Locations are materialized here, so later changes in memory do not leak into a running write.
+     * A null value removes the path.
+     */
+    private Map<String, Object> collectChanges() {
+        Map<String, Object> changes = new LinkedHashMap<>();
+        for (UUID playerId : dirtyPlayers) {
+            PlayerData data = players.get(playerId);
+            String base = "players." + playerId;
+            if (data == null || data.isEmpty()) {
+                changes.put(base, null);
+                continue;
+            }
+            changes.put(base + ".lastDeath", toConfigValue(data.getStoredLastDeath()));
+            changes.put(base + ".lastTeleport", toConfigValue(data.getStoredLastTeleport()));
+            changes.put(base + ".lastLocation", toConfigValue(data.getStoredLastLocation()));
+            changes.put(base + ".home", toConfigValue(data.getStoredHome()));
+            changes.put(base + ".keepXp", data.isKeepXp());
+            Map<String, String> settings = data.getSettings();
+            changes.put(base + ".settings", settings.isEmpty() ? null : new LinkedHashMap<>(settings));
+        }
+        if (structureDirty) {
+            // Clear legacy sections to avoid divergence
+            changes.put("lastDeathLocations", null);
+            changes.put("lastTeleportLocations", null);
+            changes.put("lastLocations", null);
+            changes.put("homeLocations", null);
+        }
+        if (worldSpawnDirty) {
+            changes.put("worldSpawnLocation", toConfigValue(worldSpawn));
+        }
+        for (String warpName : dirtyWarps) {
+            // null removes deleted warps
+            changes.put("warpLocations." + warpName, toConfigValue(warpLocations.get(warpName)));
+        }
+        return changes;
+    }
+
+    private static Object toConfigValue(StoredLocation location) {
+        return location != null ? location.toConfigValue() : null;
+    }
+
+    /**
+     * Makes sure a write is queued behind the running one and returns its future.
+     * While a write is queued, further requests share it instead of queueing another.
+     */
+    private CompletableFuture<Void> scheduleWrite() {
+        synchronized (saveLock) {
+            if (queuedSave == null) {
+                queuedSave = new CompletableFuture<>();
+                if (writer == null) {
+                    writer = Executors.newSingleThreadExecutor(r -> {
+                        Thread thread = new Thread(r, "PitbullyPlugin-File-Writer");
+                        thread.setDaemon(true);
+                        return thread;
+                    });
+                }
+                writer.execute(this::writePendingChanges);
+                latestSave = queuedSave;
+            }
+            return queuedSave;
+        }
+    }
+
+    /**
+     * Runs on the writer thread: applies all pending changes to the configuration
+     * and writes it to the file.
+     */
+    private void writePendingChanges() {
+        CompletableFuture<Void> done;
+        synchronized (saveLock) {
+            done = queuedSave;
+            queuedSave = null;
+        }
+        try {
+            Map<String, Object> changes;
+            boolean writeYaml;
+            boolean writeSnapshot;
+            synchronized (pendingChanges) {
+                changes = new LinkedHashMap<>(pendingChanges);
+                pendingChanges.clear();
+                writeYaml = yamlWriteRequested;
+                writeSnapshot = writeYaml || snapshotWriteRequested;
+                yamlWriteRequested = false;
+                snapshotWriteRequested = false;
+            }
+            String data = null;
+            LocationSnapshot snapshot = null;
+            synchronized (configLock) {
+                if (locationsConfig == null) {
+                    // Data came from the snapshot; parse the YAML now, off the main thread
+                    loadConfigFile();
+                }
+                if (writeYaml) {
+                    for (Map.Entry<String, Object> change : changes.entrySet()) {
+                        locationsConfig.set(change.getKey(), change.getValue());
+                    }
+                    data = locationsConfig.saveToString();
+                }
+                if (writeSnapshot) {
+                    snapshot = buildSnapshot();
+                }
+            }
+            if (writeYaml) {
+                // An outdated snapshot must never match the new file
+                deleteSnapshot();
+                // On failure the applied changes stay in the configuration and are written next time
+                if (!saveConfigFile(data, changes.size())) {
+                    retryWrite = true;
+                    return;
+                }
+            }
+            if (snapshot != null) {
+                try {
+                    snapshot.write(snapshotFile.toPath(), locationsFile.length(), locationsFile.lastModified());
+                } catch (IOException e) {
+                    logger.warning("Could not write " + snapshotFile.getName() + ": " + e.getMessage());
+                }
+            }
+        } catch (RuntimeException e) {
+            retryWrite = true;
+            logger.log(java.util.logging.Level.SEVERE, "Exception while saving locations file", e);
+        } finally {
+            done.complete(null);
+        }
+    }
+    
+    /**
+     * Writes the serialized locations to the file system.
+     * 
+     * <p>The data is written to a temporary file first, flushed to disk and then moved over
+     * the old file, so a crash during the write never leaves a half-written locations.yml.
      * Handles any IO exceptions that may occur during file writing.
      */
-    private void saveConfigFile() {
+    private boolean saveConfigFile(String data, int changeCount) {
+        Path target = locationsFile.toPath();
+        Path temp = target.resolveSibling(locationsFile.getName() + ".tmp");
         try {
-            locationsConfig.save(locationsFile);
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                ByteBuffer buffer = ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8));
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(true);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncDirectory(target.getParent());
             
             PitbullyPlugin plugin = PitbullyPlugin.getInstance();
             ConfigManager configManager = plugin != null ? plugin.getConfigManager() : null;
             
             if (configManager != null && configManager.isDebugModeEnabled()) {
-                logger.info("[DEBUG] Location data saved successfully to " + locationsFile.getName());
+                logger.info("[DEBUG] Location data saved successfully to " + locationsFile.getName()
+                    + " (" + changeCount + " entries changed)");
             }
+            return true;
         } catch (IOException e) {
             logger.severe("Could not save locations to " + locationsFile.getAbsolutePath() + ": " + e.getMessage());
             logger.log(java.util.logging.Level.SEVERE, "Exception while saving locations file", e);
+            return false;
         }
     }
-    
 
     /**
-     * Saves the new grouped players section from the in-memory players map.
+     * Collects the configuration's data for the binary snapshot.
+     * 
+     * @return The snapshot, or null while legacy sections have not been migrated yet
      */
-    private void savePlayersSection() {
-        locationsConfig.set("players", null);
-        for (Map.Entry<UUID, PlayerData> entry : players.entrySet()) {
-            PlayerData data = entry.getValue();
-            if (data == null || data.isEmpty()) continue;
-            String base = "players." + entry.getKey();
-            locationsConfig.set(base + ".lastDeath", data.getLastDeath());
-            locationsConfig.set(base + ".lastTeleport", data.getLastTeleport());
-            locationsConfig.set(base + ".lastLocation", data.getLastLocation());
-            locationsConfig.set(base + ".home", data.getHome());
-            locationsConfig.set(base + ".keepXp", data.isKeepXp());
+    private LocationSnapshot buildSnapshot() {
+        for (String legacy : new String[] { "lastDeathLocations", "lastTeleportLocations", "lastLocations", "homeLocations" }) {
+            ConfigurationSection section = locationsConfig.getConfigurationSection(legacy);
+            if (section != null && !section.getKeys(false).isEmpty()) {
+                return null;
+            }
+        }
+        Map<UUID, PlayerData> snapshotPlayers = new HashMap<>();
+        ConfigurationSection playersSection = locationsConfig.getConfigurationSection("players");
+        if (playersSection != null) {
+            for (String key : playersSection.getKeys(false)) {
+                try {
+                    PlayerData data = PlayerData.fromConfig(playersSection.getConfigurationSection(key));
+                    if (!data.isEmpty()) {
+                        snapshotPlayers.put(UUID.fromString(key), data);
+                    }
+                } catch (IllegalArgumentException ignored) {
+                }
+            }
         }
+        Map<String, StoredLocation> snapshotWarps = new HashMap<>();
+        ConfigurationSection warpSection = locationsConfig.getConfigurationSection("warpLocations");
+        if (warpSection != null) {
+            for (String key : warpSection.getKeys(false)) {
+                StoredLocation location = loadLocationFromPath("warpLocations." + key);
+                if (location != null) {
+                    snapshotWarps.put(key, location);
+                }
+            }
+        }
+        return new LocationSnapshot(snapshotPlayers, snapshotWarps, loadLocationFromPath("worldSpawnLocation"));
     }
 
-    /**
-     * Saves warp location data to a configuration section.
-     * Helper method specifically for saving string-based warp LocationManager.
-     * 
-     * <p>This method clears the existing section before saving to prevent
-     * orphaned warp entries from remaining in the configuration.
-     * 
-     * @param sectionName The name of the config section for warps
-     */
-    private void saveWarpsToSection( String sectionName) {
-        // Clear existing section to prevent orphaned entries
-        locationsConfig.set(sectionName, null);
-        for (Map.Entry<String, Location> entry : warpLocations.entrySet()) {
-            locationsConfig.set(sectionName + "." + entry.getKey(), entry.getValue());
+    private void deleteSnapshot() {
+        try {
+            Files.deleteIfExists(snapshotFile.toPath());
+        } catch (IOException e) {
+            logger.warning("Could not delete " + snapshotFile.getName() + ": " + e.getMessage());
         }
     }
 
     /**
-     * Saves the world spawn location to configuration.
-     * Stores the current world spawn location for persistence.
+     * Flushes the directory entry of the renamed file. Not supported on every platform,
+     * so failures are ignored.
      */
-    private void saveWorldSpawnLocation() {
-        locationsConfig.set("worldSpawnLocation", worldSpawn);
+    private static void syncDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ignored) {
+        }
     }
     
 
@@ -507,18 +880,18 @@ public class FileLocationStorage implements LocationStorage {
      */
     private void migrateLegacySections() {
         // lastDeathLocations
-        mergeLegacySectionIntoPlayers("lastDeathLocations", (pd, loc) -> pd.setLastDeath(loc));
+        mergeLegacySectionIntoPlayers("lastDeathLocations", PlayerData::setStoredLastDeath);
         // lastTeleportLocations
-        mergeLegacySectionIntoPlayers("lastTeleportLocations", (pd, loc) -> pd.setLastTeleport(loc));
+        mergeLegacySectionIntoPlayers("lastTeleportLocations", PlayerData::setStoredLastTeleport);
         // lastLocations
-        mergeLegacySectionIntoPlayers("lastLocations", (pd, loc) -> pd.setLastLocation(loc));
+        mergeLegacySectionIntoPlayers("lastLocations", PlayerData::setStoredLastLocation);
         // homeLocations
-        mergeLegacySectionIntoPlayers("homeLocations", (pd, loc) -> pd.setHome(loc));
+        mergeLegacySectionIntoPlayers("homeLocations", PlayerData::setStoredHome);
     }
 
     @FunctionalInterface
     private interface PlayerLocationSetter {
-        void apply(PlayerData data, Location location);
+        void apply(PlayerData data, StoredLocation location);
     }
 
     private void mergeLegacySectionIntoPlayers(String sectionName, PlayerLocationSetter setter) {
@@ -527,10 +900,13 @@ public class FileLocationStorage implements LocationStorage {
         for (String key : section.getKeys(false)) {
             try {
                 UUID playerId = UUID.fromString(key);
-                Location location = loadLocationFromPath(sectionName + "." + key);
+                StoredLocation location = loadLocationFromPath(sectionName + "." + key);
                 if (location != null) {
                     PlayerData data = players.computeIfAbsent(playerId, id -> new PlayerData());
                     setter.apply(data, location);
+                    // Migrated players are not in the players section yet
+                    dirtyPlayers.add(playerId);
+                    structureDirty = true;
                 }
             } catch (IllegalArgumentException ignored) {
             }
@@ -538,86 +914,19 @@ public class FileLocationStorage implements LocationStorage {
     }
 
     /**
-     * Loads a Location from a configuration path, supporting both
-     * Bukkit serialized format and simplified test format.
-     */
-    private Location loadLocationFromPath(String path) {
-        // Try Bukkit deserialization first (production format)
-        try {
-            Object obj = locationsConfig.get(path);
-            if (obj instanceof Location) {
-                return (Location) obj;
-            }
-        } catch (Exception ignored) {
-            // Fall through to simplified format
-        }
-
-        // Try simplified format (test format)
-        ConfigurationSection section = locationsConfig.getConfigurationSection(path);
-        if (section != null && section.contains("world") && section.contains("x")) {
-            return createLocationFromSection(section);
-        }
-
-        return null;
-    }
-
-    /**
-     * Creates a Location from a simplified ConfigurationSection.
-     * Used for test data that doesn't use Bukkit serialization.
+     * Loads a location from a configuration path, supporting both
+     * Bukkit serialized format and the plain format with a world name.
+     * Locations in worlds that are not loaded are kept with their world name.
      */
-    private Location createLocationFromSection(ConfigurationSection section) {
+    private StoredLocation loadLocationFromPath(String path) {
         try {
-            String worldName = section.getString("world");
-            double x = section.getDouble("x");
-            double y = section.getDouble("y");
-            double z = section.getDouble("z");
-            float pitch = (float) section.getDouble("pitch", 0.0);
-            float yaw = (float) section.getDouble("yaw", 0.0);
-
-            // Try to get real world first - works with MockBukkit
-            org.bukkit.World world = null;
-            try {
-                world = org.bukkit.Bukkit.getWorld(worldName);
-            } catch (Exception ignored) {
-                // No Bukkit server available
-            }
-            
-            if (world == null) {
-                // In test environments without real worlds, we still need Location objects
-                // for migration testing. Create a Location with null world - this will
-                // allow the coordinate data to be preserved and migrated.
-                try {
-                    return new Location(null, x, y, z, yaw, pitch);
-                } catch (Exception e) {
-                    // If Location creation fails with null world, return null
-                    return null;
-                }
-            }
-
-            return new Location(world, x, y, z, yaw, pitch);
+            return StoredLocation.fromConfig(locationsConfig.get(path));
         } catch (Exception e) {
+            // Broken entry, e.g. a Location that could not be deserialized
             return null;
         }
     }
 
-    /**
-     * Rebuilds the compatibility maps (death/teleport/last/home) from the players map.
-     */
-    private void rebuildCompatibilityCachesFromPlayers() {
-        deathLocations.clear();
-        teleportLocations.clear();
-        lastLocations.clear();
-        homeLocations.clear();
-        for (Map.Entry<UUID, PlayerData> e : players.entrySet()) {
-            UUID id = e.getKey();
-            PlayerData d = e.getValue();
-            if (d.getLastDeath() != null) deathLocations.put(id, d.getLastDeath());
-            if (d.getLastTeleport() != null) teleportLocations.put(id, d.getLastTeleport());
-            if (d.getLastLocation() != null) lastLocations.put(id, d.getLastLocation());
-            if (d.getHome() != null) homeLocations.put(id, d.getHome());
-        }
-    }
-
     /**
      * Loads warp location data from a configuration section.
      * Helper method specifically for loading string-based warp LocationManager.
@@ -628,7 +937,7 @@ public class FileLocationStorage implements LocationStorage {
         ConfigurationSection section = locationsConfig.getConfigurationSection(sectionName);
         if (section != null) {
             for (String key : section.getKeys(false)) {
-                Location location = loadLocationFromPath(sectionName + "." + key);
+                StoredLocation location = loadLocationFromPath(sectionName + "." + key);
                 if (location != null) {
                     warpLocations.put(key, location);
                 }
@@ -657,8 +966,9 @@ public class FileLocationStorage implements LocationStorage {
      * </ul>
      */
     private void setWorldSpawn() {
-        if (worldSpawn != null && worldSpawn.getWorld() != null) {
-            worldSpawn.getWorld().setSpawnLocation(worldSpawn);
+        Location location = worldSpawn != null ? worldSpawn.toLocation() : null;
+        if (location != null && location.getWorld() != null) {
+            location.getWorld().setSpawnLocation(location);
         }
     }
 
@@ -692,14 +1002,101 @@ public class FileLocationStorage implements LocationStorage {
         } else {
             players.put(playerId, playerData);
         }
+        dirtyPlayers.add(playerId);
     }
     
     /**
      * Gets all player data for migration purposes.
      * 
-     * @return Map of all player UUIDs to their PlayerData
+     * @return Read-only live view of all player UUIDs to their PlayerData
      */
     public Map<UUID, PlayerData> getAllPlayerData() {
-        return new HashMap<>(players);
+        return Collections.unmodifiableMap(players);
+    }
+
+    /**
+     * Read-only map view that materializes the stored locations of a map.
+     * Lookups go straight to the source map; iteration skips entries without a location
+     * or whose world is not loaded.
+     */
+    private static final class LocationView<K, V> extends AbstractMap<K, Location> {
+
+        private final Map<K, V> source;
+        private final Function<V, StoredLocation> slot;
+
+        LocationView(Map<K, V> source, Function<V, StoredLocation> slot) {
+            this.source = source;
+            this.slot = slot;
+        }
+
+        private Location materialize(V value) {
+            StoredLocation stored = value != null ? slot.apply(value) : null;
+            return stored != null ? stored.toLocation() : null;
+        }
+
+        @Override
+        public Location get(Object key) {
+            return materialize(source.get(key));
+        }
+
+        @Override
+        public boolean containsKey(Object key) {
+            return get(key) != null;
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Set<Entry<K, Location>> entrySet() {
+            return new AbstractSet<Entry<K, Location>>() {
+                @Override
+                public Iterator<Entry<K, Location>> iterator() {
+                    Iterator<Entry<K, V>> it = source.entrySet().iterator();
+                    return new Iterator<Entry<K, Location>>() {
+                        private Entry<K, Location> next = advance();
+
+                        private Entry<K, Location> advance() {
+                            while (it.hasNext()) {
+                                Entry<K, V> entry = it.next();
+                                Location location = materialize(entry.getValue());
+                                if (location != null) {
+                                    return new SimpleImmutableEntry<>(entry.getKey(), location);
+                                }
+                            }
+                            return null;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next != null;
+                        }
+
+                        @Override
+                        public Entry<K, Location> next() {
+                            if (next == null) {
+                                throw new NoSuchElementException();
+                            }
+                            Entry<K, Location> current = next;
+                            next = advance();
+                            return current;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (V value : source.values()) {
+                        if (materialize(value) != null) {
+                            size++;
+                        }
+                    }
+                    return size;
+                }
+            };
+        }
     }
 }
@@ -0,0 +1,708 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import de.pitbully.pitbullyplugin.utils.PlayerData;
+import org.bukkit.Location;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Journal-based implementation of LocationStorage.
+ *
+ * <p>All data is kept in memory. Every change (death, teleport, last, home, warp, world spawn,
+ * player settings) is appended as a small binary record to {@code locations.journal} instead of
+ * rewriting a whole file. On startup the last snapshot ({@code locations.snapshot}) is loaded
+ * and the journal is replayed on top of it. Once enough records have accumulated, the journal
+ * is compacted into a new snapshot during a save.
+ *
+ * <p>The journal is synced to disk in the background at a fixed interval, so a crash loses at
+ * most the changes of that interval. {@code locations.yml} stays the import/export format:
+ * it is imported on the first start, then renamed to {@code locations.yml.imported}, and can be
+ * written back with {@link #exportTo(FileLocationStorage)}.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+public class JournalLocationStorage implements LocationStorage {
+
+    static final String JOURNAL_FILE = "locations.journal";
+    static final String SNAPSHOT_FILE = "locations.snapshot";
+    /** Suffix of a locations.yml that was imported into the journal and is kept as a backup. */
+    static final String IMPORTED_SUFFIX = ".imported";
+    /** Suffix of journal files that were exported back to locations.yml. */
+    static final String EXPORTED_SUFFIX = ".exported";
+
+    // Record types
+    private static final byte OP_PLAYER_LOCATION = 1;
+    private static final byte OP_PLAYER_DATA = 2;
+    private static final byte OP_PLAYER_REMOVE = 3;
+    private static final byte OP_WARP = 4;
+    private static final byte OP_WORLD_SPAWN = 5;
+    private static final byte OP_PLAYER_SETTINGS = 6;
+
+    // Player location slots
+    private static final byte SLOT_DEATH = 0;
+    private static final byte SLOT_TELEPORT = 1;
+    private static final byte SLOT_LAST = 2;
+    private static final byte SLOT_HOME = 3;
+    private static final int SLOT_COUNT = 4;
+    private static final int FLAG_KEEP_XP = 1 << SLOT_COUNT;
+
+    private final Logger logger;
+    private final LocationJournal journal;
+    private final int compactAfterRecords;
+
+    // Locations in worlds that are not loaded are kept and reported as absent by the getters
+    private final Map<UUID, PlayerData> players = new HashMap<>();
+    private final Map<String, StoredLocation> warpLocations = new HashMap<>();
+    private StoredLocation worldSpawn;
+
+    /**
+     * Creates a new JournalLocationStorage instance and loads the stored data.
+     * If no journal exists yet, an existing locations.yml is imported.
+     *
+     * @param dataFolder The plugin's data folder
+     * @param logger Logger for error reporting
+     * @param syncIntervalMillis Maximum time between journal fsyncs
+     * @param compactAfterRecords Number of records after which the journal is compacted
+     * @throws IOException If the journal or snapshot cannot be read
+     */
+    public JournalLocationStorage(File dataFolder, Logger logger, long syncIntervalMillis, int compactAfterRecords)
+            throws IOException {
+        this.logger = logger;
+        this.compactAfterRecords = Math.max(1, compactAfterRecords);
+
+        if (!dataFolder.exists()) {
+            dataFolder.mkdirs();
+        }
+        this.journal = new LocationJournal(new File(dataFolder, JOURNAL_FILE).toPath(),
+            new File(dataFolder, SNAPSHOT_FILE).toPath(), logger, syncIntervalMillis);
+
+        boolean firstStart = journal.isEmpty();
+        replay();
+
+        File locationsFile = new File(dataFolder, "locations.yml");
+        if (firstStart && locationsFile.exists() && locationsFile.length() > 0) {
+            FileLocationStorage fileStorage = new FileLocationStorage(dataFolder, logger);
+            importFrom(fileStorage);
+            logger.info("Imported " + players.size() + " players and " + warpLocations.size()
+                + " warps from locations.yml into the location journal.");
+            // Only kept as a backup, so switching back to file storage exports the journal instead of loading it
+            moveAside(locationsFile, IMPORTED_SUFFIX, logger);
+        }
+    }
+
+    /**
+     * Renames a file that another storage took over by appending a suffix, replacing an
+     * older file of that name.
+     *
+     * @param file The file to rename
+     * @param suffix The suffix to append
+     * @param logger Logger for a failed rename
+     * @return false if the file could not be renamed
+     */
+    static boolean moveAside(File file, String suffix, Logger logger) {
+        try {
+            Files.move(file.toPath(), new File(file.getParentFile(), file.getName() + suffix).toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+            return true;
+        } catch (IOException e) {
+            logger.warning("Could not rename " + file.getName() + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Import / export
+
+    /**
+     * Replaces all data with the contents of a file storage and writes a new snapshot.
+     *
+     * @param source The storage to import
+     */
+    public void importFrom(FileLocationStorage source) {
+        players.clear();
+        warpLocations.clear();
+        for (Map.Entry<UUID, PlayerData> entry : source.getAllPlayerData().entrySet()) {
+            if (entry.getValue() != null && !entry.getValue().isEmpty()) {
+                players.put(entry.getKey(), entry.getValue().copy());
+            }
+        }
+        warpLocations.putAll(source.getAllStoredWarpLocations());
+        worldSpawn = source.getStoredWorldSpawn();
+        compact().join();
+    }
+
+    /**
+     * Writes all data into a file storage and saves it, e.g. when switching back to YAML.
+     *
+     * @param target The storage to write to
+     */
+    public void exportTo(FileLocationStorage target) {
+        for (Map.Entry<UUID, PlayerData> entry : players.entrySet()) {
+            target.savePlayerData(entry.getKey(), entry.getValue().copy());
+        }
+        for (Map.Entry<String, StoredLocation> entry : warpLocations.entrySet()) {
+            target.saveStoredWarpLocation(entry.getKey(), entry.getValue());
+        }
+        if (worldSpawn != null) {
+            target.saveStoredWorldSpawn(worldSpawn);
+        }
+        target.saveAll();
+    }
+
+    // Player locations
+
+    @Override
+    public void saveDeathLocation(UUID playerId, Location location) {
+        setPlayerLocation(playerId, SLOT_DEATH, location);
+    }
+
+    @Override
+    public Location getDeathLocation(UUID playerId) {
+        PlayerData data = players.get(playerId);
+        return data != null ? data.getLastDeath() : null;
+    }
+
+    @Override
+    public Map<UUID, Location> getAllDeathLocations() {
+        return collect(SLOT_DEATH);
+    }
+
+    @Override
+    public void saveTeleportLocation(UUID playerId, Location location) {
+        setPlayerLocation(playerId, SLOT_TELEPORT, location);
+    }
+
+    @Override
+    public Location getTeleportLocation(UUID playerId) {
+        PlayerData data = players.get(playerId);
+        return data != null ? data.getLastTeleport() : null;
+    }
+
+    @Override
+    public Map<UUID, Location> getAllTeleportLocations() {
+        return collect(SLOT_TELEPORT);
+    }
+
+    @Override
+    public void saveLastLocation(UUID playerId, Location location) {
+        setPlayerLocation(playerId, SLOT_LAST, location);
+    }
+
+    @Override
+    public Location getLastLocation(UUID playerId) {
+        PlayerData data = players.get(playerId);
+        return data != null ? data.getLastLocation() : null;
+    }
+
+    @Override
+    public boolean checkLastLocation(UUID playerId) {
+        return getLastLocation(playerId) != null;
+    }
+
+    @Override
+    public Map<UUID, Location> getAllLastLocations() {
+        return collect(SLOT_LAST);
+    }
+
+    @Override
+    public void saveHomeLocation(UUID playerId, Location location) {
+        setPlayerLocation(playerId, SLOT_HOME, location);
+    }
+
+    @Override
+    public Location getHomeLocation(UUID playerId) {
+        PlayerData data = players.get(playerId);
+        return data != null ? data.getHome() : null;
+    }
+
+    @Override
+    public boolean hasHomeLocation(UUID playerId) {
+        return getHomeLocation(playerId) != null;
+    }
+
+    @Override
+    public void deleteHomeLocation(UUID playerId) {
+        setPlayerLocation(playerId, SLOT_HOME, null);
+    }
+
+    @Override
+    public Map<UUID, Location> getAllHomeLocations() {
+        return collect(SLOT_HOME);
+    }
+
+    @Override
+    public boolean hasLastDeathLocation(UUID uniqueId) {
+        return getDeathLocation(uniqueId) != null;
+    }
+
+    @Override
+    public boolean hasLastTeleportLocation(UUID uniqueId) {
+        return getTeleportLocation(uniqueId) != null;
+    }
+
+    @Override
+    public Location getLastTeleportLocation(UUID uniqueId) {
+        return getTeleportLocation(uniqueId);
+    }
+
+    // Warps and world spawn
+
+    @Override
+    public void saveWarpLocation(String warpName, Location location) {
+        StoredLocation stored = StoredLocation.of(location);
+        if (stored != null) {
+            warpLocations.put(warpName, stored);
+        } else {
+            warpLocations.remove(warpName);
+        }
+        journal.append(encodeWarp(warpName, stored));
+    }
+
+    @Override
+    public Location getWarpLocation(String warpName) {
+        return materialize(warpLocations.get(warpName));
+    }
+
+    @Override
+    public boolean hasWarpLocation(String warpName) {
+        return getWarpLocation(warpName) != null;
+    }
+
+    @Override
+    public void deleteWarpLocation(String warpName) {
+        warpLocations.remove(warpName);
+        journal.append(encodeWarp(warpName, null));
+    }
+
+    @Override
+    public Map<String, Location> getAllWarpLocations() {
+        Map<String, Location> result = new HashMap<>();
+        for (Map.Entry<String, StoredLocation> entry : warpLocations.entrySet()) {
+            Location location = entry.getValue().toLocation();
+            if (location != null) {
+                result.put(entry.getKey(), location);
+            }
+        }
+        return result;
+    }
+
+    @Override
+    public void saveWorldSpawn(Location location) {
+        worldSpawn = StoredLocation.of(location);
+        journal.append(encodeWorldSpawn(worldSpawn));
+        applyWorldSpawn();
+    }
+
+    @Override
+    public Location getWorldSpawn() {
+        return materialize(worldSpawn);
+    }
+
+    @Override
+    public boolean checkWorldSpawnLocation() {
+        return worldSpawn != null;
+    }
+
+    // Player data
+
+    @Override
+    public PlayerData getPlayerData(UUID playerId) {
+        return players.get(playerId);
+    }
+
+    @Override
+    public void savePlayerData(UUID playerId, PlayerData playerData) {
+        if (playerData == null) {
+            players.remove(playerId);
+            journal.append(encodePlayerRemove(playerId));
+            return;
+        }
+        players.put(playerId, playerData);
+        journal.append(encodePlayerData(playerId, playerData));
+        if (!playerData.getSettings().isEmpty()) {
+            journal.append(encodePlayerSettings(playerId, playerData.getSettings()));
+        }
+    }
+
+    /**
+     * Appends all changed settings as one record.
+     */
+    @Override
+    public void savePlayerSettings(UUID playerId, Map<String, String> settings) {
+        PlayerData data = players.computeIfAbsent(playerId, id -> new PlayerData());
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            data.setSetting(setting.getKey(), setting.getValue());
+        }
+        if (data.isEmpty()) {
+            players.remove(playerId);
+        }
+        journal.append(encodePlayerSettings(playerId, settings));
+    }
+
+    // Lifecycle
+
+    /**
+     * Reloads all data from the snapshot and the journal.
+     */
+    @Override
+    public void loadAll() {
+        try {
+            replay();
+        } catch (IOException e) {
+            logger.severe("Could not load location journal: " + e.getMessage());
+            logger.log(Level.SEVERE, "Exception while loading location journal", e);
+        }
+    }
+
+    @Override
+    public void saveAll() {
+        saveAllAsync().join();
+    }
+
+    /**
+     * Syncs the journal in the background, or compacts it into a new snapshot once
+     * enough records have been appended. Only the copy of the state for the snapshot
+     * is taken on the calling thread.
+     */
+    @Override
+    public CompletableFuture<Void> saveAllAsync() {
+        if (journal.getRecordsSinceCompaction() >= compactAfterRecords) {
+            return compact();
+        }
+        return journal.sync();
+    }
+
+    @Override
+    public void close() {
+        saveAll();
+        journal.close();
+    }
+
+    /**
+     * Writes the current state as a new snapshot and drops the journal records it covers.
+     */
+    private CompletableFuture<Void> compact() {
+        // Copy the state here; serialization happens on the writer thread
+        Map<UUID, PlayerData> playersCopy = new HashMap<>(players.size());
+        for (Map.Entry<UUID, PlayerData> entry : players.entrySet()) {
+            playersCopy.put(entry.getKey(), entry.getValue().copy());
+        }
+        // Stored locations are immutable and can be shared with the writer
+        Map<String, StoredLocation> warpsCopy = new HashMap<>(warpLocations);
+        StoredLocation spawnCopy = worldSpawn;
+
+        return journal.compact(sink -> {
+            for (Map.Entry<UUID, PlayerData> entry : playersCopy.entrySet()) {
+                sink.write(encodePlayerData(entry.getKey(), entry.getValue()));
+                if (!entry.getValue().getSettings().isEmpty()) {
+                    sink.write(encodePlayerSettings(entry.getKey(), entry.getValue().getSettings()));
+                }
+            }
+            for (Map.Entry<String, StoredLocation> entry : warpsCopy.entrySet()) {
+                sink.write(encodeWarp(entry.getKey(), entry.getValue()));
+            }
+            if (spawnCopy != null) {
+                sink.write(encodeWorldSpawn(spawnCopy));
+            }
+        });
+    }
+
+    private void replay() throws IOException {
+        players.clear();
+        warpLocations.clear();
+        worldSpawn = null;
+        journal.replay(body -> {
+            try {
+                apply(body);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                logger.warning("Skipping malformed location journal record: " + e);
+            }
+        });
+        applyWorldSpawn();
+    }
+
+    // Record handling
+
+    private void setPlayerLocation(UUID playerId, byte slot, Location location) {
+        StoredLocation stored = StoredLocation.of(location);
+        PlayerData data = players.computeIfAbsent(playerId, id -> new PlayerData());
+        setSlot(data, slot, stored);
+        journal.append(encodePlayerLocation(playerId, slot, stored));
+    }
+
+    private void apply(ByteBuffer in) {
+        byte op = in.get();
+        switch (op) {
+            case OP_PLAYER_LOCATION: {
+                UUID playerId = new UUID(in.getLong(), in.getLong());
+                byte slot = in.get();
+                StoredLocation location = readOptionalLocation(in);
+                PlayerData data = players.computeIfAbsent(playerId, id -> new PlayerData());
+                setSlot(data, slot, location);
+                if (data.isEmpty()) {
+                    players.remove(playerId);
+                }
+                break;
+            }
+            case OP_PLAYER_DATA: {
+                UUID playerId = new UUID(in.getLong(), in.getLong());
+                int flags = in.get();
+                PlayerData data = new PlayerData();
+                for (byte slot = 0; slot < SLOT_COUNT; slot++) {
+                    if ((flags & (1 << slot)) != 0) {
+                        setSlot(data, slot, readLocation(in));
+                    }
+                }
+                data.setKeepXp((flags & FLAG_KEEP_XP) != 0);
+                players.put(playerId, data);
+                break;
+            }
+            case OP_PLAYER_SETTINGS: {
+                UUID playerId = new UUID(in.getLong(), in.getLong());
+                int count = in.getShort() & 0xFFFF;
+                PlayerData data = players.computeIfAbsent(playerId, id -> new PlayerData());
+                for (int i = 0; i < count; i++) {
+                    String name = readString(in);
+                    data.setSetting(name, in.get() != 0 ? readString(in) : null);
+                }
+                if (data.isEmpty()) {
+                    players.remove(playerId);
+                }
+                break;
+            }
+            case OP_PLAYER_REMOVE: {
+                UUID playerId = new UUID(in.getLong(), in.getLong());
+                players.remove(playerId);
+                break;
+            }
+            case OP_WARP: {
+                String name = readString(in);
+                StoredLocation location = readOptionalLocation(in);
+                if (location != null) {
+                    warpLocations.put(name, location);
+                } else {
+                    warpLocations.remove(name);
+                }
+                break;
+            }
+            case OP_WORLD_SPAWN:
+                worldSpawn = readOptionalLocation(in);
+                break;
+            default:
+                throw new IllegalArgumentException("unknown record type " + op);
+        }
+    }
+
+    private static byte[] encodePlayerLocation(UUID playerId, byte slot, StoredLocation location) {
+        return new Record().op(OP_PLAYER_LOCATION).uuid(playerId).writeByte(slot).optionalLocation(location).toByteArray();
+    }
+
+    private static byte[] encodePlayerData(UUID playerId, PlayerData data) {
+        int flags = data.isKeepXp() ? FLAG_KEEP_XP : 0;
+        for (byte slot = 0; slot < SLOT_COUNT; slot++) {
+            if (getSlot(data, slot) != null) {
+                flags |= 1 << slot;
+            }
+        }
+        Record record = new Record().op(OP_PLAYER_DATA).uuid(playerId).writeByte(flags);
+        for (byte slot = 0; slot < SLOT_COUNT; slot++) {
+            StoredLocation location = getSlot(data, slot);
+            if (location != null) {
+                record.location(location);
+            }
+        }
+        return record.toByteArray();
+    }
+
+    private static byte[] encodePlayerSettings(UUID playerId, Map<String, String> settings) {
+        Record record = new Record().op(OP_PLAYER_SETTINGS).uuid(playerId).writeShort(settings.size());
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            record.writeString(setting.getKey()).writeBoolean(setting.getValue() != null);
+            if (setting.getValue() != null) {
+                record.writeString(setting.getValue());
+            }
+        }
+        return record.toByteArray();
+    }
+
+    private static byte[] encodePlayerRemove(UUID playerId) {
+        return new Record().op(OP_PLAYER_REMOVE).uuid(playerId).toByteArray();
+    }
+
+    private static byte[] encodeWarp(String warpName, StoredLocation location) {
+        return new Record().op(OP_WARP).writeString(warpName).optionalLocation(location).toByteArray();
+    }
+
+    private static byte[] encodeWorldSpawn(StoredLocation location) {
+        return new Record().op(OP_WORLD_SPAWN).optionalLocation(location).toByteArray();
+    }
+
+    private static StoredLocation readOptionalLocation(ByteBuffer in) {
+        return in.get() != 0 ? readLocation(in) : null;
+    }
+
+    private static StoredLocation readLocation(ByteBuffer in) {
+        String world = readString(in);
+        return StoredLocation.of(world, in.getDouble(), in.getDouble(), in.getDouble(), in.getFloat(), in.getFloat());
+    }
+
+    private static String readString(ByteBuffer in) {
+        int length = in.getShort() & 0xFFFF;
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Small builder for record bodies.
+     */
+    private static final class Record {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+
+        Record op(byte op) {
+            return writeByte(op);
+        }
+
+        Record uuid(UUID id) {
+            try {
+                out.writeLong(id.getMostSignificantBits());
+                out.writeLong(id.getLeastSignificantBits());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return this;
+        }
+
+        Record writeByte(int value) {
+            try {
+                out.writeByte(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return this;
+        }
+
+        Record writeShort(int value) {
+            try {
+                out.writeShort(value);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return this;
+        }
+
+        Record writeBoolean(boolean value) {
+            return writeByte(value ? 1 : 0);
+        }
+
+        Record writeString(String value) {
+            byte[] data = value.getBytes(StandardCharsets.UTF_8);
+            try {
+                out.writeShort(data.length);
+                out.write(data);
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return this;
+        }
+
+        Record optionalLocation(StoredLocation location) {
+            writeBoolean(location != null);
+            return location != null ? location(location) : this;
+        }
+
+        Record location(StoredLocation location) {
+            String world = location.getWorldName();
+            writeString(world != null ? world : "");
+            try {
+                out.writeDouble(location.getX());
+                out.writeDouble(location.getY());
+                out.writeDouble(location.getZ());
+                out.writeFloat(location.getYaw());
+                out.writeFloat(location.getPitch());
+            } catch (IOException e) {
+                throw new IllegalStateException(e);
+            }
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return bytes.toByteArray();
+        }
+    }
+
+    // Helpers
+
+    private static StoredLocation getSlot(PlayerData data, int slot) {
+        switch (slot) {
+            case SLOT_DEATH:
+                return data.getStoredLastDeath();
+            case SLOT_TELEPORT:
+                return data.getStoredLastTeleport();
+            case SLOT_LAST:
+                return data.getStoredLastLocation();
+            case SLOT_HOME:
+                return data.getStoredHome();
+            default:
+                return null;
+        }
+    }
+
+    private static void setSlot(PlayerData data, int slot, StoredLocation location) {
+        switch (slot) {
+            case SLOT_DEATH:
+                data.setStoredLastDeath(location);
+                break;
+            case SLOT_TELEPORT:
+                data.setStoredLastTeleport(location);
+                break;
+            case SLOT_LAST:
+                data.setStoredLastLocation(location);
+                break;
+            case SLOT_HOME:
+                data.setStoredHome(location);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private Map<UUID, Location> collect(int slot) {
+        Map<UUID, Location> result = new HashMap<>();
+        for (Map.Entry<UUID, PlayerData> entry : players.entrySet()) {
+            Location location = materialize(getSlot(entry.getValue(), slot));
+            if (location != null) {
+                result.put(entry.getKey(), location);
+            }
+        }
+        return result;
+    }
+
+    private static Location materialize(StoredLocation location) {
+        return location != null ? location.toLocation() : null;
+    }
+
+    /**
+     * Applies the stored world spawn to its world.
+     */
+    private void applyWorldSpawn() {
+        Location location = materialize(worldSpawn);
+        if (location != null && location.getWorld() != null) {
+            location.getWorld().setSpawnLocation(location);
+        }
+    }
+}
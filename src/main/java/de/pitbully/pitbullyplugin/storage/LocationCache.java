@@ -0,0 +1,196 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Predicate;
+
+/**
+ * Size- and time-bounded read-through cache for locations loaded from the database.
+ *
+ * <p>Entries are evicted in least-recently-used order once {@code maxEntries} is reached
+ * and expire {@code ttl} after they were written. Misses are cached as well (a "known absent"
+ * entry), so existence checks like {@code hasHomeLocation} do not hit the database again.
+ *
+ * <p>Loads from the database use {@link #putLoaded(Object, StoredLocation)}, which never replaces
+ * an entry written in the meantime through {@link #put(Object, StoredLocation)}. That way a slow
+ * read cannot overwrite a newer value with stale data.
+ *
+ * @param <K> Key type
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+public final class LocationCache<K> {
+
+    /**
+     * Result of a cache lookup.
+     */
+    static final class Entry {
+        private final StoredLocation location;
+        private final long expiresAt;
+
+        private Entry(StoredLocation location, long expiresAt) {
+            this.location = location;
+            this.expiresAt = expiresAt;
+        }
+
+        /** @return The cached location, or null if the row is known to be absent */
+        StoredLocation getLocation() {
+            return location;
+        }
+
+        boolean isPresent() {
+            return location != null;
+        }
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LongSupplier clock;
+    private final LinkedHashMap<K, Entry> entries;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * Creates a new cache.
+     *
+     * @param maxEntries Maximum number of entries before the least recently used one is evicted
+     * @param ttlMillis Time after which an entry expires, in milliseconds
+     */
+    LocationCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, System::nanoTime);
+    }
+
+    LocationCache(int maxEntries, long ttlMillis, LongSupplier clock) {
+        this.maxEntries = Math.max(1, maxEntries);
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(1L, ttlMillis));
+        this.clock = clock;
+        this.entries = new LinkedHashMap<K, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Entry> eldest) {
+                if (size() > LocationCache.this.maxEntries) {
+                    evictions.incrementAndGet();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Looks up a key and records a hit or miss.
+     *
+     * @return The cached entry, or null if the key is unknown or expired
+     */
+    Entry get(K key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry != null && entry.expiresAt - clock.getAsLong() <= 0) {
+                entries.remove(key);
+                evictions.incrementAndGet();
+                entry = null;
+            }
+            if (entry == null) {
+                misses.incrementAndGet();
+            } else {
+                hits.incrementAndGet();
+            }
+            return entry;
+        }
+    }
+
+    /**
+     * Stores a value written by this server, replacing any cached value.
+     * A null location marks the row as deleted.
+     */
+    void put(K key, StoredLocation location) {
+        Entry entry = newEntry(location);
+        synchronized (entries) {
+            entries.put(key, entry);
+        }
+    }
+
+    /**
+     * Stores a value read from the database unless a newer value has been cached meanwhile.
+     * A null location marks the row as absent.
+     */
+    void putLoaded(K key, StoredLocation location) {
+        Entry entry = newEntry(location);
+        synchronized (entries) {
+            Entry existing = entries.get(key);
+            if (existing == null || existing.expiresAt - clock.getAsLong() <= 0) {
+                entries.put(key, entry);
+            }
+        }
+    }
+
+    /**
+     * Removes a single entry.
+     */
+    void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+        }
+    }
+
+    /**
+     * Removes all entries matching the given key filter.
+     */
+    void invalidateIf(Predicate<K> filter) {
+        synchronized (entries) {
+            Iterator<K> it = entries.keySet().iterator();
+            while (it.hasNext()) {
+                if (filter.test(it.next())) {
+                    it.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes all entries.
+     */
+    void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    private Entry newEntry(StoredLocation location) {
+        return new Entry(location, clock.getAsLong() + ttlNanos);
+    }
+
+    /** @return Number of lookups answered from memory */
+    public long getHitCount() {
+        return hits.get();
+    }
+
+    /** @return Number of lookups that had to go to the database */
+    public long getMissCount() {
+        return misses.get();
+    }
+
+    /** @return Number of entries removed because of size or age limits */
+    public long getEvictionCount() {
+        return evictions.get();
+    }
+
+    /** @return Ratio of hits to all lookups, or 0 if there were no lookups yet */
+    public double getHitRate() {
+        long h = hits.get();
+        long total = h + misses.get();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    /** @return Current number of cached entries */
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+}
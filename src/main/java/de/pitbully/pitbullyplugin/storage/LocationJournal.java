@@ -0,0 +1,394 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only record log with a compacted snapshot, used by {@link JournalLocationStorage}.
+ *
+ * <p>Records are opaque byte arrays. Each one is framed as {@code [length][crc32][body]},
+ * so a record torn by a crash is detected on replay and cut off. Appends are buffered in
+ * memory and written plus fsynced by a background thread every {@code syncIntervalMillis},
+ * which bounds how much can be lost on a crash.
+ *
+ * <p>Compaction writes the full state as a new snapshot and drops the journal records it
+ * covers. Records only ever overwrite state, so replaying journal records that are already
+ * contained in the snapshot yields the same result; a crash between writing the snapshot and
+ * shortening the journal is therefore harmless.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+final class LocationJournal {
+
+    /** Receives the bodies of replayed records in order. */
+    @FunctionalInterface
+    interface RecordHandler {
+        void handle(ByteBuffer body) throws IOException;
+    }
+
+    /** Destination for the records of a snapshot. */
+    @FunctionalInterface
+    interface RecordSink {
+        void write(byte[] body) throws IOException;
+    }
+
+    /** Writes the full state into a snapshot; runs on the writer thread. */
+    @FunctionalInterface
+    interface SnapshotWriter {
+        void writeTo(RecordSink sink) throws IOException;
+    }
+
+    private static final int MAGIC = 0x50424A4C; // "PBJL"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 8;
+    private static final int FRAME_SIZE = 8;
+    private static final int MAX_RECORD_SIZE = 1 << 20;
+
+    private final Path journalFile;
+    private final Path snapshotFile;
+    private final Logger logger;
+    private final long syncIntervalMillis;
+
+    private final Object lock = new Object();
+    /** Records appended but not yet written to the journal file. */
+    private final ByteArrayOutputStream pending = new ByteArrayOutputStream();
+    /** Logical journal position (bytes appended since startup, including pending ones). */
+    private long appended;
+    /** Logical position of the first record in the current journal file. */
+    private long fileBase;
+    private int recordsSinceCompaction;
+
+    private FileChannel channel;
+    private ScheduledExecutorService writer;
+
+    LocationJournal(Path journalFile, Path snapshotFile, Logger logger, long syncIntervalMillis) {
+        this.journalFile = journalFile;
+        this.snapshotFile = snapshotFile;
+        this.logger = logger;
+        this.syncIntervalMillis = Math.max(10L, syncIntervalMillis);
+    }
+
+    /**
+     * @return true if neither a journal nor a snapshot exists yet
+     */
+    boolean isEmpty() {
+        return !Files.exists(journalFile) && !Files.exists(snapshotFile);
+    }
+
+    /**
+     * Replays the snapshot and then the journal.
+     *
+     * <p>The first call also cuts off a torn record at the end of the journal and opens it for
+     * appending; later calls write buffered records first, so nothing appended is missed.
+     */
+    void replay(RecordHandler handler) throws IOException {
+        if (channel != null) {
+            sync().join();
+        }
+        if (Files.exists(snapshotFile)) {
+            readRecords(snapshotFile, handler);
+        }
+        long validEnd = Files.exists(journalFile) ? readRecords(journalFile, handler) : -1;
+        if (channel == null) {
+            open(validEnd);
+        }
+    }
+
+    private void open(long validEnd) throws IOException {
+        channel = FileChannel.open(journalFile, StandardOpenOption.CREATE, StandardOpenOption.READ,
+            StandardOpenOption.WRITE);
+        if (validEnd < 0 || channel.size() < HEADER_SIZE) {
+            channel.truncate(0);
+            channel.write(header(), 0);
+            channel.force(true);
+            validEnd = HEADER_SIZE;
+        } else if (validEnd < channel.size()) {
+            logger.warning("Discarding " + (channel.size() - validEnd) + " bytes of an incomplete record at the end of "
+                + journalFile.getFileName());
+            channel.truncate(validEnd);
+            channel.force(true);
+        }
+        channel.position(validEnd);
+        synchronized (lock) {
+            fileBase = 0;
+            appended = validEnd - HEADER_SIZE;
+        }
+
+        writer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "PitbullyPlugin-Journal-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        writer.scheduleWithFixedDelay(this::flushQuietly, syncIntervalMillis, syncIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Reads all valid records of a file.
+     *
+     * @return File offset after the last valid record
+     */
+    private long readRecords(Path file, RecordHandler handler) throws IOException {
+        try (FileChannel in = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size < HEADER_SIZE) {
+                return -1;
+            }
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining() && in.read(buffer) >= 0) {
+                // read the whole file
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(file.getFileName() + " is not a location journal");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported version " + version + " of " + file.getFileName());
+            }
+            CRC32 crc = new CRC32();
+            while (buffer.remaining() >= FRAME_SIZE) {
+                int start = buffer.position();
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > MAX_RECORD_SIZE || length > buffer.remaining()) {
+                    buffer.position(start);
+                    break;
+                }
+                ByteBuffer body = buffer.slice();
+                body.limit(length);
+                crc.reset();
+                crc.update(body.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    buffer.position(start);
+                    break;
+                }
+                handler.handle(body.asReadOnlyBuffer());
+                buffer.position(start + FRAME_SIZE + length);
+            }
+            return buffer.position();
+        }
+    }
+
+    /**
+     * Buffers a record; it is written by the next sync.
+     */
+    void append(byte[] body) {
+        synchronized (lock) {
+            writeFramed(pending, body);
+            appended += FRAME_SIZE + body.length;
+            recordsSinceCompaction++;
+        }
+    }
+
+    /**
+     * @return Number of records appended since the last compaction (or startup)
+     */
+    int getRecordsSinceCompaction() {
+        synchronized (lock) {
+            return recordsSinceCompaction;
+        }
+    }
+
+    /**
+     * Writes and fsyncs all buffered records on the writer thread.
+     *
+     * @return A future that completes once the records are on disk
+     */
+    CompletableFuture<Void> sync() {
+        if (writer == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return CompletableFuture.runAsync(this::flushQuietly, writer);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Replaces the snapshot and drops all journal records appended so far.
+     *
+     * <p>Must be called at a point where the state captured by {@code snapshot} matches all
+     * records appended until now; only the serialization runs on the writer thread.
+     *
+     * @return A future that completes once the compaction finished
+     */
+    CompletableFuture<Void> compact(SnapshotWriter snapshot) {
+        long cut;
+        synchronized (lock) {
+            cut = appended;
+            recordsSinceCompaction = 0;
+        }
+        if (writer == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return CompletableFuture.runAsync(() -> {
+                try {
+                    flush();
+                    writeSnapshot(snapshot);
+                    truncateJournal(cut);
+                } catch (IOException e) {
+                    logger.severe("Could not compact location journal: " + e.getMessage());
+                    logger.log(Level.SEVERE, "Exception while compacting location journal", e);
+                }
+            }, writer);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    /**
+     * Writes remaining records and closes the journal.
+     */
+    void close() {
+        if (writer == null) {
+            return;
+        }
+        sync().join();
+        writer.shutdown();
+        try {
+            writer.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        writer = null;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            logger.warning("Could not close " + journalFile.getFileName() + ": " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (IOException e) {
+            logger.severe("Could not write location journal: " + e.getMessage());
+            logger.log(Level.SEVERE, "Exception while writing location journal", e);
+        }
+    }
+
+    /**
+     * Writes buffered records to the journal file. Runs on the writer thread only.
+     * On failure the records are put back and the file is cut back to its previous end.
+     */
+    private void flush() throws IOException {
+        byte[] data;
+        synchronized (lock) {
+            if (pending.size() == 0) {
+                return;
+            }
+            data = pending.toByteArray();
+            pending.reset();
+        }
+        long start = channel.position();
+        try {
+            ByteBuffer buffer = ByteBuffer.wrap(data);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        } catch (IOException e) {
+            synchronized (lock) {
+                byte[] newer = pending.toByteArray();
+                pending.reset();
+                pending.write(data, 0, data.length);
+                pending.write(newer, 0, newer.length);
+            }
+            try {
+                channel.truncate(start);
+                channel.position(start);
+            } catch (IOException ignored) {
+            }
+            throw e;
+        }
+    }
+
+    private void writeSnapshot(SnapshotWriter snapshot) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(header().array());
+        snapshot.writeTo(body -> writeFramed(out, body));
+        writeAtomically(snapshotFile, ByteBuffer.wrap(out.toByteArray()));
+    }
+
+    /**
+     * Rewrites the journal so it only contains the records after the logical position {@code cut}.
+     */
+    private void truncateJournal(long cut) throws IOException {
+        long tailStart = HEADER_SIZE + (cut - fileBase);
+        long tailLength = channel.size() - tailStart;
+        ByteBuffer tail = ByteBuffer.allocate((int) (HEADER_SIZE + tailLength));
+        tail.put(header());
+        while (tail.hasRemaining()) {
+            if (channel.read(tail, tailStart + tail.position() - HEADER_SIZE) < 0) {
+                break;
+            }
+        }
+        tail.flip();
+        writeAtomically(journalFile, tail);
+
+        channel.close();
+        channel = FileChannel.open(journalFile, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        channel.position(channel.size());
+        fileBase = cut;
+    }
+
+    /**
+     * Writes a file via a temporary file, fsync and atomic rename.
+     */
+    private static void writeAtomically(Path target, ByteBuffer data) throws IOException {
+        Path temp = target.resolveSibling(target.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (data.hasRemaining()) {
+                out.write(data);
+            }
+            out.force(true);
+        }
+        try {
+            Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static ByteBuffer header() {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC).putInt(VERSION);
+        header.flip();
+        return header;
+    }
+
+    private static void writeFramed(ByteArrayOutputStream out, byte[] body) {
+        CRC32 crc = new CRC32();
+        crc.update(body, 0, body.length);
+        DataOutputStream data = new DataOutputStream(out);
+        try {
+            data.writeInt(body.length);
+            data.writeInt((int) crc.getValue());
+            data.write(body);
+        } catch (IOException e) {
+            // ByteArrayOutputStream does not throw
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -5,8 +5,11 @@ import de.pitbully.pitbullyplugin.utils.ConfigManager;
 import java.io.File;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import java.util.logging.Logger;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
+import org.bukkit.entity.Player;
 
 /**
  * Utility class that provides static access to location storage functionality.
@@ -22,6 +25,7 @@ import org.bukkit.Location;
 public class LocationManager {
     
     private static LocationStorage storage;
+    private static final PlayerSettingsCache settings = new PlayerSettingsCache();
     
     /**
      * Initializes the LocationManager with a storage implementation.
@@ -31,6 +35,7 @@ public class LocationManager {
      */
     public static void initialize(LocationStorage locationStorage) {
         storage = locationStorage;
+        settings.clear();
     }
     
     /**
@@ -42,6 +47,7 @@ public class LocationManager {
      * @param logger Logger for messages
      */
     public static void initializeWithConfig(ConfigManager configManager, File dataFolder, Logger logger) {
+        settings.clear();
         if (configManager.isDatabaseStorageEnabled()) {
             // Initialize database storage
             DatabaseConfig dbConfig = configManager.getDatabaseConfig();
@@ -64,7 +70,7 @@ public class LocationManager {
                     fileStorage.loadAll();
                     
                     // Migrate data to database
-                    dbStorage.migrateFromFileStorage(fileStorage);
+                    dbStorage.migrateFromFileStorage(fileStorage, configManager.getMigrationBatchSize());
                     
                     // Remove old file contents after migration
                     try (java.io.FileWriter writer = new java.io.FileWriter(locationsFile, false)) {
@@ -72,9 +78,19 @@ public class LocationManager {
                         writer.write("# Database storage is now active for this plugin.\n");
                     }
                     fileStorage.close();
+                    new File(dataFolder, LocationSnapshot.FILE_NAME).delete();
                     logger.info("Migration completed successfully! locations.yml has been cleared after migration.");
                 }
                 
+                if (configManager.isCacheEnabled()) {
+                    dbStorage.enableCache(configManager.getCacheMaxEntries(),
+                        configManager.getCacheTtlSeconds() * 1000L);
+                }
+                if (configManager.isWriteBehindEnabled()) {
+                    dbStorage.enableWriteBehind(configManager.getWriteBehindFlushInterval(),
+                        configManager.getWriteBehindMaxPending(), configManager.getWriteBehindBatchSize());
+                }
+                
                 storage = dbStorage;
                 logger.info("Database storage initialized successfully.");
                 
@@ -85,6 +101,17 @@ public class LocationManager {
                 initializeFileStorage(dataFolder, logger);
             }
             
+        } else if (configManager.isJournalStorageEnabled()) {
+            try {
+                storage = new JournalLocationStorage(dataFolder, logger,
+                    configManager.getJournalSyncInterval(), configManager.getJournalCompactAfterRecords());
+                logger.info("Journal storage initialized successfully.");
+            } catch (Exception e) {
+                logger.severe("Failed to initialize journal storage: " + e.getMessage());
+                logger.severe("Falling back to file storage...");
+                logger.log(java.util.logging.Level.SEVERE, "Exception during journal initialization", e);
+                initializeFileStorage(dataFolder, logger);
+            }
         } else {
             // Initialize file storage
             initializeFileStorage(dataFolder, logger);
@@ -93,9 +120,45 @@ public class LocationManager {
     
     /**
      * Initializes file storage.
+     * When switching back from journal storage, the journal is exported to locations.yml first.
+     * The journal holds the newer data if locations.yml was imported into it (and renamed) or
+     * is older than the journal, e.g. when left behind by a version that did not rename it.
+     * After the export the journal files are renamed, so switching to journal storage again
+     * imports locations.yml with the changes made meanwhile.
      */
     private static void initializeFileStorage(File dataFolder, Logger logger) {
-        storage = new FileLocationStorage(dataFolder, logger);
+        File locationsFile = new File(dataFolder, "locations.yml");
+        File journalFile = new File(dataFolder, JournalLocationStorage.JOURNAL_FILE);
+        File journalSnapshot = new File(dataFolder, JournalLocationStorage.SNAPSHOT_FILE);
+        boolean hasLocations = locationsFile.exists() && locationsFile.length() > 0;
+        boolean hasJournal = journalFile.exists() || journalSnapshot.exists();
+        boolean exportJournal = hasJournal && (!hasLocations
+            || Math.max(journalFile.lastModified(), journalSnapshot.lastModified()) > locationsFile.lastModified());
+        
+        if (exportJournal && hasLocations) {
+            // Stale data from before the journal; the export starts from an empty file
+            logger.warning("locations.yml is older than the location journal, replacing it with the journal's data.");
+            JournalLocationStorage.moveAside(locationsFile, JournalLocationStorage.IMPORTED_SUFFIX, logger);
+        }
+        
+        FileLocationStorage fileStorage = new FileLocationStorage(dataFolder, logger);
+        if (exportJournal) {
+            try {
+                JournalLocationStorage journalStorage = new JournalLocationStorage(dataFolder, logger, 1000, Integer.MAX_VALUE);
+                journalStorage.exportTo(fileStorage);
+                journalStorage.close();
+                logger.info("Exported location journal to locations.yml.");
+                for (File file : new File[] { journalFile, journalSnapshot }) {
+                    if (file.exists()) {
+                        JournalLocationStorage.moveAside(file, JournalLocationStorage.EXPORTED_SUFFIX, logger);
+                    }
+                }
+            } catch (Exception e) {
+                logger.severe("Failed to export location journal: " + e.getMessage());
+                logger.log(java.util.logging.Level.SEVERE, "Exception during journal export", e);
+            }
+        }
+        storage = fileStorage;
         logger.info("File storage initialized successfully.");
     }
     
@@ -124,8 +187,8 @@ public class LocationManager {
      * @param location The death location to store
      */
     public static void updateLastDeathLocations(UUID playerId, Location location) {
-        getStorage().saveDeathLocation(playerId, location);
-        getStorage().saveLastLocation(playerId, location); // Also update last location
+        // Also update last location, in a single write
+        getStorage().savePlayerLocations(playerId, location, PlayerLocationType.DEATH, PlayerLocationType.LAST);
     }
     
     /**
@@ -148,8 +211,8 @@ public class LocationManager {
      * @param location The location before teleportation
      */
     public static void updateLastTeleportLocations(UUID playerId, Location location) {
-        getStorage().saveTeleportLocation(playerId, location);
-        getStorage().saveLastLocation(playerId, location); // Also update last location
+        // Also update last location, in a single write
+        getStorage().savePlayerLocations(playerId, location, PlayerLocationType.TELEPORT, PlayerLocationType.LAST);
     }
     
     /**
@@ -260,10 +323,10 @@ public class LocationManager {
     }
     
     /**
-     * Gets a copy of all warp LocationManager.
+     * Gets all warp LocationManager.
      * Used for tab completion and warp listing.
      * 
-     * @return A new HashMap containing all warp locations
+     * @return All warp locations; may be a read-only view, so do not modify it
      */
     public static Map<String, Location> getWarpHashMap() {
         return getStorage().getAllWarpLocations();
@@ -317,6 +380,199 @@ public class LocationManager {
         return getStorage().checkWorldSpawnLocation();
     }
     
+    // Async Lookup Methods
+    
+    /**
+     * Gets a non-blocking view of the current storage.
+     * 
+     * @return The async view of the current LocationStorage instance
+     * @throws IllegalStateException if the manager hasn't been initialized
+     */
+    public static AsyncLocationStorage getAsyncStorage() {
+        return AsyncLocationStorage.of(getStorage());
+    }
+    
+    /**
+     * Retrieves a player's home location without blocking the caller.
+     * 
+     * @param playerId The UUID of the player
+     * @return A future with the home location, or null if none is set
+     */
+    public static CompletableFuture<Location> getHomeLocationAsync(UUID playerId) {
+        return getAsyncStorage().getHomeLocationAsync(playerId);
+    }
+    
+    /**
+     * Retrieves a warp location without blocking the caller.
+     * 
+     * @param warp The name of the warp
+     * @return A future with the warp location, or null if the warp doesn't exist
+     */
+    public static CompletableFuture<Location> getWarpLocationAsync(String warp) {
+        return getAsyncStorage().getWarpLocationAsync(warp);
+    }
+    
+    /**
+     * Retrieves a player's last death location without blocking the caller.
+     * 
+     * @param playerId The UUID of the player
+     * @return A future with the death location, or null if none exists
+     */
+    public static CompletableFuture<Location> getLastDeathLocationAsync(UUID playerId) {
+        return getAsyncStorage().getDeathLocationAsync(playerId);
+    }
+    
+    /**
+     * Retrieves a player's last teleport location without blocking the caller.
+     * 
+     * @param playerId The UUID of the player
+     * @return A future with the teleport location, or null if none exists
+     */
+    public static CompletableFuture<Location> getLastTeleportLocationAsync(UUID playerId) {
+        return getAsyncStorage().getTeleportLocationAsync(playerId);
+    }
+    
+    /**
+     * Retrieves a player's last known location without blocking the caller.
+     * 
+     * @param playerId The UUID of the player
+     * @return A future with the last location, or null if none exists
+     */
+    public static CompletableFuture<Location> getLastLocationAsync(UUID playerId) {
+        return getAsyncStorage().getLastLocationAsync(playerId);
+    }
+    
+    // Player Session Methods
+    
+    /**
+     * Loads a player's stored data into memory before they join.
+     * Must be called off the main thread, e.g. from AsyncPlayerPreLoginEvent.
+     * Settings are only read here from thread-safe storages, see {@link #loadPlayerSettings(UUID)}.
+     * 
+     * @param playerId The UUID of the player who is logging in
+     */
+    public static void preloadPlayer(UUID playerId) {
+        if (storage != null) {
+            storage.preloadPlayer(playerId);
+            if (storage.isThreadSafe()) {
+                settings.load(playerId, storage);
+            }
+        }
+    }
+    
+    /**
+     * Loads a player's settings into memory when they join, unless they were preloaded.
+     * Must be called on the main thread; storages that are not thread-safe are only
+     * read from here.
+     * 
+     * @param playerId The UUID of the player who joined
+     */
+    public static void loadPlayerSettings(UUID playerId) {
+        if (storage != null) {
+            settings.loadIfAbsent(playerId, storage);
+        }
+    }
+    
+    /**
+     * Loads the settings of all players who are online already, e.g. during a plugin
+     * reload; they joined before the storage was initialized. Must be called on the main thread.
+     */
+    public static void loadOnlinePlayerSettings() {
+        for (Player player : Bukkit.getOnlinePlayers()) {
+            loadPlayerSettings(player.getUniqueId());
+        }
+    }
+    
+    /**
+     * Releases a player's in-memory data after they left the server.
+     * 
+     * @param playerId The UUID of the player who quit
+     */
+    public static void unloadPlayer(UUID playerId) {
+        if (playerId == null) {
+            return;
+        }
+        settings.unload(playerId);
+        if (storage != null) {
+            storage.unloadPlayer(playerId);
+        }
+    }
+    
+    // Player Settings Methods
+    
+    /**
+     * Checks a boolean setting of a player, ignoring permissions.
+     * Online players are answered from memory; others are read from storage.
+     * 
+     * @param playerId The UUID of the player
+     * @param setting The setting to check
+     * @return The player's value, or the default if they never changed it
+     */
+    public static boolean isEnabled(UUID playerId, PlayerSetting<Boolean> setting) {
+        return settings.get(playerId, getStorage()).isEnabled(setting);
+    }
+    
+    /**
+     * Gets a setting of a player.
+     * Online players are answered from memory; others are read from storage.
+     * 
+     * @param playerId The UUID of the player
+     * @param setting The setting to get
+     * @return The player's value, or the default if they never changed it
+     */
+    public static <T> T getSetting(UUID playerId, PlayerSetting<T> setting) {
+        return settings.get(playerId, getStorage()).get(setting);
+    }
+    
+    /**
+     * Changes a setting of a player.
+     * The change is visible immediately and persisted in the background.
+     * 
+     * @param playerId The UUID of the player
+     * @param setting The setting to change
+     * @param value The new value
+     * @return A future that completes once the setting is persisted
+     */
+    public static <T> CompletableFuture<Void> setSetting(UUID playerId, PlayerSetting<T> setting, T value) {
+        return setSettings(playerId, new PlayerSettingChanges().set(setting, value));
+    }
+    
+    /**
+     * Changes several settings of a player with a single write.
+     * The changes are visible immediately and persisted in the background.
+     * 
+     * @param playerId The UUID of the player
+     * @param changes The settings to change
+     * @return A future that completes once the settings are persisted
+     */
+    public static CompletableFuture<Void> setSettings(UUID playerId, PlayerSettingChanges changes) {
+        AsyncLocationStorage asyncStorage = getAsyncStorage();
+        PlayerSettings cached = settings.get(playerId, storage);
+        changes.applyTo(cached);
+        return asyncStorage.savePlayerSettingsAsync(playerId, changes.encode());
+    }
+    
+    /**
+     * Checks if a player keeps their XP on death, ignoring permissions.
+     * 
+     * @param playerId The UUID of the player
+     * @return true if the player keeps XP on death
+     */
+    public static boolean isKeepXp(UUID playerId) {
+        return isEnabled(playerId, PlayerSetting.KEEP_XP);
+    }
+    
+    /**
+     * Changes whether a player keeps their XP on death.
+     * 
+     * @param playerId The UUID of the player
+     * @param keepXp true if the player should keep XP on death
+     * @return A future that completes once the setting is persisted
+     */
+    public static CompletableFuture<Void> setKeepXp(UUID playerId, boolean keepXp) {
+        return setSetting(playerId, PlayerSetting.KEEP_XP, keepXp);
+    }
+    
     // Configuration Methods - matching original Locations API
     
     /**
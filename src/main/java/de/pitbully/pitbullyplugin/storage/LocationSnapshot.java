@@ -0,0 +1,335 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import de.pitbully.pitbullyplugin.utils.PlayerData;
+import org.bukkit.Location;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of the data in locations.yml ({@code locations.dat}).
+ *
+ * <p>Loading locations.yml means parsing YAML and deserializing every {@link Location} through
+ * Bukkit, which dominates startup time on large servers. The snapshot stores the same data in
+ * fixed-width records that are read straight from a {@link MappedByteBuffer}:
+ *
+ * <pre>
+ * header   int magic, short version, short reserved,
+ *          long source length, long source modification time,
+ *          int world count, int player count, int warp count, int flags (bit 0: world spawn)
+ * strings  world names, then warp names: short length + UTF-8 bytes each
+ * players  long uuid msb, long uuid lsb, int flags (bit 0-3: death/teleport/last/home set,
+ *          bit 4: keepXp, bit 5: other settings), 4 locations
+ * warps    1 location each, in warp name order
+ * spawn    1 location if flag bit 0 is set
+ * settings for each player with flag bit 5, in player order:
+ *          short count, then name and value as strings
+ * trailer  int CRC32 of everything before
+ *
+ * location int world index (-1: none), double x, double y, double z, float yaw, float pitch
+ * </pre>
+ *
+ * <p>Worlds are stored by name and read back as {@link StoredLocation}s without looking them up,
+ * so locations in worlds that are not loaded yet are kept.
+ *
+ * <p>The header records the size and modification time of the locations.yml the snapshot was
+ * created from. A snapshot that does not match the current file (e.g. after a manual edit) is
+ * ignored and the YAML is loaded instead.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+final class LocationSnapshot {
+
+    static final String FILE_NAME = "locations.dat";
+
+    private static final int MAGIC = 0x50424C53; // "PBLS"
+    private static final short VERSION = 2;
+    private static final int HEADER_SIZE = 4 + 2 + 2 + 8 + 8 + 4 * 4;
+    private static final int LOCATION_SIZE = 4 + 3 * 8 + 2 * 4;
+    private static final int PLAYER_SIZE = 8 + 8 + 4 + 4 * LOCATION_SIZE;
+    private static final int SLOT_COUNT = 4;
+    private static final int FLAG_KEEP_XP = 1 << SLOT_COUNT;
+    private static final int FLAG_SETTINGS = 1 << (SLOT_COUNT + 1);
+    private static final int FLAG_WORLD_SPAWN = 1;
+
+    final Map<UUID, PlayerData> players;
+    final Map<String, StoredLocation> warps;
+    final StoredLocation worldSpawn;
+
+    LocationSnapshot(Map<UUID, PlayerData> players, Map<String, StoredLocation> warps, StoredLocation worldSpawn) {
+        this.players = players;
+        this.warps = warps;
+        this.worldSpawn = worldSpawn;
+    }
+
+    /**
+     * Reads a snapshot if it exists and was created from the given source file state.
+     *
+     * @param file The snapshot file
+     * @param sourceLength Current size of locations.yml
+     * @param sourceModified Current modification time of locations.yml in milliseconds
+     * @return The snapshot, or null if it is missing or outdated
+     * @throws IOException If the snapshot exists but cannot be read or is corrupt
+     */
+    static LocationSnapshot read(Path file, long sourceLength, long sourceModified) throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE + 4) {
+                throw new IOException(file.getFileName() + " is truncated");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException(file.getFileName() + " is not a location snapshot");
+            }
+            short version = buffer.getShort();
+            if (version != VERSION) {
+                // Written by another plugin version; the YAML is the source of truth
+                return null;
+            }
+            buffer.getShort();
+            if (buffer.getLong() != sourceLength || buffer.getLong() != sourceModified) {
+                return null;
+            }
+
+            CRC32 crc = new CRC32();
+            ByteBuffer content = buffer.duplicate();
+            content.position(0).limit((int) size - 4);
+            crc.update(content);
+            if ((int) crc.getValue() != buffer.getInt((int) size - 4)) {
+                throw new IOException(file.getFileName() + " is corrupt (checksum mismatch)");
+            }
+
+            int worldCount = buffer.getInt();
+            int playerCount = buffer.getInt();
+            int warpCount = buffer.getInt();
+            int flags = buffer.getInt();
+
+            String[] worlds = new String[worldCount];
+            for (int i = 0; i < worldCount; i++) {
+                worlds[i] = readString(buffer);
+            }
+            String[] warpNames = new String[warpCount];
+            for (int i = 0; i < warpCount; i++) {
+                warpNames[i] = readString(buffer);
+            }
+
+            Map<UUID, PlayerData> players = new HashMap<>(Math.max(16, playerCount * 4 / 3 + 1));
+            List<PlayerData> withSettings = new ArrayList<>();
+            for (int i = 0; i < playerCount; i++) {
+                UUID playerId = new UUID(buffer.getLong(), buffer.getLong());
+                int playerFlags = buffer.getInt();
+                PlayerData data = new PlayerData();
+                data.setStoredLastDeath(readLocation(buffer, worlds, (playerFlags & 1) != 0));
+                data.setStoredLastTeleport(readLocation(buffer, worlds, (playerFlags & 2) != 0));
+                data.setStoredLastLocation(readLocation(buffer, worlds, (playerFlags & 4) != 0));
+                data.setStoredHome(readLocation(buffer, worlds, (playerFlags & 8) != 0));
+                data.setKeepXp((playerFlags & FLAG_KEEP_XP) != 0);
+                if ((playerFlags & FLAG_SETTINGS) != 0) {
+                    withSettings.add(data);
+                }
+                players.put(playerId, data);
+            }
+            Map<String, StoredLocation> warps = new HashMap<>();
+            for (int i = 0; i < warpCount; i++) {
+                warps.put(warpNames[i], readLocation(buffer, worlds, true));
+            }
+            StoredLocation worldSpawn = (flags & FLAG_WORLD_SPAWN) != 0 ? readLocation(buffer, worlds, true) : null;
+            for (PlayerData data : withSettings) {
+                int count = buffer.getShort() & 0xFFFF;
+                for (int i = 0; i < count; i++) {
+                    data.setSetting(readString(buffer), readString(buffer));
+                }
+            }
+            return new LocationSnapshot(players, warps, worldSpawn);
+        } catch (RuntimeException e) {
+            throw new IOException("Invalid location snapshot " + file.getFileName() + ": " + e, e);
+        }
+    }
+
+    /**
+     * Writes this snapshot via a temporary file, fsync and atomic rename.
+     *
+     * @param file The snapshot file
+     * @param sourceLength Size of the locations.yml this snapshot matches
+     * @param sourceModified Modification time of the locations.yml this snapshot matches
+     */
+    void write(Path file, long sourceLength, long sourceModified) throws IOException {
+        Map<String, Integer> worldIndex = new LinkedHashMap<>();
+        List<StoredLocation> warpLocations = new ArrayList<>(warps.size());
+        List<byte[]> warpNames = new ArrayList<>(warps.size());
+        int stringBytes = 0;
+        for (PlayerData data : players.values()) {
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                stringBytes += indexWorld(worldIndex, slot(data, slot));
+            }
+            Map<String, String> settings = data.getSettings();
+            if (!settings.isEmpty()) {
+                stringBytes += 2;
+                for (Map.Entry<String, String> setting : settings.entrySet()) {
+                    stringBytes += 4 + setting.getKey().getBytes(StandardCharsets.UTF_8).length
+                        + setting.getValue().getBytes(StandardCharsets.UTF_8).length;
+                }
+            }
+        }
+        for (Map.Entry<String, StoredLocation> entry : warps.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            warpNames.add(name);
+            warpLocations.add(entry.getValue());
+            stringBytes += 2 + name.length + indexWorld(worldIndex, entry.getValue());
+        }
+        stringBytes += indexWorld(worldIndex, worldSpawn);
+
+        int size = HEADER_SIZE + stringBytes + players.size() * PLAYER_SIZE + warps.size() * LOCATION_SIZE
+            + (worldSpawn != null ? LOCATION_SIZE : 0) + 4;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC).putShort(VERSION).putShort((short) 0);
+        buffer.putLong(sourceLength).putLong(sourceModified);
+        buffer.putInt(worldIndex.size()).putInt(players.size()).putInt(warps.size());
+        buffer.putInt(worldSpawn != null ? FLAG_WORLD_SPAWN : 0);
+
+        for (String world : worldIndex.keySet()) {
+            writeString(buffer, world.getBytes(StandardCharsets.UTF_8));
+        }
+        for (byte[] name : warpNames) {
+            writeString(buffer, name);
+        }
+        for (Map.Entry<UUID, PlayerData> entry : players.entrySet()) {
+            PlayerData data = entry.getValue();
+            int flags = data.isKeepXp() ? FLAG_KEEP_XP : 0;
+            if (!data.getSettings().isEmpty()) {
+                flags |= FLAG_SETTINGS;
+            }
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                if (slot(data, slot) != null) {
+                    flags |= 1 << slot;
+                }
+            }
+            buffer.putLong(entry.getKey().getMostSignificantBits());
+            buffer.putLong(entry.getKey().getLeastSignificantBits());
+            buffer.putInt(flags);
+            for (int slot = 0; slot < SLOT_COUNT; slot++) {
+                writeLocation(buffer, worldIndex, slot(data, slot));
+            }
+        }
+        for (StoredLocation location : warpLocations) {
+            writeLocation(buffer, worldIndex, location);
+        }
+        if (worldSpawn != null) {
+            writeLocation(buffer, worldIndex, worldSpawn);
+        }
+        for (PlayerData data : players.values()) {
+            Map<String, String> settings = data.getSettings();
+            if (settings.isEmpty()) {
+                continue;
+            }
+            buffer.putShort((short) settings.size());
+            for (Map.Entry<String, String> setting : settings.entrySet()) {
+                writeString(buffer, setting.getKey().getBytes(StandardCharsets.UTF_8));
+                writeString(buffer, setting.getValue().getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+        buffer.flip();
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                out.write(buffer);
+            }
+            out.force(true);
+        }
+        try {
+            Files.move(temp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Adds the world of a location to the string table.
+     *
+     * @return Number of bytes the string table grew by
+     */
+    private static int indexWorld(Map<String, Integer> worldIndex, StoredLocation location) {
+        String name = location != null ? location.getWorldName() : null;
+        if (name == null || worldIndex.containsKey(name)) {
+            return 0;
+        }
+        worldIndex.put(name, worldIndex.size());
+        return 2 + name.getBytes(StandardCharsets.UTF_8).length;
+    }
+
+    private static void writeLocation(ByteBuffer buffer, Map<String, Integer> worldIndex, StoredLocation location) {
+        if (location == null) {
+            // Fixed-width slot: unused slots are zero-filled
+            buffer.position(buffer.position() + LOCATION_SIZE);
+            return;
+        }
+        String world = location.getWorldName();
+        buffer.putInt(world != null ? worldIndex.get(world) : -1);
+        buffer.putDouble(location.getX()).putDouble(location.getY()).putDouble(location.getZ());
+        buffer.putFloat(location.getYaw()).putFloat(location.getPitch());
+    }
+
+    private static StoredLocation readLocation(ByteBuffer buffer, String[] worlds, boolean present) {
+        if (!present) {
+            buffer.position(buffer.position() + LOCATION_SIZE);
+            return null;
+        }
+        int world = buffer.getInt();
+        double x = buffer.getDouble();
+        double y = buffer.getDouble();
+        double z = buffer.getDouble();
+        float yaw = buffer.getFloat();
+        float pitch = buffer.getFloat();
+        return StoredLocation.of(world >= 0 ? worlds[world] : null, x, y, z, yaw, pitch);
+    }
+
+    private static void writeString(ByteBuffer buffer, byte[] value) {
+        buffer.putShort((short) value.length);
+        buffer.put(value);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getShort() & 0xFFFF];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    private static StoredLocation slot(PlayerData data, int slot) {
+        switch (slot) {
+            case 0:
+                return data.getStoredLastDeath();
+            case 1:
+                return data.getStoredLastTeleport();
+            case 2:
+                return data.getStoredLastLocation();
+            case 3:
+                return data.getStoredHome();
+            default:
+                return null;
+        }
+    }
+}
@@ -2,6 +2,7 @@ package de.pitbully.pitbullyplugin.storage;
 
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.bukkit.Location;
 
 /**
@@ -101,7 +102,37 @@ public interface LocationStorage {
      * @return A map of player UUIDs to their last locations
      */
     Map<UUID, Location> getAllLastLocations();
-    
+
+    /**
+     * Saves the same location into several location slots of one player, e.g. the
+     * teleport and the last location before a teleport.
+     *
+     * <p>Backends with a remote store write all slots in one round-trip. The default
+     * implementation simply calls the single-slot save methods.
+     *
+     * @param playerId The UUID of the player
+     * @param location The location to store
+     * @param types The slots to store the location in
+     */
+    default void savePlayerLocations(UUID playerId, Location location, PlayerLocationType... types) {
+        for (PlayerLocationType type : types) {
+            switch (type) {
+                case DEATH:
+                    saveDeathLocation(playerId, location);
+                    break;
+                case TELEPORT:
+                    saveTeleportLocation(playerId, location);
+                    break;
+                case LAST:
+                    saveLastLocation(playerId, location);
+                    break;
+                case HOME:
+                    saveHomeLocation(playerId, location);
+                    break;
+            }
+        }
+    }
+
     // Home locations
     
     /**
@@ -219,6 +250,48 @@ public interface LocationStorage {
         return getWorldSpawn() != null;
     }
     
+    // Player sessions
+    
+    /**
+     * Loads all stored data of a player into memory before they join.
+     * Called from the asynchronous pre-login thread, so implementations may block.
+     * Storages that keep everything in memory anyway do nothing.
+     * 
+     * @param playerId The UUID of the player who is logging in
+     */
+    default void preloadPlayer(UUID playerId) {
+    }
+    
+    /**
+     * Releases the in-memory data of a player who left the server.
+     * Pending changes are persisted in the background.
+     * 
+     * @param playerId The UUID of the player who quit
+     */
+    default void unloadPlayer(UUID playerId) {
+    }
+    
+    /**
+     * Whether player data may be read from other threads than the main thread, e.g. the
+     * pre-login thread. Storages whose in-memory data is only guarded by the main thread
+     * return false; their players' settings are loaded when they join instead.
+     * 
+     * @return true if reads are safe from any thread
+     */
+    default boolean isThreadSafe() {
+        return false;
+    }
+
+    /**
+     * Gets the latency and connection statistics of this storage.
+     * Storages that keep everything in memory do not record any.
+     *
+     * @return The metrics, or null if this storage does not record metrics
+     */
+    default StorageMetrics getMetrics() {
+        return null;
+    }
+
     // Lifecycle methods
     
     /**
@@ -235,6 +308,17 @@ public interface LocationStorage {
      */
     void saveAll();
     
+    /**
+     * Saves all location data without blocking the calling thread for the actual write.
+     * Storages that cannot write in the background simply save synchronously.
+     * 
+     * @return A future that completes once the data is persisted
+     */
+    default CompletableFuture<Void> saveAllAsync() {
+        saveAll();
+        return CompletableFuture.completedFuture(null);
+    }
+    
     /**
      * Closes the storage backend and releases any resources.
      * This method should be called during plugin shutdown to properly
@@ -277,8 +361,26 @@ public interface LocationStorage {
      */
     void savePlayerData(UUID playerId, de.pitbully.pitbullyplugin.utils.PlayerData playerData);
 
+    /**
+     * Saves several settings of a player at once, without touching their locations.
+     * Storages that keep settings separately should override this with a single batched write.
+     * @param playerId The UUID of the player
+     * @param settings Encoded values by setting name (see {@link PlayerSetting}); a null value resets the setting
+     */
+    default void savePlayerSettings(UUID playerId, Map<String, String> settings) {
+        de.pitbully.pitbullyplugin.utils.PlayerData playerData = getPlayerData(playerId);
+        if (playerData == null) {
+            playerData = new de.pitbully.pitbullyplugin.utils.PlayerData();
+        }
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            playerData.setSetting(setting.getKey(), setting.getValue());
+        }
+        savePlayerData(playerId, playerData);
+    }
+
     /**
      * Convenience method to check if a player keeps XP on death.
+     * Answered from the settings cache of {@link LocationManager}, so it is cheap enough for every death.
      * @param player The player to check
      * @return true if the player should keep XP on death
      */
@@ -288,9 +390,7 @@ public interface LocationStorage {
             return false;
         }
         try {
-            de.pitbully.pitbullyplugin.storage.LocationStorage storage = de.pitbully.pitbullyplugin.storage.LocationManager.getStorage();
-            de.pitbully.pitbullyplugin.utils.PlayerData data = storage.getPlayerData(player.getUniqueId());
-            return data != null ? data.isKeepXp() : true; // Default to true if no data exists
+            return LocationManager.isKeepXp(player.getUniqueId());
         } catch (Exception e) {
             return true; // Default to keeping XP if there's an error
         }
@@ -0,0 +1,36 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import java.util.Objects;
+import java.util.UUID;
+
+/**
+ * Identifies one row in the player locations table: {@code (player_uuid, location_type)}.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+final class PlayerLocationKey {
+    private final UUID playerId;
+    private final String locationType;
+
+    PlayerLocationKey(UUID playerId, String locationType) {
+        this.playerId = playerId;
+        this.locationType = locationType;
+    }
+
+    UUID getPlayerId() { return playerId; }
+    String getLocationType() { return locationType; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PlayerLocationKey)) return false;
+        PlayerLocationKey other = (PlayerLocationKey) o;
+        return playerId.equals(other.playerId) && locationType.equals(other.locationType);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(playerId, locationType);
+    }
+}
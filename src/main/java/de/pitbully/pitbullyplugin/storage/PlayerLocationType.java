@@ -0,0 +1,62 @@
+package de.pitbully.pitbullyplugin.storage;
+
+/**
+ * The per-player location slots a {@link LocationStorage} keeps.
+ * Used to write several slots of one player at once, see
+ * {@link LocationStorage#savePlayerLocations(java.util.UUID, org.bukkit.Location, PlayerLocationType...)}.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+public enum PlayerLocationType {
+    DEATH("death", 1),
+    TELEPORT("teleport", 2),
+    LAST("last", 3),
+    HOME("home", 4);
+
+    private final String key;
+    private final int code;
+
+    PlayerLocationType(String key, int code) {
+        this.key = key;
+        this.code = code;
+    }
+
+    /**
+     * @return The name of the location type, e.g. in the legacy {@code location_type} column
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return The compact code stored in the {@code location_type} column of the database
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return The type with the given key, or null if there is none
+     */
+    public static PlayerLocationType fromKey(String key) {
+        for (PlayerLocationType type : values()) {
+            if (type.key.equals(key)) {
+                return type;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return The type with the given code, or null if there is none
+     */
+    public static PlayerLocationType fromCode(int code) {
+        for (PlayerLocationType type : values()) {
+            if (type.code == code) {
+                return type;
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,100 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import de.pitbully.pitbullyplugin.utils.PlayerData;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Resident copy of an online player's stored data.
+ *
+ * <p>Loaded once while the player logs in and kept until they quit, so lookups
+ * for the player's locations and settings never have to query the database.
+ * Because all rows are loaded up front, a {@code null} slot means the row does
+ * not exist rather than "unknown".
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+final class PlayerSession {
+
+    private StoredLocation death;
+    private StoredLocation teleport;
+    private StoredLocation last;
+    private StoredLocation home;
+    /** Stored settings by name; settings the player never changed have no entry. */
+    private final Map<String, String> settings = new HashMap<>(4);
+
+    /**
+     * Returns the stored location of the given type, or null if there is none.
+     */
+    synchronized StoredLocation getLocation(String locationType) {
+        return slot(locationType);
+    }
+
+    /**
+     * Replaces the stored location of the given type; null removes it.
+     */
+    synchronized void setLocation(String locationType, StoredLocation location) {
+        switch (locationType) {
+            case "death":
+                death = location;
+                break;
+            case "teleport":
+                teleport = location;
+                break;
+            case "last":
+                last = location;
+                break;
+            case "home":
+                home = location;
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Replaces a stored setting; null removes it.
+     */
+    synchronized void setSetting(String name, String value) {
+        if (value != null) {
+            settings.put(name, value);
+        } else {
+            settings.remove(name);
+        }
+    }
+
+    /**
+     * Builds a {@link PlayerData} view, or returns null if nothing is stored for the player
+     * (matching {@link LocationStorage#getPlayerData(java.util.UUID)}).
+     */
+    synchronized PlayerData toPlayerData() {
+        if (death == null && teleport == null && last == null && home == null && settings.isEmpty()) {
+            return null;
+        }
+        PlayerData data = new PlayerData();
+        data.setStoredLastDeath(death);
+        data.setStoredLastTeleport(teleport);
+        data.setStoredLastLocation(last);
+        data.setStoredHome(home);
+        for (Map.Entry<String, String> setting : settings.entrySet()) {
+            data.setSetting(setting.getKey(), setting.getValue());
+        }
+        return data;
+    }
+
+    private StoredLocation slot(String locationType) {
+        switch (locationType) {
+            case "death":
+                return death;
+            case "teleport":
+                return teleport;
+            case "last":
+                return last;
+            case "home":
+                return home;
+            default:
+                return null;
+        }
+    }
+}
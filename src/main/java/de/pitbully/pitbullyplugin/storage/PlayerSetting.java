@@ -0,0 +1,224 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Typed key of a per-player setting.
+ *
+ * <p>Every setting has a unique name, under which it is stored by all backends, a default
+ * value for players who never changed it, and a {@link Codec} that converts the value to and
+ * from its stored text form. Boolean settings ({@link #bool(String, boolean)}) get a bit of
+ * their own in the in-memory bitset of online players, so checking them is a single mask test.
+ * All other settings are kept decoded in a slot per setting.
+ *
+ * <p>Adding a toggle means adding a constant here; loading, caching and persisting it is
+ * handled by {@link LocationManager} and the storages without further changes:
+ *
+ * <pre>
+ * public static final PlayerSetting&lt;Boolean&gt; TPA_AUTO_ACCEPT = bool("tpaAutoAccept", false);
+ * </pre>
+ *
+ * @param <T> The value type
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+public final class PlayerSetting<T> {
+
+    /**
+     * Converts setting values to and from their stored text form.
+     *
+     * @param <T> The value type
+     */
+    public interface Codec<T> {
+        String encode(T value);
+
+        /**
+         * @throws IllegalArgumentException if the text is not a valid value
+         */
+        T decode(String value);
+    }
+
+    /** Maximum number of boolean settings, one bit each. */
+    static final int MAX_FLAGS = Long.SIZE;
+
+    private static final Map<String, PlayerSetting<?>> BY_NAME = new LinkedHashMap<>();
+    private static int flagCount;
+    private static int slotCount;
+
+    private static final Codec<Boolean> BOOLEAN_CODEC = new Codec<Boolean>() {
+        @Override
+        public String encode(Boolean value) {
+            return value.toString();
+        }
+
+        @Override
+        public Boolean decode(String value) {
+            // Stored as "true"/"false" by every plugin version
+            return Boolean.valueOf(value);
+        }
+    };
+
+    private static final Codec<Integer> INTEGER_CODEC = new Codec<Integer>() {
+        @Override
+        public String encode(Integer value) {
+            return value.toString();
+        }
+
+        @Override
+        public Integer decode(String value) {
+            return Integer.valueOf(value.trim());
+        }
+    };
+
+    /** Whether the player keeps their XP on death (requires the pitbullyplugin.keepxp permission). */
+    public static final PlayerSetting<Boolean> KEEP_XP = bool("keepXp", true);
+
+    private final String name;
+    private final T defaultValue;
+    private final Codec<T> codec;
+    private final boolean flag;
+    /** Bit for boolean settings, slot otherwise. */
+    private final int index;
+
+    private PlayerSetting(String name, T defaultValue, Codec<T> codec, boolean flag, int index) {
+        this.name = name;
+        this.defaultValue = defaultValue;
+        this.codec = codec;
+        this.flag = flag;
+        this.index = index;
+    }
+
+    /**
+     * Registers a boolean setting.
+     *
+     * @param name The stored name
+     * @param defaultValue The value of players who never changed it
+     * @return The setting
+     * @throws IllegalArgumentException if the name is taken or all flag bits are used
+     */
+    public static PlayerSetting<Boolean> bool(String name, boolean defaultValue) {
+        synchronized (BY_NAME) {
+            if (flagCount >= MAX_FLAGS) {
+                throw new IllegalArgumentException("Too many boolean player settings, the maximum is " + MAX_FLAGS);
+            }
+            return register(new PlayerSetting<>(name, defaultValue, BOOLEAN_CODEC, true, flagCount++));
+        }
+    }
+
+    /**
+     * Registers an integer setting.
+     *
+     * @param name The stored name
+     * @param defaultValue The value of players who never changed it
+     * @return The setting
+     * @throws IllegalArgumentException if the name is taken
+     */
+    public static PlayerSetting<Integer> integer(String name, int defaultValue) {
+        return of(name, defaultValue, INTEGER_CODEC);
+    }
+
+    /**
+     * Registers a setting of any type.
+     *
+     * @param name The stored name
+     * @param defaultValue The value of players who never changed it
+     * @param codec Converts values to and from text
+     * @return The setting
+     * @throws IllegalArgumentException if the name is taken
+     */
+    public static <T> PlayerSetting<T> of(String name, T defaultValue, Codec<T> codec) {
+        synchronized (BY_NAME) {
+            return register(new PlayerSetting<>(name, defaultValue, codec, false, slotCount++));
+        }
+    }
+
+    private static <T> PlayerSetting<T> register(PlayerSetting<T> setting) {
+        if (setting.name == null || setting.name.isEmpty() || setting.name.length() > 50) {
+            // 50 is the width of the setting_name column
+            throw new IllegalArgumentException("Invalid player setting name: " + setting.name);
+        }
+        if (setting.defaultValue == null) {
+            throw new IllegalArgumentException("Player setting " + setting.name + " needs a default value");
+        }
+        if (BY_NAME.containsKey(setting.name)) {
+            throw new IllegalArgumentException("Player setting " + setting.name + " is already registered");
+        }
+        BY_NAME.put(setting.name, setting);
+        return setting;
+    }
+
+    /**
+     * Gets a registered setting by its stored name.
+     *
+     * @param name The stored name
+     * @return The setting, or null if none is registered under that name
+     */
+    public static PlayerSetting<?> byName(String name) {
+        synchronized (BY_NAME) {
+            return BY_NAME.get(name);
+        }
+    }
+
+    /**
+     * @return All registered settings in registration order
+     */
+    public static List<PlayerSetting<?>> values() {
+        synchronized (BY_NAME) {
+            return Collections.unmodifiableList(new ArrayList<>(BY_NAME.values()));
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public T getDefaultValue() {
+        return defaultValue;
+    }
+
+    /**
+     * @return true if this is a boolean setting kept in the flag bitset
+     */
+    public boolean isFlag() {
+        return flag;
+    }
+
+    int getIndex() {
+        return index;
+    }
+
+    /**
+     * @return The stored text form of a value
+     */
+    public String encode(T value) {
+        return codec.encode(value);
+    }
+
+    /**
+     * Decodes a stored value. Missing or invalid values (e.g. after a manual edit) fall back
+     * to the default.
+     *
+     * @param value The stored text, may be null
+     * @return The value, never null
+     */
+    public T decode(String value) {
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            T decoded = codec.decode(value);
+            return decoded != null ? decoded : defaultValue;
+        } catch (IllegalArgumentException e) {
+            return defaultValue;
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "PlayerSetting[" + name + "]";
+    }
+}
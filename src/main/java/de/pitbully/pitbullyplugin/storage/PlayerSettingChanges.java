@@ -0,0 +1,70 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A set of setting changes for one player that is persisted as a single write,
+ * see {@link LocationManager#setSettings(java.util.UUID, PlayerSettingChanges)}.
+ *
+ * <pre>
+ * LocationManager.setSettings(playerId, new PlayerSettingChanges()
+ *     .set(PlayerSetting.KEEP_XP, false)
+ *     .reset(otherSetting));
+ * </pre>
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+public final class PlayerSettingChanges {
+
+    // null values reset the setting to its default
+    private final Map<PlayerSetting<?>, Object> changes = new LinkedHashMap<>();
+
+    /**
+     * Changes a setting; a later change of the same setting replaces this one.
+     *
+     * @return this, for chaining
+     */
+    public <T> PlayerSettingChanges set(PlayerSetting<T> setting, T value) {
+        changes.put(setting, Objects.requireNonNull(value, "value"));
+        return this;
+    }
+
+    /**
+     * Resets a setting to its default and removes it from the storage.
+     *
+     * @return this, for chaining
+     */
+    public PlayerSettingChanges reset(PlayerSetting<?> setting) {
+        changes.put(setting, null);
+        return this;
+    }
+
+    public boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    void applyTo(PlayerSettings settings) {
+        for (Map.Entry<PlayerSetting<?>, Object> change : changes.entrySet()) {
+            PlayerSetting setting = change.getKey();
+            settings.set(setting, change.getValue() != null ? change.getValue() : setting.getDefaultValue());
+        }
+    }
+
+    /**
+     * @return The encoded values by setting name, null for reset settings
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    Map<String, String> encode() {
+        Map<String, String> encoded = new LinkedHashMap<>();
+        for (Map.Entry<PlayerSetting<?>, Object> change : changes.entrySet()) {
+            PlayerSetting setting = change.getKey();
+            encoded.put(setting.getName(), change.getValue() != null ? setting.encode(change.getValue()) : null);
+        }
+        return Collections.unmodifiableMap(encoded);
+    }
+}
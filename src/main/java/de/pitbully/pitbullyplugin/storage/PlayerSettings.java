@@ -0,0 +1,92 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import de.pitbully.pitbullyplugin.utils.PlayerData;
+import java.util.Arrays;
+
+/**
+ * Decoded settings of one online player.
+ *
+ * <p>Boolean settings are bits of a single {@code long}, all others are kept decoded in
+ * an array indexed by their slot. Reading never allocates. Writes replace the fields as a
+ * whole, so readers on other threads always see consistent values without locking.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+final class PlayerSettings {
+
+    private volatile long flags;
+    /** Bits of the boolean settings that were registered when these settings were loaded or set. */
+    private volatile long knownFlags;
+    private volatile Object[] values;
+
+    private PlayerSettings(long flags, long knownFlags, Object[] values) {
+        this.flags = flags;
+        this.knownFlags = knownFlags;
+        this.values = values;
+    }
+
+    /**
+     * Decodes the settings stored in a player's data.
+     *
+     * @param data The stored data, or null for a player without any
+     * @return The settings, with defaults for everything not stored
+     */
+    static PlayerSettings from(PlayerData data) {
+        long flags = 0;
+        long knownFlags = 0;
+        Object[] values = new Object[0];
+        for (PlayerSetting<?> setting : PlayerSetting.values()) {
+            Object value = setting.decode(data != null ? data.getSetting(setting.getName()) : null);
+            if (setting.isFlag()) {
+                knownFlags |= 1L << setting.getIndex();
+                if ((Boolean) value) {
+                    flags |= 1L << setting.getIndex();
+                }
+            } else {
+                if (values.length <= setting.getIndex()) {
+                    values = Arrays.copyOf(values, setting.getIndex() + 1);
+                }
+                values[setting.getIndex()] = value;
+            }
+        }
+        return new PlayerSettings(flags, knownFlags, values);
+    }
+
+    /**
+     * Checks a boolean setting. Settings registered after these settings were loaded
+     * report their default.
+     */
+    boolean isEnabled(PlayerSetting<Boolean> setting) {
+        long bit = 1L << setting.getIndex();
+        if ((knownFlags & bit) == 0) {
+            return setting.getDefaultValue();
+        }
+        return (flags & bit) != 0;
+    }
+
+    /**
+     * Gets a setting. Settings registered after these settings were loaded report their default.
+     */
+    @SuppressWarnings("unchecked")
+    <T> T get(PlayerSetting<T> setting) {
+        if (setting.isFlag()) {
+            return (T) Boolean.valueOf(isEnabled((PlayerSetting<Boolean>) setting));
+        }
+        Object[] current = values;
+        int index = setting.getIndex();
+        return index < current.length && current[index] != null ? (T) current[index] : setting.getDefaultValue();
+    }
+
+    synchronized <T> void set(PlayerSetting<T> setting, T value) {
+        if (setting.isFlag()) {
+            long bit = 1L << setting.getIndex();
+            flags = (Boolean) value ? flags | bit : flags & ~bit;
+            knownFlags |= bit;
+            return;
+        }
+        Object[] updated = Arrays.copyOf(values, Math.max(values.length, setting.getIndex() + 1));
+        updated[setting.getIndex()] = value;
+        values = updated;
+    }
+}
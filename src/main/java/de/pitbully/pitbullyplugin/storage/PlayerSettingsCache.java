@@ -0,0 +1,65 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Settings of online players, kept in memory for hot paths like the death event.
+ *
+ * <p>Entries are loaded while a player logs in, or when they join for storages that
+ * cannot be read off the main thread, and for players already online when the plugin
+ * is enabled. They are dropped when the player quits. Changes
+ * update the entry right away; persisting them is up to the caller, see
+ * {@link LocationManager#setSetting(UUID, PlayerSetting, Object)}. Lookups of loaded
+ * players neither allocate nor touch the storage.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+final class PlayerSettingsCache {
+
+    private final Map<UUID, PlayerSettings> players = new ConcurrentHashMap<>();
+
+    /**
+     * Reads the settings of a player from the storage into the cache.
+     *
+     * @param playerId The UUID of the player
+     * @param storage The storage to read from
+     * @return The loaded settings
+     */
+    PlayerSettings load(UUID playerId, LocationStorage storage) {
+        PlayerSettings settings = PlayerSettings.from(storage.getPlayerData(playerId));
+        players.put(playerId, settings);
+        return settings;
+    }
+
+    /**
+     * Reads the settings of a player into the cache unless they are cached already.
+     *
+     * @param playerId The UUID of the player
+     * @param storage The storage to read from
+     */
+    void loadIfAbsent(UUID playerId, LocationStorage storage) {
+        if (!players.containsKey(playerId)) {
+            load(playerId, storage);
+        }
+    }
+
+    /**
+     * Gets the settings of a player. Players that are not cached, i.e. offline players,
+     * are read from the storage without caching them, since no quit would ever remove the entry.
+     */
+    PlayerSettings get(UUID playerId, LocationStorage storage) {
+        PlayerSettings settings = players.get(playerId);
+        return settings != null ? settings : PlayerSettings.from(storage.getPlayerData(playerId));
+    }
+
+    void unload(UUID playerId) {
+        players.remove(playerId);
+    }
+
+    void clear() {
+        players.clear();
+    }
+}
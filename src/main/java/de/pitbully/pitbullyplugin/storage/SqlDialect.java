@@ -0,0 +1,365 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * The parts of SQL that differ between the supported databases: column types,
+ * table options, upserts and the storage format of UUIDs.
+ *
+ * <p>Statements are generated from table and column names. Callers build them once,
+ * when the storage is created, rather than assembling SQL per call.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+abstract class SqlDialect {
+
+    /**
+     * @return The dialect of the given database type
+     */
+    static SqlDialect of(DatabaseConfig.DatabaseType type) {
+        switch (type) {
+            case MYSQL:
+            case MARIADB:
+                return new MySql();
+            case POSTGRESQL:
+                return new PostgreSql();
+            default:
+                return new Sqlite();
+        }
+    }
+
+    // Column definitions
+
+    /**
+     * @return Definition of an auto-incrementing 64-bit primary key column named {@code id}
+     */
+    abstract String bigIdColumn();
+
+    /**
+     * @return Definition of an auto-incrementing 32-bit primary key column named {@code id}
+     */
+    abstract String intIdColumn();
+
+    /**
+     * @return Type of a column holding a UUID, see {@link #setUuid(PreparedStatement, int, UUID)}
+     */
+    abstract String uuidType();
+
+    /**
+     * @return Type of a column holding small codes such as {@link PlayerLocationType#getCode()}
+     */
+    abstract String smallIntType();
+
+    abstract String doubleType();
+
+    abstract String floatType();
+
+    abstract String varcharType(int length);
+
+    /**
+     * @return Type of a text column that compares case-sensitively, e.g. for world names
+     */
+    String caseSensitiveVarcharType(int length) {
+        return varcharType(length);
+    }
+
+    /**
+     * @return Definition of a column holding the creation time of a row
+     */
+    String createdAtColumn() {
+        return "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP";
+    }
+
+    /**
+     * @return Definition of the {@code updated_at} column, which {@link #upsert(String, String[], String...)}
+     *         sets on every update
+     */
+    String updatedAtColumn() {
+        return "updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP";
+    }
+
+    // Tables
+
+    /**
+     * @param table The table name
+     * @param definitions Column and constraint definitions
+     * @return {@code CREATE TABLE IF NOT EXISTS} statement
+     */
+    String createTable(String table, String... definitions) {
+        return "CREATE TABLE IF NOT EXISTS " + table + " (" + String.join(", ", definitions) + ")" + tableOptions();
+    }
+
+    /**
+     * Like {@link #createTable(String, String...)} for a table whose rows are only ever
+     * looked up by their primary key, which lets SQLite store them in the key's b-tree.
+     */
+    String createClusteredTable(String table, String... definitions) {
+        return createTable(table, definitions);
+    }
+
+    String tableOptions() {
+        return "";
+    }
+
+    /**
+     * Replaces {@code table} with {@code replacement}, keeping the old table as {@code backup}.
+     *
+     * @return The statements to execute, in order
+     */
+    String[] swapTables(String table, String replacement, String backup) {
+        return new String[] {
+            "ALTER TABLE " + table + " RENAME TO " + backup,
+            "ALTER TABLE " + replacement + " RENAME TO " + table
+        };
+    }
+
+    // Statements
+
+    /**
+     * Generates an insert that updates the existing row if one with the same key exists.
+     * Parameters are the key columns followed by the value columns. The table must have
+     * an {@link #updatedAtColumn() updated_at} column.
+     *
+     * @param table The table name
+     * @param keyColumns Columns of the primary key or unique constraint
+     * @param valueColumns Columns that are overwritten on conflict
+     */
+    String upsert(String table, String[] keyColumns, String... valueColumns) {
+        String updates = Arrays.stream(valueColumns)
+            .map(column -> column + " = excluded." + column)
+            .collect(Collectors.joining(", "));
+        return insert(table, concat(keyColumns, valueColumns)) +
+               " ON CONFLICT (" + String.join(", ", keyColumns) + ") DO UPDATE SET " +
+               updates + ", updated_at = CURRENT_TIMESTAMP";
+    }
+
+    /**
+     * Generates an insert that does nothing if the row violates a unique constraint.
+     */
+    String insertIgnore(String table, String... columns) {
+        return insert(table, columns) + " ON CONFLICT DO NOTHING";
+    }
+
+    static String insert(String table, String... columns) {
+        return "INSERT INTO " + table + " (" + String.join(", ", columns) + ") VALUES (" +
+               String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+    }
+
+    static String[] concat(String[] first, String[] second) {
+        return Stream.concat(Arrays.stream(first), Arrays.stream(second)).toArray(String[]::new);
+    }
+
+    // UUIDs
+
+    /**
+     * Binds a UUID to a parameter of a {@link #uuidType()} column.
+     */
+    void setUuid(PreparedStatement stmt, int index, UUID uuid) throws SQLException {
+        stmt.setBytes(index, UuidCodec.toBytes(uuid));
+    }
+
+    /**
+     * Reads a UUID from a {@link #uuidType()} column.
+     *
+     * @throws IllegalArgumentException if the value is not a valid UUID
+     */
+    UUID getUuid(ResultSet rs, String column) throws SQLException {
+        return UuidCodec.fromBytes(rs.getBytes(column));
+    }
+
+    /**
+     * MySQL and MariaDB.
+     */
+    static class MySql extends SqlDialect {
+
+        @Override
+        String bigIdColumn() {
+            return "id BIGINT AUTO_INCREMENT PRIMARY KEY";
+        }
+
+        @Override
+        String intIdColumn() {
+            return "id INT AUTO_INCREMENT PRIMARY KEY";
+        }
+
+        @Override
+        String uuidType() {
+            return "BINARY(16)";
+        }
+
+        @Override
+        String smallIntType() {
+            return "TINYINT UNSIGNED";
+        }
+
+        @Override
+        String doubleType() {
+            return "DOUBLE";
+        }
+
+        @Override
+        String floatType() {
+            return "FLOAT";
+        }
+
+        @Override
+        String varcharType(int length) {
+            return "VARCHAR(" + length + ")";
+        }
+
+        @Override
+        String caseSensitiveVarcharType(int length) {
+            // The table collation is case-insensitive
+            return "VARCHAR(" + length + ") CHARACTER SET utf8mb4 COLLATE utf8mb4_bin";
+        }
+
+        @Override
+        String updatedAtColumn() {
+            return super.updatedAtColumn() + " ON UPDATE CURRENT_TIMESTAMP";
+        }
+
+        @Override
+        String tableOptions() {
+            return " ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci";
+        }
+
+        @Override
+        String[] swapTables(String table, String replacement, String backup) {
+            // Atomic, readers see either the old or the new table
+            return new String[] { "RENAME TABLE " + table + " TO " + backup + ", " + replacement + " TO " + table };
+        }
+
+        @Override
+        String upsert(String table, String[] keyColumns, String... valueColumns) {
+            String updates = Arrays.stream(valueColumns)
+                .map(column -> column + " = VALUES(" + column + ")")
+                .collect(Collectors.joining(", "));
+            return insert(table, concat(keyColumns, valueColumns)) +
+                   " ON DUPLICATE KEY UPDATE " + updates + ", updated_at = CURRENT_TIMESTAMP";
+        }
+
+        @Override
+        String insertIgnore(String table, String... columns) {
+            return "INSERT IGNORE" + insert(table, columns).substring("INSERT".length());
+        }
+    }
+
+    /**
+     * PostgreSQL, which stores UUIDs in its native 16-byte {@code UUID} type.
+     */
+    static class PostgreSql extends SqlDialect {
+
+        @Override
+        String bigIdColumn() {
+            return "id BIGSERIAL PRIMARY KEY";
+        }
+
+        @Override
+        String intIdColumn() {
+            return "id SERIAL PRIMARY KEY";
+        }
+
+        @Override
+        String uuidType() {
+            return "UUID";
+        }
+
+        @Override
+        String smallIntType() {
+            return "SMALLINT";
+        }
+
+        @Override
+        String doubleType() {
+            return "DOUBLE PRECISION";
+        }
+
+        @Override
+        String floatType() {
+            return "REAL";
+        }
+
+        @Override
+        String varcharType(int length) {
+            return "VARCHAR(" + length + ")";
+        }
+
+        @Override
+        void setUuid(PreparedStatement stmt, int index, UUID uuid) throws SQLException {
+            stmt.setObject(index, uuid);
+        }
+
+        @Override
+        UUID getUuid(ResultSet rs, String column) throws SQLException {
+            UUID uuid = rs.getObject(column, UUID.class);
+            if (uuid == null) {
+                throw new IllegalArgumentException("Invalid UUID");
+            }
+            return uuid;
+        }
+    }
+
+    /**
+     * SQLite, which only knows a few storage classes and ignores most type names.
+     */
+    static class Sqlite extends SqlDialect {
+
+        @Override
+        String bigIdColumn() {
+            return "id INTEGER PRIMARY KEY AUTOINCREMENT";
+        }
+
+        @Override
+        String intIdColumn() {
+            return bigIdColumn();
+        }
+
+        @Override
+        String uuidType() {
+            return "BLOB";
+        }
+
+        @Override
+        String smallIntType() {
+            return "INTEGER";
+        }
+
+        @Override
+        String doubleType() {
+            return "REAL";
+        }
+
+        @Override
+        String floatType() {
+            return "REAL";
+        }
+
+        @Override
+        String varcharType(int length) {
+            return "TEXT";
+        }
+
+        @Override
+        String createdAtColumn() {
+            return "created_at DATETIME DEFAULT CURRENT_TIMESTAMP";
+        }
+
+        @Override
+        String updatedAtColumn() {
+            return "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP";
+        }
+
+        @Override
+        String createClusteredTable(String table, String... definitions) {
+            return createTable(table, definitions) + " WITHOUT ROWID";
+        }
+    }
+}
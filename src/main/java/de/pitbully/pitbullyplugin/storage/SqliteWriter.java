@@ -0,0 +1,253 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.sql.DataSource;
+
+/**
+ * Runs all writes to a SQLite database on one thread and commits them in groups.
+ *
+ * <p>SQLite allows a single writer at a time; several pooled connections writing
+ * concurrently only wait for each other's locks or fail with {@code SQLITE_BUSY}.
+ * Here callers hand their writes to the writer thread instead. It takes every write
+ * that is queued at that moment (up to a maximum group size) and runs them in one
+ * transaction, so a burst of writes costs a single commit.
+ *
+ * <p>Each write runs inside its own savepoint. A failing write is rolled back on its own
+ * and reported to its caller, the other writes of the group are still committed.
+ * Callers are only released once their write is committed.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+final class SqliteWriter {
+
+    /**
+     * A write against the connection of the writer thread. Must not commit or roll back.
+     */
+    @FunctionalInterface
+    interface Work {
+        void run(Connection conn) throws SQLException;
+    }
+
+    private static final class Task {
+        private final Work work;
+        private final CompletableFuture<Void> done = new CompletableFuture<>();
+        private final List<Runnable> commitActions = new ArrayList<>(0);
+
+        private Task(Work work) {
+            this.work = work;
+        }
+    }
+
+    /** Queued to stop the writer thread. */
+    private static final Task STOP = new Task(conn -> { });
+
+    private final DataSource dataSource;
+    private final Logger logger;
+    private final int maxGroupSize;
+    private final BlockingQueue<Task> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean closed;
+
+    /** The write currently running on the writer thread and its connection. */
+    private Task current;
+    private Connection currentConnection;
+
+    private final AtomicLong commits = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+
+    /**
+     * Starts the writer thread.
+     *
+     * @param dataSource Pool the writer takes its connection from
+     * @param logger Logger for failed commits
+     * @param maxGroupSize Maximum number of writes per transaction
+     */
+    SqliteWriter(DataSource dataSource, Logger logger, int maxGroupSize) {
+        this.dataSource = dataSource;
+        this.logger = logger;
+        this.maxGroupSize = Math.max(1, maxGroupSize);
+        this.thread = new Thread(this::run, "PitbullyPlugin-SQLite-Writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues a write.
+     *
+     * @return Future completed once the write is committed, or completed exceptionally if it failed
+     */
+    CompletableFuture<Void> submit(Work work) {
+        Task task = new Task(work);
+        if (closed) {
+            task.done.completeExceptionally(new SQLException("SQLite writer is closed"));
+            return task.done;
+        }
+        queue.add(task);
+        return task.done;
+    }
+
+    /**
+     * Runs a write and waits until it is committed. Called on the writer thread itself,
+     * e.g. by a write that triggers another one, the work joins the running write.
+     *
+     * @throws SQLException if the write or its commit failed
+     */
+    void execute(Work work) throws SQLException {
+        if (Thread.currentThread() == thread) {
+            work.run(currentConnection);
+            return;
+        }
+        try {
+            submit(work).get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException(cause);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the SQLite writer", e);
+        }
+    }
+
+    /**
+     * Registers an action to run after the current write is committed, e.g. to remember
+     * generated ids. Dropped if the write is rolled back. Only valid inside a {@link Work}.
+     */
+    void afterCommit(Runnable action) {
+        if (Thread.currentThread() != thread || current == null) {
+            throw new IllegalStateException("afterCommit must be called from a write");
+        }
+        current.commitActions.add(action);
+    }
+
+    /**
+     * @return true if called from inside a {@link Work}
+     */
+    boolean isWriterThread() {
+        return Thread.currentThread() == thread;
+    }
+
+    /**
+     * @return Number of committed transactions
+     */
+    long getCommitCount() {
+        return commits.get();
+    }
+
+    /**
+     * @return Number of committed writes
+     */
+    long getWriteCount() {
+        return writes.get();
+    }
+
+    /**
+     * Commits all queued writes and stops the writer thread.
+     */
+    void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.add(STOP);
+        try {
+            thread.join(TimeUnit.SECONDS.toMillis(30));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (thread.isAlive()) {
+            logger.warning("SQLite writer did not finish within 30 seconds");
+        }
+    }
+
+    private void run() {
+        List<Task> group = new ArrayList<>(maxGroupSize);
+        boolean stop = false;
+        while (!stop) {
+            try {
+                group.add(queue.take());
+            } catch (InterruptedException e) {
+                // Only close() ends the writer, queued writes must not be lost
+                continue;
+            }
+            queue.drainTo(group, maxGroupSize - 1);
+            stop = group.remove(STOP);
+            if (!group.isEmpty()) {
+                commit(group);
+            }
+            group.clear();
+        }
+        // Writes queued after the stop marker
+        queue.drainTo(group);
+        group.remove(STOP);
+        if (!group.isEmpty()) {
+            commit(group);
+        }
+    }
+
+    /**
+     * Runs a group of writes in one transaction.
+     */
+    private void commit(List<Task> group) {
+        List<Task> applied = new ArrayList<>(group.size());
+        try (Connection conn = dataSource.getConnection()) {
+            conn.setAutoCommit(false);
+            currentConnection = conn;
+            try {
+                for (Task task : group) {
+                    Savepoint savepoint = conn.setSavepoint();
+                    current = task;
+                    try {
+                        task.work.run(conn);
+                        conn.releaseSavepoint(savepoint);
+                        applied.add(task);
+                    } catch (SQLException | RuntimeException e) {
+                        conn.rollback(savepoint);
+                        task.done.completeExceptionally(e);
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                current = null;
+                currentConnection = null;
+                conn.setAutoCommit(true);
+            }
+        } catch (SQLException e) {
+            logger.log(Level.SEVERE, "Failed to commit " + applied.size() + " SQLite writes", e);
+            for (Task task : group) {
+                task.done.completeExceptionally(e);
+            }
+            return;
+        }
+
+        commits.incrementAndGet();
+        writes.addAndGet(applied.size());
+        for (Task task : applied) {
+            for (Runnable action : task.commitActions) {
+                action.run();
+            }
+            task.done.complete(null);
+        }
+    }
+}
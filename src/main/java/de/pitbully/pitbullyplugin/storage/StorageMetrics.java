@@ -0,0 +1,250 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import com.zaxxer.hikari.metrics.IMetricsTracker;
+import com.zaxxer.hikari.metrics.MetricsTrackerFactory;
+import com.zaxxer.hikari.metrics.PoolStats;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Latency, error and connection pool statistics of a storage.
+ *
+ * <p>Every database round-trip is recorded under an operation name like {@code get.home},
+ * {@code save.warp} or {@code load.player} in a {@link Histogram}. The connection pool reports
+ * how long callers waited for a connection and how often they gave up (see {@link #poolTracker()}),
+ * and registered caches contribute their hit rates. Together this shows whether
+ * {@code max-connections} is too small (waits, pending threads, timeouts) or too large
+ * (connections that stay idle).
+ *
+ * <p>Recording is lock-free and does not allocate once an operation has been seen.
+ * All values count from the start of the server or the last {@link #reset()}.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+public final class StorageMetrics {
+
+    /** Operation name of waiting for a pooled connection. */
+    static final String POOL_ACQUIRE = "pool.acquire";
+
+    /**
+     * Latency histogram with power-of-two buckets in microseconds.
+     *
+     * <p>Bucket {@code i} counts latencies below {@code 2^i} µs, so percentiles are reported
+     * as the upper bound of their bucket and are at most a factor of two too high. That is
+     * precise enough to tell a 1 ms query from a 20 ms connection wait.
+     */
+    public static final class Histogram {
+        // 2^30 µs is about 18 minutes, everything slower ends up in the last bucket
+        private static final int BUCKETS = 31;
+
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder errors = new LongAdder();
+
+        void record(long nanos) {
+            long micros = Math.max(0, nanos) / 1000;
+            int bucket = Math.min(BUCKETS - 1, Long.SIZE - Long.numberOfLeadingZeros(micros));
+            buckets.incrementAndGet(bucket);
+            count.increment();
+            totalNanos.add(nanos);
+            long max = maxNanos.get();
+            while (nanos > max && !maxNanos.compareAndSet(max, nanos)) {
+                max = maxNanos.get();
+            }
+        }
+
+        void recordError() {
+            errors.increment();
+        }
+
+        public long getCount() {
+            return count.sum();
+        }
+
+        public long getErrorCount() {
+            return errors.sum();
+        }
+
+        /**
+         * @return The mean latency in milliseconds, 0 without samples
+         */
+        public double getMeanMillis() {
+            long n = count.sum();
+            return n == 0 ? 0 : totalNanos.sum() / (double) n / 1_000_000;
+        }
+
+        public double getMaxMillis() {
+            return maxNanos.get() / 1_000_000.0;
+        }
+
+        /**
+         * Estimates a percentile from the buckets.
+         *
+         * @param percentile The percentile between 0 and 1, e.g. 0.99
+         * @return The upper bound of the bucket holding the percentile in milliseconds,
+         *         capped at the maximum; 0 without samples
+         */
+        public double getPercentileMillis(double percentile) {
+            long n = 0;
+            long[] snapshot = new long[BUCKETS];
+            for (int i = 0; i < BUCKETS; i++) {
+                snapshot[i] = buckets.get(i);
+                n += snapshot[i];
+            }
+            if (n == 0) {
+                return 0;
+            }
+            long rank = Math.max(1, (long) Math.ceil(percentile * n));
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += snapshot[i];
+                if (seen >= rank) {
+                    return Math.min((1L << i) / 1000.0, getMaxMillis());
+                }
+            }
+            return getMaxMillis();
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) {
+                buckets.set(i, 0);
+            }
+            count.reset();
+            totalNanos.reset();
+            maxNanos.set(0);
+            errors.reset();
+        }
+    }
+
+    private final Map<String, Histogram> operations = new ConcurrentHashMap<>();
+    private final Map<String, LocationCache<?>> caches = new ConcurrentHashMap<>();
+    private final LongAdder connectionTimeouts = new LongAdder();
+    private volatile PoolStats poolStats;
+
+    /**
+     * Records a successful operation.
+     *
+     * @param operation The operation name, e.g. {@code get.home}
+     * @param startNanos The {@link System#nanoTime()} when the operation started
+     */
+    public void record(String operation, long startNanos) {
+        histogram(operation).record(System.nanoTime() - startNanos);
+    }
+
+    /**
+     * Records a failed operation. Failures are counted but not timed.
+     *
+     * @param operation The operation name
+     */
+    public void recordError(String operation) {
+        histogram(operation).recordError();
+    }
+
+    private Histogram histogram(String operation) {
+        Histogram histogram = operations.get(operation);
+        return histogram != null ? histogram : operations.computeIfAbsent(operation, name -> new Histogram());
+    }
+
+    /**
+     * @return The histogram of an operation, or null if it was never recorded
+     */
+    public Histogram getOperation(String operation) {
+        return operations.get(operation);
+    }
+
+    /**
+     * @return All recorded operations sorted by name
+     */
+    public Map<String, Histogram> getOperations() {
+        return new TreeMap<>(operations);
+    }
+
+    /**
+     * Adds the hit rate of a cache to the report.
+     *
+     * @param name The name shown in the report, e.g. {@code players}
+     * @param cache The cache
+     */
+    void registerCache(String name, LocationCache<?> cache) {
+        caches.put(name, cache);
+    }
+
+    /**
+     * Creates the tracker the connection pool reports to, to be passed to
+     * {@link com.zaxxer.hikari.HikariConfig#setMetricsTrackerFactory(MetricsTrackerFactory)}.
+     */
+    MetricsTrackerFactory poolTracker() {
+        return (poolName, stats) -> {
+            poolStats = stats;
+            return new IMetricsTracker() {
+                @Override
+                public void recordConnectionAcquiredNanos(long elapsedAcquiredNanos) {
+                    histogram(POOL_ACQUIRE).record(elapsedAcquiredNanos);
+                }
+
+                @Override
+                public void recordConnectionTimeout() {
+                    connectionTimeouts.increment();
+                    histogram(POOL_ACQUIRE).recordError();
+                }
+            };
+        };
+    }
+
+    /**
+     * @return Number of times a caller gave up waiting for a pooled connection
+     */
+    public long getConnectionTimeouts() {
+        return connectionTimeouts.sum();
+    }
+
+    /**
+     * Resets all counters and histograms. Pool state and cache statistics are not affected.
+     */
+    public void reset() {
+        for (Histogram histogram : operations.values()) {
+            histogram.reset();
+        }
+        connectionTimeouts.reset();
+    }
+
+    /**
+     * Formats the statistics as plain text, one line per operation, then the pool and the caches.
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        for (Map.Entry<String, Histogram> entry : getOperations().entrySet()) {
+            Histogram histogram = entry.getValue();
+            lines.add(String.format(Locale.ROOT,
+                "%s: %d calls, %d errors, avg %.2f ms, p50 %.2f ms, p95 %.2f ms, p99 %.2f ms, max %.2f ms",
+                entry.getKey(), histogram.getCount(), histogram.getErrorCount(), histogram.getMeanMillis(),
+                histogram.getPercentileMillis(0.50), histogram.getPercentileMillis(0.95),
+                histogram.getPercentileMillis(0.99), histogram.getMaxMillis()));
+        }
+        PoolStats stats = poolStats;
+        if (stats != null) {
+            // PoolStats refreshes itself at most once per second
+            lines.add(String.format(Locale.ROOT,
+                "pool: %d active, %d idle, %d pending, %d/%d connections, %d timeouts",
+                stats.getActiveConnections(), stats.getIdleConnections(), stats.getPendingThreads(),
+                stats.getTotalConnections(), stats.getMaxConnections(), getConnectionTimeouts()));
+        }
+        for (Map.Entry<String, LocationCache<?>> entry : new TreeMap<>(caches).entrySet()) {
+            LocationCache<?> cache = entry.getValue();
+            lines.add(String.format(Locale.ROOT, "cache %s: %d hits, %d misses (%d%% hit rate), %d entries",
+                entry.getKey(), cache.getHitCount(), cache.getMissCount(),
+                Math.round(cache.getHitRate() * 100), cache.size()));
+        }
+        return lines;
+    }
+}
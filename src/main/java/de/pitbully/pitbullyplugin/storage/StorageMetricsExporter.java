@@ -0,0 +1,64 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+/**
+ * Writes the {@link StorageMetrics} report periodically, either as a single console line
+ * or appended to a file with one timestamped line per operation. Scheduled by the plugin;
+ * runs off the main thread since the file is written synchronously.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+public final class StorageMetricsExporter implements Runnable {
+
+    /** Name of the export file in the plugin folder. */
+    public static final String FILE_NAME = "metrics.log";
+
+    private final StorageMetrics metrics;
+    private final Logger logger;
+    /** Target file, or null to write to the log. */
+    private final File file;
+
+    /**
+     * @param metrics The metrics to export
+     * @param logger Logger for the log export and for errors
+     * @param file The file to append to, or null to export to the log
+     */
+    public StorageMetricsExporter(StorageMetrics metrics, Logger logger, File file) {
+        this.metrics = metrics;
+        this.logger = logger;
+        this.file = file;
+    }
+
+    @Override
+    public void run() {
+        List<String> report = metrics.report();
+        if (report.isEmpty()) {
+            return;
+        }
+        if (file == null) {
+            logger.info("Storage metrics: " + String.join(" | ", report));
+            return;
+        }
+        String timestamp = Instant.now().toString();
+        List<String> lines = new ArrayList<>(report.size());
+        for (String line : report) {
+            lines.add(timestamp + " " + line);
+        }
+        try {
+            Files.write(file.toPath(), lines, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.warning("Could not write storage metrics to " + file.getName() + ": " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,283 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Immutable, compact copy of a location as the storage backends keep it in memory.
+ *
+ * <p>The world is referenced by an interned id instead of a {@link World} object, so a
+ * stored location neither keeps a world alive nor depends on the world being loaded.
+ * A {@link Location} is only created by {@link #toLocation()} when it is actually needed,
+ * e.g. right before a teleport. Locations in worlds that are not loaded keep their world
+ * name and are written back unchanged instead of being dropped.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+public final class StoredLocation {
+
+    private static final int NO_WORLD = -1;
+
+    // World name interning; ids are indexes into WORLDS and never change
+    private static final Map<String, Integer> WORLD_IDS = new ConcurrentHashMap<>();
+    private static final List<WorldEntry> WORLDS = new ArrayList<>();
+
+    private final int worldId;
+    private final double x;
+    private final double y;
+    private final double z;
+    private final float yaw;
+    private final float pitch;
+
+    /**
+     * Interned world name together with the last resolved world.
+     */
+    private static final class WorldEntry {
+        final String name;
+        /** Weak, so an unloaded world can still be garbage collected. */
+        volatile WeakReference<World> world;
+
+        WorldEntry(String name) {
+            this.name = name;
+        }
+    }
+
+    private StoredLocation(int worldId, double x, double y, double z, float yaw, float pitch) {
+        this.worldId = worldId;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.yaw = yaw;
+        this.pitch = pitch;
+    }
+
+    /**
+     * Creates a stored copy of a location.
+     *
+     * @param location The location to copy, may be null
+     * @return The stored location, or null if {@code location} is null
+     */
+    public static StoredLocation of(Location location) {
+        if (location == null) {
+            return null;
+        }
+        World world = location.isWorldLoaded() ? location.getWorld() : null;
+        int worldId = NO_WORLD;
+        if (world != null && world.getName() != null) {
+            worldId = intern(world.getName());
+            WorldEntry entry = entry(worldId);
+            WeakReference<World> known = entry.world;
+            if (known == null || known.get() != world) {
+                entry.world = new WeakReference<>(world);
+            }
+        }
+        return new StoredLocation(worldId, location.getX(), location.getY(), location.getZ(),
+            location.getYaw(), location.getPitch());
+    }
+
+    /**
+     * Creates a stored location from its raw values, e.g. a database row.
+     * The world is not looked up.
+     *
+     * @param worldName Name of the world, or null/empty for none
+     */
+    public static StoredLocation of(String worldName, double x, double y, double z, float yaw, float pitch) {
+        int worldId = worldName == null || worldName.isEmpty() ? NO_WORLD : intern(worldName);
+        return new StoredLocation(worldId, x, y, z, yaw, pitch);
+    }
+
+    /**
+     * Reads a location value from a configuration: either a serialized {@link Location} or
+     * a section/map with the keys world, x, y, z and optionally yaw and pitch.
+     *
+     * @return The stored location, or null if the value is not a location
+     */
+    public static StoredLocation fromConfig(Object value) {
+        if (value instanceof Location) {
+            return of((Location) value);
+        }
+        Map<?, ?> map = null;
+        if (value instanceof ConfigurationSection) {
+            map = ((ConfigurationSection) value).getValues(false);
+        } else if (value instanceof Map) {
+            map = (Map<?, ?>) value;
+        }
+        if (map == null || !map.containsKey("world") || !(map.get("x") instanceof Number)) {
+            return null;
+        }
+        Object world = map.get("world");
+        return of(world != null ? world.toString() : null, number(map.get("x")), number(map.get("y")),
+            number(map.get("z")), (float) number(map.get("yaw")), (float) number(map.get("pitch")));
+    }
+
+    private static double number(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : 0.0;
+    }
+
+    /**
+     * Returns the value to store in a configuration. Locations whose world is loaded are
+     * written as regular {@link Location}s; otherwise a plain map keeps the world name,
+     * which {@link #fromConfig(Object)} reads back.
+     */
+    public Object toConfigValue() {
+        Location location = toLocation();
+        if (location != null) {
+            return location;
+        }
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("world", getWorldName());
+        map.put("x", x);
+        map.put("y", y);
+        map.put("z", z);
+        map.put("yaw", (double) yaw);
+        map.put("pitch", (double) pitch);
+        return map;
+    }
+
+    /**
+     * Creates a new {@link Location} for this stored location.
+     *
+     * @return The location, or null if its world is not loaded
+     */
+    public Location toLocation() {
+        if (worldId == NO_WORLD) {
+            return new Location(null, x, y, z, yaw, pitch);
+        }
+        World world = resolveWorld(entry(worldId));
+        return world != null ? new Location(world, x, y, z, yaw, pitch) : null;
+    }
+
+    /**
+     * @return true if there is no world or the world is currently loaded
+     */
+    public boolean isWorldLoaded() {
+        return worldId == NO_WORLD || resolveWorld(entry(worldId)) != null;
+    }
+
+    /**
+     * @return The world name, or null if the location has no world
+     */
+    public String getWorldName() {
+        return worldId == NO_WORLD ? null : entry(worldId).name;
+    }
+
+    public double getX() {
+        return x;
+    }
+
+    public double getY() {
+        return y;
+    }
+
+    public double getZ() {
+        return z;
+    }
+
+    public float getYaw() {
+        return yaw;
+    }
+
+    public float getPitch() {
+        return pitch;
+    }
+
+    /**
+     * Drops the remembered world object of an unloaded world, so stored locations
+     * look it up again once it is loaded.
+     *
+     * @param worldName Name of the unloaded world
+     */
+    public static void forgetWorld(String worldName) {
+        Integer worldId = WORLD_IDS.get(worldName);
+        if (worldId != null) {
+            entry(worldId).world = null;
+        }
+    }
+
+    private static World resolveWorld(WorldEntry entry) {
+        WeakReference<World> known = entry.world;
+        World world = known != null ? known.get() : null;
+        if (world == null) {
+            world = lookupWorld(entry.name);
+            if (world != null) {
+                entry.world = new WeakReference<>(world);
+            }
+        }
+        return world;
+    }
+
+    private static World lookupWorld(String name) {
+        try {
+            return Bukkit.getWorld(name);
+        } catch (Exception e) {
+            // No Bukkit server available
+            return null;
+        }
+    }
+
+    private static int intern(String worldName) {
+        Integer worldId = WORLD_IDS.get(worldName);
+        if (worldId != null) {
+            return worldId;
+        }
+        synchronized (WORLDS) {
+            worldId = WORLD_IDS.get(worldName);
+            if (worldId == null) {
+                WORLDS.add(new WorldEntry(worldName));
+                worldId = WORLDS.size() - 1;
+                WORLD_IDS.put(worldName, worldId);
+            }
+            return worldId;
+        }
+    }
+
+    private static WorldEntry entry(int worldId) {
+        synchronized (WORLDS) {
+            return WORLDS.get(worldId);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof StoredLocation)) {
+            return false;
+        }
+        StoredLocation other = (StoredLocation) obj;
+        return worldId == other.worldId
+            && Double.doubleToLongBits(x) == Double.doubleToLongBits(other.x)
+            && Double.doubleToLongBits(y) == Double.doubleToLongBits(other.y)
+            && Double.doubleToLongBits(z) == Double.doubleToLongBits(other.z)
+            && Float.floatToIntBits(yaw) == Float.floatToIntBits(other.yaw)
+            && Float.floatToIntBits(pitch) == Float.floatToIntBits(other.pitch);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = worldId;
+        result = 31 * result + Double.hashCode(x);
+        result = 31 * result + Double.hashCode(y);
+        result = 31 * result + Double.hashCode(z);
+        result = 31 * result + Float.hashCode(yaw);
+        result = 31 * result + Float.hashCode(pitch);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "StoredLocation{world=" + getWorldName() + ", x=" + x + ", y=" + y + ", z=" + z
+            + ", yaw=" + yaw + ", pitch=" + pitch + '}';
+    }
+}
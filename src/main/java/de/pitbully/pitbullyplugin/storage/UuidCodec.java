@@ -0,0 +1,34 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import java.nio.ByteBuffer;
+import java.util.UUID;
+
+/**
+ * Converts player UUIDs to and from their 16-byte database representation.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+final class UuidCodec {
+
+    private UuidCodec() {
+    }
+
+    static byte[] toBytes(UUID uuid) {
+        return ByteBuffer.allocate(16)
+            .putLong(uuid.getMostSignificantBits())
+            .putLong(uuid.getLeastSignificantBits())
+            .array();
+    }
+
+    /**
+     * @throws IllegalArgumentException if the value is not 16 bytes long
+     */
+    static UUID fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != 16) {
+            throw new IllegalArgumentException("Invalid UUID bytes");
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        return new UUID(buffer.getLong(), buffer.getLong());
+    }
+}
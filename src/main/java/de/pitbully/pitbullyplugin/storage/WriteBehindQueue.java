@@ -0,0 +1,255 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Coalescing write-behind buffer for player location rows.
+ *
+ * <p>Mutations are keyed by {@code (player_uuid, location_type)}, so repeated writes to
+ * the same row only keep the newest value. A dedicated single-thread executor drains
+ * the buffer periodically (or as soon as a full batch is ready) and hands the writes
+ * to a {@link Flusher}, which persists them in one JDBC batch.
+ *
+ * <p>Writes that are still buffered or currently being flushed stay visible through
+ * {@link #lookup(UUID, String)}, so callers can read their own writes before they
+ * reach the database.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+class WriteBehindQueue {
+
+    /**
+     * Persists a batch of coalesced writes.
+     */
+    @FunctionalInterface
+    interface Flusher {
+        void flush(Collection<PendingWrite> writes) throws SQLException;
+    }
+
+    /**
+     * A buffered upsert, or a delete if the location is {@code null}.
+     */
+    static final class PendingWrite {
+        private final PlayerLocationKey key;
+        private final StoredLocation location;
+
+        PendingWrite(PlayerLocationKey key, StoredLocation location) {
+            this.key = key;
+            this.location = location;
+        }
+
+        PlayerLocationKey getKey() { return key; }
+        UUID getPlayerId() { return key.getPlayerId(); }
+        String getLocationType() { return key.getLocationType(); }
+        StoredLocation getLocation() { return location; }
+        boolean isDelete() { return location == null; }
+    }
+
+    private final Flusher flusher;
+    private final Logger logger;
+    private final int maxPending;
+    private final int batchSize;
+
+    /** Guards {@link #pending} and {@link #inFlight}. */
+    private final Object lock = new Object();
+    private final Map<PlayerLocationKey, PendingWrite> pending = new LinkedHashMap<>();
+    private final Map<PlayerLocationKey, PendingWrite> inFlight = new HashMap<>();
+
+    /** Serializes flushes from the writer thread, saveAll() and close(). */
+    private final Object flushLock = new Object();
+    private final AtomicBoolean flushScheduled = new AtomicBoolean(false);
+    private final ScheduledExecutorService executor;
+
+    /**
+     * Creates a new queue and starts its writer thread.
+     *
+     * @param flusher Callback that persists a batch of writes
+     * @param logger Logger for error reporting
+     * @param flushIntervalMillis Interval between periodic flushes
+     * @param maxPending Maximum number of buffered rows before callers must write synchronously
+     * @param batchSize Maximum number of rows per JDBC batch
+     */
+    WriteBehindQueue(Flusher flusher, Logger logger, long flushIntervalMillis, int maxPending, int batchSize) {
+        this.flusher = flusher;
+        this.logger = logger;
+        this.maxPending = Math.max(1, maxPending);
+        this.batchSize = Math.max(1, batchSize);
+        this.executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "PitbullyPlugin-DB-Writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(1L, flushIntervalMillis);
+        executor.scheduleWithFixedDelay(this::flushQuietly, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Buffers an upsert or, if {@code location} is null, a delete.
+     *
+     * @return false if the queue is full or closed and the caller has to write synchronously
+     */
+    boolean enqueue(UUID playerId, String locationType, StoredLocation location) {
+        PlayerLocationKey key = new PlayerLocationKey(playerId, locationType);
+        PendingWrite write = new PendingWrite(key, location);
+        int size;
+        synchronized (lock) {
+            if (executor.isShutdown()) {
+                return false;
+            }
+            if (!pending.containsKey(key) && pending.size() >= maxPending) {
+                return false;
+            }
+            pending.put(key, write);
+            size = pending.size();
+        }
+        if (size >= batchSize) {
+            requestFlush();
+        }
+        return true;
+    }
+
+    /**
+     * Schedules a flush on the writer thread without waiting for it.
+     * Multiple requests before the flush starts are merged into one.
+     */
+    void requestFlush() {
+        if (!flushScheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                flushScheduled.set(false);
+                flushQuietly();
+            });
+        } catch (RejectedExecutionException e) {
+            flushScheduled.set(false);
+        }
+    }
+
+    /**
+     * Returns the newest not-yet-persisted write for a row, or null if the database is up to date.
+     */
+    PendingWrite lookup(UUID playerId, String locationType) {
+        PlayerLocationKey key = new PlayerLocationKey(playerId, locationType);
+        synchronized (lock) {
+            PendingWrite write = pending.get(key);
+            return write != null ? write : inFlight.get(key);
+        }
+    }
+
+    /**
+     * Returns a snapshot of all not-yet-persisted writes for one location type.
+     */
+    List<PendingWrite> pendingOfType(String locationType) {
+        List<PendingWrite> result = new ArrayList<>();
+        synchronized (lock) {
+            Map<PlayerLocationKey, PendingWrite> merged = new HashMap<>(inFlight);
+            merged.putAll(pending);
+            for (PendingWrite write : merged.values()) {
+                if (write.getLocationType().equals(locationType)) {
+                    result.add(write);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Returns the number of buffered rows.
+     */
+    int size() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * Persists all buffered writes on the calling thread.
+     *
+     * <p>Failed batches are put back into the buffer unless a newer write for the same
+     * row arrived in the meantime; they will be retried on the next flush.
+     *
+     * @return true if everything was written successfully
+     */
+    boolean flush() {
+        synchronized (flushLock) {
+            while (true) {
+                List<PendingWrite> batch = new ArrayList<>(batchSize);
+                synchronized (lock) {
+                    Iterator<PendingWrite> it = pending.values().iterator();
+                    while (it.hasNext() && batch.size() < batchSize) {
+                        PendingWrite write = it.next();
+                        it.remove();
+                        inFlight.put(write.getKey(), write);
+                        batch.add(write);
+                    }
+                }
+                if (batch.isEmpty()) {
+                    return true;
+                }
+                try {
+                    flusher.flush(batch);
+                    synchronized (lock) {
+                        for (PendingWrite write : batch) {
+                            inFlight.remove(write.getKey());
+                        }
+                    }
+                } catch (SQLException | RuntimeException e) {
+                    synchronized (lock) {
+                        for (PendingWrite write : batch) {
+                            inFlight.remove(write.getKey());
+                            pending.putIfAbsent(write.getKey(), write);
+                        }
+                    }
+                    logger.warning("Failed to flush " + batch.size() + " buffered location writes, will retry: " + e.getMessage());
+                    return false;
+                }
+            }
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (Throwable t) {
+            logger.log(Level.SEVERE, "Unexpected error in write-behind flush", t);
+        }
+    }
+
+    /**
+     * Stops the writer thread and performs a final synchronous flush.
+     * Writes that still fail at this point are logged as lost.
+     */
+    void close() {
+        synchronized (lock) {
+            executor.shutdown();
+        }
+        try {
+            if (!executor.awaitTermination(10, TimeUnit.SECONDS)) {
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        if (!flush()) {
+            logger.severe("Could not persist " + size() + " buffered location writes during shutdown!");
+        }
+    }
+}
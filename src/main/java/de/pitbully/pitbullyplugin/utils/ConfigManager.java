@@ -28,6 +28,15 @@ public class ConfigManager {
     private static final boolean DEFAULT_DEBUG_MODE = false;
     private static final boolean DEFAULT_SAFETY_CHECK = true;
     private static final int DEFAULT_MAX_SAFE_DISTANCE = 10;
+    private static final int DEFAULT_SEARCH_RADIUS = 3;
+    private static final int DEFAULT_PROBE_BUDGET = 1024;
+    private static final boolean DEFAULT_ASYNC_CHUNK_LOAD = true;
+    private static final int DEFAULT_PRELOAD_RADIUS = 1;
+    private static final long DEFAULT_CHUNK_LOAD_TIMEOUT = 5000;
+    private static final String DEFAULT_CHUNK_LOAD_FALLBACK = "cancel";
+    private static final long DEFAULT_LANDING_REVALIDATE_INTERVAL = 60;
+    private static final int DEFAULT_MAX_SCANS_PER_TICK = 4;
+    private static final int DEFAULT_MAX_CHUNK_LOADS_PER_TICK = 18;
     // TPA defaults
     private static final int DEFAULT_TPA_REQUEST_TIMEOUT = 30;
 
@@ -44,6 +53,18 @@ public class ConfigManager {
     private static final long DEFAULT_MAX_LIFETIME = 1800000;
     private static final boolean DEFAULT_SSL_ENABLED = false;
     private static final boolean DEFAULT_SSL_VERIFY_CERTIFICATE = true;
+    private static final boolean DEFAULT_WRITE_BEHIND_ENABLED = true;
+    private static final long DEFAULT_WRITE_BEHIND_FLUSH_INTERVAL = 500;
+    private static final int DEFAULT_WRITE_BEHIND_MAX_PENDING = 10000;
+    private static final int DEFAULT_WRITE_BEHIND_BATCH_SIZE = 500;
+    private static final boolean DEFAULT_CACHE_ENABLED = true;
+    private static final int DEFAULT_CACHE_MAX_ENTRIES = 10000;
+    private static final long DEFAULT_CACHE_TTL_SECONDS = 600;
+    private static final int DEFAULT_MIGRATION_BATCH_SIZE = 1000;
+    private static final long DEFAULT_JOURNAL_SYNC_INTERVAL = 1000;
+    private static final int DEFAULT_JOURNAL_COMPACT_AFTER_RECORDS = 50000;
+    private static final String DEFAULT_METRICS_EXPORT = "none";
+    private static final long DEFAULT_METRICS_EXPORT_INTERVAL = 300;
 
     public ConfigManager(PitbullyPlugin plugin) {
         this.plugin = plugin;
@@ -102,6 +123,51 @@ public class ConfigManager {
         }
 
         // TPA default values
+        if (!config.contains("settings.teleport.search-radius")) {
+            config.set("settings.teleport.search-radius", DEFAULT_SEARCH_RADIUS);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("settings.teleport.probe-budget")) {
+            config.set("settings.teleport.probe-budget", DEFAULT_PROBE_BUDGET);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("settings.teleport.async-chunk-load")) {
+            config.set("settings.teleport.async-chunk-load", DEFAULT_ASYNC_CHUNK_LOAD);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("settings.teleport.preload-radius")) {
+            config.set("settings.teleport.preload-radius", DEFAULT_PRELOAD_RADIUS);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("settings.teleport.chunk-load-timeout-ms")) {
+            config.set("settings.teleport.chunk-load-timeout-ms", DEFAULT_CHUNK_LOAD_TIMEOUT);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("settings.teleport.chunk-load-fallback")) {
+            config.set("settings.teleport.chunk-load-fallback", DEFAULT_CHUNK_LOAD_FALLBACK);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("settings.teleport.landing-revalidate-seconds")) {
+            config.set("settings.teleport.landing-revalidate-seconds", DEFAULT_LANDING_REVALIDATE_INTERVAL);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("settings.teleport.queue.max-scans-per-tick")) {
+            config.set("settings.teleport.queue.max-scans-per-tick", DEFAULT_MAX_SCANS_PER_TICK);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("settings.teleport.queue.max-chunk-loads-per-tick")) {
+            config.set("settings.teleport.queue.max-chunk-loads-per-tick", DEFAULT_MAX_CHUNK_LOADS_PER_TICK);
+            defaultsAdded = true;
+        }
+
         if (!config.contains("settings.tpa.request-timeout-seconds")) {
             config.set("settings.tpa.request-timeout-seconds", DEFAULT_TPA_REQUEST_TIMEOUT);
             defaultsAdded = true;
@@ -167,6 +233,66 @@ public class ConfigManager {
             config.set("database.connection.ssl.verify-server-certificate", DEFAULT_SSL_VERIFY_CERTIFICATE);
             defaultsAdded = true;
         }
+
+        if (!config.contains("database.write-behind.enabled")) {
+            config.set("database.write-behind.enabled", DEFAULT_WRITE_BEHIND_ENABLED);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("database.write-behind.flush-interval-ms")) {
+            config.set("database.write-behind.flush-interval-ms", DEFAULT_WRITE_BEHIND_FLUSH_INTERVAL);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("database.write-behind.max-pending")) {
+            config.set("database.write-behind.max-pending", DEFAULT_WRITE_BEHIND_MAX_PENDING);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("database.write-behind.batch-size")) {
+            config.set("database.write-behind.batch-size", DEFAULT_WRITE_BEHIND_BATCH_SIZE);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("database.cache.enabled")) {
+            config.set("database.cache.enabled", DEFAULT_CACHE_ENABLED);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("database.cache.max-entries")) {
+            config.set("database.cache.max-entries", DEFAULT_CACHE_MAX_ENTRIES);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("database.cache.ttl-seconds")) {
+            config.set("database.cache.ttl-seconds", DEFAULT_CACHE_TTL_SECONDS);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("database.migration.batch-size")) {
+            config.set("database.migration.batch-size", DEFAULT_MIGRATION_BATCH_SIZE);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("database.journal.sync-interval-ms")) {
+            config.set("database.journal.sync-interval-ms", DEFAULT_JOURNAL_SYNC_INTERVAL);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("database.journal.compact-after-records")) {
+            config.set("database.journal.compact-after-records", DEFAULT_JOURNAL_COMPACT_AFTER_RECORDS);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("database.metrics.export")) {
+            config.set("database.metrics.export", DEFAULT_METRICS_EXPORT);
+            defaultsAdded = true;
+        }
+
+        if (!config.contains("database.metrics.export-interval-seconds")) {
+            config.set("database.metrics.export-interval-seconds", DEFAULT_METRICS_EXPORT_INTERVAL);
+            defaultsAdded = true;
+        }
     }
 
     /**
@@ -205,6 +331,79 @@ public class ConfigManager {
         return config.getInt("settings.teleport.max-safe-distance", DEFAULT_MAX_SAFE_DISTANCE);
     }
 
+    /**
+     * Get how many columns around the target are searched when the target column has no safe spot.
+     * @return radius in blocks, 0 for the target column only (default 3)
+     */
+    public int getSearchRadius() {
+        return Math.max(0, config.getInt("settings.teleport.search-radius", DEFAULT_SEARCH_RADIUS));
+    }
+
+    /**
+     * Get the maximum number of blocks one safe location search reads.
+     * @return probe budget per teleport (default 1024)
+     */
+    public int getProbeBudget() {
+        return config.getInt("settings.teleport.probe-budget", DEFAULT_PROBE_BUDGET);
+    }
+
+    /**
+     * Whether unloaded destination chunks are loaded asynchronously before teleporting.
+     * @return true to load chunks off the main thread (default true)
+     */
+    public boolean isAsyncChunkLoadEnabled() {
+        return config.getBoolean("settings.teleport.async-chunk-load", DEFAULT_ASYNC_CHUNK_LOAD);
+    }
+
+    /**
+     * Get the radius of chunks around the destination chunk that are loaded with it.
+     * @return radius in chunks, 0 for the destination chunk only (default 1)
+     */
+    public int getPreloadRadius() {
+        return Math.max(0, config.getInt("settings.teleport.preload-radius", DEFAULT_PRELOAD_RADIUS));
+    }
+
+    /**
+     * Get how long a teleport waits for its destination chunks.
+     * @return timeout in milliseconds (default 5000)
+     */
+    public long getChunkLoadTimeout() {
+        return config.getLong("settings.teleport.chunk-load-timeout-ms", DEFAULT_CHUNK_LOAD_TIMEOUT);
+    }
+
+    /**
+     * Whether a teleport whose chunks did not load in time loads them on the main thread
+     * ("sync") instead of failing ("cancel").
+     * @return true for the "sync" fallback (default "cancel")
+     */
+    public boolean isChunkLoadFallbackSync() {
+        return "sync".equalsIgnoreCase(config.getString("settings.teleport.chunk-load-fallback", DEFAULT_CHUNK_LOAD_FALLBACK));
+    }
+
+    /**
+     * Get how often the landing points of warps and spawn in loaded chunks are searched again.
+     * @return interval in seconds, 0 to only search after block changes (default 60)
+     */
+    public long getLandingRevalidateInterval() {
+        return config.getLong("settings.teleport.landing-revalidate-seconds", DEFAULT_LANDING_REVALIDATE_INTERVAL);
+    }
+
+    /**
+     * Get how many queued teleports run their safety check per tick.
+     * @return teleports per tick, at least 1 (default 4)
+     */
+    public int getMaxScansPerTick() {
+        return Math.max(1, config.getInt("settings.teleport.queue.max-scans-per-tick", DEFAULT_MAX_SCANS_PER_TICK));
+    }
+
+    /**
+     * Get how many destination chunks queued teleports request per tick.
+     * @return chunks per tick, at least 1 (default 18)
+     */
+    public int getMaxChunkLoadsPerTick() {
+        return Math.max(1, config.getInt("settings.teleport.queue.max-chunk-loads-per-tick", DEFAULT_MAX_CHUNK_LOADS_PER_TICK));
+    }
+
     /**
      * Get the TPA request timeout in seconds.
      * @return timeout in seconds (default 30)
@@ -227,6 +426,10 @@ public class ConfigManager {
         return "database".equalsIgnoreCase(getStorageType());
     }
 
+    public boolean isJournalStorageEnabled() {
+        return "journal".equalsIgnoreCase(getStorageType());
+    }
+
     public DatabaseConfig getDatabaseConfig() {
         if (!isDatabaseStorageEnabled()) {
             return null;
@@ -258,4 +461,90 @@ public class ConfigManager {
             return null;
         }
     }
+
+    /**
+     * Whether player location writes to the database are buffered and flushed asynchronously.
+     */
+    public boolean isWriteBehindEnabled() {
+        return config.getBoolean("database.write-behind.enabled", DEFAULT_WRITE_BEHIND_ENABLED);
+    }
+
+    /**
+     * Interval between background flushes of buffered writes, in milliseconds.
+     */
+    public long getWriteBehindFlushInterval() {
+        return config.getLong("database.write-behind.flush-interval-ms", DEFAULT_WRITE_BEHIND_FLUSH_INTERVAL);
+    }
+
+    /**
+     * Maximum number of buffered writes before writes fall back to synchronous mode.
+     */
+    public int getWriteBehindMaxPending() {
+        return config.getInt("database.write-behind.max-pending", DEFAULT_WRITE_BEHIND_MAX_PENDING);
+    }
+
+    /**
+     * Maximum number of rows written per JDBC batch.
+     */
+    public int getWriteBehindBatchSize() {
+        return config.getInt("database.write-behind.batch-size", DEFAULT_WRITE_BEHIND_BATCH_SIZE);
+    }
+
+    /**
+     * Whether database reads of player locations and warps are cached in memory.
+     */
+    public boolean isCacheEnabled() {
+        return config.getBoolean("database.cache.enabled", DEFAULT_CACHE_ENABLED);
+    }
+
+    /**
+     * Maximum number of cached rows per cache.
+     */
+    public int getCacheMaxEntries() {
+        return config.getInt("database.cache.max-entries", DEFAULT_CACHE_MAX_ENTRIES);
+    }
+
+    /**
+     * Time after which a cached row is reloaded from the database, in seconds.
+     */
+    public long getCacheTtlSeconds() {
+        return config.getLong("database.cache.ttl-seconds", DEFAULT_CACHE_TTL_SECONDS);
+    }
+
+    /**
+     * Number of rows per batch and transaction when migrating locations.yml into the database.
+     */
+    public int getMigrationBatchSize() {
+        return config.getInt("database.migration.batch-size", DEFAULT_MIGRATION_BATCH_SIZE);
+    }
+
+    /**
+     * Maximum time between journal fsyncs, in milliseconds.
+     * This bounds how many changes can be lost on a crash.
+     */
+    public long getJournalSyncInterval() {
+        return config.getLong("database.journal.sync-interval-ms", DEFAULT_JOURNAL_SYNC_INTERVAL);
+    }
+
+    /**
+     * Number of journal records after which the journal is compacted into a snapshot.
+     */
+    public int getJournalCompactAfterRecords() {
+        return config.getInt("database.journal.compact-after-records", DEFAULT_JOURNAL_COMPACT_AFTER_RECORDS);
+    }
+
+    /**
+     * Where storage metrics are exported periodically: 'none', 'log' (one console line)
+     * or 'file' (appended to metrics.log in the plugin folder).
+     */
+    public String getMetricsExport() {
+        return config.getString("database.metrics.export", DEFAULT_METRICS_EXPORT);
+    }
+
+    /**
+     * Interval between two metrics exports, in seconds.
+     */
+    public long getMetricsExportInterval() {
+        return config.getLong("database.metrics.export-interval-seconds", DEFAULT_METRICS_EXPORT_INTERVAL);
+    }
 }
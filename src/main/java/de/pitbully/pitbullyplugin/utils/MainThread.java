@@ -0,0 +1,56 @@
+package de.pitbully.pitbullyplugin.utils;
+
+import de.pitbully.pitbullyplugin.PitbullyPlugin;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
+
+/**
+ * Helper for continuing on the server main thread once an async storage lookup is done.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+public final class MainThread {
+
+    private MainThread() {
+    }
+
+    /**
+     * Runs {@code action} on the main thread with the result of {@code future}.
+     *
+     * <p>Must be called from the main thread. If the future is already complete
+     * (e.g. the value was cached), the action runs immediately without waiting for
+     * the next tick. Otherwise it is scheduled once the future completes, and skipped
+     * if the player went offline in the meantime.
+     *
+     * @param player The player the action is performed for
+     * @param future The pending lookup
+     * @param action Receives the value, or the failure cause if the lookup failed
+     */
+    public static <T> void whenComplete(Player player, CompletableFuture<T> future, BiConsumer<T, Throwable> action) {
+        if (future.isDone()) {
+            accept(future, action);
+            return;
+        }
+        future.whenComplete((value, error) -> Bukkit.getScheduler().runTask(PitbullyPlugin.getInstance(), () -> {
+            if (player.isOnline()) {
+                accept(future, action);
+            }
+        }));
+    }
+
+    private static <T> void accept(CompletableFuture<T> future, BiConsumer<T, Throwable> action) {
+        T value;
+        try {
+            value = future.join();
+        } catch (CompletionException | CancellationException e) {
+            action.accept(null, e.getCause() != null ? e.getCause() : e);
+            return;
+        }
+        action.accept(value, null);
+    }
+}
@@ -1,7 +1,11 @@
 package de.pitbully.pitbullyplugin.utils;
 
+import de.pitbully.pitbullyplugin.storage.StoredLocation;
 import org.bukkit.Location;
 import org.bukkit.configuration.ConfigurationSection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
 
 /**
  * Simple container for per-player persisted data (locations, etc.).
@@ -11,54 +15,115 @@ import org.bukkit.configuration.ConfigurationSection;
  * - lastTeleport
  * - lastLocation
  * - home
+ * - keepXp
+ * - further settings by name, see {@link de.pitbully.pitbullyplugin.storage.PlayerSetting}
  *
- * <p>Can be extended later (e.g., settings) and optionally stored in
- * per-player config files without changing the rest of the plugin.
+ * <p>Locations are kept as {@link StoredLocation}s, so locations in worlds that are not
+ * loaded survive a load/save round trip; the getters return null for them.
+ *
+ * <p>Settings are kept in their stored (encoded) form; keepXp has its own field because
+ * every storage format already has a slot for it.
  */
 public class PlayerData {
 
-    private Location lastDeath;
-    private Location lastTeleport;
-    private Location lastLocation;
-    private Location home;
+    private static final String KEEP_XP = "keepXp";
+
+    // Kept as compact records; Locations are only created by the getters
+    private StoredLocation lastDeath;
+    private StoredLocation lastTeleport;
+    private StoredLocation lastLocation;
+    private StoredLocation home;
     private boolean keepXp = true; // Default to true for new players
+    // Other settings by name, null until the first one is set
+    private Map<String, String> settings;
 
+    /** @return The last death location, or null if none is set or its world is not loaded */
     public Location getLastDeath() {
-        return lastDeath;
+        return lastDeath != null ? lastDeath.toLocation() : null;
     }
 
     public void setLastDeath(Location lastDeath) {
-        this.lastDeath = lastDeath;
+        this.lastDeath = StoredLocation.of(lastDeath);
     }
 
+    /** @return The last teleport location, or null if none is set or its world is not loaded */
     public Location getLastTeleport() {
-        return lastTeleport;
+        return lastTeleport != null ? lastTeleport.toLocation() : null;
     }
 
     public void setLastTeleport(Location lastTeleport) {
-        this.lastTeleport = lastTeleport;
+        this.lastTeleport = StoredLocation.of(lastTeleport);
     }
 
+    /** @return The last location, or null if none is set or its world is not loaded */
     public Location getLastLocation() {
-        return lastLocation;
+        return lastLocation != null ? lastLocation.toLocation() : null;
     }
 
     public void setLastLocation(Location lastLocation) {
-        this.lastLocation = lastLocation;
+        this.lastLocation = StoredLocation.of(lastLocation);
     }
 
+    /** @return The home location, or null if none is set or its world is not loaded */
     public Location getHome() {
-        return home;
+        return home != null ? home.toLocation() : null;
     }
 
     public void setHome(Location home) {
+        this.home = StoredLocation.of(home);
+    }
+
+    public StoredLocation getStoredLastDeath() {
+        return lastDeath;
+    }
+
+    public void setStoredLastDeath(StoredLocation lastDeath) {
+        this.lastDeath = lastDeath;
+    }
+
+    public StoredLocation getStoredLastTeleport() {
+        return lastTeleport;
+    }
+
+    public void setStoredLastTeleport(StoredLocation lastTeleport) {
+        this.lastTeleport = lastTeleport;
+    }
+
+    public StoredLocation getStoredLastLocation() {
+        return lastLocation;
+    }
+
+    public void setStoredLastLocation(StoredLocation lastLocation) {
+        this.lastLocation = lastLocation;
+    }
+
+    public StoredLocation getStoredHome() {
+        return home;
+    }
+
+    public void setStoredHome(StoredLocation home) {
         this.home = home;
     }
 
+    /**
+     * Creates an independent copy. The stored locations are immutable and shared.
+     */
+    public PlayerData copy() {
+        PlayerData copy = new PlayerData();
+        copy.lastDeath = lastDeath;
+        copy.lastTeleport = lastTeleport;
+        copy.lastLocation = lastLocation;
+        copy.home = home;
+        copy.keepXp = keepXp;
+        copy.settings = settings != null ? new LinkedHashMap<>(settings) : null;
+        return copy;
+    }
+
     public boolean isEmpty() {
         // PlayerData is considered empty only if all data is at default values
         // This means all locations are null AND keepXp is true (the default)
-        return lastDeath == null && lastTeleport == null && lastLocation == null && home == null && keepXp == true;
+        return lastDeath == null && lastTeleport == null && lastLocation == null && home == null && keepXp == true
+            && (settings == null || settings.isEmpty());
     }
     public boolean isKeepXp() {
         return keepXp;
@@ -72,17 +137,53 @@ public class PlayerData {
         this.keepXp = !keepXp;
     }
 
+    /**
+     * Gets a stored setting by name; keepXp is included.
+     * @return The encoded value, or null if the setting was never set
+     */
+    public String getSetting(String name) {
+        if (KEEP_XP.equals(name)) {
+            return String.valueOf(keepXp);
+        }
+        return settings != null ? settings.get(name) : null;
+    }
+
+    /**
+     * Sets a stored setting by name; keepXp is included.
+     * @param value The encoded value, null removes the setting
+     */
+    public void setSetting(String name, String value) {
+        if (KEEP_XP.equals(name)) {
+            keepXp = value == null || Boolean.parseBoolean(value);
+        } else if (value != null) {
+            if (settings == null) {
+                settings = new LinkedHashMap<>();
+            }
+            settings.put(name, value);
+        } else if (settings != null) {
+            settings.remove(name);
+        }
+    }
+
+    /**
+     * @return All settings except keepXp, by name
+     */
+    public Map<String, String> getSettings() {
+        return settings != null ? Collections.unmodifiableMap(settings) : Collections.emptyMap();
+    }
+
     /**
      * Writes this PlayerData into the provided configuration section.
-     * Keys: lastDeath, lastTeleport, lastLocation, home, keepXp
+     * Keys: lastDeath, lastTeleport, lastLocation, home, keepXp, settings
      */
     public void toConfig(ConfigurationSection section) {
         if (section == null) return;
-        section.set("lastDeath", lastDeath);
-        section.set("lastTeleport", lastTeleport);
-        section.set("lastLocation", lastLocation);
-        section.set("home", home);
+        section.set("lastDeath", toConfigValue(lastDeath));
+        section.set("lastTeleport", toConfigValue(lastTeleport));
+        section.set("lastLocation", toConfigValue(lastLocation));
+        section.set("home", toConfigValue(home));
         section.set("keepXp", keepXp);
+        section.set("settings", settings != null && !settings.isEmpty() ? new LinkedHashMap<>(settings) : null);
     }
 
     /**
@@ -91,17 +192,23 @@ public class PlayerData {
     public static PlayerData fromConfig(ConfigurationSection section) {
         if (section == null) return new PlayerData();
         PlayerData data = new PlayerData();
-        Object death = section.get("lastDeath");
-        Object teleport = section.get("lastTeleport");
-        Object last = section.get("lastLocation");
-        Object home = section.get("home");
+        data.lastDeath = StoredLocation.fromConfig(section.get("lastDeath"));
+        data.lastTeleport = StoredLocation.fromConfig(section.get("lastTeleport"));
+        data.lastLocation = StoredLocation.fromConfig(section.get("lastLocation"));
+        data.home = StoredLocation.fromConfig(section.get("home"));
         Object keepXp = section.get("keepXp");
-        if (death instanceof Location) data.setLastDeath((Location) death);
-        if (teleport instanceof Location) data.setLastTeleport((Location) teleport);
-        if (last instanceof Location) data.setLastLocation((Location) last);
-        if (home instanceof Location) data.setHome((Location) home);
         if (keepXp instanceof Boolean) data.setKeepXp((Boolean) keepXp);
         else data.setKeepXp(true); // Default to true for new players
+        ConfigurationSection settings = section.getConfigurationSection("settings");
+        if (settings != null) {
+            for (String name : settings.getKeys(false)) {
+                data.setSetting(name, settings.getString(name));
+            }
+        }
         return data;
     }
+
+    private static Object toConfigValue(StoredLocation location) {
+        return location != null ? location.toConfigValue() : null;
+    }
 }
@@ -0,0 +1,305 @@
+package de.pitbully.pitbullyplugin.utils;
+
+import java.util.function.Predicate;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Material;
+
+/**
+ * Searches one block column of a {@link ChunkSnapshot} for a safe standing spot:
+ * feet and head passable and not burning, the ground below not passable and solid.
+ * The start height is tried first, then upward, then downward, within the height of the world.
+ *
+ * <p>Block types are read from the snapshot and classified through a table indexed by
+ * {@link Material#ordinal()}, so probing neither clones locations nor creates blocks.
+ * Whether a block is passable depends on its collision shape, which the type alone only
+ * determines for some blocks: air and liquids never collide, full occluding cubes always do.
+ * Other blocks (doors, slabs, plants, ...) are asked through a {@link BlockLookup} against the
+ * live world, which keeps the result identical to {@code Block.isPassable()}.
+ *
+ * <p>Ground blocks always block motion, so no safe spot lies more than one block above the
+ * column's heightmap: heights above it are not probed, and a column whose surface is below
+ * the search range costs no probes at all.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+final class SafeColumnScanner {
+
+    /** Result of {@link #findSafeY} when no safe spot exists. */
+    static final int NOT_FOUND = Integer.MIN_VALUE;
+
+    /**
+     * Reads block types of the column, e.g. {@link ChunkSnapshot#getBlockType(int, int, int)}.
+     */
+    @FunctionalInterface
+    interface BlockTypes {
+        /**
+         * @param x Block x within the chunk (0-15)
+         * @param y Block y, within the world's height
+         * @param z Block z within the chunk (0-15)
+         */
+        Material getBlockType(int x, int y, int z);
+
+        /**
+         * Gets the height of the highest block that may be ground, e.g.
+         * {@link ChunkSnapshot#getHighestBlockYAt(int, int)}.
+         *
+         * @param x Block x within the chunk (0-15)
+         * @param z Block z within the chunk (0-15)
+         * @return The block height, or {@link Integer#MAX_VALUE} if unknown
+         */
+        default int getHighestBlockYAt(int x, int z) {
+            return Integer.MAX_VALUE;
+        }
+    }
+
+    /**
+     * Looks up whether a block of the live world is passable, for types whose
+     * collision shape depends on the block state.
+     */
+    @FunctionalInterface
+    interface BlockLookup {
+        boolean isPassable(int x, int y, int z);
+    }
+
+    /**
+     * Counts the blocks read by the searches of one teleport and limits them to a budget.
+     * A search stops once the budget is spent, it may overshoot by the two blocks of a probe.
+     */
+    static final class Probes {
+        private final int budget;
+        private int reads;
+        private int liveLookups;
+
+        /**
+         * @param budget Maximum number of blocks to read
+         */
+        Probes(int budget) {
+            this.budget = budget;
+        }
+
+        boolean isExhausted() {
+            return reads >= budget;
+        }
+
+        /** @return Blocks read from snapshots, including live lookups */
+        int getReads() {
+            return reads;
+        }
+
+        /** @return Blocks whose passability was looked up in the live world */
+        int getLiveLookups() {
+            return liveLookups;
+        }
+    }
+
+    // Type flags, cached per material ordinal
+    private static final byte CLASSIFIED = 1;
+    private static final byte PASSABLE = 1 << 1;
+    private static final byte BLOCKING = 1 << 2;
+    private static final byte SOLID = 1 << 3;
+    private static final byte BURNING = 1 << 4;
+
+    // Column cache flags, per probed height of one search
+    private static final byte READ = 1;
+    private static final byte COLUMN_PASSABLE = 1 << 1;
+    private static final byte COLUMN_GROUND = 1 << 2;
+    private static final byte COLUMN_BURNING = 1 << 3;
+
+    private static final SafeColumnScanner DEFAULT =
+        new SafeColumnScanner(Material::isAir, Material::isOccluding, Material::isSolid);
+
+    private final Predicate<Material> air;
+    private final Predicate<Material> occluding;
+    private final Predicate<Material> solid;
+    /** Type flags by material ordinal, filled on first sight of a type. */
+    private final byte[] types = new byte[Material.values().length];
+
+    SafeColumnScanner(Predicate<Material> air, Predicate<Material> occluding, Predicate<Material> solid) {
+        this.air = air;
+        this.occluding = occluding;
+        this.solid = solid;
+    }
+
+    /**
+     * @return The scanner using the server's material properties
+     */
+    static SafeColumnScanner get() {
+        return DEFAULT;
+    }
+
+    /**
+     * Finds the height of the nearest safe spot in a column.
+     *
+     * @param snapshot Snapshot of the chunk containing the column, with its heightmap
+     * @param worldMinY Lowest block height of the world
+     * @param worldMaxY Height above the highest usable block of the world (exclusive),
+     *                  blocks from here on count as void
+     * @param x Block x in world coordinates
+     * @param z Block z in world coordinates
+     * @param startY The block height to start at
+     * @param maxDistance Maximum distance to search upward and downward
+     * @param live Lookup for blocks whose passability depends on their state
+     * @param probes Counts the blocks read and stops at its budget, null for no limit
+     * @return The feet height of the safe spot, or {@link #NOT_FOUND}
+     */
+    int findSafeY(ChunkSnapshot snapshot, int worldMinY, int worldMaxY, int x, int z,
+                  int startY, int maxDistance, BlockLookup live, Probes probes) {
+        return findSafeY(new BlockTypes() {
+            @Override
+            public Material getBlockType(int bx, int by, int bz) {
+                return snapshot.getBlockType(bx, by, bz);
+            }
+
+            @Override
+            public int getHighestBlockYAt(int bx, int bz) {
+                return snapshot.getHighestBlockYAt(bx, bz);
+            }
+        }, worldMinY, worldMaxY, x, z, startY, maxDistance, live, probes);
+    }
+
+    /**
+     * Same as {@link #findSafeY(ChunkSnapshot, int, int, int, int, int, int, BlockLookup, Probes)}
+     * for any source of block types.
+     */
+    int findSafeY(BlockTypes snapshot, int worldMinY, int worldMaxY, int x, int z,
+                  int startY, int maxDistance, BlockLookup live, Probes probes) {
+        // The ground of the lowest spot is the world's lowest block
+        int top = Math.min(startY + maxDistance, worldMaxY - 1);
+        int bottom = Math.max(startY - maxDistance, worldMinY + 1);
+        int surface = snapshot.getHighestBlockYAt(x & 15, z & 15);
+        if (surface < top) {
+            // Above the surface there is no ground
+            top = surface + 1;
+        }
+        if (top < bottom) {
+            return NOT_FOUND;
+        }
+        // Every probed height with the blocks below and above it
+        int low = Math.min(bottom, startY) - 1;
+        byte[] column = new byte[Math.max(top, startY) + 2 - low];
+        Column scan = new Column(snapshot, worldMinY, worldMaxY, x, z, low, column, live, probes);
+
+        if (startY <= top && scan.isSafe(startY)) {
+            return startY;
+        }
+        for (int y = startY + 1; y <= top; y++) {
+            if (scan.isExhausted()) {
+                return NOT_FOUND;
+            }
+            if (scan.isSafe(y)) {
+                return y;
+            }
+        }
+        for (int y = Math.min(startY - 1, top); y >= bottom; y--) {
+            if (scan.isExhausted()) {
+                return NOT_FOUND;
+            }
+            if (scan.isSafe(y)) {
+                return y;
+            }
+        }
+        return NOT_FOUND;
+    }
+
+    /**
+     * Gets the cached flags of a block type, classifying it on first use.
+     */
+    private byte typeFlags(Material type) {
+        int ordinal = type.ordinal();
+        byte flags = types[ordinal];
+        if (flags == 0) {
+            flags = CLASSIFIED;
+            if (air.test(type) || type == Material.WATER || type == Material.LAVA) {
+                flags |= PASSABLE;
+            } else if (occluding.test(type)) {
+                flags |= BLOCKING;
+            }
+            if (solid.test(type)) {
+                flags |= SOLID;
+            }
+            if (type == Material.LAVA || type == Material.FIRE || type == Material.SOUL_FIRE) {
+                flags |= BURNING;
+            }
+            types[ordinal] = flags;
+        }
+        return flags;
+    }
+
+    /**
+     * The probed column of one search. Each height is read from the snapshot at most once.
+     */
+    private final class Column {
+        private final BlockTypes snapshot;
+        private final int worldMinY;
+        private final int worldMaxY;
+        private final int x;
+        private final int z;
+        private final int low;
+        private final byte[] heights;
+        private final BlockLookup live;
+        private final Probes probes;
+
+        Column(BlockTypes snapshot, int worldMinY, int worldMaxY, int x, int z, int low,
+               byte[] heights, BlockLookup live, Probes probes) {
+            this.snapshot = snapshot;
+            this.worldMinY = worldMinY;
+            this.worldMaxY = worldMaxY;
+            this.x = x;
+            this.z = z;
+            this.low = low;
+            this.heights = heights;
+            this.live = live;
+            this.probes = probes;
+        }
+
+        boolean isExhausted() {
+            return probes != null && probes.isExhausted();
+        }
+
+        boolean isSafe(int y) {
+            return (read(y - 1) & COLUMN_GROUND) != 0
+                && (read(y) & (COLUMN_PASSABLE | COLUMN_BURNING)) == COLUMN_PASSABLE
+                && (read(y + 1) & (COLUMN_PASSABLE | COLUMN_BURNING)) == COLUMN_PASSABLE;
+        }
+
+        private byte read(int y) {
+            int index = y - low;
+            byte flags = heights[index];
+            if (flags != 0) {
+                return flags;
+            }
+            flags = READ;
+            if (y < worldMinY || y >= worldMaxY) {
+                // Outside the world every block is void air
+                flags |= COLUMN_PASSABLE;
+            } else {
+                byte type = typeFlags(snapshot.getBlockType(x & 15, y, z & 15));
+                boolean passable;
+                if ((type & PASSABLE) != 0) {
+                    passable = true;
+                } else if ((type & BLOCKING) != 0) {
+                    passable = false;
+                } else {
+                    passable = live.isPassable(x, y, z);
+                    if (probes != null) {
+                        probes.liveLookups++;
+                    }
+                }
+                if (passable) {
+                    flags |= COLUMN_PASSABLE;
+                } else if ((type & SOLID) != 0) {
+                    flags |= COLUMN_GROUND;
+                }
+                if ((type & BURNING) != 0) {
+                    flags |= COLUMN_BURNING;
+                }
+                if (probes != null) {
+                    probes.reads++;
+                }
+            }
+            heights[index] = flags;
+            return flags;
+        }
+    }
+}
@@ -0,0 +1,215 @@
+package de.pitbully.pitbullyplugin.utils;
+
+import de.pitbully.pitbullyplugin.PitbullyPlugin;
+import java.util.HashMap;
+import java.util.Map;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+/**
+ * Safe landing points of the warps and the world spawn, found once with the safety
+ * search of {@link SafeTeleport} instead of on every teleport.
+ *
+ * <p>A landing point is computed when the warp or spawn is set, or on first use after a
+ * restart. Block changes in the chunk of the warp or of its landing spot, which the search may
+ * find in a neighbouring chunk, mark it stale (see {@code LandingPointListener}), and
+ * stale points are searched again on their next use or by the periodic
+ * {@link #revalidateLoaded()}. Points are only searched while their chunk is loaded, so
+ * looking one up never loads a chunk; callers fall back to the regular safe teleport.
+ *
+ * <p>All methods must be called from the main thread.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+public final class SafeLandingPoints {
+
+    private static final String SPAWN = "spawn";
+    private static final String WARP_PREFIX = "warp:";
+
+    /** Landing points by key, "spawn" or "warp:" + warp name. */
+    private static final Map<String, LandingPoint> points = new HashMap<>();
+
+    private SafeLandingPoints() {
+    }
+
+    private static final class LandingPoint {
+        final Location origin;
+        final int chunkX;
+        final int chunkZ;
+        /** The safe spot, null until searched or when none was found. */
+        Location landing;
+        /** Chunk of the safe spot, which the search may find beside the origin's chunk. */
+        int landingChunkX;
+        int landingChunkZ;
+        boolean stale = true;
+
+        LandingPoint(Location origin) {
+            this.origin = origin.clone();
+            this.chunkX = origin.getBlockX() >> 4;
+            this.chunkZ = origin.getBlockZ() >> 4;
+            this.landingChunkX = chunkX;
+            this.landingChunkZ = chunkZ;
+        }
+
+        void setLanding(Location landing) {
+            this.landing = landing;
+            landingChunkX = landing != null ? landing.getBlockX() >> 4 : chunkX;
+            landingChunkZ = landing != null ? landing.getBlockZ() >> 4 : chunkZ;
+        }
+
+        /**
+         * @return true if a block change in the chunk may affect the origin or the safe spot
+         */
+        boolean isIn(World world, int x, int z) {
+            return ((chunkX == x && chunkZ == z) || (landingChunkX == x && landingChunkZ == z))
+                && world.equals(origin.getWorld());
+        }
+    }
+
+    /**
+     * Stores the warp and searches its landing point right away.
+     *
+     * @param name The warp name
+     * @param location The warp location as set
+     */
+    public static void updateWarp(String name, Location location) {
+        update(WARP_PREFIX + name, location);
+    }
+
+    /**
+     * Forgets the landing point of a deleted warp.
+     *
+     * @param name The warp name
+     */
+    public static void removeWarp(String name) {
+        points.remove(WARP_PREFIX + name);
+    }
+
+    /**
+     * Gets the landing point of a warp.
+     *
+     * @param name The warp name
+     * @param location The stored warp location
+     * @return The safe spot to teleport to without searching, or null to use the regular safe teleport
+     */
+    public static Location getWarp(String name, Location location) {
+        return get(WARP_PREFIX + name, location);
+    }
+
+    /**
+     * Stores the world spawn and searches its landing point right away.
+     *
+     * @param location The spawn location as set
+     */
+    public static void updateSpawn(Location location) {
+        update(SPAWN, location);
+    }
+
+    /**
+     * Gets the landing point of the world spawn.
+     *
+     * @param location The stored spawn location
+     * @return The safe spot to teleport to without searching, or null to use the regular safe teleport
+     */
+    public static Location getSpawn(Location location) {
+        return get(SPAWN, location);
+    }
+
+    /**
+     * Marks the landing points whose origin or landing spot is in a chunk stale after its blocks changed.
+     *
+     * @param world The world of the chunk
+     * @param chunkX The chunk x coordinate
+     * @param chunkZ The chunk z coordinate
+     */
+    public static void invalidate(World world, int chunkX, int chunkZ) {
+        for (LandingPoint point : points.values()) {
+            if (point.isIn(world, chunkX, chunkZ)) {
+                point.stale = true;
+            }
+        }
+    }
+
+    /**
+     * Forgets all landing points of an unloaded world.
+     *
+     * @param world The world being unloaded
+     */
+    public static void forgetWorld(World world) {
+        points.values().removeIf(point -> world.equals(point.origin.getWorld()));
+    }
+
+    /**
+     * Searches the landing points in loaded chunks again, catching changes that fire no
+     * block events (e.g. world edits by other plugins).
+     *
+     * @return The number of points searched
+     */
+    public static int revalidateLoaded() {
+        if (!isEnabled()) {
+            return 0;
+        }
+        int searched = 0;
+        for (LandingPoint point : points.values()) {
+            if (isChunkLoaded(point)) {
+                search(point);
+                searched++;
+            }
+        }
+        return searched;
+    }
+
+    /**
+     * Forgets all landing points, e.g. when the plugin is disabled.
+     */
+    public static void clear() {
+        points.clear();
+    }
+
+    private static void update(String key, Location location) {
+        if (location == null || location.getWorld() == null) {
+            points.remove(key);
+            return;
+        }
+        LandingPoint point = new LandingPoint(location);
+        points.put(key, point);
+        if (isEnabled() && isChunkLoaded(point)) {
+            search(point);
+        }
+    }
+
+    private static Location get(String key, Location location) {
+        if (location == null || location.getWorld() == null || !isEnabled()) {
+            return null;
+        }
+        LandingPoint point = points.get(key);
+        if (point == null || !point.origin.equals(location)) {
+            // First use after a restart, or changed through another server sharing the database
+            point = new LandingPoint(location);
+            points.put(key, point);
+        }
+        if (point.stale && isChunkLoaded(point)) {
+            search(point);
+        }
+        return point.stale || point.landing == null ? null : point.landing.clone();
+    }
+
+    private static void search(LandingPoint point) {
+        point.setLanding(SafeTeleport.findSafeLocation(point.origin, PitbullyPlugin.getInstance().getConfigManager()));
+        point.stale = false;
+    }
+
+    private static boolean isChunkLoaded(LandingPoint point) {
+        return point.origin.getWorld().isChunkLoaded(point.chunkX, point.chunkZ);
+    }
+
+    /**
+     * Landing points replace the safety search, so they are only used while it is enabled.
+     */
+    private static boolean isEnabled() {
+        PitbullyPlugin plugin = PitbullyPlugin.getInstance();
+        ConfigManager configManager = plugin != null ? plugin.getConfigManager() : null;
+        return configManager != null && configManager.isSafetyCheckEnabled();
+    }
+}
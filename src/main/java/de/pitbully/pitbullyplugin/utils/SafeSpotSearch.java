@@ -0,0 +1,139 @@
+package de.pitbully.pitbullyplugin.utils;
+
+import java.util.HashMap;
+import java.util.Map;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+/**
+ * Searches for a safe spot around a teleport target with a {@link SafeColumnScanner}:
+ * the target column first, then the surrounding columns ring by ring in a spiral, so a
+ * target in a lava lake or inside a mountain lands at the nearest safe spot beside it.
+ *
+ * <p>The search stays within the world's height, below the nether roof for worlds with a
+ * smaller logical height, and stops after a budget of block reads. Columns in chunks that
+ * are not loaded are skipped, only the target chunk itself is loaded if needed.
+ * One instance serves one search on the main thread.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+final class SafeSpotSearch {
+
+    private final SafeColumnScanner scanner;
+    private final World world;
+    private final int minY;
+    private final int maxY;
+    private final SafeColumnScanner.Probes probes;
+    private final SafeColumnScanner.BlockLookup live;
+    /** Snapshots by chunk key, null for chunks that are not loaded. */
+    private final Map<Long, ChunkSnapshot> snapshots = new HashMap<>();
+    private int columns;
+    private int skippedColumns;
+
+    /**
+     * @param scanner The column scanner
+     * @param world The world to search
+     * @param probeBudget Maximum number of blocks to read
+     */
+    SafeSpotSearch(SafeColumnScanner scanner, World world, int probeBudget) {
+        this.scanner = scanner;
+        this.world = world;
+        this.minY = world.getMinHeight();
+        // The nether's logical height ends below its bedrock roof
+        int logicalHeight = world.getLogicalHeight();
+        this.maxY = logicalHeight > 0 ? Math.min(world.getMaxHeight(), minY + logicalHeight) : world.getMaxHeight();
+        this.probes = new SafeColumnScanner.Probes(probeBudget);
+        this.live = (x, y, z) -> world.getBlockAt(x, y, z).isPassable();
+    }
+
+    /**
+     * Finds the nearest safe spot around a location.
+     *
+     * @param origin The target location
+     * @param maxDistance Maximum distance to search upward and downward in each column
+     * @param radius Number of column rings to search around the target column
+     * @return A safe location keeping the target's offsets within its block and its direction, or null
+     */
+    Location find(Location origin, int maxDistance, int radius) {
+        Location safe = search(origin, 0, 0, maxDistance);
+        for (int ring = 1; ring <= radius && safe == null && !probes.isExhausted(); ring++) {
+            // One column of each of the four sides at a time
+            for (int i = -ring; i < ring && safe == null; i++) {
+                safe = search(origin, i, -ring, maxDistance);
+                if (safe == null) {
+                    safe = search(origin, ring, i, maxDistance);
+                }
+                if (safe == null) {
+                    safe = search(origin, -i, ring, maxDistance);
+                }
+                if (safe == null) {
+                    safe = search(origin, -ring, -i, maxDistance);
+                }
+            }
+        }
+        return safe;
+    }
+
+    /**
+     * @return Probes spent, for debug output
+     */
+    String describe() {
+        return probes.getReads() + " probes (" + probes.getLiveLookups() + " live) in " + columns
+            + " columns, " + skippedColumns + " skipped, between y " + minY + " and " + (maxY - 1);
+    }
+
+    /** @return Blocks read by this search */
+    int getProbes() {
+        return probes.getReads();
+    }
+
+    /** @return Columns searched, without those in chunks that are not loaded */
+    int getColumns() {
+        return columns;
+    }
+
+    private Location search(Location origin, int dx, int dz, int maxDistance) {
+        if (probes.isExhausted()) {
+            return null;
+        }
+        int x = origin.getBlockX() + dx;
+        int z = origin.getBlockZ() + dz;
+        ChunkSnapshot snapshot = snapshot(x >> 4, z >> 4, dx == 0 && dz == 0);
+        if (snapshot == null) {
+            skippedColumns++;
+            return null;
+        }
+        columns++;
+        int startY = origin.getBlockY();
+        int y = scanner.findSafeY(snapshot, minY, maxY, x, z, startY, maxDistance, live, probes);
+        if (y == SafeColumnScanner.NOT_FOUND) {
+            return null;
+        }
+        Location safe = origin.clone();
+        if (dx != 0 || dz != 0) {
+            safe.add(dx, 0, dz);
+        }
+        if (y != startY) {
+            safe.setY(y);
+        }
+        return safe;
+    }
+
+    private ChunkSnapshot snapshot(int chunkX, int chunkZ, boolean load) {
+        long key = ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+        if (snapshots.containsKey(key)) {
+            return snapshots.get(key);
+        }
+        ChunkSnapshot snapshot = null;
+        if (load || world.isChunkLoaded(chunkX, chunkZ)) {
+            Chunk chunk = world.getChunkAt(chunkX, chunkZ);
+            // With the heightmap, columns are not probed above their surface
+            snapshot = chunk.getChunkSnapshot(true, false, false);
+        }
+        snapshots.put(key, snapshot);
+        return snapshot;
+    }
+}
@@ -1,7 +1,9 @@
 package de.pitbully.pitbullyplugin.utils;
 
 import de.pitbully.pitbullyplugin.PitbullyPlugin;
+import java.util.concurrent.CompletableFuture;
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 
 /**
@@ -10,18 +12,18 @@ import org.bukkit.entity.Player;
  * 
  * <p>This utility automatically finds safe locations near the target destination,
  * preventing players from being teleported into blocks or falling into the void.
- * It supports modern Minecraft world heights (-64 to 319).
+ * It searches within the height of each world and beside the target if needed.
  * 
  * <p>Safety checks can be configured in the config.yml file under settings.teleport.
+ * {@link #teleportAsync(Player, Location)} goes through the plugin's {@link TeleportQueue},
+ * which limits the safety checks and chunk loads per tick and loads an unloaded destination
+ * off the main thread before the safety check runs.
  * 
  * @author Pitbully01
  * @since 1.4.4
  */
 public class SafeTeleport {
     
-    /** Maximum world height for modern Minecraft versions (1.18+) */
-    private static final int MAX_WORLD_HEIGHT = 319;
-    
     /**
      * Safely teleports a player to the specified location.
      * Searches for a safe spot near the target location if necessary.
@@ -53,7 +55,7 @@ public class SafeTeleport {
         }
         
         // Find safe location with configured max distance
-        Location safeLoc = findSafeLocation(location, configManager.getMaxSafeDistance());
+        Location safeLoc = findSafeLocation(location, configManager);
         if (safeLoc != null) {
             configManager.debug("Safe teleport to: " + locationToString(safeLoc));
             return player.teleport(safeLoc);
@@ -63,51 +65,88 @@ public class SafeTeleport {
         return false;
     }
 
+    /**
+     * Safely teleports a player like {@link #teleport(Player, Location)}, without blocking
+     * the main thread on an unloaded destination.
+     *
+     * <p>The teleport is queued in the {@link TeleportQueue}. If the destination chunk is loaded
+     * and the current tick has budget left, the player is teleported right away. Otherwise
+     * the chunk and its neighbours within {@code preload-radius} are requested with
+     * {@link World#getChunkAtAsync(int, int)}, and the safety check and teleport run on the
+     * main thread once they are loaded and it is their turn. If they take longer than
+     * {@code chunk-load-timeout-ms}, the teleport fails, or with {@code chunk-load-fallback: sync}
+     * loads them on the main thread as {@link #teleport(Player, Location)} does.
+     *
+     * <p>Must be called from the main thread.
+     *
+     * @param player The player to teleport (must not be null)
+     * @param location The target location (must not be null with valid world)
+     * @return Completes on the main thread with true if teleportation was successful
+     */
+    public static CompletableFuture<Boolean> teleportAsync(Player player, Location location) {
+        return teleportAsync(player, location, true);
+    }
+
+    /**
+     * Teleports a player to a landing point that was already found safe, e.g. by
+     * {@link SafeLandingPoints}, without searching again. Unloaded chunks are loaded as
+     * in {@link #teleportAsync(Player, Location)}.
+     *
+     * <p>Must be called from the main thread.
+     *
+     * @param player The player to teleport (must not be null)
+     * @param landingPoint The safe location (must not be null with valid world)
+     * @return Completes on the main thread with true if teleportation was successful
+     */
+    public static CompletableFuture<Boolean> teleportToLandingPointAsync(Player player, Location landingPoint) {
+        return teleportAsync(player, landingPoint, false);
+    }
+
+    private static CompletableFuture<Boolean> teleportAsync(Player player, Location location, boolean search) {
+        if (player == null || location == null || location.getWorld() == null) {
+            return CompletableFuture.completedFuture(false);
+        }
+        
+        // Without the plugin's queue (e.g. during startup) teleport right away
+        PitbullyPlugin plugin = PitbullyPlugin.getInstance();
+        TeleportQueue queue = plugin != null ? plugin.getTeleportQueue() : null;
+        if (queue == null) {
+            return CompletableFuture.completedFuture(teleport(player, location, search));
+        }
+        return queue.submit(player, location, search);
+    }
+
+    /**
+     * Teleports with the safety search, or directly to a spot found safe before.
+     */
+    static boolean teleport(Player player, Location location, boolean search) {
+        return search ? teleport(player, location) : player.teleport(location);
+    }
+
     /**
      * Finds a safe location starting from the given location.
-     * First tries the original location, then searches upward and downward.
+     * First tries the original column, upward and downward, then the columns around it.
      * 
      * <p>A safe location is defined as having:
      * <ul>
-     * <li>Clear space for the player's feet and head</li>
+     * <li>Clear space for the player's feet and head, without lava or fire</li>
      * <li>Solid ground beneath the player</li>
      * <li>No risk of falling into the void</li>
      * </ul>
      * 
+     * <p>The search stays within the world's height and the configured probe budget,
+     * see {@link SafeSpotSearch}. The probes spent are reported in debug mode.
+     * 
      * @param location The starting location to search from
-     * @param maxDistance The maximum distance to search in blocks
-     * @return A safe location or null if none found within world bounds
+     * @param configManager Provides the search distance, radius and probe budget
+     * @return A safe location or null if none found
      */
-    private static Location findSafeLocation(Location location, int maxDistance) {
-        // First, try the original location
-        if (isSafeLocation(location)) {
-            return location.clone();
-        }
-        
-        // Search upward with max distance limit
-        Location tempLoc = location.clone();
-        int originalY = tempLoc.getBlockY();
-        int maxY = Math.min(originalY + maxDistance, MAX_WORLD_HEIGHT);
-        
-        for (int y = originalY; y <= maxY; y++) {
-            tempLoc.setY(y);
-            if (isSafeLocation(tempLoc)) {
-                return tempLoc.clone();
-            }
-        }
-        
-        // Search downward from original location with max distance limit
-        tempLoc = location.clone();
-        int minY = Math.max(originalY - maxDistance, -64);
-        
-        for (int y = originalY; y >= minY; y--) {
-            tempLoc.setY(y);
-            if (isSafeLocation(tempLoc)) {
-                return tempLoc.clone();
-            }
-        }
-        
-        return null;
+    static Location findSafeLocation(Location location, ConfigManager configManager) {
+        SafeSpotSearch search = new SafeSpotSearch(SafeColumnScanner.get(), location.getWorld(),
+            configManager.getProbeBudget());
+        Location safe = search.find(location, configManager.getMaxSafeDistance(), configManager.getSearchRadius());
+        configManager.debug("Safe location search near " + locationToString(location) + ": " + search.describe());
+        return safe;
     }
     
     /**
@@ -116,7 +155,7 @@ public class SafeTeleport {
      * @param location The location to convert
      * @return String representation of the location
      */
-    private static String locationToString(Location location) {
+    static String locationToString(Location location) {
         if (location == null || location.getWorld() == null) {
             return "null";
         }
@@ -126,39 +165,4 @@ public class SafeTeleport {
                            location.getY(),
                            location.getZ());
     }
-    
-    /**
-     * Checks if a location is safe for teleportation.
-     * A location is safe if the player has room to stand and won't fall into the void.
-     * 
-     * <p>Safety criteria:
-     * <ul>
-     * <li>Feet position must be passable (air, water, etc.)</li>
-     * <li>Head position must be passable</li>
-     * <li>Ground below must be solid and not passable</li>
-     * <li>World must be valid</li>
-     * </ul>
-     * 
-     * @param location The location to check for safety
-     * @return true if the location is safe for teleportation, false otherwise
-     */
-    private static boolean isSafeLocation(Location location) {
-        if (location.getWorld() == null) {
-            return false;
-        }
-        
-        Location feetLocation = location.clone();
-        Location headLocation = feetLocation.clone().add(0, 1, 0);
-        Location groundLocation = feetLocation.clone().add(0, -1, 0);
-        
-        // Check if feet and head positions are clear (air or passable)
-        boolean feetClear = feetLocation.getBlock().isPassable();
-        boolean headClear = headLocation.getBlock().isPassable();
-        
-        // Check if there's solid ground below (not air, not liquid)
-        boolean hasGround = !groundLocation.getBlock().isPassable() && 
-                           groundLocation.getBlock().getType().isSolid();
-        
-        return feetClear && headClear && hasGround;
-    }
 }
@@ -0,0 +1,428 @@
+package de.pitbully.pitbullyplugin.utils;
+
+import de.pitbully.pitbullyplugin.storage.StorageMetrics;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+
+/**
+ * Central queue for the teleports of {@link SafeTeleport#teleportAsync(Player, Location)},
+ * which spreads mass teleports (event starts, everyone running {@code /warp spawn}) over
+ * several ticks instead of stalling one.
+ *
+ * <p>Per tick, at most {@code max-scans-per-tick} teleports run their safety search and at
+ * most {@code max-chunk-loads-per-tick} destination chunks are requested. A teleport that
+ * does not fit waits for the next tick; waiting teleports are served longest wait first,
+ * including those whose chunks just finished loading. While nothing is waiting and the tick
+ * has budget left, a teleport runs right away as without the queue.
+ *
+ * <p>Chunks of an unloaded destination are requested with {@link World#getChunkAtAsync(int, int)},
+ * together with their neighbours within {@code preload-radius}. If they take longer than
+ * {@code chunk-load-timeout-ms}, the teleport fails, or with {@code chunk-load-fallback: sync}
+ * loads them on the main thread. Loaded chunks hold a plugin chunk ticket until the teleport
+ * is done, so they stay loaded while it waits for its safety search.
+ *
+ * <p>Queue depth and wait times are shown by {@code /pitbullymetrics}. Except for the chunk
+ * load callbacks, everything runs on the main thread; {@link #run()} is scheduled every tick.
+ *
+ * @author Pitbully01
+ * @since 1.6.2
+ */
+public final class TeleportQueue implements Runnable {
+
+    /** Operation names of the recorded latencies. */
+    static final String WAIT = "teleport.wait";
+    static final String CHUNK_LOAD = "teleport.chunk-load";
+    static final String SCAN = "teleport.scan";
+
+    private static final Comparator<Request> LONGEST_WAIT_FIRST =
+        Comparator.comparingLong((Request request) -> request.submittedAt).thenComparingLong(request -> request.sequence);
+
+    private final Plugin plugin;
+    private final ConfigManager configManager;
+    /** Requests whose destination chunks still have to be requested. */
+    private final PriorityQueue<Request> waitingForChunks = new PriorityQueue<>(LONGEST_WAIT_FIRST);
+    /** Requests whose chunks are loaded, waiting for a safety search. */
+    private final PriorityQueue<Request> waitingForScan = new PriorityQueue<>(LONGEST_WAIT_FIRST);
+    /** Requests whose chunks finished loading, possibly completed off the main thread. */
+    private final Queue<Request> loaded = new ConcurrentLinkedQueue<>();
+    /** Requests whose chunks are still loading, guarded by itself. */
+    private final Set<Request> inFlight = new HashSet<>();
+    /** Requests moved from {@link #loaded} since the last tick, counted as deferred if the tick cannot scan them. */
+    private final List<Request> justLoaded = new ArrayList<>();
+    private final StorageMetrics metrics = new StorageMetrics();
+    private int loading;
+    private int maxDepth;
+    private long deferred;
+    private long sequence;
+    private int scansThisTick;
+    private int chunkLoadsThisTick;
+
+    private static final class Request {
+        final Player player;
+        final Location location;
+        final boolean search;
+        final long submittedAt;
+        final long sequence;
+        final CompletableFuture<Boolean> result = new CompletableFuture<>();
+        boolean chunksRequested;
+        /** The chunks last requested, and those of them holding a ticket. */
+        List<int[]> chunks = List.of();
+        final List<int[]> tickets = new ArrayList<>();
+        boolean deferred;
+        long chunkLoadStart;
+        Throwable chunkLoadError;
+
+        Request(Player player, Location location, boolean search, long submittedAt, long sequence) {
+            this.player = player;
+            this.location = location;
+            this.search = search;
+            this.submittedAt = submittedAt;
+            this.sequence = sequence;
+        }
+    }
+
+    /**
+     * @param plugin Owner of the chunk tickets
+     * @param configManager Provides the limits per tick and the chunk loading settings
+     */
+    public TeleportQueue(Plugin plugin, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+    }
+
+    /**
+     * Queues a teleport.
+     *
+     * @param player The player to teleport
+     * @param location The target location, with a world
+     * @param search Whether to search a safe spot, false for landing points found safe before
+     * @return Completes on the main thread with true if the player was teleported
+     */
+    CompletableFuture<Boolean> submit(Player player, Location location, boolean search) {
+        Request request = new Request(player, location, search, System.nanoTime(), sequence++);
+        if (!player.isOnline()) {
+            request.result.complete(false);
+            return request.result;
+        }
+        // Teleports whose chunks just loaded waited longer than this one
+        drainLoaded();
+        List<int[]> chunks = unloadedChunks(location);
+        if (chunks.isEmpty()) {
+            if (!waitingForScan.isEmpty() || !scan(request)) {
+                waitingForScan.add(request);
+                countDeferred(request);
+            }
+        } else if (!waitingForChunks.isEmpty() || !loadChunks(request, chunks)) {
+            waitingForChunks.add(request);
+            countDeferred(request);
+        }
+        maxDepth = Math.max(maxDepth, getDepth());
+        return request.result;
+    }
+
+    /**
+     * Runs one tick: starts the budget of this tick on the teleports waiting longest.
+     */
+    @Override
+    public void run() {
+        scansThisTick = 0;
+        chunkLoadsThisTick = 0;
+        drainLoaded();
+
+        Request request;
+        // Chunks first, a destination loaded in the meantime can still be scanned this tick
+        int maxChunkLoads = configManager.getMaxChunkLoadsPerTick();
+        while (chunkLoadsThisTick < maxChunkLoads && (request = waitingForChunks.peek()) != null) {
+            if (!request.player.isOnline()) {
+                waitingForChunks.poll();
+                request.result.complete(false);
+                continue;
+            }
+            List<int[]> chunks = unloadedChunks(request.location);
+            if (chunks.isEmpty()) {
+                waitingForChunks.poll();
+                waitingForScan.add(request);
+            } else if (loadChunks(request, chunks)) {
+                waitingForChunks.poll();
+            } else {
+                break;
+            }
+        }
+
+        int maxScans = configManager.getMaxScansPerTick();
+        while (scansThisTick < maxScans && (request = waitingForScan.poll()) != null) {
+            scan(request);
+        }
+        for (Request waitsForScan : justLoaded) {
+            if (!waitsForScan.result.isDone()) {
+                countDeferred(waitsForScan);
+            }
+        }
+        justLoaded.clear();
+    }
+
+    /**
+     * Moves the requests whose chunk loads completed to the teleports waiting for a scan.
+     */
+    private void drainLoaded() {
+        Request request;
+        while ((request = loaded.poll()) != null) {
+            loading--;
+            if (request.chunkLoadError != null) {
+                metrics.recordError(CHUNK_LOAD);
+            } else {
+                metrics.record(CHUNK_LOAD, request.chunkLoadStart);
+                if (!holdChunks(request)) {
+                    // Unloaded again before this tick: requested once more instead of loading it on the main thread
+                    request.chunksRequested = false;
+                    waitingForChunks.add(request);
+                    continue;
+                }
+            }
+            waitingForScan.add(request);
+            justLoaded.add(request);
+        }
+    }
+
+    /**
+     * @return Teleports waiting for their turn or for their chunks
+     */
+    public int getDepth() {
+        return waitingForChunks.size() + waitingForScan.size() + loading;
+    }
+
+    /**
+     * Formats the queue statistics as plain text, one line for the queue, then one per latency.
+     */
+    public List<String> report() {
+        List<String> lines = new ArrayList<>();
+        lines.add(String.format(Locale.ROOT, "queue: %d waiting, %d loading chunks, max depth %d, %d deferred",
+            waitingForChunks.size() + waitingForScan.size(), loading, maxDepth, deferred));
+        lines.addAll(metrics.report());
+        return lines;
+    }
+
+    /**
+     * Resets the statistics, the current depth is kept.
+     */
+    public void reset() {
+        metrics.reset();
+        maxDepth = getDepth();
+        deferred = 0;
+    }
+
+    /**
+     * Fails all waiting teleports, e.g. when the plugin is disabled. Chunk loads still running
+     * are not waited for, their teleports fail right away.
+     */
+    public void clear() {
+        Request request;
+        while ((request = waitingForChunks.poll()) != null) {
+            request.result.complete(false);
+        }
+        while ((request = waitingForScan.poll()) != null) {
+            releaseChunks(request);
+            request.result.complete(false);
+        }
+        List<Request> pending;
+        synchronized (inFlight) {
+            // Their chunk load callbacks find them gone and drop them
+            pending = new ArrayList<>(inFlight);
+            inFlight.clear();
+        }
+        for (Request stillLoading : pending) {
+            stillLoading.result.complete(false);
+        }
+        while ((request = loaded.poll()) != null) {
+            request.result.complete(false);
+        }
+        justLoaded.clear();
+        loading = 0;
+    }
+
+    StorageMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Runs the safety search and teleport if this tick has budget for it.
+     *
+     * @return false if it has to wait for the next tick
+     */
+    private boolean scan(Request request) {
+        if (!request.player.isOnline()) {
+            releaseChunks(request);
+            request.result.complete(false);
+            return true;
+        }
+        if (scansThisTick >= configManager.getMaxScansPerTick()) {
+            return false;
+        }
+        scansThisTick++;
+        try {
+            finish(request);
+        } finally {
+            releaseChunks(request);
+        }
+        return true;
+    }
+
+    /**
+     * Requests the chunks of a destination if this tick has budget for them.
+     *
+     * @return false if it has to wait for the next tick
+     */
+    private boolean loadChunks(Request request, List<int[]> chunks) {
+        // A teleport needing more than the whole budget still gets it when nothing else loads
+        if (chunkLoadsThisTick > 0 && chunkLoadsThisTick + chunks.size() > configManager.getMaxChunkLoadsPerTick()) {
+            return false;
+        }
+        chunkLoadsThisTick += chunks.size();
+        requestChunks(request, chunks);
+        return true;
+    }
+
+    /**
+     * Counts a teleport that had to wait for the budget of a later tick, once per teleport.
+     */
+    private void countDeferred(Request request) {
+        if (!request.deferred) {
+            request.deferred = true;
+            deferred++;
+        }
+    }
+
+    /**
+     * @return The chunks to load before teleporting, empty if the destination chunk is loaded
+     */
+    private List<int[]> unloadedChunks(Location location) {
+        World world = location.getWorld();
+        int chunkX = location.getBlockX() >> 4;
+        int chunkZ = location.getBlockZ() >> 4;
+        List<int[]> chunks = new ArrayList<>();
+        if (!configManager.isAsyncChunkLoadEnabled() || world.isChunkLoaded(chunkX, chunkZ)) {
+            return chunks;
+        }
+        int radius = configManager.getPreloadRadius();
+        for (int dx = -radius; dx <= radius; dx++) {
+            for (int dz = -radius; dz <= radius; dz++) {
+                if (!world.isChunkLoaded(chunkX + dx, chunkZ + dz)) {
+                    chunks.add(new int[] {chunkX + dx, chunkZ + dz});
+                }
+            }
+        }
+        return chunks;
+    }
+
+    /**
+     * Adds a chunk ticket to each requested chunk that is loaded.
+     *
+     * @return false if the destination chunk is not loaded, its tickets are released then
+     */
+    private boolean holdChunks(Request request) {
+        World world = request.location.getWorld();
+        for (int[] chunk : request.chunks) {
+            if (world.isChunkLoaded(chunk[0], chunk[1])) {
+                world.addPluginChunkTicket(chunk[0], chunk[1], plugin);
+                request.tickets.add(chunk);
+            }
+        }
+        if (!world.isChunkLoaded(request.location.getBlockX() >> 4, request.location.getBlockZ() >> 4)) {
+            releaseChunks(request);
+            return false;
+        }
+        return true;
+    }
+
+    private void releaseChunks(Request request) {
+        World world = request.location.getWorld();
+        for (int[] chunk : request.tickets) {
+            world.removePluginChunkTicket(chunk[0], chunk[1], plugin);
+        }
+        request.tickets.clear();
+    }
+
+    private void requestChunks(Request request, List<int[]> chunks) {
+        World world = request.location.getWorld();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[chunks.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = world.getChunkAtAsync(chunks.get(i)[0], chunks.get(i)[1]);
+        }
+        configManager.debug("Loading " + futures.length + " chunks before teleporting to: "
+            + SafeTeleport.locationToString(request.location));
+
+        request.chunksRequested = true;
+        request.chunks = chunks;
+        request.chunkLoadStart = System.nanoTime();
+        loading++;
+        synchronized (inFlight) {
+            inFlight.add(request);
+        }
+        CompletableFuture.allOf(futures)
+            .orTimeout(configManager.getChunkLoadTimeout(), TimeUnit.MILLISECONDS)
+            .whenComplete((done, error) -> {
+                synchronized (inFlight) {
+                    if (!inFlight.remove(request)) {
+                        // Already failed by clear()
+                        return;
+                    }
+                    // Picked up by the next tick on the main thread
+                    request.chunkLoadError = error;
+                    loaded.add(request);
+                }
+            });
+    }
+
+    /**
+     * Runs the safety search and teleport of a request whose chunks are loaded or failed to.
+     */
+    private void finish(Request request) {
+        long start = System.nanoTime();
+        boolean teleported;
+        try {
+            teleported = teleport(request);
+        } catch (RuntimeException e) {
+            metrics.recordError(WAIT);
+            request.result.completeExceptionally(e);
+            return;
+        }
+        metrics.record(SCAN, start);
+        metrics.record(WAIT, request.submittedAt);
+        request.result.complete(teleported);
+    }
+
+    private boolean teleport(Request request) {
+        Throwable error = request.chunkLoadError;
+        if (error == null) {
+            if (request.chunksRequested) {
+                configManager.debug("Chunks loaded after " + millisSince(request.chunkLoadStart)
+                    + " ms for teleport to: " + SafeTeleport.locationToString(request.location));
+            }
+            return SafeTeleport.teleport(request.player, request.location, request.search);
+        }
+        long millis = millisSince(request.chunkLoadStart);
+        configManager.debug("Chunks not loaded after " + millis + " ms (" + error + ") for teleport to: "
+            + SafeTeleport.locationToString(request.location));
+        if (configManager.isChunkLoadFallbackSync()) {
+            return SafeTeleport.teleport(request.player, request.location, request.search);
+        }
+        return false;
+    }
+
+    private static long millisSince(long startNanos) {
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+    }
+}
@@ -90,11 +90,14 @@ public class TpaRequest {
             requester.sendMessage("§cDer Zielspieler ist nicht mehr online.");
             return;
         }
-        if (SafeTeleport.teleport(requester, target.getLocation())) {
-            requester.sendMessage("§aDu wurdest zu " + target.getName() + " teleportiert.");
-        } else {
-            requester.sendMessage("§cTeleportation fehlgeschlagen.");
-        }
+        // Läuft über die Teleport-Warteschlange, bei vielen Teleports ggf. erst in einem späteren Tick
+        MainThread.whenComplete(requester, SafeTeleport.teleportAsync(requester, target.getLocation()), (teleported, error) -> {
+            if (error == null && teleported) {
+                requester.sendMessage("§aDu wurdest zu " + target.getName() + " teleportiert.");
+            } else {
+                requester.sendMessage("§cTeleportation fehlgeschlagen.");
+            }
+        });
     if (timeoutTask != null) {
             timeoutTask.cancel();
             timeoutTask = null;
@@ -6,6 +6,7 @@ import static org.mockito.Mockito.*;
 import de.pitbully.pitbullyplugin.storage.LocationManager;
 import de.pitbully.pitbullyplugin.utils.SafeTeleport;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.command.Command;
@@ -34,7 +35,7 @@ class BackCommandTest {
 
         try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class);
              MockedStatic<SafeTeleport> st = mockStatic(SafeTeleport.class)) {
-            lm.when(() -> LocationManager.checkLastLocation(id)).thenReturn(false);
+            lm.when(() -> LocationManager.getLastLocationAsync(id)).thenReturn(CompletableFuture.completedFuture(null));
 
             BackCommand cmd = new BackCommand();
             boolean handled = cmd.onCommand(player, mock(Command.class), "back", new String[]{});
@@ -56,16 +57,15 @@ class BackCommandTest {
 
         try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class);
              MockedStatic<SafeTeleport> st = mockStatic(SafeTeleport.class)) {
-            lm.when(() -> LocationManager.checkLastLocation(id)).thenReturn(true);
-            lm.when(() -> LocationManager.getLastLocation(id)).thenReturn(last);
-            st.when(() -> SafeTeleport.teleport(player, last)).thenReturn(true);
+            lm.when(() -> LocationManager.getLastLocationAsync(id)).thenReturn(CompletableFuture.completedFuture(last));
+            st.when(() -> SafeTeleport.teleportAsync(player, last)).thenReturn(CompletableFuture.completedFuture(true));
 
             BackCommand cmd = new BackCommand();
             boolean handled = cmd.onCommand(player, mock(Command.class), "back", new String[]{});
             assertThat(handled).isTrue();
             
             // Verify the actual teleportation was attempted
-            st.verify(() -> SafeTeleport.teleport(player, last));
+            st.verify(() -> SafeTeleport.teleportAsync(player, last));
             // Verify success message
             verify(player).sendMessage(contains("Zurück teleportiert"));
         }
@@ -84,16 +84,15 @@ class BackCommandTest {
 
         try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class);
              MockedStatic<SafeTeleport> st = mockStatic(SafeTeleport.class)) {
-            lm.when(() -> LocationManager.checkLastLocation(id)).thenReturn(true);
-            lm.when(() -> LocationManager.getLastLocation(id)).thenReturn(last);
-            st.when(() -> SafeTeleport.teleport(player, last)).thenReturn(false); // Teleport fails
+            lm.when(() -> LocationManager.getLastLocationAsync(id)).thenReturn(CompletableFuture.completedFuture(last));
+            st.when(() -> SafeTeleport.teleportAsync(player, last)).thenReturn(CompletableFuture.completedFuture(false)); // Teleport fails
 
             BackCommand cmd = new BackCommand();
             boolean handled = cmd.onCommand(player, mock(Command.class), "back", new String[]{});
             assertThat(handled).isTrue();
             
             // Should still attempt teleport
-            st.verify(() -> SafeTeleport.teleport(player, last));
+            st.verify(() -> SafeTeleport.teleportAsync(player, last));
             // Should NOT send success message when teleport fails
             verify(player, never()).sendMessage(contains("Zurück teleportiert"));
         }
@@ -112,8 +111,49 @@ class BackCommandTest {
             assertThat(handled).isTrue();
             
             // Should NOT check location if permission is missing
-            lm.verify(() -> LocationManager.checkLastLocation(id), never());
+            lm.verify(() -> LocationManager.getLastLocationAsync(id), never());
             verify(player).sendMessage(contains("keine Berechtigung"));
         }
     }
+
+    @Test
+    void deathBackTeleportsToDeathLocation() {
+        Player player = mock(Player.class);
+        when(player.hasPermission(anyString())).thenReturn(true);
+        UUID id = UUID.randomUUID();
+        when(player.getUniqueId()).thenReturn(id);
+
+        World world = mock(World.class);
+        when(world.getName()).thenReturn("world");
+        Location death = new Location(world, 5, 70, 5);
+
+        try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class);
+             MockedStatic<SafeTeleport> st = mockStatic(SafeTeleport.class)) {
+            lm.when(() -> LocationManager.getLastDeathLocationAsync(id)).thenReturn(CompletableFuture.completedFuture(death));
+            st.when(() -> SafeTeleport.teleportAsync(player, death)).thenReturn(CompletableFuture.completedFuture(true));
+
+            boolean handled = new BackCommand().onCommand(player, mock(Command.class), "back", new String[]{"death"});
+            assertThat(handled).isTrue();
+            st.verify(() -> SafeTeleport.teleportAsync(player, death));
+            verify(player).sendMessage(contains("Todesort zurück teleportiert"));
+        }
+    }
+
+    @Test
+    void teleportBackWithoutLocationShowsHelp() {
+        Player player = mock(Player.class);
+        when(player.hasPermission(anyString())).thenReturn(true);
+        UUID id = UUID.randomUUID();
+        when(player.getUniqueId()).thenReturn(id);
+
+        try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class);
+             MockedStatic<SafeTeleport> st = mockStatic(SafeTeleport.class)) {
+            lm.when(() -> LocationManager.getLastTeleportLocationAsync(id)).thenReturn(CompletableFuture.completedFuture(null));
+
+            boolean handled = new BackCommand().onCommand(player, mock(Command.class), "back", new String[]{"teleport"});
+            assertThat(handled).isTrue();
+            verify(player).sendMessage(contains("keinen gespeicherten Teleportationsort"));
+            st.verifyNoInteractions();
+        }
+    }
 }
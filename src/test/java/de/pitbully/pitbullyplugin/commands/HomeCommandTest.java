@@ -6,6 +6,7 @@ import static org.mockito.Mockito.*;
 import de.pitbully.pitbullyplugin.storage.LocationManager;
 import de.pitbully.pitbullyplugin.utils.SafeTeleport;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.command.Command;
@@ -39,7 +40,7 @@ class HomeCommandTest {
         UUID id = UUID.randomUUID();
         when(p.getUniqueId()).thenReturn(id);
         try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class)) {
-            lm.when(() -> LocationManager.checkHomeLocation(id)).thenReturn(false);
+            lm.when(() -> LocationManager.getHomeLocationAsync(id)).thenReturn(CompletableFuture.completedFuture(null));
             boolean handled = new HomeCommand().onCommand(p, mock(Command.class), "home", new String[]{});
             assertThat(handled).isTrue();
             verify(p).sendMessage(contains("Kein Home gesetzt"));
@@ -56,12 +57,28 @@ class HomeCommandTest {
         Location home = new Location(w, 1, 64, 1);
         try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class);
              MockedStatic<SafeTeleport> st = mockStatic(SafeTeleport.class)) {
-            lm.when(() -> LocationManager.checkHomeLocation(id)).thenReturn(true);
-            lm.when(() -> LocationManager.getHomeLocation(id)).thenReturn(home);
-            st.when(() -> SafeTeleport.teleport(p, home)).thenReturn(true);
+            lm.when(() -> LocationManager.getHomeLocationAsync(id)).thenReturn(CompletableFuture.completedFuture(home));
+            st.when(() -> SafeTeleport.teleportAsync(p, home)).thenReturn(CompletableFuture.completedFuture(true));
             boolean handled = new HomeCommand().onCommand(p, mock(Command.class), "home", new String[]{});
             assertThat(handled).isTrue();
             verify(p).sendMessage(contains("Hause"));
         }
     }
+
+    @Test
+    void lookupFailureShowsError() {
+        Player p = mock(Player.class);
+        when(p.hasPermission(anyString())).thenReturn(true);
+        UUID id = UUID.randomUUID();
+        when(p.getUniqueId()).thenReturn(id);
+        try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class);
+             MockedStatic<SafeTeleport> st = mockStatic(SafeTeleport.class)) {
+            lm.when(() -> LocationManager.getHomeLocationAsync(id))
+                .thenReturn(CompletableFuture.failedFuture(new IllegalStateException("db down")));
+            boolean handled = new HomeCommand().onCommand(p, mock(Command.class), "home", new String[]{});
+            assertThat(handled).isTrue();
+            verify(p).sendMessage(contains("Fehler beim Laden"));
+            st.verifyNoInteractions();
+        }
+    }
 }
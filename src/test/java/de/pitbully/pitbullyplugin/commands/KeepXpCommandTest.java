@@ -17,7 +17,6 @@ import org.mockito.MockitoAnnotations;
 
 import de.pitbully.pitbullyplugin.storage.LocationManager;
 import de.pitbully.pitbullyplugin.storage.LocationStorage;
-import de.pitbully.pitbullyplugin.utils.PlayerData;
 
 class KeepXpCommandTest {
 
@@ -113,19 +112,12 @@ class KeepXpCommandTest {
     void testEnableKeepXp() {
         when(player.hasPermission("pitbullyplugin.keepxp")).thenReturn(true);
         
-        PlayerData playerData = new PlayerData();
-        playerData.setKeepXp(false); // Currently disabled
-        
         try (MockedStatic<LocationManager> locationManagerMock = mockStatic(LocationManager.class)) {
-            locationManagerMock.when(LocationManager::getStorage).thenReturn(locationStorage);
-            when(locationStorage.getPlayerData(playerId)).thenReturn(playerData);
-            
             boolean result = keepXpCommand.onCommand(player, command, "keepxp", 
                 new String[]{"on"});
             
             assertThat(result).isTrue();
-            assertThat(playerData.isKeepXp()).isTrue(); // Should be enabled now
-            verify(locationStorage).savePlayerData(eq(playerId), eq(playerData));
+            locationManagerMock.verify(() -> LocationManager.setKeepXp(playerId, true));
             verify(player).sendMessage("§a§lKeep XP aktiviert! Du wirst deine XP beim Sterben behalten.");
         }
     }
@@ -134,19 +126,12 @@ class KeepXpCommandTest {
     void testDisableKeepXp() {
         when(player.hasPermission("pitbullyplugin.keepxp")).thenReturn(true);
         
-        PlayerData playerData = new PlayerData();
-        playerData.setKeepXp(true); // Currently enabled
-        
         try (MockedStatic<LocationManager> locationManagerMock = mockStatic(LocationManager.class)) {
-            locationManagerMock.when(LocationManager::getStorage).thenReturn(locationStorage);
-            when(locationStorage.getPlayerData(playerId)).thenReturn(playerData);
-            
             boolean result = keepXpCommand.onCommand(player, command, "keepxp", 
                 new String[]{"off"});
             
             assertThat(result).isTrue();
-            assertThat(playerData.isKeepXp()).isFalse(); // Should be disabled now
-            verify(locationStorage).savePlayerData(eq(playerId), eq(playerData));
+            locationManagerMock.verify(() -> LocationManager.setKeepXp(playerId, false));
             verify(player).sendMessage("§c§lKeep XP deaktiviert! Du wirst nicht deine XP beim Sterben behalten.");
         }
     }
@@ -184,22 +169,16 @@ class KeepXpCommandTest {
         when(player.hasPermission("pitbullyplugin.keepxp")).thenReturn(true);
         when(player.hasPermission("pitbullyplugin.keepxp.others")).thenReturn(true);
         
-        PlayerData targetData = new PlayerData();
-        targetData.setKeepXp(false);
-        
         try (MockedStatic<Bukkit> bukkitMock = mockStatic(Bukkit.class);
              MockedStatic<LocationManager> locationManagerMock = mockStatic(LocationManager.class)) {
             
             bukkitMock.when(() -> Bukkit.getPlayer("TargetPlayer")).thenReturn(targetPlayer);
-            locationManagerMock.when(LocationManager::getStorage).thenReturn(locationStorage);
-            when(locationStorage.getPlayerData(targetPlayerId)).thenReturn(targetData);
             
             boolean result = keepXpCommand.onCommand(player, command, "keepxp", 
                 new String[]{"on", "TargetPlayer"});
             
             assertThat(result).isTrue();
-            assertThat(targetData.isKeepXp()).isTrue(); // Should be enabled now
-            verify(locationStorage).savePlayerData(eq(targetPlayerId), eq(targetData));
+            locationManagerMock.verify(() -> LocationManager.setKeepXp(targetPlayerId, true));
             verify(player).sendMessage("§a§lKeep XP für TargetPlayer aktiviert!");
             verify(targetPlayer).sendMessage("§a§lDein Keep XP wurde aktiviert!");
         }
@@ -218,80 +197,16 @@ class KeepXpCommandTest {
     }
 
     @Test
-    void testWithNullPlayerData() {
-        when(player.hasPermission("pitbullyplugin.keepxp")).thenReturn(true);
-        
-        try (MockedStatic<LocationManager> locationManagerMock = mockStatic(LocationManager.class)) {
-            locationManagerMock.when(LocationManager::getStorage).thenReturn(locationStorage);
-            when(locationStorage.getPlayerData(playerId)).thenReturn(null); // No existing data
-            
-            boolean result = keepXpCommand.onCommand(player, command, "keepxp", 
-                new String[]{"on"});
-            
-            assertThat(result).isTrue();
-            // Should create new PlayerData with keepXp=true and save it
-            verify(locationStorage).savePlayerData(eq(playerId), argThat(data -> 
-                data instanceof PlayerData && ((PlayerData) data).isKeepXp() == true));
-            verify(player).sendMessage("§a§lKeep XP aktiviert! Du wirst deine XP beim Sterben behalten.");
-        }
-    }
-
-    @Test
-    void testWithNullPlayerDataDisableCommand() {
-        when(player.hasPermission("pitbullyplugin.keepxp")).thenReturn(true);
-        
-        try (MockedStatic<LocationManager> locationManagerMock = mockStatic(LocationManager.class)) {
-            locationManagerMock.when(LocationManager::getStorage).thenReturn(locationStorage);
-            when(locationStorage.getPlayerData(playerId)).thenReturn(null); // No existing data
-            
-            boolean result = keepXpCommand.onCommand(player, command, "keepxp", 
-                new String[]{"off"});
-            
-            assertThat(result).isTrue();
-            // Should create new PlayerData with keepXp=false and save it
-            verify(locationStorage).savePlayerData(eq(playerId), argThat(data -> 
-                data instanceof PlayerData && ((PlayerData) data).isKeepXp() == false));
-            verify(player).sendMessage("§c§lKeep XP deaktiviert! Du wirst nicht deine XP beim Sterben behalten.");
-        }
-    }
-
-    @Test
-    void testToggleFromFalseToTrue() {
+    void testChangeDoesNotWriteStorageSynchronously() {
         when(player.hasPermission("pitbullyplugin.keepxp")).thenReturn(true);
         
-        PlayerData playerData = new PlayerData();
-        playerData.setKeepXp(false);
-        
-        try (MockedStatic<LocationManager> locationManagerMock = mockStatic(LocationManager.class)) {
-            locationManagerMock.when(LocationManager::getStorage).thenReturn(locationStorage);
-            when(locationStorage.getPlayerData(playerId)).thenReturn(playerData);
-            
-            keepXpCommand.onCommand(player, command, "keepxp", new String[]{"on"});
-            
-            // Verify the data was toggled correctly
-            verify(locationStorage).savePlayerData(eq(playerId), argThat(data -> 
-                data.isKeepXp() == true
-            ));
-        }
-    }
-
-    @Test
-    void testNoToggleWhenAlreadyCorrectState() {
-        when(player.hasPermission("pitbullyplugin.keepxp")).thenReturn(true);
-        
-        PlayerData playerData = new PlayerData();
-        playerData.setKeepXp(true); // Already enabled
-        
         try (MockedStatic<LocationManager> locationManagerMock = mockStatic(LocationManager.class)) {
             locationManagerMock.when(LocationManager::getStorage).thenReturn(locationStorage);
-            when(locationStorage.getPlayerData(playerId)).thenReturn(playerData);
             
-            keepXpCommand.onCommand(player, command, "keepxp", new String[]{"on"});
+            keepXpCommand.onCommand(player, command, "keepxp", new String[]{"off"});
             
-            // Should save without toggling (state remains true)
-            verify(locationStorage).savePlayerData(eq(playerId), argThat(data -> 
-                data.isKeepXp() == true
-            ));
+            // Persisting is left to LocationManager.setKeepXp
+            verifyNoInteractions(locationStorage);
         }
     }
 }
@@ -0,0 +1,101 @@
+package de.pitbully.pitbullyplugin.commands;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import de.pitbully.pitbullyplugin.PitbullyPlugin;
+import de.pitbully.pitbullyplugin.storage.LocationManager;
+import de.pitbully.pitbullyplugin.storage.LocationStorage;
+import de.pitbully.pitbullyplugin.storage.StorageMetrics;
+import de.pitbully.pitbullyplugin.utils.ConfigManager;
+import de.pitbully.pitbullyplugin.utils.TeleportQueue;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+class MetricsCommandTest {
+
+    private MockedStatic<LocationManager> locationManagerMock;
+    private LocationStorage storage;
+    private CommandSender sender;
+
+    @BeforeEach
+    void setUp() {
+        storage = mock(LocationStorage.class);
+        locationManagerMock = mockStatic(LocationManager.class);
+        locationManagerMock.when(LocationManager::getStorage).thenReturn(storage);
+        sender = mock(CommandSender.class);
+        when(sender.hasPermission("pitbullyplugin.metrics")).thenReturn(true);
+    }
+
+    @AfterEach
+    void tearDown() {
+        locationManagerMock.close();
+    }
+
+    private boolean run(String... args) {
+        return new MetricsCommand().onCommand(sender, mock(Command.class), "pitbullymetrics", args);
+    }
+
+    @Test
+    void noPermission() {
+        when(sender.hasPermission("pitbullyplugin.metrics")).thenReturn(false);
+        assertThat(run()).isTrue();
+        verify(sender).sendMessage(contains("keine Berechtigung"));
+        verifyNoInteractions(storage);
+    }
+
+    @Test
+    void printsReport() {
+        StorageMetrics metrics = new StorageMetrics();
+        metrics.record("get.home", System.nanoTime());
+        when(storage.getMetrics()).thenReturn(metrics);
+
+        assertThat(run()).isTrue();
+        verify(sender).sendMessage(contains("Storage Metrics"));
+        verify(sender).sendMessage(contains("get.home: 1 calls, 0 errors"));
+    }
+
+    @Test
+    void resetClearsCounters() {
+        StorageMetrics metrics = new StorageMetrics();
+        metrics.recordError("save.warp");
+        when(storage.getMetrics()).thenReturn(metrics);
+
+        assertThat(run("reset")).isTrue();
+        verify(sender).sendMessage(contains("zurückgesetzt"));
+        assertThat(metrics.getOperation("save.warp").getErrorCount()).isZero();
+    }
+
+    @Test
+    void storageWithoutMetrics() {
+        assertThat(run()).isTrue();
+        verify(sender).sendMessage(contains("keine Metriken"));
+    }
+
+    @Test
+    void printsTeleportQueueAlsoWithoutStorageMetrics() {
+        TeleportQueue queue = new TeleportQueue(mock(Plugin.class), mock(ConfigManager.class));
+        PitbullyPlugin plugin = mock(PitbullyPlugin.class);
+        when(plugin.getTeleportQueue()).thenReturn(queue);
+
+        try (MockedStatic<PitbullyPlugin> pluginMock = mockStatic(PitbullyPlugin.class)) {
+            pluginMock.when(PitbullyPlugin::getInstance).thenReturn(plugin);
+            assertThat(run()).isTrue();
+        }
+        verify(sender).sendMessage(contains("keine Metriken"));
+        verify(sender).sendMessage(contains("Teleport Queue"));
+        verify(sender).sendMessage(contains("queue: 0 waiting"));
+    }
+
+    @Test
+    void unknownArgumentShowsUsage() {
+        assertThat(run("clear")).isTrue();
+        verify(sender).sendMessage(contains("Verwendung"));
+        verifyNoInteractions(storage);
+    }
+}
@@ -4,7 +4,9 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
 import de.pitbully.pitbullyplugin.storage.LocationManager;
+import de.pitbully.pitbullyplugin.utils.SafeLandingPoints;
 import de.pitbully.pitbullyplugin.utils.SafeTeleport;
+import java.util.concurrent.CompletableFuture;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.command.Command;
@@ -44,13 +46,34 @@ class WarpCommandTest {
         Player p = mock(Player.class);
         when(p.hasPermission(anyString())).thenReturn(true);
         try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class)) {
-            lm.when(() -> LocationManager.checkWarpLocation("spawn")).thenReturn(false);
+            lm.when(() -> LocationManager.getWarpLocationAsync("spawn")).thenReturn(CompletableFuture.completedFuture(null));
             boolean handled = new WarpCommand().onCommand(p, mock(Command.class), "warp", new String[]{"spawn"});
             assertThat(handled).isTrue();
             verify(p).sendMessage(contains("existiert nicht"));
         }
     }
 
+    @Test
+    void warpsToPrecomputedLandingPointWithoutSearching() {
+        Player p = mock(Player.class);
+        when(p.hasPermission(anyString())).thenReturn(true);
+        World w = mock(World.class); when(w.getName()).thenReturn("world");
+        Location loc = new Location(w, 1,64,1);
+        Location landing = new Location(w, 1,66,1);
+        try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class);
+             MockedStatic<SafeLandingPoints> lp = mockStatic(SafeLandingPoints.class);
+             MockedStatic<SafeTeleport> st = mockStatic(SafeTeleport.class)) {
+            lm.when(() -> LocationManager.getWarpLocationAsync("spawn")).thenReturn(CompletableFuture.completedFuture(loc));
+            lp.when(() -> SafeLandingPoints.getWarp("spawn", loc)).thenReturn(landing);
+            st.when(() -> SafeTeleport.teleportToLandingPointAsync(p, landing)).thenReturn(CompletableFuture.completedFuture(true));
+            boolean handled = new WarpCommand().onCommand(p, mock(Command.class), "warp", new String[]{"spawn"});
+            assertThat(handled).isTrue();
+            
+            st.verify(() -> SafeTeleport.teleportAsync(any(), any()), never());
+            verify(p).sendMessage(contains("teleportiert"));
+        }
+    }
+
     @Test
     void warpsSuccessfully() {
         Player p = mock(Player.class);
@@ -59,14 +82,13 @@ class WarpCommandTest {
         Location loc = new Location(w, 1,64,1);
         try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class);
              MockedStatic<SafeTeleport> st = mockStatic(SafeTeleport.class)) {
-            lm.when(() -> LocationManager.checkWarpLocation("spawn")).thenReturn(true);
-            lm.when(() -> LocationManager.getWarpLocation("spawn")).thenReturn(loc);
-            st.when(() -> SafeTeleport.teleport(p, loc)).thenReturn(true);
+            lm.when(() -> LocationManager.getWarpLocationAsync("spawn")).thenReturn(CompletableFuture.completedFuture(loc));
+            st.when(() -> SafeTeleport.teleportAsync(p, loc)).thenReturn(CompletableFuture.completedFuture(true));
             boolean handled = new WarpCommand().onCommand(p, mock(Command.class), "warp", new String[]{"spawn"});
             assertThat(handled).isTrue();
             
             // Verify the actual teleportation was attempted
-            st.verify(() -> SafeTeleport.teleport(p, loc));
+            st.verify(() -> SafeTeleport.teleportAsync(p, loc));
             // Verify success message
             verify(p).sendMessage(contains("teleportiert"));
         }
@@ -80,14 +102,13 @@ class WarpCommandTest {
         Location loc = new Location(w, 1,64,1);
         try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class);
              MockedStatic<SafeTeleport> st = mockStatic(SafeTeleport.class)) {
-            lm.when(() -> LocationManager.checkWarpLocation("spawn")).thenReturn(true);
-            lm.when(() -> LocationManager.getWarpLocation("spawn")).thenReturn(loc);
-            st.when(() -> SafeTeleport.teleport(p, loc)).thenReturn(false); // Teleport fails
+            lm.when(() -> LocationManager.getWarpLocationAsync("spawn")).thenReturn(CompletableFuture.completedFuture(loc));
+            st.when(() -> SafeTeleport.teleportAsync(p, loc)).thenReturn(CompletableFuture.completedFuture(false)); // Teleport fails
             boolean handled = new WarpCommand().onCommand(p, mock(Command.class), "warp", new String[]{"spawn"});
             assertThat(handled).isTrue();
             
             // Should still attempt teleport
-            st.verify(() -> SafeTeleport.teleport(p, loc));
+            st.verify(() -> SafeTeleport.teleportAsync(p, loc));
             // Should NOT send success message when teleport fails
             verify(p, never()).sendMessage(contains("teleportiert"));
         }
@@ -98,12 +119,12 @@ class WarpCommandTest {
         Player p = mock(Player.class);
         when(p.hasPermission(anyString())).thenReturn(true);
         try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class)) {
-            lm.when(() -> LocationManager.checkWarpLocation("customwarp")).thenReturn(false);
+            lm.when(() -> LocationManager.getWarpLocationAsync("customwarp")).thenReturn(CompletableFuture.completedFuture(null));
             boolean handled = new WarpCommand().onCommand(p, mock(Command.class), "warp", new String[]{"customwarp"});
             assertThat(handled).isTrue();
             
             // Verify correct warp name was checked
-            lm.verify(() -> LocationManager.checkWarpLocation("customwarp"));
+            lm.verify(() -> LocationManager.getWarpLocationAsync("customwarp"));
             verify(p).sendMessage(contains("existiert nicht"));
         }
     }
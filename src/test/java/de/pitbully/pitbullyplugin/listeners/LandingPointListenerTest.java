@@ -0,0 +1,51 @@
+package de.pitbully.pitbullyplugin.listeners;
+
+import static org.mockito.Mockito.*;
+
+import de.pitbully.pitbullyplugin.utils.SafeLandingPoints;
+import java.util.List;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+class LandingPointListenerTest {
+
+    private static Block block(World world, int x, int z) {
+        Block block = mock(Block.class);
+        when(block.getWorld()).thenReturn(world);
+        when(block.getX()).thenReturn(x);
+        when(block.getZ()).thenReturn(z);
+        return block;
+    }
+
+    @Test
+    void blockBreakInvalidatesItsChunk() {
+        World world = mock(World.class);
+        BlockBreakEvent evt = mock(BlockBreakEvent.class);
+        Block block = block(world, -1, 33);
+        when(evt.getBlock()).thenReturn(block);
+
+        try (MockedStatic<SafeLandingPoints> landing = mockStatic(SafeLandingPoints.class)) {
+            new LandingPointListener().onBlockBreak(evt);
+            landing.verify(() -> SafeLandingPoints.invalidate(world, -1, 2));
+        }
+    }
+
+    @Test
+    void explosionInvalidatesEachChunkOnce() {
+        World world = mock(World.class);
+        EntityExplodeEvent evt = mock(EntityExplodeEvent.class);
+        List<Block> blocks = List.of(block(world, 14, 0), block(world, 15, 1), block(world, 16, 1));
+        when(evt.blockList()).thenReturn(blocks);
+
+        try (MockedStatic<SafeLandingPoints> landing = mockStatic(SafeLandingPoints.class)) {
+            new LandingPointListener().onEntityExplode(evt);
+            landing.verify(() -> SafeLandingPoints.invalidate(world, 0, 0));
+            landing.verify(() -> SafeLandingPoints.invalidate(world, 1, 0));
+            landing.verifyNoMoreInteractions();
+        }
+    }
+}
@@ -2,7 +2,9 @@ package de.pitbully.pitbullyplugin.listeners;
 
 import static org.mockito.Mockito.*;
 
+import de.pitbully.pitbullyplugin.storage.LocationManager;
 import de.pitbully.pitbullyplugin.utils.TpaRequestManager;
+import java.util.UUID;
 import org.bukkit.entity.Player;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.junit.jupiter.api.Test;
@@ -21,4 +23,19 @@ class PlayerQuitCleanupListenerTest {
             mgr.verify(() -> TpaRequestManager.clearFor(p));
         }
     }
+
+    @Test
+    void unloadsPlayerDataOnQuit() {
+        UUID id = UUID.randomUUID();
+        Player p = mock(Player.class);
+        when(p.getUniqueId()).thenReturn(id);
+        PlayerQuitEvent evt = mock(PlayerQuitEvent.class);
+        when(evt.getPlayer()).thenReturn(p);
+
+        try (MockedStatic<TpaRequestManager> mgr = mockStatic(TpaRequestManager.class);
+             MockedStatic<LocationManager> lm = mockStatic(LocationManager.class)) {
+            new PlayerQuitCleanupListener().onQuit(evt);
+            lm.verify(() -> LocationManager.unloadPlayer(id));
+        }
+    }
 }
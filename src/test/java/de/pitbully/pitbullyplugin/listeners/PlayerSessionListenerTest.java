@@ -0,0 +1,69 @@
+package de.pitbully.pitbullyplugin.listeners;
+
+import static org.mockito.Mockito.*;
+
+import de.pitbully.pitbullyplugin.storage.LocationManager;
+import java.util.UUID;
+import org.bukkit.entity.Player;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerLoginEvent;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+class PlayerSessionListenerTest {
+
+    @Test
+    void preloadsOnAllowedPreLogin() {
+        UUID id = UUID.randomUUID();
+        AsyncPlayerPreLoginEvent evt = mock(AsyncPlayerPreLoginEvent.class);
+        when(evt.getUniqueId()).thenReturn(id);
+        when(evt.getLoginResult()).thenReturn(AsyncPlayerPreLoginEvent.Result.ALLOWED);
+
+        try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class)) {
+            new PlayerSessionListener().onAsyncPreLogin(evt);
+            lm.verify(() -> LocationManager.preloadPlayer(id));
+        }
+    }
+
+    @Test
+    void skipsPreloadWhenLoginDenied() {
+        AsyncPlayerPreLoginEvent evt = mock(AsyncPlayerPreLoginEvent.class);
+        when(evt.getUniqueId()).thenReturn(UUID.randomUUID());
+        when(evt.getLoginResult()).thenReturn(AsyncPlayerPreLoginEvent.Result.KICK_BANNED);
+
+        try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class)) {
+            new PlayerSessionListener().onAsyncPreLogin(evt);
+            lm.verifyNoInteractions();
+        }
+    }
+
+    @Test
+    void unloadsWhenLoginDeniedLater() {
+        UUID id = UUID.randomUUID();
+        Player p = mock(Player.class);
+        when(p.getUniqueId()).thenReturn(id);
+        PlayerLoginEvent evt = mock(PlayerLoginEvent.class);
+        when(evt.getPlayer()).thenReturn(p);
+        when(evt.getResult()).thenReturn(PlayerLoginEvent.Result.KICK_WHITELIST);
+
+        try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class)) {
+            new PlayerSessionListener().onLogin(evt);
+            lm.verify(() -> LocationManager.unloadPlayer(id));
+        }
+    }
+
+    @Test
+    void loadsSettingsOnJoin() {
+        UUID id = UUID.randomUUID();
+        Player p = mock(Player.class);
+        when(p.getUniqueId()).thenReturn(id);
+        PlayerJoinEvent evt = mock(PlayerJoinEvent.class);
+        when(evt.getPlayer()).thenReturn(p);
+
+        try (MockedStatic<LocationManager> lm = mockStatic(LocationManager.class)) {
+            new PlayerSessionListener().onJoin(evt);
+            lm.verify(() -> LocationManager.loadPlayerSettings(id));
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package de.pitbully.pitbullyplugin.listeners;
+
+import static org.mockito.Mockito.*;
+
+import de.pitbully.pitbullyplugin.storage.StoredLocation;
+import de.pitbully.pitbullyplugin.utils.SafeLandingPoints;
+import org.bukkit.World;
+import org.bukkit.event.world.WorldUnloadEvent;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+class WorldUnloadListenerTest {
+
+    @Test
+    void forgetsUnloadedWorld() {
+        World world = mock(World.class);
+        when(world.getName()).thenReturn("world_nether");
+        WorldUnloadEvent evt = mock(WorldUnloadEvent.class);
+        when(evt.getWorld()).thenReturn(world);
+
+        try (MockedStatic<StoredLocation> stored = mockStatic(StoredLocation.class);
+             MockedStatic<SafeLandingPoints> landing = mockStatic(SafeLandingPoints.class)) {
+            new WorldUnloadListener().onWorldUnload(evt);
+            stored.verify(() -> StoredLocation.forgetWorld("world_nether"));
+            landing.verify(() -> SafeLandingPoints.forgetWorld(world));
+        }
+    }
+}
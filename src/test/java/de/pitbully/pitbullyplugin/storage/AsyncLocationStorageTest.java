@@ -0,0 +1,52 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import org.bukkit.Location;
+import org.junit.jupiter.api.Test;
+
+class AsyncLocationStorageTest {
+
+    @Test
+    void wrapsSynchronousStorageWithCompletedFutures() {
+        LocationManagerTest.FakeStorage storage = new LocationManagerTest.FakeStorage();
+        UUID id = UUID.randomUUID();
+        Location home = new Location(null, 1, 64, 1);
+        storage.saveHomeLocation(id, home);
+
+        AsyncLocationStorage async = AsyncLocationStorage.of(storage);
+        CompletableFuture<Location> future = async.getHomeLocationAsync(id);
+
+        assertThat(future).isDone();
+        assertThat(future.join()).isSameAs(home);
+        assertThat(async.getWarpLocationAsync("missing").join()).isNull();
+    }
+
+    @Test
+    void writesGoThroughToWrappedStorage() {
+        LocationManagerTest.FakeStorage storage = new LocationManagerTest.FakeStorage();
+        Location warp = new Location(null, 5, 70, 5);
+
+        AsyncLocationStorage async = AsyncLocationStorage.of(storage);
+        assertThat(async.saveWarpLocationAsync("spawn", warp)).isDone();
+        assertThat(storage.getWarpLocation("spawn")).isSameAs(warp);
+
+        async.deleteWarpLocationAsync("spawn").join();
+        assertThat(storage.hasWarpLocation("spawn")).isFalse();
+    }
+
+    @Test
+    void failuresCompleteExceptionally() {
+        LocationManagerTest.FakeStorage storage = new LocationManagerTest.FakeStorage() {
+            @Override
+            public Location getDeathLocation(UUID playerId) {
+                throw new IllegalStateException("broken");
+            }
+        };
+
+        CompletableFuture<Location> future = AsyncLocationStorage.of(storage).getDeathLocationAsync(UUID.randomUUID());
+        assertThat(future).isCompletedExceptionally();
+    }
+}
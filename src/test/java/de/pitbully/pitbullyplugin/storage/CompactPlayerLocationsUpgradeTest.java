@@ -0,0 +1,168 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class CompactPlayerLocationsUpgradeTest {
+
+    private static final String TABLE = "pitbully_player_locations";
+
+    @TempDir
+    Path tempDir;
+
+    private final Logger logger = Logger.getLogger("Test");
+    private Connection conn;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite:" + tempDir.resolve("upgrade.db"));
+        // Layout of schema version 1
+        DatabaseSchema.execute(conn, "CREATE TABLE " + TABLE + " (" +
+            "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+            "player_uuid TEXT NOT NULL, " +
+            "location_type TEXT NOT NULL, " +
+            "world_name TEXT NOT NULL, " +
+            "x REAL NOT NULL, y REAL NOT NULL, z REAL NOT NULL, yaw REAL NOT NULL, pitch REAL NOT NULL, " +
+            "created_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+            "updated_at DATETIME DEFAULT CURRENT_TIMESTAMP, " +
+            "UNIQUE(player_uuid, location_type))");
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    private void insertLegacy(PreparedStatement stmt, String playerId, String type, String world, double x) throws SQLException {
+        stmt.setString(1, playerId);
+        stmt.setString(2, type);
+        stmt.setString(3, world);
+        stmt.setDouble(4, x);
+        stmt.addBatch();
+    }
+
+    private PreparedStatement legacyInsert() throws SQLException {
+        return conn.prepareStatement("INSERT INTO " + TABLE +
+            " (player_uuid, location_type, world_name, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, 64, 0, 90, 0)");
+    }
+
+    private void upgrade() throws SQLException {
+        conn.setAutoCommit(false);
+        new CompactPlayerLocationsUpgrade(new SqlDialect.Sqlite(), TABLE, logger).apply(conn);
+        conn.commit();
+        conn.setAutoCommit(true);
+    }
+
+    private long databaseBytes() throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("VACUUM");
+            try (ResultSet pages = stmt.executeQuery("PRAGMA page_count")) {
+                pages.next();
+                long count = pages.getLong(1);
+                try (ResultSet size = stmt.executeQuery("PRAGMA page_size")) {
+                    size.next();
+                    return count * size.getLong(1);
+                }
+            }
+        }
+    }
+
+    @Test
+    void convertsRowsToTheCompactLayout() throws SQLException {
+        UUID player = UUID.randomUUID();
+        try (PreparedStatement stmt = legacyInsert()) {
+            insertLegacy(stmt, player.toString(), "home", "world", 1);
+            insertLegacy(stmt, player.toString(), "death", "World", 2);
+            insertLegacy(stmt, "not-a-uuid", "home", "world", 3);
+            insertLegacy(stmt, player.toString(), "unknown", "world", 4);
+            stmt.executeBatch();
+        }
+
+        upgrade();
+
+        String sql = "SELECT w.name, l.x FROM " + TABLE + " l JOIN pitbully_worlds w ON w.id = l.world_id " +
+                     "WHERE l.player_uuid = ? AND l.location_type = ?";
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            stmt.setBytes(1, UuidCodec.toBytes(player));
+            stmt.setInt(2, PlayerLocationType.HOME.getCode());
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertThat(rs.next()).isTrue();
+                assertThat(rs.getString(1)).isEqualTo("world");
+                assertThat(rs.getDouble(2)).isEqualTo(1);
+            }
+            stmt.setInt(2, PlayerLocationType.DEATH.getCode());
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertThat(rs.next()).isTrue();
+                // World names are case-sensitive
+                assertThat(rs.getString(1)).isEqualTo("World");
+            }
+        }
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + TABLE)) {
+            rs.next();
+            assertThat(rs.getInt(1)).isEqualTo(2);
+        }
+    }
+
+    @Test
+    void canBeRerunAfterAnInterruptedCopy() throws SQLException {
+        try (PreparedStatement stmt = legacyInsert()) {
+            insertLegacy(stmt, UUID.randomUUID().toString(), "last", "world", 1);
+            stmt.executeBatch();
+        }
+        // Leftover of an interrupted run
+        DatabaseSchema.execute(conn,
+            CompactPlayerLocationsUpgrade.createPlayerLocationsTableSQL(new SqlDialect.Sqlite(), TABLE + "_compact"));
+
+        upgrade();
+
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + TABLE + " WHERE world_id IS NOT NULL")) {
+            rs.next();
+            assertThat(rs.getInt(1)).isEqualTo(1);
+        }
+    }
+
+    /**
+     * Compares the on-disk size of the table before and after the conversion.
+     */
+    @Test
+    void compactLayoutNeedsLessSpace() throws SQLException {
+        int players = 5000;
+        String[] types = { "death", "teleport", "last", "home" };
+        conn.setAutoCommit(false);
+        try (PreparedStatement stmt = legacyInsert()) {
+            for (int i = 0; i < players; i++) {
+                String playerId = UUID.randomUUID().toString();
+                for (String type : types) {
+                    insertLegacy(stmt, playerId, type, i % 3 == 0 ? "world_nether" : "world", i);
+                }
+            }
+            stmt.executeBatch();
+        }
+        conn.commit();
+        conn.setAutoCommit(true);
+        long before = databaseBytes();
+
+        upgrade();
+        long after = databaseBytes();
+
+        int rows = players * types.length;
+        logger.info("Player locations: " + rows + " rows, " + before + " bytes before (" + before / rows
+            + " per row incl. indexes), " + after + " bytes after (" + after / rows + " per row)");
+        assertThat(after).isLessThan(before * 6 / 10);
+    }
+}
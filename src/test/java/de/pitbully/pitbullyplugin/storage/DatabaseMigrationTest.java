@@ -0,0 +1,127 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.pitbully.pitbullyplugin.utils.PlayerData;
+import java.io.File;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DatabaseMigrationTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Logger logger = Logger.getLogger("Test");
+    private DatabaseLocationStorage dbStorage;
+    private FileLocationStorage fileStorage;
+    private String jdbcUrl;
+
+    @BeforeEach
+    void setUp() {
+        String database = tempDir.resolve("pitbully").toString();
+        DatabaseConfig config = new DatabaseConfig(DatabaseConfig.DatabaseType.SQLITE, "", 0, database,
+            "", "", 1, 30000, 1800000, false, false);
+        jdbcUrl = config.buildJdbcUrl();
+        dbStorage = new DatabaseLocationStorage(config, logger);
+        fileStorage = new FileLocationStorage(tempDir.toFile(), logger);
+    }
+
+    @AfterEach
+    void tearDown() {
+        fileStorage.close();
+        dbStorage.close();
+        new File(tempDir.toFile(), "locations.yml").delete();
+    }
+
+    private List<UUID> addPlayers(int count) {
+        List<UUID> ids = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            UUID id = UUID.randomUUID();
+            PlayerData data = new PlayerData();
+            data.setStoredHome(StoredLocation.of("world", i, 64, i, 0f, 0f));
+            data.setStoredLastLocation(StoredLocation.of("world_nether", i, 32, -i, 90f, 0f));
+            data.setKeepXp(i % 2 == 0);
+            fileStorage.savePlayerData(id, data);
+            ids.add(id);
+        }
+        Collections.sort(ids);
+        return ids;
+    }
+
+    private int count(String sql) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(jdbcUrl);
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    @Test
+    void migratesPlayersWarpsAndSpawnInBatches() throws Exception {
+        addPlayers(5);
+        fileStorage.saveStoredWarpLocation("market", StoredLocation.of("world", 10, 70, 10, 0f, 0f));
+        fileStorage.saveStoredWorldSpawn(StoredLocation.of("world", 0, 64, 0, 0f, 0f));
+
+        dbStorage.migrateFromFileStorage(fileStorage, 2);
+
+        assertThat(count("SELECT COUNT(*) FROM pitbully_player_locations")).isEqualTo(10);
+        assertThat(count("SELECT COUNT(*) FROM pitbully_player_settings WHERE setting_name = 'keepXp'")).isEqualTo(5);
+        assertThat(count("SELECT COUNT(*) FROM pitbully_player_settings WHERE setting_value = 'true'")).isEqualTo(3);
+        assertThat(count("SELECT COUNT(*) FROM pitbully_warp_locations WHERE warp_name = 'market'")).isEqualTo(1);
+        assertThat(count("SELECT COUNT(*) FROM pitbully_world_spawn")).isEqualTo(1);
+        // A completed migration leaves no checkpoint behind
+        assertThat(count("SELECT COUNT(*) FROM pitbully_migration_state")).isZero();
+    }
+
+    @Test
+    void resumesAfterLastCommittedCheckpoint() throws Exception {
+        List<UUID> ids = addPlayers(4);
+        try (Connection conn = DriverManager.getConnection(jdbcUrl);
+             PreparedStatement stmt = conn.prepareStatement(
+                 "INSERT INTO pitbully_migration_state (migration_name, last_player_uuid, migrated_players) VALUES (?, ?, ?)")) {
+            stmt.setString(1, "file-storage");
+            stmt.setString(2, ids.get(1).toString());
+            stmt.setInt(3, 2);
+            stmt.executeUpdate();
+        }
+
+        dbStorage.migrateFromFileStorage(fileStorage, 100);
+
+        // Players up to the checkpoint were migrated before the interruption and are skipped
+        assertThat(dbStorage.getPlayerData(ids.get(0))).isNull();
+        assertThat(dbStorage.getPlayerData(ids.get(1))).isNull();
+        assertThat(dbStorage.getPlayerData(ids.get(2)).getStoredHome())
+            .isEqualTo(fileStorage.getAllPlayerData().get(ids.get(2)).getStoredHome());
+        assertThat(dbStorage.getPlayerData(ids.get(3)).getStoredLastLocation())
+            .isEqualTo(fileStorage.getAllPlayerData().get(ids.get(3)).getStoredLastLocation());
+        assertThat(count("SELECT COUNT(*) FROM pitbully_player_locations")).isEqualTo(4);
+        assertThat(count("SELECT COUNT(*) FROM pitbully_migration_state")).isZero();
+    }
+
+    @Test
+    void rerunningAMigrationIsIdempotent() throws Exception {
+        addPlayers(3);
+
+        dbStorage.migrateFromFileStorage(fileStorage, 1);
+        dbStorage.migrateFromFileStorage(fileStorage, 1);
+
+        assertThat(count("SELECT COUNT(*) FROM pitbully_player_locations")).isEqualTo(6);
+        assertThat(count("SELECT COUNT(*) FROM pitbully_player_settings")).isEqualTo(3);
+    }
+}
@@ -0,0 +1,207 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import de.pitbully.pitbullyplugin.utils.PlayerData;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class DatabasePlayerDataTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Logger logger = Logger.getLogger("Test");
+    private DatabaseLocationStorage storage;
+    private String jdbcUrl;
+
+    @BeforeEach
+    void setUp() {
+        DatabaseConfig config = new DatabaseConfig(DatabaseConfig.DatabaseType.SQLITE, "", 0,
+            tempDir.resolve("pitbully").toString(), "", "", 4, 30000, 1800000, false, false);
+        jdbcUrl = config.buildJdbcUrl();
+        storage = new DatabaseLocationStorage(config, logger);
+    }
+
+    @AfterEach
+    void tearDown() {
+        storage.close();
+    }
+
+    private UUID savePlayer(int i, boolean keepXp) {
+        UUID playerId = UUID.randomUUID();
+        PlayerData data = new PlayerData();
+        data.setStoredLastDeath(StoredLocation.of("world", i, 12, i, 0f, 0f));
+        data.setStoredLastTeleport(StoredLocation.of("world_nether", i, 40, -i, 90f, 0f));
+        data.setStoredLastLocation(StoredLocation.of("world", -i, 64, i, 180f, 5f));
+        data.setStoredHome(StoredLocation.of("world", i, 70, i, 0f, 0f));
+        data.setKeepXp(keepXp);
+        storage.savePlayerData(playerId, data);
+        return playerId;
+    }
+
+    @Test
+    void readsAllLocationsAndKeepXp() {
+        UUID playerId = savePlayer(7, false);
+
+        PlayerData data = storage.getPlayerData(playerId);
+
+        assertThat(data.getStoredLastDeath()).isEqualTo(StoredLocation.of("world", 7, 12, 7, 0f, 0f));
+        assertThat(data.getStoredLastTeleport()).isEqualTo(StoredLocation.of("world_nether", 7, 40, -7, 90f, 0f));
+        assertThat(data.getStoredLastLocation()).isEqualTo(StoredLocation.of("world", -7, 64, 7, 180f, 5f));
+        assertThat(data.getStoredHome()).isEqualTo(StoredLocation.of("world", 7, 70, 7, 0f, 0f));
+        assertThat(data.isKeepXp()).isFalse();
+    }
+
+    @Test
+    void keepXpDefaultsToTrueAndUnknownPlayersHaveNoData() throws SQLException {
+        UUID playerId = savePlayer(1, false);
+        try (Connection conn = DriverManager.getConnection(jdbcUrl);
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM pitbully_player_settings");
+        }
+
+        assertThat(storage.getPlayerData(playerId).isKeepXp()).isTrue();
+        assertThat(storage.getPlayerData(UUID.randomUUID())).isNull();
+    }
+
+    @Test
+    void savesSettingsInOneBatchAndLoadsThemWithThePlayer() {
+        UUID playerId = savePlayer(3, true);
+        Map<String, String> settings = new HashMap<>();
+        settings.put("keepXp", "false");
+        settings.put("radius", "32");
+        storage.savePlayerSettings(playerId, settings);
+        storage.savePlayerSettings(playerId, Collections.singletonMap("radius", null));
+        storage.savePlayerSettings(playerId, Collections.singletonMap("autoAccept", "true"));
+
+        storage.preloadPlayer(playerId);
+        PlayerData data = storage.getPlayerData(playerId);
+        storage.unloadPlayer(playerId);
+
+        assertThat(data.isKeepXp()).isFalse();
+        assertThat(data.getSettings()).containsOnly(Map.entry("autoAccept", "true"));
+        assertThat(data.getStoredHome()).isEqualTo(StoredLocation.of("world", 3, 70, 3, 0f, 0f));
+    }
+
+    @Test
+    void seesBufferedWrites() {
+        UUID playerId = savePlayer(1, true);
+        storage.enableWriteBehind(60_000, 1000, 100);
+        PlayerData data = new PlayerData();
+        data.setStoredHome(StoredLocation.of("world", 99, 64, 99, 0f, 0f));
+        storage.savePlayerData(playerId, data);
+
+        assertThat(storage.getPlayerData(playerId).getStoredHome()).isEqualTo(StoredLocation.of("world", 99, 64, 99, 0f, 0f));
+    }
+
+    @Test
+    void singleQueryMatchesTwoQueries() throws SQLException {
+        List<UUID> players = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            players.add(savePlayer(i, i % 2 == 0));
+        }
+        try (HikariDataSource pool = pool()) {
+            for (UUID playerId : players) {
+                assertThat(storage.getPlayerData(playerId).isKeepXp()).isEqualTo(readWithTwoQueries(pool, playerId));
+            }
+        }
+    }
+
+    /**
+     * Compares the single query with the previous implementation, which read the locations
+     * and the keepXp setting with two queries on two connections.
+     */
+    @Test
+    @Tag("benchmark")
+    void singleQueryComparedToTwoQueries() throws SQLException {
+        List<UUID> players = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            players.add(savePlayer(i, i % 2 == 0));
+        }
+        try (HikariDataSource pool = pool()) {
+            compare(players, 20, pool);
+        }
+    }
+
+    private HikariDataSource pool() {
+        HikariConfig poolConfig = new HikariConfig();
+        poolConfig.setJdbcUrl(jdbcUrl);
+        poolConfig.setMaximumPoolSize(4);
+        return new HikariDataSource(poolConfig);
+    }
+
+    private void compare(List<UUID> players, int rounds, HikariDataSource pool) throws SQLException {
+        // Warm-up
+        for (UUID playerId : players) {
+            storage.getPlayerData(playerId);
+            readWithTwoQueries(pool, playerId);
+        }
+
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (UUID playerId : players) {
+                readWithTwoQueries(pool, playerId);
+            }
+        }
+        long twoQueries = (System.nanoTime() - start) / (rounds * players.size());
+
+        start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (UUID playerId : players) {
+                storage.getPlayerData(playerId);
+            }
+        }
+        long singleQuery = (System.nanoTime() - start) / (rounds * players.size());
+
+        logger.info("getPlayerData: " + singleQuery / 1000 + " µs with one query, "
+            + twoQueries / 1000 + " µs with two queries (SQLite, per call)");
+    }
+
+    /**
+     * The previous read path.
+     *
+     * @return The keepXp setting
+     */
+    private static boolean readWithTwoQueries(HikariDataSource pool, UUID playerId) throws SQLException {
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT l.location_type, w.name, l.x, l.y, l.z, l.yaw, l.pitch FROM pitbully_player_locations l " +
+                 "JOIN pitbully_worlds w ON w.id = l.world_id WHERE l.player_uuid = ?")) {
+            stmt.setBytes(1, UuidCodec.toBytes(playerId));
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    StoredLocation.of(rs.getString(2), rs.getDouble(3), rs.getDouble(4), rs.getDouble(5),
+                        rs.getFloat(6), rs.getFloat(7));
+                }
+            }
+        }
+        try (Connection conn = pool.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                 "SELECT setting_value FROM pitbully_player_settings WHERE player_uuid = ? AND setting_name = 'keepXp'")) {
+            stmt.setString(1, playerId.toString());
+            try (ResultSet rs = stmt.executeQuery()) {
+                return !rs.next() || "true".equalsIgnoreCase(rs.getString(1));
+            }
+        }
+    }
+}
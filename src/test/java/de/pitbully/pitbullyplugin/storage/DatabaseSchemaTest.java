@@ -0,0 +1,100 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class DatabaseSchemaTest {
+
+    private final Logger logger = Logger.getLogger("Test");
+    private Connection conn;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        conn = DriverManager.getConnection("jdbc:sqlite::memory:");
+    }
+
+    @AfterEach
+    void tearDown() throws SQLException {
+        conn.close();
+    }
+
+    private boolean tableExists(String name) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT name FROM sqlite_master WHERE type = 'table' AND name = '" + name + "'")) {
+            return rs.next();
+        }
+    }
+
+    @Test
+    void appliesVersionsInOrderAndRecordsThem() throws SQLException {
+        DatabaseSchema schema = new DatabaseSchema(logger)
+            .version(1, "first", c -> DatabaseSchema.execute(c, "CREATE TABLE a (id INT)"))
+            .version(2, "second", c -> DatabaseSchema.execute(c, "CREATE TABLE b (id INT)"));
+
+        assertThat(schema.upgrade(conn)).isEqualTo(2);
+
+        assertThat(tableExists("a")).isTrue();
+        assertThat(tableExists("b")).isTrue();
+        assertThat(DatabaseSchema.readVersion(conn)).isEqualTo(2);
+        assertThat(conn.getAutoCommit()).isTrue();
+    }
+
+    @Test
+    void onlyRunsVersionsNewerThanTheDatabase() throws SQLException {
+        AtomicInteger runs = new AtomicInteger();
+        new DatabaseSchema(logger)
+            .version(1, "first", c -> runs.incrementAndGet())
+            .upgrade(conn);
+
+        DatabaseSchema upgraded = new DatabaseSchema(logger)
+            .version(1, "first", c -> runs.incrementAndGet())
+            .version(2, "second", c -> runs.addAndGet(10));
+        assertThat(upgraded.upgrade(conn)).isEqualTo(2);
+        assertThat(upgraded.upgrade(conn)).isEqualTo(2);
+
+        assertThat(runs.get()).isEqualTo(11);
+    }
+
+    @Test
+    void failedVersionIsRolledBackAndNotRecorded() throws SQLException {
+        DatabaseSchema schema = new DatabaseSchema(logger)
+            .version(1, "first", c -> DatabaseSchema.execute(c, "CREATE TABLE a (id INT)"))
+            .version(2, "broken", c -> DatabaseSchema.execute(c,
+                "CREATE TABLE b (id INT)",
+                "INSERT INTO missing_table VALUES (1)"));
+
+        assertThatThrownBy(() -> schema.upgrade(conn)).isInstanceOf(SQLException.class);
+
+        assertThat(DatabaseSchema.readVersion(conn)).isEqualTo(1);
+        assertThat(tableExists("a")).isTrue();
+        assertThat(tableExists("b")).isFalse();
+    }
+
+    @Test
+    void leavesNewerSchemasUntouched() throws SQLException {
+        new DatabaseSchema(logger)
+            .version(1, "first", c -> { })
+            .version(2, "second", c -> { })
+            .upgrade(conn);
+
+        assertThat(new DatabaseSchema(logger).version(1, "first", c -> { }).upgrade(conn)).isEqualTo(2);
+    }
+
+    @Test
+    void versionsMustIncrease() {
+        DatabaseSchema schema = new DatabaseSchema(logger).version(2, "second", c -> { });
+
+        assertThatThrownBy(() -> schema.version(2, "again", c -> { })).isInstanceOf(IllegalArgumentException.class);
+    }
+}
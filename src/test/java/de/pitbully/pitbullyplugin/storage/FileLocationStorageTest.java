@@ -1,10 +1,14 @@
 package de.pitbully.pitbullyplugin.storage;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
 
 import java.io.File;
 import java.nio.file.Files;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Logger;
 import org.bukkit.Location;
 import org.bukkit.configuration.file.YamlConfiguration;
@@ -221,4 +225,199 @@ class FileLocationStorageTest {
             try { tempDir.delete(); } catch (Exception ignored) {}
         }
     }
+
+    @Test
+    void saveAll_skipsWriteWhenNothingChanged() throws Exception {
+        File tempDir = Files.createTempDirectory("pitbully-dirty-skip-test").toFile();
+        File locationsFile = new File(tempDir, "locations.yml");
+        try {
+            Logger logger = Logger.getLogger("Test");
+            FileLocationStorage storage = new FileLocationStorage(tempDir, logger);
+            UUID id = UUID.randomUUID();
+            storage.saveHomeLocation(id, new Location(null, 1, 64, 1));
+            assertThat(storage.isDirty()).isTrue();
+
+            storage.saveAll();
+            assertThat(storage.isDirty()).isFalse();
+
+            // An idle save must not touch the file
+            assertThat(locationsFile.delete()).isTrue();
+            storage.saveAll();
+            assertThat(locationsFile).doesNotExist();
+
+            // The next change writes again
+            storage.saveWarpLocation("spawn", new Location(null, 0, 70, 0));
+            storage.saveAll();
+            assertThat(locationsFile).exists();
+        } finally {
+            try { locationsFile.delete(); } catch (Exception ignored) {}
+            try { tempDir.delete(); } catch (Exception ignored) {}
+        }
+    }
+
+    @Test
+    void saveAll_rewritesOnlyChangedEntries() throws Exception {
+        File tempDir = Files.createTempDirectory("pitbully-dirty-subtree-test").toFile();
+        File locationsFile = new File(tempDir, "locations.yml");
+        try {
+            Logger logger = Logger.getLogger("Test");
+            UUID kept = UUID.randomUUID();
+            UUID removed = UUID.randomUUID();
+            {
+                FileLocationStorage storage = new FileLocationStorage(tempDir, logger);
+                storage.saveHomeLocation(kept, new Location(null, 1, 64, 1));
+                storage.saveHomeLocation(removed, new Location(null, 2, 64, 2));
+                storage.saveWarpLocation("a", new Location(null, 3, 64, 3));
+                storage.saveWarpLocation("b", new Location(null, 4, 64, 4));
+                storage.saveAll();
+            }
+
+            FileLocationStorage storage = new FileLocationStorage(tempDir, logger);
+            assertThat(storage.isDirty()).isFalse();
+            storage.deleteHomeLocation(removed);
+            storage.deleteWarpLocation("b");
+            storage.saveAll();
+
+            YamlConfiguration cfg = YamlConfiguration.loadConfiguration(locationsFile);
+            assertThat(cfg.contains("players." + kept + ".home")).isTrue();
+            assertThat(cfg.contains("players." + removed)).isFalse();
+            assertThat(cfg.contains("warpLocations.a")).isTrue();
+            assertThat(cfg.contains("warpLocations.b")).isFalse();
+        } finally {
+            try { locationsFile.delete(); } catch (Exception ignored) {}
+            try { tempDir.delete(); } catch (Exception ignored) {}
+        }
+    }
+
+    @Test
+    void saveAllAsync_writesInBackground_andLeavesNoTempFile() throws Exception {
+        File tempDir = Files.createTempDirectory("pitbully-async-save-test").toFile();
+        File locationsFile = new File(tempDir, "locations.yml");
+        try {
+            Logger logger = Logger.getLogger("Test");
+            FileLocationStorage storage = new FileLocationStorage(tempDir, logger);
+            UUID id = UUID.randomUUID();
+            Location home = new Location(null, 1, 64, 1);
+            storage.saveHomeLocation(id, home);
+
+            CompletableFuture<Void> first = storage.saveAllAsync();
+            // Changes after the snapshot must not leak into the running write
+            home.setX(99);
+            storage.saveWarpLocation("a", new Location(null, 3, 64, 3));
+            CompletableFuture<Void> second = storage.saveAllAsync();
+            CompletableFuture<Void> third = storage.saveAllAsync();
+            CompletableFuture.allOf(first, second, third).get(10, TimeUnit.SECONDS);
+
+            assertThat(storage.isDirty()).isFalse();
+            assertThat(new File(tempDir, "locations.yml.tmp")).doesNotExist();
+
+            YamlConfiguration cfg = YamlConfiguration.loadConfiguration(locationsFile);
+            assertThat(cfg.contains("players." + id + ".home")).isTrue();
+            assertThat(cfg.contains("warpLocations.a")).isTrue();
+            storage.close();
+        } finally {
+            try { locationsFile.delete(); } catch (Exception ignored) {}
+            try { tempDir.delete(); } catch (Exception ignored) {}
+        }
+    }
+
+    @Test
+    void legacyYamlIsConvertedToSnapshot_andLoadedFromItOnRestart() throws Exception {
+        File tempDir = Files.createTempDirectory("pitbully-snapshot-convert-test").toFile();
+        File locationsFile = new File(tempDir, "locations.yml");
+        File snapshotFile = new File(tempDir, LocationSnapshot.FILE_NAME);
+        try {
+            UUID id = UUID.randomUUID();
+            YamlConfiguration legacy = new YamlConfiguration();
+            legacy.set("homeLocations." + id, new Location(null, 10, 70, -3));
+            legacy.set("warpLocations.shop", new Location(null, 1, 65, 1));
+            legacy.save(locationsFile);
+
+            Logger logger = Logger.getLogger("Test");
+            FileLocationStorage storage = new FileLocationStorage(tempDir, logger);
+            // Legacy sections must be migrated by a YAML write before a snapshot can be taken
+            assertThat(snapshotFile).doesNotExist();
+            storage.saveAll();
+            assertThat(snapshotFile).exists();
+
+            FileLocationStorage restarted = new FileLocationStorage(tempDir, logger);
+            assertThat(restarted.isDirty()).isFalse();
+            assertThat(restarted.getHomeLocation(id).getZ()).isEqualTo(-3);
+            assertThat(restarted.hasWarpLocation("shop")).isTrue();
+
+            // Changes after loading from the snapshot still keep untouched YAML entries
+            restarted.saveWarpLocation("mine", new Location(null, 2, 12, 2));
+            restarted.saveAll();
+            YamlConfiguration cfg = YamlConfiguration.loadConfiguration(locationsFile);
+            assertThat(cfg.contains("players." + id + ".home")).isTrue();
+            assertThat(cfg.contains("warpLocations.shop")).isTrue();
+            assertThat(cfg.contains("warpLocations.mine")).isTrue();
+        } finally {
+            try { snapshotFile.delete(); } catch (Exception ignored) {}
+            try { locationsFile.delete(); } catch (Exception ignored) {}
+            try { tempDir.delete(); } catch (Exception ignored) {}
+        }
+    }
+
+    @Test
+    void getAllLocations_areReadOnlyViewsOfPlayerData() throws Exception {
+        File tempDir = Files.createTempDirectory("pitbully-views-test").toFile();
+        try {
+            FileLocationStorage storage = new FileLocationStorage(tempDir, Logger.getLogger("Test"));
+            UUID withHome = UUID.randomUUID();
+            UUID withoutHome = UUID.randomUUID();
+            Map<UUID, Location> homes = storage.getAllHomeLocations();
+
+            storage.saveHomeLocation(withHome, new Location(null, 1, 64, 1));
+            storage.saveDeathLocation(withoutHome, new Location(null, 2, 64, 2));
+            assertThat(homes).containsOnlyKeys(withHome);
+            assertThat(storage.getAllDeathLocations()).containsOnlyKeys(withoutHome);
+
+            // Changes made through savePlayerData are visible as well
+            PlayerData data = new PlayerData();
+            data.setHome(new Location(null, 3, 64, 3));
+            storage.savePlayerData(withoutHome, data);
+            assertThat(homes).hasSize(2);
+            assertThat(storage.getHomeLocation(withoutHome).getX()).isEqualTo(3);
+
+            storage.deleteHomeLocation(withHome);
+            assertThat(homes).containsOnlyKeys(withoutHome);
+            assertThat(storage.hasHomeLocation(withHome)).isFalse();
+
+            assertThatThrownBy(() -> homes.put(withHome, new Location(null, 0, 0, 0)))
+                .isInstanceOf(UnsupportedOperationException.class);
+            assertThatThrownBy(() -> storage.getAllWarpLocations().clear())
+                .isInstanceOf(UnsupportedOperationException.class);
+        } finally {
+            try { tempDir.delete(); } catch (Exception ignored) {}
+        }
+    }
+
+    @Test
+    void locationsInUnloadedWorlds_areKeptAcrossSaveAndReload() throws Exception {
+        File tempDir = Files.createTempDirectory("pitbully-unloaded-world-test").toFile();
+        try {
+            Logger logger = Logger.getLogger("Test");
+            UUID id = UUID.randomUUID();
+            FileLocationStorage storage = new FileLocationStorage(tempDir, logger);
+            PlayerData data = new PlayerData();
+            data.setStoredHome(StoredLocation.of("file_test_unloaded", 4, 64, 4, 0f, 0f));
+            storage.savePlayerData(id, data);
+            storage.saveStoredWarpLocation("far", StoredLocation.of("file_test_unloaded", 9, 70, 9, 0f, 0f));
+            storage.close();
+            // Read the YAML, not the binary snapshot
+            new File(tempDir, LocationSnapshot.FILE_NAME).delete();
+
+            FileLocationStorage reopened = new FileLocationStorage(tempDir, logger);
+            // Not usable while the world is not loaded, but not dropped either
+            assertThat(reopened.getHomeLocation(id)).isNull();
+            assertThat(reopened.getWarpLocation("far")).isNull();
+            assertThat(reopened.getPlayerData(id).getStoredHome().getWorldName()).isEqualTo("file_test_unloaded");
+            assertThat(reopened.getAllStoredWarpLocations().get("far").getX()).isEqualTo(9);
+        } finally {
+            try (java.util.stream.Stream<java.nio.file.Path> files = Files.walk(tempDir.toPath())) {
+                files.sorted(java.util.Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+            }
+        }
+    }
 }
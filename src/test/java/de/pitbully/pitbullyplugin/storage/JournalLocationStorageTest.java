@@ -0,0 +1,211 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.io.File;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+import org.bukkit.Location;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import de.pitbully.pitbullyplugin.utils.ConfigManager;
+import de.pitbully.pitbullyplugin.utils.PlayerData;
+import org.mockito.Mockito;
+
+class JournalLocationStorageTest {
+
+    private final Logger logger = Logger.getLogger("Test");
+    private File tempDir;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        tempDir = Files.createTempDirectory("pitbully-journal-test").toFile();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        try (Stream<java.nio.file.Path> files = Files.walk(tempDir.toPath())) {
+            files.sorted(Comparator.reverseOrder()).map(java.nio.file.Path::toFile).forEach(File::delete);
+        }
+    }
+
+    private JournalLocationStorage open(int compactAfterRecords) throws Exception {
+        // Long sync interval: tests sync explicitly through saveAll/close
+        return new JournalLocationStorage(tempDir, logger, 60_000, compactAfterRecords);
+    }
+
+    @Test
+    void replaysAllMutationsAfterRestart() throws Exception {
+        UUID id = UUID.randomUUID();
+        UUID removed = UUID.randomUUID();
+        JournalLocationStorage storage = open(1000);
+        storage.saveDeathLocation(id, new Location(null, 1, 2, 3));
+        storage.saveTeleportLocation(id, new Location(null, 4, 5, 6, 90f, 10f));
+        storage.saveLastLocation(id, new Location(null, 7, 8, 9));
+        storage.saveHomeLocation(id, new Location(null, 10, 64, 10));
+        storage.saveHomeLocation(removed, new Location(null, 0, 64, 0));
+        storage.deleteHomeLocation(removed);
+        storage.saveWarpLocation("a", new Location(null, 1, 70, 1));
+        storage.saveWarpLocation("b", new Location(null, 2, 70, 2));
+        storage.deleteWarpLocation("b");
+        storage.saveWorldSpawn(new Location(null, 0, 80, 0));
+        PlayerData data = storage.getPlayerData(id);
+        data.setKeepXp(false);
+        storage.savePlayerData(id, data);
+        storage.close();
+
+        JournalLocationStorage reopened = open(1000);
+        assertThat(reopened.getDeathLocation(id).getX()).isEqualTo(1);
+        assertThat(reopened.getTeleportLocation(id).getYaw()).isEqualTo(90f);
+        assertThat(reopened.getLastLocation(id).getZ()).isEqualTo(9);
+        assertThat(reopened.getHomeLocation(id).getY()).isEqualTo(64);
+        assertThat(reopened.getPlayerData(id).isKeepXp()).isFalse();
+        assertThat(reopened.hasHomeLocation(removed)).isFalse();
+        assertThat(reopened.getAllWarpLocations()).containsOnlyKeys("a");
+        assertThat(reopened.getWorldSpawn().getY()).isEqualTo(80);
+        reopened.close();
+    }
+
+    @Test
+    void replaysAndCompactsPlayerSettings() throws Exception {
+        UUID id = UUID.randomUUID();
+        JournalLocationStorage storage = open(1000);
+        Map<String, String> settings = new HashMap<>();
+        settings.put("keepXp", "false");
+        settings.put("radius", "32");
+        settings.put("autoAccept", "true");
+        storage.savePlayerSettings(id, settings);
+        storage.savePlayerSettings(id, Collections.singletonMap("autoAccept", null));
+        storage.close();
+
+        JournalLocationStorage reopened = open(1);
+        assertThat(reopened.getPlayerData(id).isKeepXp()).isFalse();
+        assertThat(reopened.getPlayerData(id).getSettings()).containsOnly(Map.entry("radius", "32"));
+        // Compacts into a new snapshot
+        reopened.saveAll();
+        reopened.close();
+
+        JournalLocationStorage compacted = open(1000);
+        assertThat(compacted.getPlayerData(id).getSetting("radius")).isEqualTo("32");
+        assertThat(compacted.getPlayerData(id).isKeepXp()).isFalse();
+        compacted.close();
+    }
+
+    @Test
+    void cutsOffTornRecordAtEndOfJournal() throws Exception {
+        UUID id = UUID.randomUUID();
+        JournalLocationStorage storage = open(1000);
+        storage.saveHomeLocation(id, new Location(null, 1, 64, 1));
+        storage.close();
+
+        // Simulate a crash in the middle of writing the next record
+        File journalFile = new File(tempDir, JournalLocationStorage.JOURNAL_FILE);
+        long validLength = journalFile.length();
+        try (RandomAccessFile raf = new RandomAccessFile(journalFile, "rw")) {
+            raf.seek(validLength);
+            raf.write(new byte[] { 0, 0, 0, 60, 1, 2, 3 });
+        }
+
+        JournalLocationStorage reopened = open(1000);
+        assertThat(reopened.getHomeLocation(id).getX()).isEqualTo(1);
+        assertThat(journalFile.length()).isEqualTo(validLength);
+
+        // Appending continues after the last valid record
+        reopened.saveWarpLocation("a", new Location(null, 1, 70, 1));
+        reopened.close();
+        JournalLocationStorage again = open(1000);
+        assertThat(again.hasWarpLocation("a")).isTrue();
+        assertThat(again.getHomeLocation(id)).isNotNull();
+        again.close();
+    }
+
+    @Test
+    void compactionWritesSnapshotAndShrinksJournal() throws Exception {
+        UUID id = UUID.randomUUID();
+        JournalLocationStorage storage = open(10);
+        for (int i = 0; i < 20; i++) {
+            storage.saveLastLocation(id, new Location(null, i, 64, 0));
+        }
+        storage.saveAll();
+
+        File journalFile = new File(tempDir, JournalLocationStorage.JOURNAL_FILE);
+        assertThat(new File(tempDir, JournalLocationStorage.SNAPSHOT_FILE)).exists();
+        // Only the header is left
+        assertThat(journalFile.length()).isEqualTo(8);
+
+        storage.saveHomeLocation(id, new Location(null, 5, 64, 5));
+        storage.close();
+
+        JournalLocationStorage reopened = open(10);
+        assertThat(reopened.getLastLocation(id).getX()).isEqualTo(19);
+        assertThat(reopened.getHomeLocation(id).getX()).isEqualTo(5);
+        reopened.close();
+    }
+
+    @Test
+    void importsLocationsYmlOnFirstStart_andExportsBack() throws Exception {
+        UUID id = UUID.randomUUID();
+        FileLocationStorage fileStorage = new FileLocationStorage(tempDir, logger);
+        fileStorage.saveHomeLocation(id, new Location(null, 3, 64, 3));
+        fileStorage.saveWarpLocation("spawn", new Location(null, 0, 70, 0));
+        fileStorage.close();
+
+        JournalLocationStorage storage = open(1000);
+        assertThat(storage.getHomeLocation(id).getX()).isEqualTo(3);
+        assertThat(storage.hasWarpLocation("spawn")).isTrue();
+        storage.saveWarpLocation("shop", new Location(null, 9, 70, 9));
+
+        File exportDir = new File(tempDir, "export");
+        FileLocationStorage target = new FileLocationStorage(exportDir, logger);
+        storage.exportTo(target);
+        storage.close();
+
+        FileLocationStorage exported = new FileLocationStorage(exportDir, logger);
+        assertThat(exported.getHomeLocation(id).getX()).isEqualTo(3);
+        assertThat(exported.getAllWarpLocations()).containsOnlyKeys("spawn", "shop");
+    }
+
+    @Test
+    void switchingFileToJournalToFileKeepsJournalChanges() throws Exception {
+        UUID id = UUID.randomUUID();
+        FileLocationStorage fileStorage = new FileLocationStorage(tempDir, logger);
+        fileStorage.saveHomeLocation(id, new Location(null, 3, 64, 3));
+        fileStorage.saveWarpLocation("old", new Location(null, 0, 70, 0));
+        fileStorage.close();
+
+        ConfigManager journalConfig = Mockito.mock(ConfigManager.class);
+        Mockito.when(journalConfig.isJournalStorageEnabled()).thenReturn(true);
+        Mockito.when(journalConfig.getJournalSyncInterval()).thenReturn(60_000L);
+        Mockito.when(journalConfig.getJournalCompactAfterRecords()).thenReturn(1000);
+        LocationManager.initializeWithConfig(journalConfig, tempDir, logger);
+        assertThat(new File(tempDir, "locations.yml")).doesNotExist();
+        assertThat(new File(tempDir, "locations.yml" + JournalLocationStorage.IMPORTED_SUFFIX)).exists();
+        LocationStorage journal = LocationManager.getStorage();
+        journal.saveHomeLocation(id, new Location(null, 8, 64, 8));
+        journal.deleteWarpLocation("old");
+        journal.saveWarpLocation("new", new Location(null, 5, 70, 5));
+        journal.close();
+
+        LocationManager.initializeWithConfig(Mockito.mock(ConfigManager.class), tempDir, logger);
+        LocationStorage file = LocationManager.getStorage();
+        assertThat(file).isInstanceOf(FileLocationStorage.class);
+        assertThat(file.getHomeLocation(id).getX()).isEqualTo(8);
+        assertThat(file.getAllWarpLocations()).containsOnlyKeys("new");
+        file.saveHomeLocation(id, new Location(null, 11, 64, 11));
+        file.close();
+
+        // The exported journal is set aside, so the next switch imports the file's changes
+        LocationManager.initializeWithConfig(journalConfig, tempDir, logger);
+        assertThat(LocationManager.getStorage().getHomeLocation(id).getX()).isEqualTo(11);
+        LocationManager.getStorage().close();
+    }
+}
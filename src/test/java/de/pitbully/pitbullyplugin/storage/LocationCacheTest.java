@@ -0,0 +1,95 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.bukkit.Location;
+import org.junit.jupiter.api.Test;
+
+class LocationCacheTest {
+
+    private final AtomicLong now = new AtomicLong();
+
+    private LocationCache<String> createCache(int maxEntries, long ttlMillis) {
+        return new LocationCache<>(maxEntries, ttlMillis, now::get);
+    }
+
+    @Test
+    void countsHitsAndMisses() {
+        LocationCache<String> cache = createCache(10, 1000);
+        assertThat(cache.get("spawn")).isNull();
+        cache.putLoaded("spawn", StoredLocation.of(null, 1, 2, 3, 0f, 0f));
+
+        LocationCache.Entry entry = cache.get("spawn");
+        assertThat(entry).isNotNull();
+        assertThat(entry.getLocation().getX()).isEqualTo(1);
+        assertThat(cache.getHitCount()).isEqualTo(1);
+        assertThat(cache.getMissCount()).isEqualTo(1);
+        assertThat(cache.getHitRate()).isEqualTo(0.5);
+    }
+
+    @Test
+    void cachesAbsentRows() {
+        LocationCache<String> cache = createCache(10, 1000);
+        cache.putLoaded("missing", null);
+
+        LocationCache.Entry entry = cache.get("missing");
+        assertThat(entry).isNotNull();
+        assertThat(entry.isPresent()).isFalse();
+        assertThat(entry.getLocation()).isNull();
+    }
+
+    @Test
+    void expiresEntriesAfterTtl() {
+        LocationCache<String> cache = createCache(10, 1000);
+        cache.put("home", StoredLocation.of(null, 1, 2, 3, 0f, 0f));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(999));
+        assertThat(cache.get("home")).isNotNull();
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1));
+        assertThat(cache.get("home")).isNull();
+        assertThat(cache.getEvictionCount()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsLeastRecentlyUsed() {
+        LocationCache<String> cache = createCache(2, 1000);
+        cache.put("a", StoredLocation.of(null, 1, 0, 0, 0f, 0f));
+        cache.put("b", StoredLocation.of(null, 2, 0, 0, 0f, 0f));
+        cache.get("a");
+        cache.put("c", StoredLocation.of(null, 3, 0, 0, 0f, 0f));
+
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.get("a")).isNotNull();
+        assertThat(cache.get("b")).isNull();
+    }
+
+    @Test
+    void loadDoesNotOverwriteNewerWrite() {
+        LocationCache<String> cache = createCache(10, 1000);
+        cache.put("warp", StoredLocation.of(null, 5, 0, 0, 0f, 0f));
+        cache.putLoaded("warp", StoredLocation.of(null, 1, 0, 0, 0f, 0f));
+
+        assertThat(cache.get("warp").getLocation().getX()).isEqualTo(5);
+    }
+
+    @Test
+    void materializedLocationsDoNotChangeCachedValue() {
+        LocationCache<String> cache = createCache(10, 1000);
+        cache.put("home", StoredLocation.of(null, 1, 2, 3, 0f, 0f));
+
+        Location cached = cache.get("home").getLocation().toLocation();
+        assertThat(cached.getX()).isEqualTo(1);
+        cached.setX(50);
+        assertThat(cache.get("home").getLocation().getX()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidateRemovesEntry() {
+        LocationCache<String> cache = createCache(10, 1000);
+        cache.put("home", StoredLocation.of(null, 1, 2, 3, 0f, 0f));
+        cache.invalidate("home");
+        assertThat(cache.get("home")).isNull();
+    }
+}
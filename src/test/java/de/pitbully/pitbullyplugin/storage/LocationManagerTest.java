@@ -3,13 +3,16 @@ package de.pitbully.pitbullyplugin.storage;
 import static org.assertj.core.api.Assertions.assertThat;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
 import org.mockito.Mockito;
 
 import de.pitbully.pitbullyplugin.utils.PlayerData;
@@ -91,6 +94,32 @@ class LocationManagerTest {
         assertThat(LocationManager.checkLastLocation(id)).isTrue();
     }
 
+    @Test
+    void teleportUpdatesTeleportAndLastLocation() {
+        UUID id = UUID.randomUUID();
+        Location loc = new Location(world, 7, 64, -7);
+        LocationManager.updateLastTeleportLocations(id, loc);
+        assertThat(LocationManager.getLastTeleportLocations(id)).isEqualTo(loc);
+        assertThat(LocationManager.getLastLocation(id)).isEqualTo(loc);
+        assertThat(LocationManager.getLastDeathLocation(id)).isNull();
+    }
+
+    @Test
+    void deathAndTeleportUseOneMultiTypeWrite() {
+        FakeStorage storage = Mockito.spy(new FakeStorage());
+        LocationManager.initialize(storage);
+        UUID id = UUID.randomUUID();
+        Location loc = new Location(world, 1, 64, 1);
+
+        LocationManager.updateLastDeathLocations(id, loc);
+        LocationManager.updateLastTeleportLocations(id, loc);
+
+        Mockito.verify(storage).savePlayerLocations(id, loc, PlayerLocationType.DEATH, PlayerLocationType.LAST);
+        Mockito.verify(storage).savePlayerLocations(id, loc, PlayerLocationType.TELEPORT, PlayerLocationType.LAST);
+        assertThat(storage.deaths).containsEntry(id, loc);
+        assertThat(storage.lasts).containsEntry(id, loc);
+    }
+
     @Test
     void homeLifecycle() {
         UUID id = UUID.randomUUID();
@@ -157,12 +186,102 @@ class LocationManagerTest {
         // Initially no data - should default to true
         assertThat(LocationStorage.isKeepingXp(mockPlayer)).isTrue();
         
-        // Set keepXp to false via PlayerData
+        // Set keepXp to false the way /keepxp does
+        LocationManager.setKeepXp(id, false).join();
+        
+        // Should now return false and be persisted
+        assertThat(LocationStorage.isKeepingXp(mockPlayer)).isFalse();
+        assertThat(LocationManager.getStorage().getPlayerData(id).isKeepXp()).isFalse();
+    }
+
+    @Test
+    void keepXpIsServedFromMemoryForLoadedPlayers() {
+        UUID id = UUID.randomUUID();
         PlayerData data = new PlayerData();
         data.setKeepXp(false);
-        LocationManager.getStorage().savePlayerData(id, data);
+        FakeStorage storage = Mockito.spy(new FakeStorage());
+        storage.savePlayerData(id, data);
+        LocationManager.initialize(storage);
         
-        // Should now return false
-        assertThat(LocationStorage.isKeepingXp(mockPlayer)).isFalse();
+        LocationManager.preloadPlayer(id);
+        LocationManager.loadPlayerSettings(id);
+        Mockito.clearInvocations(storage);
+        
+        assertThat(LocationManager.isKeepXp(id)).isFalse();
+        assertThat(LocationManager.isKeepXp(id)).isFalse();
+        Mockito.verifyNoInteractions(storage);
+        
+        // After quitting the setting is read from storage again
+        LocationManager.unloadPlayer(id);
+        assertThat(LocationManager.isKeepXp(id)).isFalse();
+        Mockito.verify(storage).getPlayerData(id);
+    }
+
+    @Test
+    void preloadReadsSettingsOnlyFromThreadSafeStorages() {
+        UUID id = UUID.randomUUID();
+        FakeStorage storage = Mockito.spy(new FakeStorage());
+        LocationManager.initialize(storage);
+        
+        // The file and journal maps are only guarded by the main thread
+        LocationManager.preloadPlayer(id);
+        Mockito.verify(storage, Mockito.never()).getPlayerData(id);
+        LocationManager.loadPlayerSettings(id);
+        LocationManager.loadPlayerSettings(id);
+        Mockito.verify(storage).getPlayerData(id);
+        
+        Mockito.when(storage.isThreadSafe()).thenReturn(true);
+        UUID other = UUID.randomUUID();
+        LocationManager.preloadPlayer(other);
+        LocationManager.loadPlayerSettings(other);
+        Mockito.verify(storage).getPlayerData(other);
+    }
+
+    @Test
+    void playersOnlineAtEnableAreServedFromMemory() {
+        UUID id = UUID.randomUUID();
+        PlayerData data = new PlayerData();
+        data.setKeepXp(false);
+        FakeStorage storage = Mockito.spy(new FakeStorage());
+        storage.savePlayerData(id, data);
+        LocationManager.initialize(storage);
+        Player player = Mockito.mock(Player.class);
+        Mockito.when(player.getUniqueId()).thenReturn(id);
+        
+        try (MockedStatic<Bukkit> bukkit = Mockito.mockStatic(Bukkit.class)) {
+            bukkit.when(Bukkit::getOnlinePlayers).thenReturn(List.of(player));
+            LocationManager.loadOnlinePlayerSettings();
+        }
+        Mockito.clearInvocations(storage);
+        
+        assertThat(LocationManager.isKeepXp(id)).isFalse();
+        Mockito.verifyNoInteractions(storage);
+    }
+
+    @Test
+    void offlinePlayersAreNotCached() {
+        UUID id = UUID.randomUUID();
+        FakeStorage storage = Mockito.spy(new FakeStorage());
+        LocationManager.initialize(storage);
+        
+        assertThat(LocationManager.isKeepXp(id)).isTrue();
+        PlayerData data = new PlayerData();
+        data.setKeepXp(false);
+        storage.savePlayerData(id, data);
+        assertThat(LocationManager.isKeepXp(id)).isFalse();
+        Mockito.verify(storage, Mockito.times(2)).getPlayerData(id);
+    }
+
+    @Test
+    void setKeepXpKeepsStoredLocations() {
+        UUID id = UUID.randomUUID();
+        Location home = new Location(world, 10, 70, 20);
+        LocationManager.updateHomeLocation(id, home);
+        
+        LocationManager.setKeepXp(id, false).join();
+        
+        assertThat(LocationManager.isKeepXp(id)).isFalse();
+        assertThat(LocationManager.getStorage().getPlayerData(id).isKeepXp()).isFalse();
+        assertThat(LocationManager.getHomeLocation(id)).isEqualTo(home);
     }
 }
@@ -0,0 +1,116 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.*;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+import de.pitbully.pitbullyplugin.utils.PlayerData;
+
+class LocationSnapshotTest {
+
+    private Path dir;
+    private Path file;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        dir = Files.createTempDirectory("pitbully-snapshot-test");
+        file = dir.resolve(LocationSnapshot.FILE_NAME);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+        Files.deleteIfExists(dir);
+    }
+
+    @Test
+    void roundTripsPlayersWarpsAndSpawn() throws IOException {
+        World world = mock(World.class);
+        when(world.getName()).thenReturn("world");
+        UUID id = UUID.randomUUID();
+        PlayerData data = new PlayerData();
+        data.setHome(new Location(world, 1.5, 64, -2.25, 90f, 12.5f));
+        data.setLastDeath(new Location(null, 7, 8, 9));
+        data.setKeepXp(false);
+        data.setSetting("radius", "32");
+        Map<UUID, PlayerData> players = new HashMap<>();
+        players.put(id, data);
+        Map<String, StoredLocation> warps = new HashMap<>();
+        warps.put("spawn", StoredLocation.of(new Location(world, 0, 70, 0)));
+        warps.put("ümlaut", StoredLocation.of(new Location(null, 3, 4, 5)));
+
+        new LocationSnapshot(players, warps, StoredLocation.of(new Location(world, 10, 80, 10))).write(file, 123, 456);
+
+        try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
+            bukkit.when(() -> Bukkit.getWorld("world")).thenReturn(world);
+            LocationSnapshot read = LocationSnapshot.read(file, 123, 456);
+
+            PlayerData loaded = read.players.get(id);
+            assertThat(loaded.getHome().getWorld()).isSameAs(world);
+            assertThat(loaded.getHome().getX()).isEqualTo(1.5);
+            assertThat(loaded.getHome().getZ()).isEqualTo(-2.25);
+            assertThat(loaded.getHome().getYaw()).isEqualTo(90f);
+            assertThat(loaded.getHome().getPitch()).isEqualTo(12.5f);
+            assertThat(loaded.getLastDeath().getWorld()).isNull();
+            assertThat(loaded.getLastTeleport()).isNull();
+            assertThat(loaded.getLastLocation()).isNull();
+            assertThat(loaded.isKeepXp()).isFalse();
+            assertThat(loaded.getSettings()).containsOnly(Map.entry("radius", "32"));
+            assertThat(read.warps).containsOnlyKeys("spawn", "ümlaut");
+            assertThat(read.worldSpawn.getY()).isEqualTo(80);
+        }
+    }
+
+    @Test
+    void ignoresSnapshotOfAnotherSourceFile() throws IOException {
+        new LocationSnapshot(new HashMap<>(), new HashMap<>(), null).write(file, 100, 200);
+
+        assertThat(LocationSnapshot.read(file, 100, 200)).isNotNull();
+        assertThat(LocationSnapshot.read(file, 101, 200)).isNull();
+        assertThat(LocationSnapshot.read(file, 100, 201)).isNull();
+    }
+
+    @Test
+    void keepsLocationsInUnloadedWorlds() throws IOException {
+        Map<String, StoredLocation> warps = new HashMap<>();
+        warps.put("a", StoredLocation.of("snapshot_unloaded", 1, 2, 3, 0f, 0f));
+        new LocationSnapshot(new HashMap<>(), warps, null).write(file, 1, 1);
+
+        try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
+            bukkit.when(() -> Bukkit.getWorld("snapshot_unloaded")).thenReturn(null);
+            LocationSnapshot read = LocationSnapshot.read(file, 1, 1);
+
+            assertThat(read).isNotNull();
+            assertThat(read.warps.get("a").getWorldName()).isEqualTo("snapshot_unloaded");
+            assertThat(read.warps.get("a").toLocation()).isNull();
+        }
+    }
+
+    @Test
+    void rejectsCorruptSnapshot() throws IOException {
+        Map<String, StoredLocation> warps = new HashMap<>();
+        warps.put("a", StoredLocation.of(null, 1, 2, 3, 0f, 0f));
+        new LocationSnapshot(new HashMap<>(), warps, null).write(file, 1, 1);
+        try (RandomAccessFile raf = new RandomAccessFile(file.toFile(), "rw")) {
+            raf.seek(raf.length() - 10);
+            raf.write(0x7F);
+        }
+
+        assertThatThrownBy(() -> LocationSnapshot.read(file, 1, 1)).isInstanceOf(IOException.class);
+    }
+}
@@ -0,0 +1,79 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import de.pitbully.pitbullyplugin.utils.PlayerData;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+class PlayerSettingTest {
+
+    // The registry is global, so the test settings are registered once
+    static final PlayerSetting<Boolean> AUTO_ACCEPT = PlayerSetting.bool("test.autoAccept", false);
+    static final PlayerSetting<Integer> RADIUS = PlayerSetting.integer("test.radius", 16);
+
+    private LocationManagerTest.FakeStorage storage;
+
+    @BeforeEach
+    void init() {
+        storage = new LocationManagerTest.FakeStorage();
+        LocationManager.initialize(storage);
+    }
+
+    @Test
+    void rejectsDuplicateNames() {
+        assertThatThrownBy(() -> PlayerSetting.bool("keepXp", false)).isInstanceOf(IllegalArgumentException.class);
+        assertThat(PlayerSetting.byName("keepXp")).isSameAs(PlayerSetting.KEEP_XP);
+        assertThat(PlayerSetting.values()).contains(PlayerSetting.KEEP_XP, AUTO_ACCEPT, RADIUS);
+    }
+
+    @Test
+    void decodesStoredValuesAndFallsBackToDefaults() {
+        PlayerData data = new PlayerData();
+        data.setKeepXp(false);
+        data.setSetting("test.radius", "not a number");
+
+        PlayerSettings settings = PlayerSettings.from(data);
+
+        assertThat(settings.isEnabled(PlayerSetting.KEEP_XP)).isFalse();
+        assertThat(settings.isEnabled(AUTO_ACCEPT)).isFalse();
+        assertThat(settings.get(RADIUS)).isEqualTo(16);
+        assertThat(PlayerSettings.from(null).isEnabled(PlayerSetting.KEEP_XP)).isTrue();
+    }
+
+    @Test
+    void changesAreVisibleImmediatelyAndPersistedTogether() {
+        UUID id = UUID.randomUUID();
+        LocationManager.preloadPlayer(id);
+
+        LocationManager.setSettings(id, new PlayerSettingChanges()
+            .set(AUTO_ACCEPT, true)
+            .set(RADIUS, 32)
+            .set(PlayerSetting.KEEP_XP, false)).join();
+
+        assertThat(LocationManager.isEnabled(id, AUTO_ACCEPT)).isTrue();
+        assertThat(LocationManager.getSetting(id, RADIUS)).isEqualTo(32);
+        assertThat(LocationManager.isKeepXp(id)).isFalse();
+        PlayerData stored = storage.getPlayerData(id);
+        assertThat(stored.getSettings()).containsEntry("test.autoAccept", "true").containsEntry("test.radius", "32");
+        assertThat(stored.isKeepXp()).isFalse();
+
+        LocationManager.setSettings(id, new PlayerSettingChanges().reset(RADIUS)).join();
+        assertThat(LocationManager.getSetting(id, RADIUS)).isEqualTo(16);
+        assertThat(storage.getPlayerData(id).getSettings()).doesNotContainKey("test.radius");
+    }
+
+    @Test
+    void settingsSurviveUnloadAndReload() {
+        UUID id = UUID.randomUUID();
+        LocationManager.setSetting(id, RADIUS, 8).join();
+        LocationManager.unloadPlayer(id);
+
+        LocationManager.preloadPlayer(id);
+
+        assertThat(LocationManager.getSetting(id, RADIUS)).isEqualTo(8);
+        assertThat(LocationManager.isEnabled(id, AUTO_ACCEPT)).isFalse();
+    }
+}
@@ -0,0 +1,175 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import de.pitbully.pitbullyplugin.utils.PlayerData;
+import java.io.File;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.UUID;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SqlDialectTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Logger logger = Logger.getLogger("Test");
+
+    /**
+     * The PostgreSQL dialect as run against H2 in PostgreSQL mode. H2 does not support
+     * {@code ON CONFLICT ... DO UPDATE}, so only the upsert is replaced by H2's equivalent
+     * {@code MERGE}; the PostgreSQL upsert itself is covered by {@link #generatesNativeUpserts()}.
+     */
+    static class H2PostgreSql extends SqlDialect.PostgreSql {
+        @Override
+        String upsert(String table, String[] keyColumns, String... valueColumns) {
+            String[] columns = concat(keyColumns, valueColumns);
+            return "MERGE INTO " + table + " (" + String.join(", ", columns) + ") KEY (" + String.join(", ", keyColumns) +
+                   ") VALUES (" + String.join(", ", Collections.nCopies(columns.length, "?")) + ")";
+        }
+    }
+
+    @Test
+    void generatesNativeUpserts() {
+        String[] key = { "player_uuid", "setting_name" };
+
+        assertThat(SqlDialect.of(DatabaseConfig.DatabaseType.MYSQL).upsert("settings", key, "setting_value"))
+            .isEqualTo("INSERT INTO settings (player_uuid, setting_name, setting_value) VALUES (?, ?, ?) " +
+                       "ON DUPLICATE KEY UPDATE setting_value = VALUES(setting_value), updated_at = CURRENT_TIMESTAMP");
+        assertThat(SqlDialect.of(DatabaseConfig.DatabaseType.POSTGRESQL).upsert("settings", key, "setting_value"))
+            .isEqualTo("INSERT INTO settings (player_uuid, setting_name, setting_value) VALUES (?, ?, ?) " +
+                       "ON CONFLICT (player_uuid, setting_name) DO UPDATE SET setting_value = excluded.setting_value, " +
+                       "updated_at = CURRENT_TIMESTAMP");
+        assertThat(SqlDialect.of(DatabaseConfig.DatabaseType.SQLITE).upsert("settings", key, "setting_value"))
+            .isEqualTo(SqlDialect.of(DatabaseConfig.DatabaseType.POSTGRESQL).upsert("settings", key, "setting_value"));
+    }
+
+    @Test
+    void generatesInsertIgnore() {
+        assertThat(SqlDialect.of(DatabaseConfig.DatabaseType.MARIADB).insertIgnore("worlds", "name"))
+            .isEqualTo("INSERT IGNORE INTO worlds (name) VALUES (?)");
+        assertThat(SqlDialect.of(DatabaseConfig.DatabaseType.POSTGRESQL).insertIgnore("worlds", "name"))
+            .isEqualTo("INSERT INTO worlds (name) VALUES (?) ON CONFLICT DO NOTHING");
+    }
+
+    @Test
+    void worksOnSqlite() throws Exception {
+        DatabaseConfig config = new DatabaseConfig(DatabaseConfig.DatabaseType.SQLITE, "", 0,
+            tempDir.resolve("pitbully").toString(), "", "", 1, 30000, 1800000, false, false);
+        DatabaseLocationStorage storage = new DatabaseLocationStorage(config, logger);
+        try {
+            roundTrip(storage, config.buildJdbcUrl());
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void worksOnPostgreSqlStandIn() throws Exception {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        DatabaseConfig config = new DatabaseConfig(DatabaseConfig.DatabaseType.POSTGRESQL, "", 0, "pitbully",
+            "sa", "", 2, 30000, 1800000, false, false);
+        DatabaseLocationStorage storage = new DatabaseLocationStorage(config, new H2PostgreSql(), "org.h2.Driver", url, logger);
+        try {
+            roundTrip(storage, url);
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void remembersWorldsAddedInsideTransactions() throws Exception {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        DatabaseConfig config = new DatabaseConfig(DatabaseConfig.DatabaseType.POSTGRESQL, "", 0, "pitbully",
+            "sa", "", 2, 30000, 1800000, false, false);
+        DatabaseLocationStorage storage = new DatabaseLocationStorage(config, new H2PostgreSql(), "org.h2.Driver", url, logger);
+        FileLocationStorage fileStorage = new FileLocationStorage(tempDir.toFile(), logger);
+        try {
+            // The migration adds "world" and the write-behind flush "world_the_end", both in transactions
+            PlayerData data = new PlayerData();
+            data.setStoredHome(StoredLocation.of("world", 1, 64, 1, 0f, 0f));
+            fileStorage.savePlayerData(UUID.randomUUID(), data);
+            storage.migrateFromFileStorage(fileStorage);
+            storage.enableWriteBehind(60_000, 1000, 100);
+            data.setStoredHome(StoredLocation.of("world_the_end", 1, 64, 1, 0f, 0f));
+            storage.savePlayerData(UUID.randomUUID(), data);
+            storage.saveAll();
+
+            // Remembered ids do not look the names up again, so renamed rows are not added back
+            try (Connection conn = DriverManager.getConnection(url, "sa", "");
+                 Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("UPDATE pitbully_worlds SET name = CONCAT('old_', name)");
+            }
+            data.setStoredHome(StoredLocation.of("world", 2, 64, 2, 0f, 0f));
+            data.setStoredLastLocation(StoredLocation.of("world_the_end", 2, 64, 2, 0f, 0f));
+            storage.savePlayerData(UUID.randomUUID(), data);
+            storage.saveAll();
+            assertThat(query(url, "SELECT COUNT(*) FROM pitbully_worlds WHERE name NOT LIKE 'old_%'")).isEqualTo("0");
+        } finally {
+            fileStorage.close();
+            new File(tempDir.toFile(), "locations.yml").delete();
+            storage.close();
+        }
+    }
+
+    /**
+     * Creates the schema, then inserts and overwrites player data, warps and the world spawn.
+     */
+    private void roundTrip(DatabaseLocationStorage storage, String jdbcUrl) throws Exception {
+        assertThat(query(jdbcUrl, "SELECT MAX(version) FROM pitbully_schema_version")).isEqualTo("3");
+
+        UUID playerId = UUID.randomUUID();
+        PlayerData data = new PlayerData();
+        data.setStoredHome(StoredLocation.of("world", 1, 64, 1, 0f, 0f));
+        data.setStoredLastLocation(StoredLocation.of("world_nether", 2, 32, 2, 90f, 0f));
+        data.setStoredLastDeath(StoredLocation.of("world", 4, 12, 4, 0f, 0f));
+        data.setKeepXp(true);
+        storage.savePlayerData(playerId, data);
+
+        data.setStoredHome(StoredLocation.of("World", 3, 70, 3, 45f, 10f));
+        data.setKeepXp(false);
+        storage.savePlayerData(playerId, data);
+
+        PlayerData loaded = storage.getPlayerData(playerId);
+        assertThat(loaded.getStoredHome()).isEqualTo(StoredLocation.of("World", 3, 70, 3, 45f, 10f));
+        assertThat(loaded.getStoredLastLocation()).isEqualTo(StoredLocation.of("world_nether", 2, 32, 2, 90f, 0f));
+        assertThat(loaded.isKeepXp()).isFalse();
+        assertThat(storage.hasLastDeathLocation(playerId)).isTrue();
+        assertThat(storage.hasLastTeleportLocation(playerId)).isFalse();
+        assertThat(query(jdbcUrl, "SELECT COUNT(*) FROM pitbully_player_locations")).isEqualTo("3");
+        assertThat(query(jdbcUrl, "SELECT COUNT(*) FROM pitbully_worlds")).isEqualTo("3");
+
+        FileLocationStorage fileStorage = new FileLocationStorage(tempDir.toFile(), logger);
+        try {
+            fileStorage.saveStoredWarpLocation("market", StoredLocation.of("world", 10, 70, 10, 0f, 0f));
+            fileStorage.saveStoredWorldSpawn(StoredLocation.of("world", 0, 64, 0, 0f, 0f));
+            storage.migrateFromFileStorage(fileStorage);
+            fileStorage.saveStoredWarpLocation("market", StoredLocation.of("world", 20, 70, 20, 0f, 0f));
+            fileStorage.saveStoredWorldSpawn(StoredLocation.of("world", 5, 64, 5, 0f, 0f));
+            storage.migrateFromFileStorage(fileStorage);
+        } finally {
+            fileStorage.close();
+            new File(tempDir.toFile(), "locations.yml").delete();
+        }
+        assertThat(query(jdbcUrl, "SELECT COUNT(*) FROM pitbully_warp_locations")).isEqualTo("1");
+        assertThat(Double.parseDouble(query(jdbcUrl, "SELECT x FROM pitbully_warp_locations"))).isEqualTo(20);
+        assertThat(Double.parseDouble(query(jdbcUrl, "SELECT x FROM pitbully_world_spawn"))).isEqualTo(5);
+    }
+
+    private static String query(String jdbcUrl, String sql) throws SQLException {
+        try (Connection conn = DriverManager.getConnection(jdbcUrl, "sa", "");
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            assertThat(rs.next()).isTrue();
+            return rs.getString(1);
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.zaxxer.hikari.HikariConfig;
+import com.zaxxer.hikari.HikariDataSource;
+import de.pitbully.pitbullyplugin.utils.PlayerData;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class SqliteWriterTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Logger logger = Logger.getLogger("Test");
+    private HikariDataSource dataSource;
+    private SqliteWriter writer;
+
+    @BeforeEach
+    void setUp() throws SQLException {
+        HikariConfig config = new HikariConfig();
+        config.setJdbcUrl("jdbc:sqlite:" + tempDir.resolve("writer.db"));
+        config.addDataSourceProperty("journal_mode", "WAL");
+        config.setMaximumPoolSize(2);
+        dataSource = new HikariDataSource(config);
+        try (Connection conn = dataSource.getConnection()) {
+            DatabaseSchema.execute(conn, "CREATE TABLE items (id INTEGER PRIMARY KEY, name TEXT NOT NULL)");
+        }
+        writer = new SqliteWriter(dataSource, logger, 64);
+    }
+
+    @AfterEach
+    void tearDown() {
+        writer.close();
+        dataSource.close();
+    }
+
+    private static SqliteWriter.Work insert(int id) {
+        return conn -> {
+            try (PreparedStatement stmt = conn.prepareStatement("INSERT INTO items (id, name) VALUES (?, ?)")) {
+                stmt.setInt(1, id);
+                stmt.setString(2, "item" + id);
+                stmt.executeUpdate();
+            }
+        };
+    }
+
+    private int count() throws SQLException {
+        try (Connection conn = dataSource.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM items")) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    /**
+     * Blocks the writer thread until the returned latch is released, so the writes
+     * submitted meanwhile end up in one group.
+     */
+    private CountDownLatch blockWriter() throws InterruptedException {
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        writer.submit(conn -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        started.await();
+        return release;
+    }
+
+    @Test
+    void commitsQueuedWritesTogether() throws Exception {
+        CountDownLatch release = blockWriter();
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(writer.submit(insert(i)));
+        }
+        release.countDown();
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).join();
+
+        assertThat(count()).isEqualTo(50);
+        // The blocking write and one group of 50
+        assertThat(writer.getCommitCount()).isEqualTo(2);
+        assertThat(writer.getWriteCount()).isEqualTo(51);
+    }
+
+    @Test
+    void failedWriteIsRolledBackAlone() throws Exception {
+        AtomicInteger committedActions = new AtomicInteger();
+        CountDownLatch release = blockWriter();
+        CompletableFuture<Void> first = writer.submit(insert(1));
+        CompletableFuture<Void> failing = writer.submit(conn -> {
+            insert(2).run(conn);
+            writer.afterCommit(committedActions::incrementAndGet);
+            // Duplicate key, also undoes the insert of item 2
+            insert(1).run(conn);
+        });
+        CompletableFuture<Void> last = writer.submit(conn -> {
+            insert(3).run(conn);
+            writer.afterCommit(committedActions::incrementAndGet);
+        });
+        release.countDown();
+
+        last.join();
+        first.join();
+        assertThat(failing).isCompletedExceptionally();
+        assertThat(count()).isEqualTo(2);
+        assertThat(committedActions).hasValue(1);
+    }
+
+    @Test
+    void executeReportsTheFailureToTheCaller() {
+        assertThatThrownBy(() -> writer.execute(conn -> {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("INSERT INTO missing_table VALUES (1)");
+            }
+        })).isInstanceOf(SQLException.class);
+    }
+
+    @Test
+    void closeCommitsQueuedWrites() throws Exception {
+        CountDownLatch release = blockWriter();
+        for (int i = 0; i < 10; i++) {
+            writer.submit(insert(i));
+        }
+        release.countDown();
+        writer.close();
+
+        assertThat(count()).isEqualTo(10);
+        assertThat(writer.submit(insert(11))).isCompletedExceptionally();
+    }
+
+    @Test
+    void storageWritesConcurrentlyInWalMode() throws Exception {
+        writer.close();
+        DatabaseConfig config = new DatabaseConfig(DatabaseConfig.DatabaseType.SQLITE, "", 0,
+            tempDir.resolve("pitbully").toString(), "", "", 4, 30000, 1800000, false, false);
+        DatabaseLocationStorage storage = new DatabaseLocationStorage(config, logger);
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        try {
+            List<UUID> players = new ArrayList<>();
+            List<Future<?>> writes = new ArrayList<>();
+            for (int i = 0; i < 200; i++) {
+                UUID playerId = UUID.randomUUID();
+                players.add(playerId);
+                int x = i;
+                writes.add(threads.submit(() -> {
+                    PlayerData data = new PlayerData();
+                    data.setStoredHome(StoredLocation.of("world", x, 64, x, 0f, 0f));
+                    data.setKeepXp(true);
+                    storage.savePlayerData(playerId, data);
+                    // Readers run next to the writer
+                    assertThat(storage.getPlayerData(playerId).getStoredHome().getX()).isEqualTo(x);
+                }));
+            }
+            for (Future<?> write : writes) {
+                write.get();
+            }
+            for (UUID playerId : players) {
+                assertThat(storage.getPlayerData(playerId).isKeepXp()).isTrue();
+            }
+        } finally {
+            threads.shutdown();
+            storage.close();
+        }
+
+        try (Connection conn = DriverManager.getConnection(config.buildJdbcUrl());
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("PRAGMA journal_mode")) {
+            rs.next();
+            assertThat(rs.getString(1)).isEqualToIgnoringCase("wal");
+        }
+    }
+}
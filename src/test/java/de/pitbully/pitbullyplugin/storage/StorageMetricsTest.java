@@ -0,0 +1,107 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import de.pitbully.pitbullyplugin.utils.PlayerData;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class StorageMetricsTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final Logger logger = Logger.getLogger("Test");
+
+    @Test
+    void histogramReportsBucketPercentilesAndExactMax() {
+        StorageMetrics.Histogram histogram = new StorageMetrics.Histogram();
+        for (int i = 0; i < 98; i++) {
+            histogram.record(300_000);      // 0.3 ms
+        }
+        histogram.record(5_000_000);        // 5 ms
+        histogram.record(40_000_000);       // 40 ms
+
+        assertThat(histogram.getCount()).isEqualTo(100);
+        assertThat(histogram.getMeanMillis()).isCloseTo(0.744, within(0.001));
+        // 300 µs lies in the bucket below 512 µs
+        assertThat(histogram.getPercentileMillis(0.50)).isEqualTo(0.512);
+        assertThat(histogram.getPercentileMillis(0.99)).isEqualTo(8.192);
+        assertThat(histogram.getPercentileMillis(1.0)).isEqualTo(40.0);
+        assertThat(histogram.getMaxMillis()).isEqualTo(40.0);
+    }
+
+    @Test
+    void emptyHistogramAndReset() {
+        StorageMetrics metrics = new StorageMetrics();
+        metrics.record("get.warp", System.nanoTime());
+        metrics.recordError("get.warp");
+
+        metrics.reset();
+
+        StorageMetrics.Histogram histogram = metrics.getOperation("get.warp");
+        assertThat(histogram.getCount()).isZero();
+        assertThat(histogram.getErrorCount()).isZero();
+        assertThat(histogram.getPercentileMillis(0.99)).isZero();
+        assertThat(histogram.getMeanMillis()).isZero();
+    }
+
+    @Test
+    void databaseRecordsOperationsPoolAndCaches() {
+        DatabaseConfig config = new DatabaseConfig(DatabaseConfig.DatabaseType.SQLITE, "", 0,
+            tempDir.resolve("pitbully").toString(), "", "", 4, 30000, 1800000, false, false);
+        DatabaseLocationStorage storage = new DatabaseLocationStorage(config, logger);
+        try {
+            storage.enableCache(100, 60_000);
+            UUID playerId = UUID.randomUUID();
+            PlayerData data = new PlayerData();
+            data.setStoredLastDeath(StoredLocation.of("world", 1, 64, 1, 0f, 0f));
+            storage.savePlayerData(playerId, data);
+            UUID otherId = UUID.randomUUID();
+            storage.getHomeLocation(otherId);
+            storage.getHomeLocation(otherId);
+            storage.getWorldSpawn();
+            storage.preloadPlayer(playerId);
+            storage.unloadPlayer(playerId);
+
+            StorageMetrics metrics = storage.getMetrics();
+            assertThat(metrics.getOperation("save.death").getCount()).isEqualTo(1);
+            // The second read is a cache hit
+            assertThat(metrics.getOperation("get.home").getCount()).isEqualTo(1);
+            assertThat(metrics.getOperation("get.spawn").getCount()).isEqualTo(1);
+            assertThat(metrics.getOperation("load.player").getCount()).isEqualTo(1);
+            assertThat(metrics.getOperation(StorageMetrics.POOL_ACQUIRE).getCount()).isPositive();
+
+            List<String> report = metrics.report();
+            assertThat(report).anyMatch(line -> line.startsWith("get.home: 1 calls, 0 errors"));
+            assertThat(report).anyMatch(line -> line.startsWith("pool: ") && line.endsWith("0 timeouts"));
+            assertThat(report).anyMatch(line -> line.startsWith("cache players: 1 hits"));
+        } finally {
+            storage.close();
+        }
+    }
+
+    @Test
+    void exportsToLogOrFile() throws Exception {
+        StorageMetrics metrics = new StorageMetrics();
+        Path file = tempDir.resolve(StorageMetricsExporter.FILE_NAME);
+        StorageMetricsExporter exporter = new StorageMetricsExporter(metrics, logger, file.toFile());
+
+        exporter.run();
+        assertThat(file).doesNotExist();
+
+        metrics.record("save.warp", System.nanoTime());
+        exporter.run();
+        exporter.run();
+        new StorageMetricsExporter(metrics, logger, null).run();
+
+        List<String> lines = Files.readAllLines(file);
+        assertThat(lines).hasSize(2).allMatch(line -> line.contains(" save.warp: 1 calls"));
+    }
+}
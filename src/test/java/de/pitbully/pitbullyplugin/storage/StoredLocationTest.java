@@ -0,0 +1,98 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.util.Map;
+import java.util.UUID;
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+class StoredLocationTest {
+
+    /** The world registry is global, so every test uses its own world names. */
+    private static String uniqueWorldName() {
+        return "world_" + UUID.randomUUID();
+    }
+
+    @Test
+    void materializesEqualButIndependentLocations() {
+        World world = mock(World.class);
+        when(world.getName()).thenReturn(uniqueWorldName());
+        Location original = new Location(world, 1.5, 64, -3, 90f, 10f);
+
+        StoredLocation stored = StoredLocation.of(original);
+        Location first = stored.toLocation();
+        Location second = stored.toLocation();
+
+        assertThat(first).isEqualTo(original).isNotSameAs(second);
+        assertThat(first.getWorld()).isSameAs(world);
+        first.setX(100);
+        assertThat(stored.getX()).isEqualTo(1.5);
+        assertThat(stored.getWorldName()).isEqualTo(world.getName());
+    }
+
+    @Test
+    void keepsLocationsWithoutWorld() {
+        StoredLocation stored = StoredLocation.of(new Location(null, 1, 2, 3));
+
+        assertThat(stored.getWorldName()).isNull();
+        assertThat(stored.isWorldLoaded()).isTrue();
+        assertThat(stored.toLocation().getWorld()).isNull();
+        assertThat(stored.toConfigValue()).isInstanceOf(Location.class);
+    }
+
+    @Test
+    void unloadedWorld_isKeptByNameAndWrittenAsPlainMap() {
+        String name = uniqueWorldName();
+        StoredLocation stored = StoredLocation.of(name, 1, 2, 3, 45f, -5f);
+
+        assertThat(stored.toLocation()).isNull();
+        assertThat(stored.isWorldLoaded()).isFalse();
+
+        Object value = stored.toConfigValue();
+        assertThat(value).isInstanceOf(Map.class);
+        assertThat(((Map<?, ?>) value).get("world")).isEqualTo(name);
+        assertThat(StoredLocation.fromConfig(value)).isEqualTo(stored);
+    }
+
+    @Test
+    void resolvesWorldOnceLoaded_andForgetsItAfterUnload() {
+        String name = uniqueWorldName();
+        World world = mock(World.class);
+        when(world.getName()).thenReturn(name);
+        StoredLocation stored = StoredLocation.of(name, 1, 2, 3, 0f, 0f);
+
+        try (MockedStatic<Bukkit> bukkit = mockStatic(Bukkit.class)) {
+            bukkit.when(() -> Bukkit.getWorld(name)).thenReturn(world);
+            assertThat(stored.toLocation().getWorld()).isSameAs(world);
+
+            // Resolved worlds are remembered until the world is unloaded
+            bukkit.when(() -> Bukkit.getWorld(name)).thenReturn(null);
+            assertThat(stored.toLocation()).isNotNull();
+            StoredLocation.forgetWorld(name);
+            assertThat(stored.toLocation()).isNull();
+        }
+    }
+
+    @Test
+    void equalLocationsShareTheInternedWorld() {
+        String name = uniqueWorldName();
+        StoredLocation a = StoredLocation.of(name, 1, 2, 3, 0f, 0f);
+        StoredLocation b = StoredLocation.of(new String(name), 1, 2, 3, 0f, 0f);
+
+        assertThat(a).isEqualTo(b).hasSameHashCodeAs(b);
+        assertThat(a.getWorldName()).isSameAs(b.getWorldName());
+        assertThat(a).isNotEqualTo(StoredLocation.of(name, 1, 2, 4, 0f, 0f));
+    }
+
+    @Test
+    void fromConfig_ignoresValuesThatAreNoLocation() {
+        assertThat(StoredLocation.fromConfig(null)).isNull();
+        assertThat(StoredLocation.fromConfig("world")).isNull();
+        assertThat(StoredLocation.fromConfig(Map.of("x", 1.0))).isNull();
+    }
+}
@@ -0,0 +1,120 @@
+package de.pitbully.pitbullyplugin.storage;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class WriteBehindQueueTest {
+
+    private final List<List<WriteBehindQueue.PendingWrite>> batches = new ArrayList<>();
+    private boolean failFlush;
+    private WriteBehindQueue queue;
+
+    private WriteBehindQueue createQueue(int maxPending, int batchSize) {
+        // Long interval so the background thread never interferes with the test
+        queue = new WriteBehindQueue(writes -> {
+            if (failFlush) {
+                throw new SQLException("boom");
+            }
+            synchronized (batches) {
+                batches.add(new ArrayList<>(writes));
+            }
+        }, Logger.getLogger("test"), 60_000, maxPending, batchSize);
+        return queue;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (queue != null) {
+            failFlush = false;
+            queue.close();
+        }
+    }
+
+    @Test
+    void coalescesWritesToSameRow() {
+        createQueue(100, 100);
+        UUID id = UUID.randomUUID();
+        queue.enqueue(id, "death", StoredLocation.of(null, 1, 2, 3, 0f, 0f));
+        queue.enqueue(id, "death", StoredLocation.of(null, 4, 5, 6, 0f, 0f));
+        queue.enqueue(id, "home", StoredLocation.of(null, 7, 8, 9, 0f, 0f));
+
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.lookup(id, "death").getLocation().getX()).isEqualTo(4);
+
+        assertThat(queue.flush()).isTrue();
+        assertThat(batches).hasSize(1);
+        assertThat(batches.get(0)).hasSize(2);
+        assertThat(queue.lookup(id, "death")).isNull();
+    }
+
+    @Test
+    void deleteReplacesPendingUpsert() {
+        createQueue(100, 100);
+        UUID id = UUID.randomUUID();
+        queue.enqueue(id, "home", StoredLocation.of(null, 1, 2, 3, 0f, 0f));
+        queue.enqueue(id, "home", null);
+
+        WriteBehindQueue.PendingWrite write = queue.lookup(id, "home");
+        assertThat(write.isDelete()).isTrue();
+        assertThat(queue.pendingOfType("home")).hasSize(1);
+        assertThat(queue.pendingOfType("death")).isEmpty();
+    }
+
+    @Test
+    void rejectsNewRowsWhenFull() {
+        createQueue(1, 100);
+        UUID id = UUID.randomUUID();
+        assertThat(queue.enqueue(id, "death", StoredLocation.of(null, 1, 2, 3, 0f, 0f))).isTrue();
+        assertThat(queue.enqueue(UUID.randomUUID(), "death", StoredLocation.of(null, 1, 2, 3, 0f, 0f))).isFalse();
+        // Updating an already buffered row is always accepted
+        assertThat(queue.enqueue(id, "death", StoredLocation.of(null, 4, 5, 6, 0f, 0f))).isTrue();
+    }
+
+    @Test
+    void flushSplitsIntoBatches() {
+        createQueue(100, 2);
+        for (int i = 0; i < 5; i++) {
+            queue.enqueue(UUID.randomUUID(), "last", StoredLocation.of(null, i, 0, 0, 0f, 0f));
+        }
+        queue.flush();
+
+        synchronized (batches) {
+            assertThat(batches).allSatisfy(batch -> assertThat(batch.size()).isLessThanOrEqualTo(2));
+            assertThat(batches.stream().mapToInt(List::size).sum()).isEqualTo(5);
+        }
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    void failedFlushKeepsWritesForRetry() {
+        createQueue(100, 100);
+        UUID id = UUID.randomUUID();
+        queue.enqueue(id, "teleport", StoredLocation.of(null, 1, 2, 3, 0f, 0f));
+
+        failFlush = true;
+        assertThat(queue.flush()).isFalse();
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(queue.lookup(id, "teleport")).isNotNull();
+
+        failFlush = false;
+        assertThat(queue.flush()).isTrue();
+        assertThat(queue.size()).isZero();
+    }
+
+    @Test
+    void closeFlushesAndRejectsFurtherWrites() {
+        createQueue(100, 100);
+        queue.enqueue(UUID.randomUUID(), "home", StoredLocation.of(null, 1, 2, 3, 0f, 0f));
+        queue.close();
+
+        assertThat(batches).hasSize(1);
+        assertThat(queue.enqueue(UUID.randomUUID(), "home", StoredLocation.of(null, 1, 2, 3, 0f, 0f))).isFalse();
+    }
+}
@@ -172,4 +172,24 @@ class PlayerDataTest {
         assertThat(restored.isKeepXp()).isEqualTo(original.isKeepXp());
         assertThat(restored.isEmpty()).isEqualTo(original.isEmpty());
     }
+
+    @Test
+    void testSettingsRoundTrip() {
+        PlayerData original = new PlayerData();
+        original.setSetting("keepXp", "false");
+        original.setSetting("radius", "32");
+        assertThat(original.isKeepXp()).isFalse();
+        assertThat(original.getSettings()).containsOnlyKeys("radius");
+        
+        ConfigurationSection section = new MemoryConfiguration();
+        original.toConfig(section);
+        PlayerData restored = PlayerData.fromConfig(section);
+        
+        assertThat(restored.isKeepXp()).isFalse();
+        assertThat(restored.getSetting("radius")).isEqualTo("32");
+        
+        restored.setSetting("radius", null);
+        restored.setKeepXp(true);
+        assertThat(restored.isEmpty()).isTrue();
+    }
 }
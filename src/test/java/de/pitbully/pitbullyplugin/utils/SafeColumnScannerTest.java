@@ -0,0 +1,404 @@
+package de.pitbully.pitbullyplugin.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+import java.util.EnumSet;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Logger;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Material properties need a running server, so the scanner is given its own
+ * air/occluding/solid sets here.
+ */
+class SafeColumnScannerTest {
+
+    private static final int WORLD_MIN = -64;
+    private static final int WORLD_MAX = 320;
+
+    private static final Set<Material> AIR = EnumSet.of(Material.AIR, Material.CAVE_AIR);
+    private static final Set<Material> OCCLUDING = EnumSet.of(Material.STONE, Material.DIRT);
+    private static final Set<Material> SOLID = EnumSet.of(Material.STONE, Material.DIRT, Material.GLASS,
+        Material.OAK_SLAB, Material.OAK_DOOR, Material.OAK_LEAVES);
+    /** Passable blocks among the types the scanner cannot classify on its own. */
+    private static final Set<Material> PASSABLE = EnumSet.of(Material.AIR, Material.CAVE_AIR, Material.WATER,
+        Material.LAVA, Material.SHORT_GRASS, Material.TORCH, Material.FIRE);
+    private static final Material[] PALETTE = { Material.AIR, Material.AIR, Material.AIR, Material.CAVE_AIR,
+        Material.STONE, Material.STONE, Material.DIRT, Material.WATER, Material.LAVA, Material.GLASS,
+        Material.OAK_SLAB, Material.OAK_DOOR, Material.SHORT_GRASS, Material.TORCH, Material.OAK_LEAVES,
+        Material.FIRE };
+
+    private final Logger logger = Logger.getLogger("Test");
+    private final SafeColumnScanner scanner = new SafeColumnScanner(AIR::contains, OCCLUDING::contains, SOLID::contains);
+
+    /** One column of a test world; doors are open or closed per block. */
+    private static final class TestColumn {
+        final Material[] types = new Material[WORLD_MAX - WORLD_MIN];
+        final boolean[] openDoors = new boolean[WORLD_MAX - WORLD_MIN];
+        final AtomicInteger liveLookups = new AtomicInteger();
+
+        Material type(int y) {
+            return types[y - WORLD_MIN];
+        }
+
+        /** Block.isPassable() of the live world, VOID_AIR outside the world. */
+        boolean passable(int y) {
+            if (y < WORLD_MIN || y >= WORLD_MAX) {
+                return true;
+            }
+            return type(y) == Material.OAK_DOOR ? openDoors[y - WORLD_MIN] : PASSABLE.contains(type(y));
+        }
+
+        boolean solid(int y) {
+            return y >= WORLD_MIN && y < WORLD_MAX && SOLID.contains(type(y));
+        }
+
+        boolean burning(int y) {
+            return y >= WORLD_MIN && y < WORLD_MAX && (type(y) == Material.LAVA || type(y) == Material.FIRE);
+        }
+
+        /** Highest block that is not air, as in the heightmap of a chunk. */
+        int surface() {
+            for (int y = WORLD_MAX - 1; y >= WORLD_MIN; y--) {
+                if (!AIR.contains(type(y))) {
+                    return y;
+                }
+            }
+            return WORLD_MIN - 1;
+        }
+
+        SafeColumnScanner.BlockTypes types() {
+            int surface = surface();
+            return new SafeColumnScanner.BlockTypes() {
+                @Override
+                public Material getBlockType(int x, int y, int z) {
+                    return type(y);
+                }
+
+                @Override
+                public int getHighestBlockYAt(int x, int z) {
+                    return surface;
+                }
+            };
+        }
+
+        SafeColumnScanner.BlockLookup live() {
+            return (x, y, z) -> {
+                liveLookups.incrementAndGet();
+                return passable(y);
+            };
+        }
+    }
+
+    private static TestColumn randomColumn(Random random) {
+        TestColumn column = new TestColumn();
+        for (int i = 0; i < column.types.length; i++) {
+            column.types[i] = PALETTE[random.nextInt(PALETTE.length)];
+            column.openDoors[i] = random.nextBoolean();
+        }
+        return column;
+    }
+
+    private static TestColumn layeredColumn(int surface) {
+        TestColumn column = new TestColumn();
+        Arrays.fill(column.types, Material.AIR);
+        Arrays.fill(column.types, 0, surface - WORLD_MIN, Material.STONE);
+        return column;
+    }
+
+    /**
+     * The search as it was implemented before, one location clone and block per probe,
+     * without burning spots and without standing on the build limit.
+     */
+    private static int referenceSearch(TestColumn column, int originalY, int maxDistance) {
+        if (referenceIsSafe(column, originalY)) {
+            return originalY;
+        }
+        int maxY = Math.min(originalY + maxDistance, 319);
+        for (int y = originalY; y <= maxY; y++) {
+            if (referenceIsSafe(column, y)) {
+                return y;
+            }
+        }
+        int minY = Math.max(originalY - maxDistance, -64);
+        for (int y = originalY; y >= minY; y--) {
+            if (referenceIsSafe(column, y)) {
+                return y;
+            }
+        }
+        return SafeColumnScanner.NOT_FOUND;
+    }
+
+    private static boolean referenceIsSafe(TestColumn column, int y) {
+        if (y >= WORLD_MAX) {
+            return false;
+        }
+        boolean feetClear = column.passable(y);
+        boolean headClear = column.passable(y + 1);
+        boolean hasGround = !column.passable(y - 1) && column.solid(y - 1);
+        boolean burning = column.burning(y) || column.burning(y + 1);
+        return feetClear && headClear && hasGround && !burning;
+    }
+
+    private int scan(TestColumn column, int startY, int maxDistance) {
+        return scan(column, startY, maxDistance, null);
+    }
+
+    private int scan(TestColumn column, int startY, int maxDistance, SafeColumnScanner.Probes probes) {
+        return scanner.findSafeY(column.types(), WORLD_MIN, WORLD_MAX, 5, -3, startY, maxDistance,
+            column.live(), probes);
+    }
+
+    @Test
+    void matchesThePreviousSearchOnRandomColumns() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            TestColumn column = randomColumn(random);
+            int startY = WORLD_MIN - 5 + random.nextInt(WORLD_MAX - WORLD_MIN + 10);
+            int maxDistance = random.nextInt(20);
+
+            assertThat(scan(column, startY, maxDistance))
+                .as("start %d, distance %d", startY, maxDistance)
+                .isEqualTo(referenceSearch(column, startY, maxDistance));
+        }
+    }
+
+    @Test
+    void searchesUpwardBeforeDownward() {
+        TestColumn column = layeredColumn(60);
+        column.types[70 - WORLD_MIN] = Material.STONE;
+
+        // Inside the ground: the nearest spot above wins over the cave below
+        column.types[50 - WORLD_MIN] = Material.AIR;
+        column.types[51 - WORLD_MIN] = Material.AIR;
+        assertThat(scan(column, 55, 10)).isEqualTo(60);
+        // In the air: up to the platform at 70 before falling back to the ground
+        assertThat(scan(column, 65, 10)).isEqualTo(71);
+        assertThat(scan(column, 65, 5)).isEqualTo(60);
+        assertThat(scan(column, 65, 4)).isEqualTo(SafeColumnScanner.NOT_FOUND);
+    }
+
+    @Test
+    void voidBelowAndAboveTheWorldIsNotGround() {
+        TestColumn column = layeredColumn(WORLD_MIN);
+        assertThat(scan(column, WORLD_MIN, 5)).isEqualTo(SafeColumnScanner.NOT_FOUND);
+
+        TestColumn full = layeredColumn(WORLD_MAX);
+        assertThat(scan(full, 319, 5)).isEqualTo(SafeColumnScanner.NOT_FOUND);
+        full.types[319 - WORLD_MIN] = Material.AIR;
+        // The head is above the build limit, which is void air
+        assertThat(scan(full, 319, 5)).isEqualTo(319);
+    }
+
+    @Test
+    void staysBelowTheTopOfTheWorld() {
+        // A nether-like world: bedrock roof at 127, air above up to the build limit
+        int roof = 128;
+        TestColumn column = layeredColumn(60);
+        column.types[127 - WORLD_MIN] = Material.STONE;
+        assertThat(scanner.findSafeY(column.types(), WORLD_MIN, roof, 0, 0, 127, 10, column.live(), null))
+            .isEqualTo(SafeColumnScanner.NOT_FOUND);
+        assertThat(scanner.findSafeY(column.types(), WORLD_MIN, WORLD_MAX, 0, 0, 127, 10, column.live(), null))
+            .isEqualTo(128);
+    }
+
+    @Test
+    void doesNotStandInLavaOrFire() {
+        TestColumn column = layeredColumn(60);
+        column.types[60 - WORLD_MIN] = Material.LAVA;
+        column.types[61 - WORLD_MIN] = Material.LAVA;
+        column.types[64 - WORLD_MIN] = Material.STONE;
+        assertThat(scan(column, 60, 10)).isEqualTo(65);
+        column.types[65 - WORLD_MIN] = Material.FIRE;
+        assertThat(scan(column, 60, 10)).isEqualTo(SafeColumnScanner.NOT_FOUND);
+        column.types[60 - WORLD_MIN] = Material.WATER;
+        column.types[61 - WORLD_MIN] = Material.WATER;
+        assertThat(scan(column, 60, 10)).isEqualTo(60);
+    }
+
+    @Test
+    void probesNothingAboveTheSurface() {
+        TestColumn column = layeredColumn(60);
+        SafeColumnScanner.Probes probes = new SafeColumnScanner.Probes(1000);
+        assertThat(scan(column, 200, 150, probes)).isEqualTo(60);
+        // Ground, feet and head of the spot on the surface
+        assertThat(probes.getReads()).isEqualTo(3);
+
+        // The surface is below the searched range
+        probes = new SafeColumnScanner.Probes(1000);
+        assertThat(scan(column, 200, 10, probes)).isEqualTo(SafeColumnScanner.NOT_FOUND);
+        assertThat(probes.getReads()).isZero();
+    }
+
+    @Test
+    void stopsWhenTheBudgetIsSpent() {
+        TestColumn column = layeredColumn(60);
+        SafeColumnScanner.Probes probes = new SafeColumnScanner.Probes(8);
+        // Inside the ground, the surface is 20 probes away
+        assertThat(scan(column, 40, 30, probes)).isEqualTo(SafeColumnScanner.NOT_FOUND);
+        assertThat(probes.isExhausted()).isTrue();
+        assertThat(probes.getReads()).isBetween(8, 10);
+    }
+
+    @Test
+    void asksTheLiveWorldOnlyForBlocksWithStateDependentShapes() {
+        TestColumn column = layeredColumn(60);
+        assertThat(scan(column, 64, 10)).isEqualTo(60);
+        assertThat(column.liveLookups).hasValue(0);
+
+        column.types[60 - WORLD_MIN] = Material.OAK_DOOR;
+        column.openDoors[60 - WORLD_MIN] = true;
+        column.types[61 - WORLD_MIN] = Material.OAK_DOOR;
+        column.openDoors[61 - WORLD_MIN] = true;
+        SafeColumnScanner.Probes probes = new SafeColumnScanner.Probes(100);
+        assertThat(scan(column, 64, 10, probes)).isEqualTo(60);
+        assertThat(column.liveLookups).hasValue(2);
+        assertThat(probes.getLiveLookups()).isEqualTo(2);
+    }
+
+    /**
+     * The previous search with its location handling: three clones per probe. The blocks are
+     * read from the column, so the cost of {@code getBlock()} on a server comes on top of this.
+     */
+    private static Location previousSearch(TestColumn column, Location location, int maxDistance) {
+        if (previousIsSafe(column, location)) {
+            return location.clone();
+        }
+        Location tempLoc = location.clone();
+        int originalY = tempLoc.getBlockY();
+        int maxY = Math.min(originalY + maxDistance, 319);
+        for (int y = originalY; y <= maxY; y++) {
+            tempLoc.setY(y);
+            if (previousIsSafe(column, tempLoc)) {
+                return tempLoc.clone();
+            }
+        }
+        tempLoc = location.clone();
+        int minY = Math.max(originalY - maxDistance, -64);
+        for (int y = originalY; y >= minY; y--) {
+            tempLoc.setY(y);
+            if (previousIsSafe(column, tempLoc)) {
+                return tempLoc.clone();
+            }
+        }
+        return null;
+    }
+
+    private static boolean previousIsSafe(TestColumn column, Location location) {
+        Location feetLocation = location.clone();
+        Location headLocation = feetLocation.clone().add(0, 1, 0);
+        Location groundLocation = feetLocation.clone().add(0, -1, 0);
+        boolean feetClear = column.passable(feetLocation.getBlockY());
+        boolean headClear = column.passable(headLocation.getBlockY());
+        boolean hasGround = !column.passable(groundLocation.getBlockY()) && column.solid(groundLocation.getBlockY());
+        return feetClear && headClear && hasGround;
+    }
+
+    /** Layered columns with targets inside the ground and in the air, shared by the comparisons below. */
+    private static final class LayeredColumns {
+        final TestColumn[] columns = new TestColumn[64];
+        final Location[] targets = new Location[columns.length];
+        final SafeColumnScanner.BlockTypes[] types = new SafeColumnScanner.BlockTypes[columns.length];
+
+        LayeredColumns() {
+            Random random = new Random(7);
+            World world = mock(World.class);
+            for (int i = 0; i < columns.length; i++) {
+                // A target inside the ground searches upward, one in the air searches downward
+                columns[i] = layeredColumn(40 + random.nextInt(40));
+                targets[i] = new Location(world, 5.5, 30 + random.nextInt(60), -2.5);
+                // Heightmaps are computed once, as a chunk keeps them up to date
+                types[i] = columns[i].types();
+            }
+        }
+    }
+
+    @Test
+    void matchesThePreviousSearchWithLocations() {
+        LayeredColumns layered = new LayeredColumns();
+        for (int i = 0; i < layered.columns.length; i++) {
+            Location found = previousSearch(layered.columns[i], layered.targets[i], 10);
+            assertThat(benchmarkScan(layered.types[i], layered.columns[i], layered.targets[i].getBlockY()))
+                .as("target %s", layered.targets[i])
+                .isEqualTo(found != null ? found.getBlockY() : 0);
+        }
+    }
+
+    /**
+     * Compares the column scan with the previous search on the same columns and checks that
+     * scanning allocates a fixed amount per search, independent of the number of probes.
+     */
+    @Test
+    @Tag("benchmark")
+    void scanComparedToPreviousSearch() {
+        LayeredColumns layered = new LayeredColumns();
+        TestColumn[] columns = layered.columns;
+        Location[] targets = layered.targets;
+        SafeColumnScanner.BlockTypes[] types = layered.types;
+        int rounds = 2000;
+        long checksum = 0;
+
+        // Warm-up
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < columns.length; i++) {
+                checksum += benchmarkScan(types[i], columns[i], targets[i].getBlockY());
+                Location found = previousSearch(columns[i], targets[i], 10);
+                checksum += found != null ? found.getBlockY() : 0;
+            }
+        }
+
+        long allocatedBefore = allocatedBytes();
+        long start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < columns.length; i++) {
+                Location found = previousSearch(columns[i], targets[i], 10);
+                checksum += found != null ? found.getBlockY() : 0;
+            }
+        }
+        long previous = (System.nanoTime() - start) / (rounds * columns.length);
+        long previousAllocated = (allocatedBytes() - allocatedBefore) / (rounds * columns.length);
+
+        allocatedBefore = allocatedBytes();
+        start = System.nanoTime();
+        for (int round = 0; round < rounds; round++) {
+            for (int i = 0; i < columns.length; i++) {
+                checksum += benchmarkScan(types[i], columns[i], targets[i].getBlockY());
+            }
+        }
+        long scan = (System.nanoTime() - start) / (rounds * columns.length);
+        long scanAllocated = (allocatedBytes() - allocatedBefore) / (rounds * columns.length);
+
+        logger.info("Safe location search: " + scan + " ns and " + scanAllocated + " bytes with the column scan, "
+            + previous + " ns and " + previousAllocated + " bytes with the previous search before any block lookup"
+            + " (checksum " + checksum + ")");
+        if (allocatedBefore >= 0) {
+            // The column buffer and the lambdas of one search, nothing per probe
+            assertThat(scanAllocated).isLessThan(256);
+        }
+    }
+
+    private int benchmarkScan(SafeColumnScanner.BlockTypes types, TestColumn column, int startY) {
+        int y = scanner.findSafeY(types, WORLD_MIN, WORLD_MAX, 5, -3, startY, 10, column.live(), null);
+        return y != SafeColumnScanner.NOT_FOUND ? y : 0;
+    }
+
+    /**
+     * @return Bytes allocated by this thread so far, or -1 if the JVM does not tell
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return -1;
+    }
+}
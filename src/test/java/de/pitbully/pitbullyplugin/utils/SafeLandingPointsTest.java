@@ -0,0 +1,133 @@
+package de.pitbully.pitbullyplugin.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import de.pitbully.pitbullyplugin.PitbullyPlugin;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.MockedStatic;
+
+/**
+ * The safety search itself needs a server (see SafeTeleportTest), so it is stubbed here.
+ */
+class SafeLandingPointsTest {
+
+    private MockedStatic<PitbullyPlugin> pluginStatic;
+    private MockedStatic<SafeTeleport> safeTeleport;
+    private ConfigManager cfg;
+    private World world;
+    private Location warp;
+    private Location landing;
+
+    @BeforeEach
+    void setUp() {
+        cfg = mock(ConfigManager.class);
+        when(cfg.isSafetyCheckEnabled()).thenReturn(true);
+        PitbullyPlugin plugin = mock(PitbullyPlugin.class);
+        when(plugin.getConfigManager()).thenReturn(cfg);
+        pluginStatic = mockStatic(PitbullyPlugin.class);
+        pluginStatic.when(PitbullyPlugin::getInstance).thenReturn(plugin);
+
+        world = mock(World.class);
+        when(world.isChunkLoaded(2, -1)).thenReturn(true);
+        warp = new Location(world, 40.5, 63, -3.5);
+        landing = new Location(world, 40.5, 65, -3.5);
+        safeTeleport = mockStatic(SafeTeleport.class);
+        safeTeleport.when(() -> SafeTeleport.findSafeLocation(warp, cfg)).thenReturn(landing);
+    }
+
+    @AfterEach
+    void tearDown() {
+        SafeLandingPoints.clear();
+        safeTeleport.close();
+        pluginStatic.close();
+    }
+
+    @Test
+    void searchesOnceWhenSetAndReusesTheResult() {
+        SafeLandingPoints.updateWarp("shop", warp);
+        safeTeleport.verify(() -> SafeTeleport.findSafeLocation(warp, cfg));
+
+        assertThat(SafeLandingPoints.getWarp("shop", warp)).isEqualTo(landing);
+        assertThat(SafeLandingPoints.getWarp("shop", warp)).isEqualTo(landing);
+        safeTeleport.verify(() -> SafeTeleport.findSafeLocation(warp, cfg), times(1));
+    }
+
+    @Test
+    void blockChangesInTheChunkTriggerANewSearch() {
+        SafeLandingPoints.updateWarp("shop", warp);
+
+        SafeLandingPoints.invalidate(world, 3, -1);
+        SafeLandingPoints.invalidate(mock(World.class), 2, -1);
+        assertThat(SafeLandingPoints.getWarp("shop", warp)).isEqualTo(landing);
+        safeTeleport.verify(() -> SafeTeleport.findSafeLocation(warp, cfg), times(1));
+
+        SafeLandingPoints.invalidate(world, 2, -1);
+        assertThat(SafeLandingPoints.getWarp("shop", warp)).isEqualTo(landing);
+        safeTeleport.verify(() -> SafeTeleport.findSafeLocation(warp, cfg), times(2));
+    }
+
+    @Test
+    void blockChangesInTheLandingChunkTriggerANewSearch() {
+        // The spiral search found the spot across the chunk border
+        Location beside = new Location(world, 48.5, 64, -3.5);
+        safeTeleport.when(() -> SafeTeleport.findSafeLocation(warp, cfg)).thenReturn(beside);
+        SafeLandingPoints.updateWarp("shop", warp);
+
+        SafeLandingPoints.invalidate(world, 3, -1);
+        safeTeleport.when(() -> SafeTeleport.findSafeLocation(warp, cfg)).thenReturn(landing);
+        assertThat(SafeLandingPoints.getWarp("shop", warp)).isEqualTo(landing);
+        safeTeleport.verify(() -> SafeTeleport.findSafeLocation(warp, cfg), times(2));
+
+        // Back in the warp's chunk, the neighbour no longer matters
+        SafeLandingPoints.invalidate(world, 3, -1);
+        assertThat(SafeLandingPoints.getWarp("shop", warp)).isEqualTo(landing);
+        safeTeleport.verify(() -> SafeTeleport.findSafeLocation(warp, cfg), times(2));
+    }
+
+    @Test
+    void unloadedOrChangedWarpsAreSearchedWhenPossible() {
+        // After a restart the chunk is not loaded yet: no search, the caller searches itself
+        when(world.isChunkLoaded(2, -1)).thenReturn(false);
+        assertThat(SafeLandingPoints.getWarp("shop", warp)).isNull();
+        safeTeleport.verifyNoInteractions();
+
+        when(world.isChunkLoaded(2, -1)).thenReturn(true);
+        assertThat(SafeLandingPoints.revalidateLoaded()).isEqualTo(1);
+        assertThat(SafeLandingPoints.getWarp("shop", warp)).isEqualTo(landing);
+
+        // Moved by another server sharing the database
+        Location moved = warp.clone().add(0, 1, 0);
+        assertThat(SafeLandingPoints.getWarp("shop", moved)).isNull();
+        safeTeleport.verify(() -> SafeTeleport.findSafeLocation(moved, cfg));
+    }
+
+    @Test
+    void spawnAndWarpsAreSeparate() {
+        SafeLandingPoints.updateSpawn(warp);
+        assertThat(SafeLandingPoints.getSpawn(warp)).isEqualTo(landing);
+
+        SafeLandingPoints.updateWarp("spawn", warp);
+        SafeLandingPoints.removeWarp("spawn");
+        assertThat(SafeLandingPoints.getSpawn(warp)).isEqualTo(landing);
+        safeTeleport.verify(() -> SafeTeleport.findSafeLocation(warp, cfg), times(2));
+    }
+
+    @Test
+    void unusedWithoutSafetyChecksAndForgottenWithTheWorld() {
+        SafeLandingPoints.updateWarp("shop", warp);
+
+        when(cfg.isSafetyCheckEnabled()).thenReturn(false);
+        assertThat(SafeLandingPoints.getWarp("shop", warp)).isNull();
+
+        when(cfg.isSafetyCheckEnabled()).thenReturn(true);
+        SafeLandingPoints.forgetWorld(world);
+        when(world.isChunkLoaded(2, -1)).thenReturn(false);
+        assertThat(SafeLandingPoints.getWarp("shop", warp)).isNull();
+        safeTeleport.verify(() -> SafeTeleport.findSafeLocation(warp, cfg), times(1));
+    }
+}
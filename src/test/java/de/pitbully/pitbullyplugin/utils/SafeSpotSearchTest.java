@@ -0,0 +1,135 @@
+package de.pitbully.pitbullyplugin.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.util.EnumSet;
+import java.util.Set;
+import org.bukkit.Chunk;
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Searches mocked worlds whose chunks are generated from a terrain function, with
+ * the scanner's material rules given here as in SafeColumnScannerTest.
+ */
+class SafeSpotSearchTest {
+
+    private static final Set<Material> AIR = EnumSet.of(Material.AIR);
+    private static final Set<Material> STONE = EnumSet.of(Material.STONE);
+
+    private final SafeColumnScanner scanner = new SafeColumnScanner(AIR::contains, STONE::contains, STONE::contains);
+
+    @FunctionalInterface
+    private interface Terrain {
+        Material type(int x, int y, int z);
+    }
+
+    /** Flat stone up to y 59 with a lava lake of the given radius around x 0, z 0. */
+    private static Terrain lavaLake(int radius) {
+        return (x, y, z) -> {
+            boolean lake = Math.abs(x) <= radius && Math.abs(z) <= radius;
+            if (lake && y >= 55 && y < 60) {
+                return Material.LAVA;
+            }
+            return y < 60 ? Material.STONE : Material.AIR;
+        };
+    }
+
+    private static World world(int minY, int maxY, int logicalHeight, Terrain terrain) {
+        World world = mock(World.class);
+        when(world.getMinHeight()).thenReturn(minY);
+        when(world.getMaxHeight()).thenReturn(maxY);
+        when(world.getLogicalHeight()).thenReturn(logicalHeight);
+        when(world.isChunkLoaded(anyInt(), anyInt())).thenReturn(true);
+        when(world.getChunkAt(anyInt(), anyInt())).thenAnswer(invocation -> {
+            int chunkX = invocation.getArgument(0);
+            int chunkZ = invocation.getArgument(1);
+            ChunkSnapshot snapshot = mock(ChunkSnapshot.class);
+            when(snapshot.getBlockType(anyInt(), anyInt(), anyInt())).thenAnswer(read ->
+                terrain.type(chunkX * 16 + (int) read.getArgument(0), read.getArgument(1),
+                    chunkZ * 16 + (int) read.getArgument(2)));
+            when(snapshot.getHighestBlockYAt(anyInt(), anyInt())).thenAnswer(read -> {
+                for (int y = maxY - 1; y >= minY; y--) {
+                    if (terrain.type(chunkX * 16 + (int) read.getArgument(0), y,
+                            chunkZ * 16 + (int) read.getArgument(1)) != Material.AIR) {
+                        return y;
+                    }
+                }
+                return minY - 1;
+            });
+            Chunk chunk = mock(Chunk.class);
+            when(chunk.getChunkSnapshot(true, false, false)).thenReturn(snapshot);
+            return chunk;
+        });
+        return world;
+    }
+
+    @Test
+    void targetColumnFirst() {
+        World world = world(-64, 320, 384, lavaLake(1));
+        Location target = new Location(world, 5.5, 70, 5.5, 90f, 0f);
+
+        Location safe = new SafeSpotSearch(scanner, world, 1024).find(target, 10, 3);
+        assertThat(safe).isEqualTo(new Location(world, 5.5, 60, 5.5, 90f, 0f));
+    }
+
+    @Test
+    void spiralsOutOfALavaLake() {
+        World world = world(-64, 320, 384, lavaLake(1));
+        Location target = new Location(world, 0.5, 60, 0.5, 90f, 0f);
+
+        assertThat(new SafeSpotSearch(scanner, world, 1024).find(target, 10, 0)).isNull();
+
+        SafeSpotSearch search = new SafeSpotSearch(scanner, world, 1024);
+        Location safe = search.find(target, 10, 3);
+        // The first column of the second ring, the first ring is lava as well
+        assertThat(safe).isEqualTo(new Location(world, -1.5, 60, -1.5, 90f, 0f));
+        assertThat(search.getColumns()).isEqualTo(1 + 8 + 1);
+        assertThat(search.describe()).contains("between y -64 and 319");
+    }
+
+    @Test
+    void stopsAtTheProbeBudget() {
+        World world = world(-64, 320, 384, lavaLake(5));
+        Location target = new Location(world, 0.5, 60, 0.5);
+
+        SafeSpotSearch search = new SafeSpotSearch(scanner, world, 40);
+        assertThat(search.find(target, 10, 8)).isNull();
+        assertThat(search.getProbes()).isBetween(40, 42);
+        assertThat(search.getColumns()).isLessThan(1 + 8 + 16);
+    }
+
+    @Test
+    void skipsColumnsInChunksThatAreNotLoaded() {
+        World world = world(-64, 320, 384, lavaLake(3));
+        when(world.isChunkLoaded(-1, -1)).thenReturn(false);
+        when(world.isChunkLoaded(-1, 0)).thenReturn(false);
+        when(world.isChunkLoaded(0, -1)).thenReturn(false);
+        Location target = new Location(world, 1.5, 60, 1.5);
+
+        SafeSpotSearch search = new SafeSpotSearch(scanner, world, 4096);
+        // The lake reaches up to 3, the first column beside it in the loaded chunk 0, 0
+        assertThat(search.find(target, 10, 3)).isEqualTo(new Location(world, 4.5, 60, 4.5));
+        verify(world, never()).getChunkAt(-1, 0);
+        verify(world, never()).getChunkAt(0, -1);
+    }
+
+    @Test
+    void neverLandsOnTheNetherRoof() {
+        // Solid up to the bedrock roof at 127, air above up to the build limit
+        Terrain nether = (x, y, z) -> y < 128 ? Material.STONE : Material.AIR;
+        World world = world(0, 256, 128, nether);
+        Location target = new Location(world, 0.5, 130, 0.5);
+
+        assertThat(new SafeSpotSearch(scanner, world, 1024).find(target, 10, 1)).isNull();
+
+        World withoutRoof = world(0, 256, 256, nether);
+        target.setWorld(withoutRoof);
+        assertThat(new SafeSpotSearch(scanner, withoutRoof, 1024).find(target, 10, 1))
+            .isEqualTo(new Location(withoutRoof, 0.5, 128, 0.5));
+    }
+}
@@ -4,6 +4,7 @@ import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.Mockito.*;
 
 import de.pitbully.pitbullyplugin.PitbullyPlugin;
+import java.util.concurrent.CompletableFuture;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
@@ -53,10 +54,10 @@ class SafeTeleportTest {
     }
 
     @Test
-    @Disabled("SafeTeleport.isSafeLocation() uses Material.isSolid() which requires full Bukkit environment")
+    @Disabled("The safety search uses Material.isSolid() which requires full Bukkit environment")
     void teleport_findsAlternateSafeLocationIntegrationTest() {
-        // This test requires integration testing with MockBukkit or Paper test environment
-        // Current implementation is too tightly coupled to Bukkit API for unit testing
+        // This test requires integration testing with MockBukkit or Paper test environment;
+        // the search itself is covered by SafeColumnScannerTest with its own material rules
         // 
         // Test would verify:
         // 1. Algorithm finds safe location when original is unsafe
@@ -85,4 +86,43 @@ class SafeTeleportTest {
         Location locationWithoutWorld = new Location(null, 0, 0, 0);
         assertThat(SafeTeleport.teleport(mock(Player.class), locationWithoutWorld)).isFalse();
     }
+
+    @Test
+    void teleportAsync_teleportsRightAwayWithoutQueue() {
+        Player player = mock(Player.class);
+        World world = mock(World.class);
+        Location loc = new Location(world, 20, 64, -20);
+        when(player.teleport(loc)).thenReturn(true);
+
+        try (MockedStatic<PitbullyPlugin> pluginStatic = mockStatic(PitbullyPlugin.class)) {
+            PitbullyPlugin plugin = mock(PitbullyPlugin.class);
+            pluginStatic.when(PitbullyPlugin::getInstance).thenReturn(plugin);
+
+            CompletableFuture<Boolean> result = SafeTeleport.teleportAsync(player, loc);
+            assertThat(result).isCompletedWithValue(true);
+            verify(world, never()).getChunkAtAsync(anyInt(), anyInt());
+        }
+    }
+
+    @Test
+    void teleportAsync_goesThroughTheQueue() {
+        Player player = mock(Player.class);
+        World world = mock(World.class);
+        Location loc = new Location(world, 20, 64, -20);
+        Location landing = new Location(world, 20, 70, -20);
+        TeleportQueue queue = mock(TeleportQueue.class);
+        CompletableFuture<Boolean> queued = new CompletableFuture<>();
+        when(queue.submit(player, loc, true)).thenReturn(queued);
+        when(queue.submit(player, landing, false)).thenReturn(queued);
+
+        try (MockedStatic<PitbullyPlugin> pluginStatic = mockStatic(PitbullyPlugin.class)) {
+            PitbullyPlugin plugin = mock(PitbullyPlugin.class);
+            when(plugin.getTeleportQueue()).thenReturn(queue);
+            pluginStatic.when(PitbullyPlugin::getInstance).thenReturn(plugin);
+
+            assertThat(SafeTeleport.teleportAsync(player, loc)).isSameAs(queued);
+            assertThat(SafeTeleport.teleportToLandingPointAsync(player, landing)).isSameAs(queued);
+            verify(player, never()).teleport(any(Location.class));
+        }
+    }
 }
@@ -0,0 +1,264 @@
+package de.pitbully.pitbullyplugin.utils;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.*;
+
+import java.util.concurrent.CompletableFuture;
+import org.bukkit.Chunk;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Runs the queue tick by tick with {@link TeleportQueue#run()}. Without a plugin instance
+ * {@link SafeTeleport} teleports directly, so each teleport is one call of {@code Player.teleport}.
+ */
+class TeleportQueueTest {
+
+    private final Plugin plugin = mock(Plugin.class);
+
+    private static ConfigManager config(int maxScans, int maxChunkLoads, int preloadRadius, boolean syncFallback) {
+        ConfigManager cfg = mock(ConfigManager.class);
+        when(cfg.isAsyncChunkLoadEnabled()).thenReturn(true);
+        when(cfg.getPreloadRadius()).thenReturn(preloadRadius);
+        when(cfg.getChunkLoadTimeout()).thenReturn(5000L);
+        when(cfg.isChunkLoadFallbackSync()).thenReturn(syncFallback);
+        when(cfg.getMaxScansPerTick()).thenReturn(maxScans);
+        when(cfg.getMaxChunkLoadsPerTick()).thenReturn(maxChunkLoads);
+        return cfg;
+    }
+
+    private static Player player() {
+        Player player = mock(Player.class);
+        when(player.isOnline()).thenReturn(true);
+        when(player.teleport(any(Location.class))).thenReturn(true);
+        return player;
+    }
+
+    private static World loadedWorld() {
+        World world = mock(World.class);
+        when(world.isChunkLoaded(anyInt(), anyInt())).thenReturn(true);
+        return world;
+    }
+
+    @Test
+    void capsScansPerTickAndServesLongestWaitFirst() {
+        TeleportQueue queue = new TeleportQueue(plugin, config(1, 18, 0, false));
+        World loaded = loadedWorld();
+        World unloaded = mock(World.class);
+        CompletableFuture<Chunk> chunk = new CompletableFuture<>();
+        when(unloaded.getChunkAtAsync(0, 0)).thenReturn(chunk);
+        Player first = player();
+        Player second = player();
+        Player third = player();
+        Player fourth = player();
+
+        CompletableFuture<Boolean> waitsForChunk = queue.submit(first, new Location(unloaded, 0, 64, 0), true);
+        CompletableFuture<Boolean> rightAway = queue.submit(second, new Location(loaded, 0, 64, 0), true);
+        CompletableFuture<Boolean> nextTick = queue.submit(third, new Location(loaded, 0, 64, 0), true);
+        CompletableFuture<Boolean> later = queue.submit(fourth, new Location(loaded, 0, 64, 0), true);
+        assertThat(rightAway).isCompletedWithValue(true);
+        assertThat(waitsForChunk).isNotDone();
+        assertThat(nextTick).isNotDone();
+        assertThat(queue.getDepth()).isEqualTo(3);
+
+        // The first player waited longest once the chunk is there
+        chunk.complete(mock(Chunk.class));
+        when(unloaded.isChunkLoaded(0, 0)).thenReturn(true);
+        queue.run();
+        assertThat(waitsForChunk).isCompletedWithValue(true);
+        assertThat(nextTick).isNotDone();
+
+        queue.run();
+        assertThat(nextTick).isCompletedWithValue(true);
+        assertThat(later).isNotDone();
+
+        queue.run();
+        assertThat(later).isCompletedWithValue(true);
+        assertThat(queue.getDepth()).isZero();
+    }
+
+    @Test
+    void teleportsWhoseChunksLoadedGoBeforeNewOnes() {
+        TeleportQueue queue = new TeleportQueue(plugin, config(1, 18, 0, false));
+        World unloaded = mock(World.class);
+        CompletableFuture<Chunk> chunk = new CompletableFuture<>();
+        when(unloaded.getChunkAtAsync(0, 0)).thenReturn(chunk);
+        Player first = player();
+        Player second = player();
+
+        CompletableFuture<Boolean> waitsForChunk = queue.submit(first, new Location(unloaded, 0, 64, 0), true);
+        chunk.complete(mock(Chunk.class));
+        when(unloaded.isChunkLoaded(0, 0)).thenReturn(true);
+        // The tick's scan is left, but the first player has waited longer
+        CompletableFuture<Boolean> newer = queue.submit(second, new Location(loadedWorld(), 0, 64, 0), true);
+        assertThat(newer).isNotDone();
+
+        queue.run();
+        assertThat(waitsForChunk).isCompletedWithValue(true);
+        assertThat(newer).isNotDone();
+        queue.run();
+        assertThat(newer).isCompletedWithValue(true);
+    }
+
+    @Test
+    void capsChunkLoadsPerTick() {
+        TeleportQueue queue = new TeleportQueue(plugin, config(4, 9, 1, false));
+        World world = mock(World.class);
+        when(world.getChunkAtAsync(anyInt(), anyInt())).thenReturn(new CompletableFuture<>());
+
+        // Three destinations far apart, nine chunks each
+        for (int i = 0; i < 3; i++) {
+            queue.submit(player(), new Location(world, i * 1000, 64, 0), true);
+        }
+        verify(world, times(9)).getChunkAtAsync(anyInt(), anyInt());
+
+        queue.run();
+        verify(world, times(18)).getChunkAtAsync(anyInt(), anyInt());
+        queue.run();
+        verify(world, times(27)).getChunkAtAsync(anyInt(), anyInt());
+        assertThat(queue.getDepth()).isEqualTo(3);
+    }
+
+    @Test
+    void doesNotLookAtWaitingTeleportsOnceTheScanBudgetIsSpent() {
+        TeleportQueue queue = new TeleportQueue(plugin, config(2, 18, 0, false));
+        World world = loadedWorld();
+        Location loc = new Location(world, 0, 64, 0);
+        for (int i = 0; i < 100; i++) {
+            queue.submit(player(), loc, true);
+        }
+        assertThat(queue.getDepth()).isEqualTo(98);
+
+        clearInvocations(world);
+        queue.run();
+        assertThat(queue.getDepth()).isEqualTo(96);
+        verify(world, never()).isChunkLoaded(anyInt(), anyInt());
+    }
+
+    @Test
+    void holdsLoadedChunksUntilTheTeleportIsDone() {
+        TeleportQueue queue = new TeleportQueue(plugin, config(1, 18, 0, false));
+        World world = mock(World.class);
+        CompletableFuture<Chunk> chunk = new CompletableFuture<>();
+        when(world.getChunkAtAsync(0, 0)).thenReturn(chunk);
+        Location loc = new Location(world, 0, 64, 0);
+        Location busy = new Location(loadedWorld(), 0, 64, 0);
+
+        // Loaded while a teleport waiting longer takes the scan of the next tick
+        queue.submit(player(), busy, true);
+        queue.submit(player(), busy, true);
+        CompletableFuture<Boolean> waiting = queue.submit(player(), loc, true);
+        chunk.complete(mock(Chunk.class));
+        when(world.isChunkLoaded(0, 0)).thenReturn(true);
+        queue.run();
+        verify(world).addPluginChunkTicket(0, 0, plugin);
+        verify(world, never()).removePluginChunkTicket(anyInt(), anyInt(), any());
+        assertThat(waiting).isNotDone();
+
+        queue.run();
+        assertThat(waiting).isCompletedWithValue(true);
+        verify(world).removePluginChunkTicket(0, 0, plugin);
+    }
+
+    @Test
+    void requestsChunksAgainIfTheyUnloadedBeforeTheTeleport() {
+        TeleportQueue queue = new TeleportQueue(plugin, config(4, 18, 0, false));
+        World world = mock(World.class);
+        when(world.getChunkAtAsync(0, 0))
+            .thenReturn(CompletableFuture.completedFuture(mock(Chunk.class)), new CompletableFuture<>());
+        Player player = player();
+
+        CompletableFuture<Boolean> result = queue.submit(player, new Location(world, 0, 64, 0), true);
+        queue.run();
+        verify(world, times(2)).getChunkAtAsync(0, 0);
+        verify(player, never()).teleport(any(Location.class));
+        assertThat(result).isNotDone();
+        assertThat(queue.getDepth()).isEqualTo(1);
+    }
+
+    @Test
+    void failedChunkLoadCancelsOrFallsBack() {
+        World world = mock(World.class);
+        when(world.getChunkAtAsync(anyInt(), anyInt()))
+            .thenAnswer(invocation -> CompletableFuture.failedFuture(new IllegalStateException("generation failed")));
+        Location loc = new Location(world, 0, 64, 0);
+
+        TeleportQueue cancel = new TeleportQueue(plugin, config(4, 18, 1, false));
+        Player player = player();
+        CompletableFuture<Boolean> cancelled = cancel.submit(player, loc, true);
+        cancel.run();
+        assertThat(cancelled).isCompletedWithValue(false);
+        verify(player, never()).teleport(any(Location.class));
+        assertThat(cancel.getMetrics().getOperation(TeleportQueue.CHUNK_LOAD).getErrorCount()).isEqualTo(1);
+
+        TeleportQueue sync = new TeleportQueue(plugin, config(4, 18, 1, true));
+        CompletableFuture<Boolean> loadedSync = sync.submit(player, loc, true);
+        sync.run();
+        assertThat(loadedSync).isCompletedWithValue(true);
+        verify(player).teleport(loc);
+    }
+
+    @Test
+    void skipsPlayersWhoLeftAndFailsPendingTeleportsOnClear() {
+        TeleportQueue queue = new TeleportQueue(plugin, config(1, 18, 0, false));
+        World world = loadedWorld();
+        Location loc = new Location(world, 0, 64, 0);
+        Player left = player();
+        when(left.isOnline()).thenReturn(false);
+
+        assertThat(queue.submit(left, loc, true)).isCompletedWithValue(false);
+        assertThat(queue.submit(player(), loc, true)).isCompletedWithValue(true);
+        Player waiting = player();
+        CompletableFuture<Boolean> pending = queue.submit(waiting, loc, true);
+
+        queue.clear();
+        assertThat(pending).isCompletedWithValue(false);
+        verify(waiting, never()).teleport(any(Location.class));
+    }
+
+    @Test
+    void clearFailsTeleportsWhoseChunksAreStillLoading() {
+        TeleportQueue queue = new TeleportQueue(plugin, config(4, 18, 0, false));
+        World world = mock(World.class);
+        CompletableFuture<Chunk> chunk = new CompletableFuture<>();
+        when(world.getChunkAtAsync(0, 0)).thenReturn(chunk);
+        Player player = player();
+
+        CompletableFuture<Boolean> loading = queue.submit(player, new Location(world, 0, 64, 0), true);
+        queue.clear();
+        assertThat(loading).isCompletedWithValue(false);
+        assertThat(queue.getDepth()).isZero();
+
+        // The chunk arriving afterwards does not bring the teleport back
+        chunk.complete(mock(Chunk.class));
+        queue.run();
+        verify(player, never()).teleport(any(Location.class));
+        assertThat(queue.getDepth()).isZero();
+        assertThat(queue.getMetrics().getOperation(TeleportQueue.CHUNK_LOAD)).isNull();
+    }
+
+    @Test
+    void reportsDepthAndWaitTimes() {
+        TeleportQueue queue = new TeleportQueue(plugin, config(2, 18, 0, false));
+        Location loc = new Location(loadedWorld(), 0, 64, 0);
+        for (int i = 0; i < 5; i++) {
+            queue.submit(player(), loc, true);
+        }
+        assertThat(queue.report().get(0)).isEqualTo("queue: 3 waiting, 0 loading chunks, max depth 3, 3 deferred");
+
+        queue.run();
+        // Each teleport counts once, however many ticks it waits
+        assertThat(queue.report().get(0)).isEqualTo("queue: 1 waiting, 0 loading chunks, max depth 3, 3 deferred");
+        queue.run();
+        assertThat(queue.getMetrics().getOperation(TeleportQueue.WAIT).getCount()).isEqualTo(5);
+        assertThat(queue.report()).anyMatch(line -> line.startsWith("teleport.wait: 5 calls, 0 errors"));
+        assertThat(queue.report()).anyMatch(line -> line.startsWith("teleport.scan: 5 calls"));
+
+        queue.reset();
+        assertThat(queue.report().get(0)).isEqualTo("queue: 0 waiting, 0 loading chunks, max depth 0, 0 deferred");
+        assertThat(queue.getMetrics().getOperation(TeleportQueue.WAIT).getCount()).isZero();
+    }
+}
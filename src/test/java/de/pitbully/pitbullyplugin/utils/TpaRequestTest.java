@@ -3,6 +3,7 @@ package de.pitbully.pitbullyplugin.utils;
 import static org.mockito.Mockito.*;
 
 import de.pitbully.pitbullyplugin.PitbullyPlugin;
+import java.util.concurrent.CompletableFuture;
 import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
@@ -47,7 +48,8 @@ class TpaRequestTest {
         try (MockedStatic<SafeTeleport> st = mockStatic(SafeTeleport.class);
              MockedStatic<TpaRequestManager> mgr = mockStatic(TpaRequestManager.class);
              MockedStatic<PitbullyPlugin> plugin = mockStatic(PitbullyPlugin.class)) {
-            st.when(() -> SafeTeleport.teleport(eq(requester), eq(loc))).thenReturn(true);
+            st.when(() -> SafeTeleport.teleportAsync(eq(requester), eq(loc)))
+                .thenReturn(CompletableFuture.completedFuture(true));
             PitbullyPlugin pl = mock(PitbullyPlugin.class);
             plugin.when(PitbullyPlugin::getInstance).thenReturn(pl);
             // No config manager needed for accept branch